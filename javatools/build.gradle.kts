@@ -1,4 +1,5 @@
 import org.gradle.language.base.plugins.LifecycleBasePlugin.BUILD_GROUP
+import org.gradle.language.base.plugins.LifecycleBasePlugin.VERIFICATION_GROUP
 
 /*
  * Build file for the Java tools portion of the XDK.
@@ -73,5 +74,30 @@ tasks {
 
     test {
         maxHeapSize = "1G"
+        useJUnitPlatform {
+            excludeTags("benchmark", "integration")
+        }
+    }
+
+    val integrationTest by registering(Test::class) {
+        group = VERIFICATION_GROUP
+        description = "Run the slow tests against the built XDK that are excluded from the test task."
+        testClassesDirs = sourceSets["test"].output.classesDirs
+        classpath = sourceSets["test"].runtimeClasspath
+        maxHeapSize = "1G"
+        useJUnitPlatform {
+            includeTags("integration")
+        }
+    }
+
+    val benchmark by registering(Test::class) {
+        group = VERIFICATION_GROUP
+        description = "Run the benchmarks that are excluded from the test task."
+        testClassesDirs = sourceSets["test"].output.classesDirs
+        classpath = sourceSets["test"].runtimeClasspath
+        maxHeapSize = "1G"
+        useJUnitPlatform {
+            includeTags("benchmark")
+        }
     }
 }
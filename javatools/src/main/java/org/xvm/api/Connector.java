@@ -4,6 +4,7 @@ package org.xvm.api;
 import java.io.File;
 
 import java.util.List;
+import java.util.Properties;
 
 import org.xvm.asm.ConstantPool;
 import org.xvm.asm.DirRepository;
@@ -80,6 +81,22 @@ public class Connector
             }
         }
 
+    /**
+     * Specify the properties of the host process that the injected resources are based on, in
+     * lieu of the system properties of this JVM.
+     *
+     * @param props  the host properties, or null to use the system properties
+     */
+    public void setHostProperties(Properties props)
+        {
+        if (m_containerMain != null)
+            {
+            throw new IllegalStateException("Connector is already activated");
+            }
+
+        f_containerNative.setHostProperties(props);
+        }
+
     /**
      * Create the main container for the specified module.
      */
@@ -169,6 +186,19 @@ public class Connector
         m_containerMain = null;
         }
 
+    /**
+     * Shut down the Runtime, releasing its threads. This is only necessary when the hosting JVM is
+     * expected to outlive the Connector.
+     */
+    public void shutdown()
+        {
+        if (m_fStarted)
+            {
+            f_runtime.shutdownXVM();
+            m_fStarted = false;
+            }
+        }
+
 
     // ----- data fields ---------------------------------------------------------------------------
 
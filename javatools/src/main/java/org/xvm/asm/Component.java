@@ -1,15 +1,15 @@
 package org.xvm.asm;
 
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInput;
-import java.io.DataInputStream;
 import java.io.DataOutput;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
 
+import java.nio.ByteBuffer;
+
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -41,6 +41,7 @@ import org.xvm.asm.MethodStructure.ConcurrencySafety;
 
 import org.xvm.compiler.Constants;
 
+import org.xvm.util.ByteBufferDataInput;
 import org.xvm.util.Handy;
 import org.xvm.util.Hash;
 import org.xvm.util.ListMap;
@@ -832,7 +833,7 @@ public abstract class Component
      */
     protected void ensureChildren()
         {
-        if (m_abChildren != null)
+        if (m_bufChildren != null)
             {
             ensureChildrenComplex();
             }
@@ -844,56 +845,88 @@ public abstract class Component
      */
     private void ensureChildrenComplex()
         {
-        byte[] ab = m_abChildren;
-        if (ab != null)
+        ByteBuffer buf = m_bufChildren;
+        if (buf != null)
             {
             // sync on an object shared by all siblings
-            synchronized (ab)
+            synchronized (buf)
                 {
-                if (ab.length == 0)
+                if (buf.capacity() == 0)
                     {
                     // we've recursed from disassembleChildren() below, or the deserialization
-                    // thread just released the empty array monitor introduced below
+                    // thread just released the empty buffer monitor introduced below
                     return;
                     }
 
-                if (m_abChildren != null)
+                if (m_bufChildren != buf)
                     {
-                    assert ab == m_abChildren;
+                    // the children have been deserialized or moved to the heap (see
+                    // moveChildrenToHeap) while we were waiting
+                    if (m_bufChildren != null)
+                        {
+                        ensureChildrenComplex();
+                        }
+                    return;
+                    }
 
-                    // create an empty array to serve as a marker indicating that we are in the
-                    // process of deserialization, so threads would be forced to block on this object
-                    byte[] empty = new byte[0];
-                    synchronized (empty)
+                // create an empty buffer to serve as a marker indicating that we are in the
+                // process of deserialization, so threads would be forced to block on this object
+                ByteBuffer empty = ByteBuffer.allocate(0);
+                synchronized (empty)
+                    {
+                    // mark all siblings as in active serialization; this blocks other threads
+                    // until deserialization is complete
+                    for (Iterator<Component> siblings = siblings(); siblings.hasNext(); )
+                        {
+                        siblings.next().m_bufChildren = empty;
+                        }
+
+                    // now read in the children
+                    DataInput in = new ByteBufferDataInput(buf);
+                    try
+                        {
+                        // this may recurse, hence the complexity of the synchronization above
+                        disassembleChildren(in, true);
+                        }
+                    catch (IOException e)
                         {
-                        // mark all siblings as in active serialization; this blocks other threads
-                        // until deserialization is complete
+                        throw new IllegalStateException(
+                                "IOException occurred in " + getIdentityConstant() + " " + "during"
+                                + " deferred read of child components", e);
+                        }
+                    finally
+                        {
+                        // mark the deserialization as complete
                         for (Iterator<Component> siblings = siblings(); siblings.hasNext(); )
                             {
-                            siblings.next().m_abChildren = empty;
+                            siblings.next().m_bufChildren = null;
                             }
+                        }
+                    }
+                }
+            }
+        }
 
-                        // now read in the children
-                        DataInput in = new DataInputStream(new ByteArrayInputStream(ab));
-                        try
-                            {
-                            // this may recurse, hence the complexity of the synchronization above
-                            disassembleChildren(in, true);
-                            }
-                        catch (IOException e)
-                            {
-                            throw new IllegalStateException(
-                                    "IOException occurred in " + getIdentityConstant() + " " + "during"
-                                    + " deferred read of child components", e);
-                            }
-                        finally
-                            {
-                            // mark the deserialization as complete
-                            for (Iterator<Component> siblings = siblings(); siblings.hasNext(); )
-                                {
-                                siblings.next().m_abChildren = null;
-                                }
-                            }
+    /**
+     * If the deferred children of this component (and its siblings) are still held in a
+     * memory-mapped buffer, copy them onto the heap, so that the mapping is no longer referenced.
+     * This component must be the eldest sibling.
+     */
+    void moveChildrenToHeap()
+        {
+        ByteBuffer buf = m_bufChildren;
+        if (buf != null && buf.isDirect())
+            {
+            synchronized (buf)
+                {
+                if (m_bufChildren == buf)
+                    {
+                    ByteBuffer bufHeap = ByteBuffer.allocate(buf.remaining());
+                    bufHeap.put(buf.duplicate()).flip();
+
+                    for (Component eachSibling = this; eachSibling != null; eachSibling = eachSibling.getNextSibling())
+                        {
+                        eachSibling.m_bufChildren = bufHeap;
                         }
                     }
                 }
@@ -1011,11 +1044,11 @@ public abstract class Component
         {
         // the child can't have any of its own children; that "merge" functionality is simply
         // not supported by this operation
-        assert m_abChildren       == null;
+        assert m_bufChildren      == null;
         assert m_childByName      == null;
 
         // make sure that the various sibling-shared fields are configured
-        m_abChildren  = that.m_abChildren;
+        m_bufChildren = that.m_bufChildren;
         m_childByName = that.m_childByName;
         }
 
@@ -1877,15 +1910,30 @@ public abstract class Component
                 {
                 if (fLazy)
                     {
-                    // just read the bytes for the children and store it off for later
-                    byte[] ab = new byte[cb];
-                    in.readFully(ab);
+                    // just take the bytes for the children and store them off for later; if the
+                    // input is a (e.g. memory-mapped) buffer, the bytes are not even copied
+                    ByteBuffer buf;
+                    if (in instanceof ByteBufferDataInput inBuf)
+                        {
+                        buf = inBuf.slice(cb);
+                        if (buf.isDirect())
+                            {
+                            getFileStructure().registerMappedChildren(kid);
+                            }
+                        }
+                    else
+                        {
+                        byte[] ab = new byte[cb];
+                        in.readFully(ab);
+                        buf = ByteBuffer.wrap(ab);
+                        }
+
                     for (Component eachSibling = kid; eachSibling != null; eachSibling = eachSibling.getNextSibling())
                         {
                         // note that every sibling has a copy of all the children; this is because
-                        // the byte[] serves as both the storage of those children and an indicator that
-                        // the deserialization of the children has been deferred
-                        eachSibling.m_abChildren = ab;
+                        // the buffer serves as both the storage of those children and an indicator
+                        // that the deserialization of the children has been deferred
+                        eachSibling.m_bufChildren = buf;
                         }
                     }
                 else
@@ -2228,7 +2276,7 @@ public abstract class Component
 
         that.m_sibling     = null;
         that.m_childByName = null;
-        that.m_abChildren  = null;
+        that.m_bufChildren = null;
 
         return that;
         }
@@ -3920,7 +3968,7 @@ public abstract class Component
      * it can optionally lazily deserialize its children. This is possible because the "children"
      * block is length-encoded.
      */
-    private volatile byte[] m_abChildren;
+    private volatile ByteBuffer m_bufChildren;
 
     /**
      * This holds all of the children of all of the siblings, except for methods (because they are
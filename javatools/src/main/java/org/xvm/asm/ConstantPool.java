@@ -153,35 +153,47 @@ public class ConstantPool
                 constant = constant.adoptedBy(this);
                 }
 
-            synchronized (this)
+            // the per-format map decides which of the concurrently registering threads wins; the
+            // position is assigned before the constant is published to the map, since the lock-free
+            // lookup above hands out the published constant, and its position is used as a type id
+            // (e.g. by Frame.checkType); the lock is held only by the threads that missed the lookup
+            ArrayList<Constant> listConst = m_listConst;
+            synchronized (listConst)
                 {
-                if (mapConstants.containsKey(constant))
+                constant.setPosition(listConst.size());
+                constantOld = mapConstants.putIfAbsent(constant, constant);
+                if (constantOld == null)
                     {
-                    // it was concurrently inserted
-                    return mapConstants.get(constant);
+                    listConst.add(constant);
                     }
+                else
+                    {
+                    constant.setPosition(-1);
+                    }
+                }
 
-                constant.setPosition(m_listConst.size());
-                m_listConst.add(constant);
-                mapConstants.put(constant, constant);
+            if (constantOld != null)
+                {
+                // it was concurrently inserted
+                return constantOld;
+                }
 
-                // also allow the constant to be looked up by a locator
-                Object oLocator = constant.getLocator();
-                if (oLocator != null)
+            // also allow the constant to be looked up by a locator
+            Object oLocator = constant.getLocator();
+            if (oLocator != null)
+                {
+                if (oLocator instanceof Constant constLocator &&
+                        constLocator.getContaining() != this)
                     {
-                    if (oLocator instanceof Constant constLocator &&
-                            constLocator.getContaining() != this)
-                        {
-                        constLocator = constLocator.adoptedBy(this);
-                        constLocator.registerConstants(this);
-                        oLocator = constLocator;
-                        }
+                    constLocator = constLocator.adoptedBy(this);
+                    constLocator.registerConstants(this);
+                    oLocator = constLocator;
+                    }
 
-                    Constant constOld = ensureLocatorLookup(constant.getFormat()).put(oLocator, constant);
-                    if (constOld != null && !constOld.equals(constant))
-                        {
-                        throw new IllegalStateException("locator collision: old=" + constOld + ", new=" + constant);
-                        }
+                Constant constOld = ensureLocatorLookup(constant.getFormat()).put(oLocator, constant);
+                if (constOld != null && !constOld.equals(constant))
+                    {
+                    throw new IllegalStateException("locator collision: old=" + constOld + ", new=" + constant);
                     }
                 }
 
@@ -3291,6 +3303,52 @@ public class ConstantPool
         return set;
         }
 
+    /**
+     * @return the binding of this pool to the persistent TypeInfo caches of the modules it links
+     *         to, or null if this pool does not use the persistent TypeInfo caches
+     */
+    public TypeInfoCache.Binding getTypeInfoCache()
+        {
+        return m_cacheTypeInfo;
+        }
+
+    /**
+     * Specify the binding of this pool to the persistent TypeInfo caches.
+     *
+     * @param binding  the binding, or null to stop using the persistent TypeInfo caches
+     */
+    public void setTypeInfoCache(TypeInfoCache.Binding binding)
+        {
+        m_cacheTypeInfo = binding;
+        }
+
+    /**
+     * Write out all of the constants in this pool. Unlike the assembly of a FileStructure, this
+     * does not discard or re-order any constants, so the constant positions remain valid.
+     *
+     * @param out  the DataOutput to write to
+     *
+     * @throws IOException  if an IOException occurs while writing the constants
+     */
+    public void writeConstants(DataOutput out)
+            throws IOException
+        {
+        assemble(out);
+        }
+
+    /**
+     * Replace the contents of this pool with the constants written by {@link #writeConstants}.
+     *
+     * @param in  the DataInput to read from
+     *
+     * @throws IOException  if an IOException occurs while reading the constants
+     */
+    public void readConstants(DataInput in)
+            throws IOException
+        {
+        disassemble(in);
+        }
+
 
     // ----- TypeConstant helpers  -----------------------------------------------------------------
 
@@ -4308,6 +4366,11 @@ public class ConstantPool
      */
     private volatile int m_cInvalidated;
 
+    /**
+     * The binding to the persistent TypeInfo caches; null if they are not used.
+     */
+    private transient volatile TypeInfoCache.Binding m_cacheTypeInfo;
+
     /**
      * NakedRef is a fundamental formal type that comes from the "_native" module.
      */
@@ -13,20 +13,34 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
 
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
 import java.time.Instant;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 import java.util.function.Consumer;
 
 import org.xvm.asm.constants.ModuleConstant;
 import org.xvm.asm.constants.TypeConstant;
 
+import org.xvm.util.ByteBufferDataInput;
 import org.xvm.util.LinkedIterator;
 
 import static org.xvm.util.Handy.intToHexString;
@@ -101,9 +115,48 @@ public class FileStructure
     public FileStructure(File file, boolean fLazy)
             throws IOException
         {
-        this(toInputStream(file), true, fLazy);
+        this(file, fLazy, s_fMapFiles);
+        }
+
+    /**
+     * Construct a file structure for an existing file.
+     *
+     * @param file   the file that contains the existing FileStructure
+     * @param fLazy  true to defer the module deserialization until necessary
+     * @param fMap   true to memory-map the file, so that the lazily deserialized children are not
+     *               copied onto the heap until they are actually used; the caller must own the
+     *               file exclusively, since truncating a mapped file in place (e.g. by another
+     *               process) crashes the JVM
+     *
+     * @throws IOException  if an IOException occurs while reading the FileStructure
+     */
+    public FileStructure(File file, boolean fLazy, boolean fMap)
+            throws IOException
+        {
+        super(null, Access.PUBLIC, true, true, true, Format.FILE, null, null);
 
-        m_file = file;
+        m_fLazyDeser = fLazy;
+        m_file       = file;
+
+        if (fMap)
+            {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+                {
+                long cb = channel.size();
+                if (cb <= Integer.MAX_VALUE)
+                    {
+                    m_mapped = new MappedChildren();
+                    registerMapping(file, m_mapped);
+                    disassemble(new ByteBufferDataInput(channel.map(MapMode.READ_ONLY, 0, cb)));
+                    return;
+                    }
+                }
+            }
+
+        try (InputStream in = toInputStream(file))
+            {
+            disassemble(new DataInputStream(in));
+            }
         }
 
     /**
@@ -238,6 +291,73 @@ public class FileStructure
     public void writeTo(File file)
             throws IOException
         {
+        // the content is written to a temporary file, which then replaces the specified one; this
+        // way, an existing file is never modified in place, since it may still be memory-mapped
+        // by a FileStructure that was loaded from it
+        Path pathTo   = file.toPath().toAbsolutePath().normalize();
+        Path pathTemp = pathTo.resolveSibling(file.getName() + ".tmp");
+        try
+            {
+            writeToFile(pathTemp.toFile());
+
+            // the FileStructures that still read their deferred children from a mapping of the
+            // file being replaced switch to heap copies, so that the mapping is no longer used
+            // (and can be released) once the file is replaced
+            Set<MappedChildren> setMapped = unregisterMappings(pathTo);
+            for (MappedChildren mapped : setMapped)
+                {
+                mapped.moveToHeap();
+                }
+
+            try
+                {
+                replaceFile(pathTemp, pathTo);
+                }
+            catch (FileSystemException e)
+                {
+                if (setMapped.isEmpty())
+                    {
+                    throw e;
+                    }
+
+                // some platforms (e.g. Windows) refuse to replace a file while it is mapped, and
+                // a mapping is only released once its buffer is collected; fall back to reading
+                // the files onto the heap, and give the collector a chance to release the
+                // (now unreachable) buffers of the replaced file
+                s_fMapFiles = false;
+                System.gc();
+                replaceFile(pathTemp, pathTo);
+                }
+            }
+        finally
+            {
+            Files.deleteIfExists(pathTemp);
+            }
+        }
+
+    /**
+     * Replace the specified file with the temporary one.
+     */
+    private static void replaceFile(Path pathTemp, Path pathTo)
+            throws IOException
+        {
+        try
+            {
+            Files.move(pathTemp, pathTo,
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        catch (AtomicMoveNotSupportedException e)
+            {
+            Files.move(pathTemp, pathTo, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
+    /**
+     * Write the FileStructure directly into the specified file.
+     */
+    private void writeToFile(File file)
+            throws IOException
+        {
         FileOutputStream fos = new FileOutputStream(file);
 
         try
@@ -1239,6 +1359,104 @@ public class FileStructure
         }
 
 
+    // ----- memory mapping ------------------------------------------------------------------------
+
+    /**
+     * Record a component whose deferred children are held in a slice of the memory-mapped file.
+     *
+     * @param component  the eldest of the siblings that share the deferred children
+     */
+    void registerMappedChildren(Component component)
+        {
+        MappedChildren mapped = m_mapped;
+        if (mapped != null)
+            {
+            mapped.add(component);
+            }
+        }
+
+    /**
+     * Register the deferred children of a FileStructure that has memory-mapped the specified file.
+     */
+    private static void registerMapping(File file, MappedChildren mapped)
+        {
+        Path path = file.toPath().toAbsolutePath().normalize();
+        synchronized (s_mapMappings)
+            {
+            // drop the entries of the files whose FileStructures have all been collected
+            s_mapMappings.values().removeIf(Set::isEmpty);
+            s_mapMappings.computeIfAbsent(path,
+                    p -> Collections.newSetFromMap(new WeakHashMap<>())).add(mapped);
+            }
+        }
+
+    /**
+     * Unregister the deferred children of all the FileStructures that have memory-mapped the
+     * specified file.
+     *
+     * @return the deferred children of the FileStructures that are still reachable
+     */
+    private static Set<MappedChildren> unregisterMappings(Path path)
+        {
+        synchronized (s_mapMappings)
+            {
+            Set<MappedChildren> set = s_mapMappings.remove(path);
+            return set == null ? Collections.emptySet() : new HashSet<>(set);
+            }
+        }
+
+    /**
+     * The components of a FileStructure whose deferred children are held in a memory-mapped file.
+     * Note that the identity of this object (unlike the one of a FileStructure) is suitable for
+     * the weak registration.
+     */
+    private static class MappedChildren
+        {
+        /**
+         * Record a component whose deferred children are held in the mapping.
+         */
+        synchronized void add(Component component)
+            {
+            f_listComponents.add(component);
+            }
+
+        /**
+         * Copy all of the deferred children that are still held in the mapping onto the heap.
+         */
+        void moveToHeap()
+            {
+            Component[] aComponent;
+            synchronized (this)
+                {
+                aComponent = f_listComponents.toArray(new Component[0]);
+                f_listComponents.clear();
+                }
+
+            for (Component component : aComponent)
+                {
+                component.moveChildrenToHeap();
+                }
+            }
+
+        /**
+         * The eldest siblings of the components that share the deferred children.
+         */
+        private final List<Component> f_listComponents = new ArrayList<>();
+        }
+
+    /**
+     * The deferred children of the FileStructures that have been loaded from memory-mapped files,
+     * keyed by the normalized absolute path of the file. The entries are held weakly.
+     */
+    private static final Map<Path, Set<MappedChildren>> s_mapMappings = new HashMap<>();
+
+    /**
+     * True iff the FileStructures loaded from files should memory-map them; off unless the
+     * "xvm.xtc.map" property is set, and turned off once replacing a mapped file fails.
+     */
+    private static volatile boolean s_fMapFiles = Boolean.getBoolean("xvm.xtc.map");
+
+
     // ----- fields --------------------------------------------------------------------------------
 
     /**
@@ -1301,4 +1519,10 @@ public class FileStructure
     private int m_nMinorVer;
 
     private transient ErrorListener m_errs;
+
+    /**
+     * If the structure was loaded from a memory-mapped file, the components whose deferred
+     * children are held in the mapping; otherwise null.
+     */
+    private MappedChildren m_mapped;
     }
\ No newline at end of file
@@ -56,6 +56,8 @@ import org.xvm.runtime.Container;
 import org.xvm.runtime.Frame;
 import org.xvm.runtime.Utils;
 
+import org.xvm.runtime.jit.JitMethod;
+
 import org.xvm.util.LinkedIterator;
 import org.xvm.util.ListMap;
 import org.xvm.util.Severity;
@@ -1122,6 +1124,7 @@ public class MethodStructure
         m_cVars   = 0;
         m_cScopes = 0;
         m_fNative = false;
+        m_jit     = null;
         }
 
     boolean needsReassembly()
@@ -1545,6 +1548,20 @@ public class MethodStructure
         return false;
         }
 
+    /**
+     * @return the JIT tier state for this method, or null if the JIT is disabled
+     */
+    public JitMethod getJitMethod()
+        {
+        JitMethod jit = m_jit;
+        if (jit == null && JitMethod.ENABLED)
+            {
+            // a benign race; the worst case is a few lost invocation counts
+            m_jit = jit = new JitMethod(this);
+            }
+        return jit;
+        }
+
     /**
      * Ensure that all SingletonConstants used by this method are initialized before the next
      * frame is called.
@@ -3558,6 +3575,11 @@ public class MethodStructure
      */
     private transient boolean m_fInitialized;
 
+    /**
+     * The JIT tier state of this method.
+     */
+    private transient JitMethod m_jit;
+
     /**
      * Cached method for the construct-finally that goes with this method, iff this method is a
      * constructor that has a "finally" block.
@@ -17,9 +17,10 @@ import org.xvm.asm.constants.TypeConstant;
 import org.xvm.asm.constants.TypeInfo;
 
 import org.xvm.runtime.ClassTemplate;
+import org.xvm.runtime.Container;
 import org.xvm.runtime.Frame;
+import org.xvm.runtime.InlineCache;
 import org.xvm.runtime.ObjectHandle;
-import org.xvm.runtime.ServiceContext;
 import org.xvm.runtime.TypeComposition;
 
 import org.xvm.runtime.template._native.reflect.xRTType.TypeHandle;
@@ -192,19 +193,16 @@ public abstract class OpCallable extends Op
     protected MethodStructure getChildConstructor(Frame frame, ObjectHandle hParent)
         {
         // suffix "C" indicates the compile-time constants; "R" - the run-time
-        IdentityConstant idParentR   = hParent.getTemplate().getClassConstant();
-        ServiceContext   context     = frame.f_context;
-        MethodStructure  constructor = (MethodStructure) context.getOpInfo(this, Category.Constructor);
+        ClassTemplate    templateR   = hParent.getTemplate();
+        MethodStructure  constructor = f_cacheConstructor.get(templateR);
         if (constructor != null)
             {
-            IdentityConstant idParent = (IdentityConstant) context.getOpInfo(this, Category.TargetClass);
-            if (idParent.equals(idParentR))
-                {
-                // cached constructor fits the parent's class
-                return constructor;
-                }
+            // cached constructor fits the parent's class
+            return constructor;
             }
 
+        IdentityConstant idParentR = templateR.getClassConstant();
+
         constructor = getMethodStructure(frame);
         if (constructor == null)
             {
@@ -238,8 +236,7 @@ public abstract class OpCallable extends Op
                 }
             }
 
-        context.setOpInfo(this, Category.TargetClass, idParentR);
-        context.setOpInfo(this, Category.Constructor, constructor);
+        f_cacheConstructor.put(templateR, constructor);
         return constructor;
         }
 
@@ -254,16 +251,11 @@ public abstract class OpCallable extends Op
         {
         TypeConstant     typeR       = hType.getDataType();
         IdentityConstant idTargetR   = typeR.getSingleUnderlyingClass(false);
-        ServiceContext   context     = frame.f_context;
-        MethodStructure  constructor = (MethodStructure) context.getOpInfo(this, Category.Constructor);
+        MethodStructure  constructor = f_cacheConstructor.get(idTargetR);
         if (constructor != null)
             {
-            IdentityConstant idTarget = (IdentityConstant) context.getOpInfo(this, Category.TargetClass);
-            if (idTarget.equals(idTargetR))
-                {
-                // cached constructor fits the parent's class
-                return constructor;
-                }
+            // cached constructor fits the target's class
+            return constructor;
             }
 
         constructor = getMethodStructure(frame);
@@ -288,8 +280,7 @@ public abstract class OpCallable extends Op
             constructor = info.getTopmostMethodStructure(infoTarget);
             }
 
-        context.setOpInfo(this, Category.TargetClass, idTargetR);
-        context.setOpInfo(this, Category.Constructor, constructor);
+        f_cacheConstructor.put(idTargetR, constructor);
         return constructor;
         }
 
@@ -324,12 +315,10 @@ public abstract class OpCallable extends Op
         {
         assert frame.f_function.isConstructor();
 
-        ServiceContext   context     = frame.f_context;
-        MethodStructure  constructor = (MethodStructure) context.getOpInfo(this, Category.Function);
-        IdentityConstant idPrev      = (IdentityConstant) context.getOpInfo(this, Category.TargetClass);
-        IdentityConstant idThis      = frame.getThis().getTemplate().getClassConstant();
+        ClassTemplate   templateThis = frame.getThis().getTemplate();
+        MethodStructure constructor  = f_cacheConstructor.get(templateThis);
 
-        if (constructor != null && idPrev.equals(idThis))
+        if (constructor != null)
             {
             return constructor;
             }
@@ -381,24 +370,39 @@ public abstract class OpCallable extends Op
                 }
             }
 
-        context.setOpInfo(this, Category.Function, constructor);
-        context.setOpInfo(this, Category.TargetClass, idThis);
+        f_cacheConstructor.put(templateThis, constructor);
 
         return constructor;
         }
 
     /**
-     * Retrieve the method structure for this op-code and cache the parent's template
-     * to be used by {@link #getNativeTemplate}.
+     * Retrieve the method structure for this op-code.
      *
      * @return the method structure or null if cannot be found, in which case an exception
      *         has been raised on the frame
      */
     protected MethodStructure getMethodStructure(Frame frame)
         {
-        ServiceContext   context    = frame.f_context;
+        FunctionInfo info = getFunctionInfo(frame);
+        return info == null ? null : info.f_function;
+        }
+
+    /**
+     * Retrieve the method structure for this op-code together with the template that provides
+     * its native implementation (if any).
+     * <p>
+     * Note: the returned info is the only source of the template; the shared cache must not be
+     *       consulted again, since a concurrent lookup for a formal target resolved to a different
+     *       type may have replaced the cached entry in the meantime.
+     *
+     * @return the function info or null if the function cannot be found, in which case an
+     *         exception has been raised on the frame
+     */
+    protected FunctionInfo getFunctionInfo(Frame frame)
+        {
+        Container        container  = frame.f_context.f_container;
+        FunctionInfo     info       = f_cacheFunction.get(container);
         MethodConstant   idFunction = (MethodConstant) frame.getConstant(m_nFunctionId);
-        MethodStructure  function   = (MethodStructure) context.getOpInfo(this, Category.Function);
         IdentityConstant idTarget   = idFunction.getNamespace();
 
         switch (idTarget.getFormat())
@@ -407,14 +411,14 @@ public abstract class OpCallable extends Op
             case Package:
             case Class:
                 {
-                if (function == null)
+                if (info == null)
                     {
                     ConstantPool        pool     = frame.poolContext();
                     GenericTypeResolver resolver = frame.getGenericsResolver(false);
 
                     TypeConstant typeTarget = idTarget.getFormalType().resolveGenerics(pool, resolver);
 
-                    function = (MethodStructure) idFunction.getComponent();
+                    MethodStructure function = (MethodStructure) idFunction.getComponent();
                     if (function == null)
                         {
                         function = pool.ensureAccessTypeConstant(typeTarget, Access.PRIVATE).
@@ -428,9 +432,8 @@ public abstract class OpCallable extends Op
                         return null;
                         }
 
-                    context.setOpInfo(this, Category.Function, function);
-                    context.setOpInfo(this, Category.Template,
-                            context.f_container.getTemplate(typeTarget));
+                    info = new FunctionInfo(function, container.getTemplate(typeTarget), null);
+                    f_cacheFunction.put(container, info);
                     }
                 break;
                 }
@@ -442,10 +445,9 @@ public abstract class OpCallable extends Op
                 {
                 GenericTypeResolver resolver   = frame.getGenericsResolver(true);
                 TypeConstant        typeTarget = ((FormalConstant) idTarget).resolve(resolver);
-                TypeConstant        typePrev   = (TypeConstant) context.getOpInfo(this, Category.TargetType);
-                if (function == null || !typeTarget.equals(typePrev))
+                if (info == null || !typeTarget.equals(info.f_typeTarget))
                     {
-                    function = typeTarget.findCallable(idFunction.getSignature());
+                    MethodStructure function = typeTarget.findCallable(idFunction.getSignature());
                     if (function == null)
                         {
                         frame.raiseException("Unresolvable or ambiguous function \"" +
@@ -453,26 +455,27 @@ public abstract class OpCallable extends Op
                         return null;
                         }
 
-                    context.setOpInfo(this, Category.Function, function);
-                    context.setOpInfo(this, Category.TargetType, typeTarget);
-                    context.setOpInfo(this, Category.Template,
+                    info = new FunctionInfo(function,
                         typeTarget.isSingleDefiningConstant()
-                            ? context.f_container.getTemplate(typeTarget)
-                            : context.f_container.getTemplate(
-                                    function.getContainingClass().getIdentityConstant()));
+                            ? container.getTemplate(typeTarget)
+                            : container.getTemplate(
+                                    function.getContainingClass().getIdentityConstant()),
+                        typeTarget);
+                    f_cacheFunction.put(container, info);
                     }
                 break;
                 }
 
             case Method:
                 {
-                if (function == null)
+                if (info == null)
                     {
-                    function = (MethodStructure) idFunction.getComponent();
+                    MethodStructure function = (MethodStructure) idFunction.getComponent();
                     assert !function.isNative();
 
                     // since the function is never native, no need to save the template
-                    context.setOpInfo(this, Category.Function, function);
+                    info = new FunctionInfo(function, null, null);
+                    f_cacheFunction.put(container, info);
                     }
                 break;
                 }
@@ -481,17 +484,7 @@ public abstract class OpCallable extends Op
                 throw new IllegalStateException();
             }
 
-        return function;
-        }
-
-    /**
-     * @return the ClassTemplate that defines a native implementation for the specified function
-     *         using the information collected by {@link #getMethodStructure}
-     */
-    protected ClassTemplate getNativeTemplate(Frame frame, MethodStructure function)
-        {
-        assert function == frame.f_context.getOpInfo(this, Category.Function);
-        return (ClassTemplate) frame.f_context.getOpInfo(this, Category.Template);
+        return info;
         }
 
     /**
@@ -623,6 +616,30 @@ public abstract class OpCallable extends Op
     protected Argument   m_argReturn;  // optional
     protected Argument[] m_aArgReturn; // optional
 
-    // categories for cached info
-    enum Category {Function, Template, TargetClass, TargetType, Constructor}
+    /**
+     * The function information cached by {@link #getFunctionInfo}.
+     */
+    protected static class FunctionInfo
+        {
+        private FunctionInfo(MethodStructure function, ClassTemplate template, TypeConstant typeTarget)
+            {
+            f_function   = function;
+            f_template   = template;
+            f_typeTarget = typeTarget;
+            }
+
+        public final MethodStructure f_function;
+        public final ClassTemplate   f_template;   // only for natively implemented functions
+        public final TypeConstant    f_typeTarget; // only for formal targets
+        }
+
+    /**
+     * The functions keyed by the Container.
+     */
+    private final InlineCache<Container, FunctionInfo> f_cacheFunction = new InlineCache<>();
+
+    /**
+     * The constructors keyed by the run-time target's (or parent's) ClassTemplate or identity.
+     */
+    private final InlineCache<Object, MethodStructure> f_cacheConstructor = new InlineCache<>();
     }
\ No newline at end of file
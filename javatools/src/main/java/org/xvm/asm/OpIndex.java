@@ -5,13 +5,12 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 
-import org.xvm.asm.constants.TypeConstant;
-
 import org.xvm.runtime.CallChain;
 import org.xvm.runtime.Frame;
+import org.xvm.runtime.InlineCache;
 import org.xvm.runtime.ObjectHandle;
 import org.xvm.runtime.ObjectHandle.ExceptionHandle;
-import org.xvm.runtime.ServiceContext;
+import org.xvm.runtime.TypeComposition;
 import org.xvm.runtime.Utils;
 
 import static org.xvm.util.Handy.readPackedInt;
@@ -140,29 +139,17 @@ public abstract class OpIndex
     /**
      * Retrieve cached call chain.
      */
-    protected CallChain getOpChain(Frame frame, TypeConstant typeTarget)
+    protected CallChain getOpChain(TypeComposition clzTarget)
         {
-        ServiceContext ctx   = frame.f_context;
-        CallChain      chain = (CallChain) ctx.getOpInfo(this, Category.Chain);
-        if (chain != null)
-            {
-            TypeConstant typePrevTarget = (TypeConstant) ctx.getOpInfo(this, Category.Type);
-            if (typeTarget.equals(typePrevTarget))
-                {
-                return chain;
-                }
-            }
-        return null;
+        return f_cacheChain.get(clzTarget);
         }
 
     /**
      * Cache the specified call chain for the given target.
      */
-    protected void saveOpChain(Frame frame, TypeConstant typeTarget, CallChain chain)
+    protected void saveOpChain(TypeComposition clzTarget, CallChain chain)
         {
-        ServiceContext ctx = frame.f_context;
-        ctx.setOpInfo(this, Category.Chain, chain);
-        ctx.setOpInfo(this, Category.Type, typeTarget);
+        f_cacheChain.put(clzTarget, chain);
         }
 
     @Override
@@ -211,6 +198,8 @@ public abstract class OpIndex
     private Argument m_argIndex;
     private Argument m_argReturn;
 
-    // categories for cached info
-    enum Category {Chain, Type}
+    /**
+     * The call chains keyed by the target's TypeComposition.
+     */
+    private final InlineCache<TypeComposition, CallChain> f_cacheChain = new InlineCache<>();
     }
\ No newline at end of file
@@ -14,9 +14,9 @@ import org.xvm.asm.constants.SignatureConstant;
 
 import org.xvm.runtime.CallChain;
 import org.xvm.runtime.Frame;
+import org.xvm.runtime.InlineCache;
 import org.xvm.runtime.ObjectHandle;
 import org.xvm.runtime.PropertyComposition;
-import org.xvm.runtime.ServiceContext;
 import org.xvm.runtime.TypeComposition;
 
 import org.xvm.runtime.template.xException;
@@ -126,20 +126,16 @@ public abstract class OpInvocable extends Op
         }
 
     // helper methods
-     protected CallChain getCallChain(Frame frame, ObjectHandle hTarget)
+    protected CallChain getCallChain(Frame frame, ObjectHandle hTarget)
         {
-        ServiceContext  context   = frame.f_context;
-        CallChain       chain     = (CallChain) context.getOpInfo(this, Category.Chain);
-        TypeComposition clazzPrev = (TypeComposition) context.getOpInfo(this, Category.Composition);
-        TypeComposition clazz     = hTarget.getComposition();
+        TypeComposition clazz = hTarget.getComposition();
+        CallChain       chain = f_cacheChain.get(clazz);
 
-        if (chain != null && clazz == clazzPrev)
+        if (chain != null)
             {
             return chain;
             }
 
-        context.setOpInfo(this, Category.Composition, clazz);
-
         MethodConstant  idMethod = (MethodConstant) frame.getConstant(m_nMethodId);
         MethodStructure method   = (MethodStructure) idMethod.getComponent();
 
@@ -149,7 +145,7 @@ public abstract class OpInvocable extends Op
             {
             chain = new CallChain(method);
 
-            context.setOpInfo(this, Category.Chain, chain);
+            f_cacheChain.put(clazz, chain);
             return chain;
             }
 
@@ -192,7 +188,7 @@ public abstract class OpInvocable extends Op
                 "\" on " + hTarget.getType().getValueString()));
             }
 
-        context.setOpInfo(this, Category.Chain, chain);
+        f_cacheChain.put(clazz, chain);
         return chain;
         }
 
@@ -344,6 +340,8 @@ public abstract class OpInvocable extends Op
     protected Argument       m_argReturn;  // optional
     protected Argument[]     m_aArgReturn; // optional
 
-    // categories for cached info
-    enum Category {Chain, Composition}
+    /**
+     * The call chains keyed by the target's TypeComposition.
+     */
+    private final InlineCache<TypeComposition, CallChain> f_cacheChain = new InlineCache<>();
     }
\ No newline at end of file
@@ -6,6 +6,17 @@ import java.io.DataOutput;
 import java.io.IOException;
 
 import org.xvm.asm.constants.PropertyConstant;
+import org.xvm.asm.constants.TypeConstant;
+
+import org.xvm.runtime.CallChain;
+import org.xvm.runtime.ClassComposition;
+import org.xvm.runtime.ClassComposition.FieldInfo;
+import org.xvm.runtime.Frame;
+import org.xvm.runtime.InlineCache;
+import org.xvm.runtime.ObjectHandle;
+import org.xvm.runtime.ObjectHandle.GenericHandle;
+import org.xvm.runtime.ObjectHandle.InitializingHandle;
+import org.xvm.runtime.TypeComposition;
 
 import static org.xvm.util.Handy.readPackedInt;
 import static org.xvm.util.Handy.writePackedLong;
@@ -57,13 +68,146 @@ public abstract class OpProperty extends Op
         m_idProp = (PropertyConstant) registerArgument(m_idProp, registry);
         }
 
+    /**
+     * Retrieve the property value. If the property is a plain field, read it directly; otherwise
+     * let the target's template do the work.
+     *
+     * @param frame    the current frame
+     * @param hTarget  the target handle
+     * @param idProp   the property id
+     * @param iReturn  the register id to place the result into
+     *
+     * @return one of the {@link #R_NEXT}, {@link #R_CALL} or {@link #R_EXCEPTION} values
+     */
+    protected int getPropertyValue(Frame frame, ObjectHandle hTarget, PropertyConstant idProp,
+                                   int iReturn)
+        {
+        if (hTarget instanceof GenericHandle hThis)
+            {
+            FieldInfo field = getPlainField(hThis, idProp, false);
+            if (field != null)
+                {
+                ObjectHandle hValue = hThis.getField(field.getIndex());
+                if (hValue != null)
+                    {
+                    return frame.assignValue(iReturn, hValue);
+                    }
+                // an unassigned value requires the full treatment (e.g. injection)
+                }
+            }
+
+        return hTarget.getTemplate().getPropertyValue(frame, hTarget, idProp, iReturn);
+        }
+
+    /**
+     * Set the property value. If the property is a plain field, write it directly; otherwise let
+     * the target's template do the work.
+     *
+     * @param frame    the current frame
+     * @param hTarget  the target handle
+     * @param idProp   the property id
+     * @param hValue   the new value
+     *
+     * @return one of the {@link #R_NEXT}, {@link #R_CALL} or {@link #R_EXCEPTION} values
+     */
+    protected int setPropertyValue(Frame frame, ObjectHandle hTarget, PropertyConstant idProp,
+                                   ObjectHandle hValue)
+        {
+        if (hTarget instanceof GenericHandle hThis && hThis.isMutable())
+            {
+            FieldInfo field = getPlainField(hThis, idProp, true);
+            if (field != null)
+                {
+                // the type of a value that is still being initialized is not available yet
+                if (hValue instanceof InitializingHandle || isAssignable(hValue, field))
+                    {
+                    hThis.setField(field.getIndex(), hValue);
+                    return R_NEXT;
+                    }
+                // a type mismatch is reported by the template
+                }
+            }
+
+        return hTarget.getTemplate().setPropertyValue(frame, hTarget, idProp, hValue);
+        }
+
+    /**
+     * @return true iff the specified value can be stored in the specified field
+     */
+    private static boolean isAssignable(ObjectHandle hValue, FieldInfo field)
+        {
+        TypeConstant typeValue = hValue.getType();
+        TypeConstant typeField = field.getType();
+        return typeValue == typeField || typeValue.isA(typeField);
+        }
+
+    /**
+     * Find the information about the field that backs the specified property if the property can
+     * be accessed directly, bypassing the template.
+     *
+     * @param hThis   the target handle
+     * @param idProp  the property id
+     * @param fSet    true for the property "set" access; false for "get"
+     *
+     * @return the FieldInfo for a plain field or null if the access requires the full treatment
+     */
+    private FieldInfo getPlainField(GenericHandle hThis, PropertyConstant idProp, boolean fSet)
+        {
+        TypeComposition clz   = hThis.getComposition();
+        Object          oInfo = f_cacheField.get(clz);
+        if (oInfo == null)
+            {
+            oInfo = computePlainField(clz, idProp, fSet);
+            f_cacheField.put(clz, oInfo);
+            }
+        return oInfo == NOT_PLAIN ? null : (FieldInfo) oInfo;
+        }
+
+    /**
+     * Compute the cached value for {@link #getPlainField}; this replicates the decisions made
+     * by the default {@link org.xvm.runtime.ClassTemplate} property access implementation.
+     *
+     * @return the FieldInfo or {@link #NOT_PLAIN}
+     */
+    private static Object computePlainField(TypeComposition clz, PropertyConstant idProp, boolean fSet)
+        {
+        if (clz instanceof ClassComposition && clz.getTemplate().isDefaultPropertyAccess())
+            {
+            CallChain chain = fSet
+                    ? clz.getPropertySetterChain(idProp)
+                    : clz.getPropertyGetterChain(idProp);
+
+            boolean fField = fSet && clz.isStruct() ||
+                    chain != null && !chain.isNative() && (chain.isField() || clz.isStruct());
+            if (fField)
+                {
+                FieldInfo field = clz.getFieldInfo(idProp);
+                if (field != null && !field.isTransient() && !field.isInflated())
+                    {
+                    return field;
+                    }
+                }
+            }
+        return NOT_PLAIN;
+        }
+
     @Override
     public String toString()
         {
         return super.toString() + ' ' + Argument.toIdString(m_idProp, m_nPropId);
         }
 
+    /**
+     * A cached value indicating that the property cannot be accessed directly.
+     */
+    private static final Object NOT_PLAIN = new Object();
+
     protected int m_nPropId;
 
     protected PropertyConstant m_idProp;
+
+    /**
+     * Cached FieldInfo (or {@link #NOT_PLAIN}) keyed by the target's TypeComposition.
+     */
+    private final InlineCache<TypeComposition, Object> f_cacheField = new InlineCache<>();
     }
@@ -8,7 +8,9 @@ import java.io.IOException;
 import org.xvm.asm.constants.StringConstant;
 import org.xvm.asm.constants.TypeConstant;
 
+import org.xvm.runtime.Container;
 import org.xvm.runtime.Frame;
+import org.xvm.runtime.InlineCache;
 import org.xvm.runtime.ServiceContext;
 import org.xvm.runtime.TypeComposition;
 
@@ -138,18 +140,21 @@ public abstract class OpVar
      */
     protected TypeComposition getArrayClass(Frame frame, TypeConstant typeList)
         {
-        ServiceContext  context  = frame.f_context;
-        TypeComposition clzArray = (TypeComposition) context.getOpInfo(this, Category.Composition);
-        TypeConstant    typePrev = (TypeConstant)    context.getOpInfo(this, Category.Type);
+        Container       container = frame.f_context.f_container;
+        ArrayClassInfo  info      = f_cacheArrayClass.get(container);
+        TypeComposition clzArray;
 
-        if (clzArray == null || !typeList.equals(typePrev))
+        if (info == null || !typeList.equals(info.f_typeList))
             {
             TypeConstant typeEl = typeList.resolveGenericType("Element");
 
-            clzArray = xArray.INSTANCE.ensureParameterizedClass(context.f_container, typeEl);
+            clzArray = xArray.INSTANCE.ensureParameterizedClass(container, typeEl);
 
-            context.setOpInfo(this, Category.Composition, clzArray);
-            context.setOpInfo(this, Category.Type, typeList);
+            f_cacheArrayClass.put(container, new ArrayClassInfo(typeList, clzArray));
+            }
+        else
+            {
+            clzArray = info.f_clzArray;
             }
 
         return clzArray;
@@ -245,6 +250,23 @@ public abstract class OpVar
      */
     protected int m_nType;
 
-    // categories for cached info
-    enum Category {Composition, Type}
+    /**
+     * The array class information cached by {@link #getArrayClass}.
+     */
+    private static class ArrayClassInfo
+        {
+        ArrayClassInfo(TypeConstant typeList, TypeComposition clzArray)
+            {
+            f_typeList = typeList;
+            f_clzArray = clzArray;
+            }
+
+        final TypeConstant    f_typeList;
+        final TypeComposition f_clzArray;
+        }
+
+    /**
+     * The array classes keyed by the Container.
+     */
+    private final InlineCache<Container, ArrayClassInfo> f_cacheArrayClass = new InlineCache<>();
     }
\ No newline at end of file
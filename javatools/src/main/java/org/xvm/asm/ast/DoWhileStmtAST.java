@@ -33,6 +33,14 @@ public class DoWhileStmtAST
         return DoWhileStmt;
     }
 
+    public BinaryAST getBody() {
+        return body;
+    }
+
+    public ExprAST getCond() {
+        return cond;
+    }
+
     @Override
     protected void readBody(DataInput in, ConstantResolver res)
             throws IOException {
@@ -4,6 +4,8 @@ package org.xvm.asm.constants;
 import java.io.DataOutput;
 import java.io.IOException;
 
+import java.util.function.Consumer;
+
 import org.xvm.asm.Constant;
 import org.xvm.asm.ConstantPool;
 
@@ -145,6 +147,12 @@ public class DecimalAutoConstant
         return Format.Dec64;
         }
 
+    @Override
+    public void forEachUnderlying(Consumer<Constant> visitor)
+        {
+        visitor.accept(m_dec);
+        }
+
     @Override
     protected int compareDetails(Constant that)
         {
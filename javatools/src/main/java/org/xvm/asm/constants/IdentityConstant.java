@@ -446,6 +446,14 @@ public abstract class IdentityConstant
             return m_resolver == null || m_resolver instanceof TypeConstant;
             }
 
+        /**
+         * @return the resolver used by this NestedIdentity, or null if there is none
+         */
+        GenericTypeResolver getResolver()
+            {
+            return m_resolver;
+            }
+
         /**
          * @return the IdentityConstant that created this NestedIdentity
          */
@@ -374,6 +374,31 @@ public class PropertyBody
         return m_effectSet == Effect.BlocksSuper;
         }
 
+    /**
+     * @return the Effect of the getter
+     */
+    Effect getGetterEffect()
+        {
+        return m_effectGet;
+        }
+
+    /**
+     * @return the Effect of the setter
+     */
+    Effect getSetterEffect()
+        {
+        return m_effectSet;
+        }
+
+    /**
+     * @return the formal type parameter information, or null if this property body does not
+     *         represent a formal type
+     */
+    ParamInfo getFormalInfo()
+        {
+        return m_infoFormal;
+        }
+
     /**
      * @return true iff the property body is abstract, which means that it comes from an interface
      *         or "into" clause, or is annotated with "@Abstract"
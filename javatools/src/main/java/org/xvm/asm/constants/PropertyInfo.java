@@ -58,7 +58,10 @@ public class PropertyInfo
             body.getType(), body.hasField(), body.isSetterBlockingSuper(), that.m_nRank);
         }
 
-    private PropertyInfo(
+    /**
+     * Create a PropertyInfo from its constituent parts.
+     */
+    PropertyInfo(
             PropertyBody[] aBody,
             TypeConstant   type,
             boolean        fRequireField,
@@ -1625,6 +1625,13 @@ public abstract class TypeConstant
         //    in turn must be completed once the dependent (which is also a depended-upon) TypeInfo
         //    is complete
 
+        // a library type may have its TypeInfo in the persistent cache
+        if (info == null && (info = TypeInfoCache.lookup(this)) != null)
+            {
+            setTypeInfo(info);
+            return info;
+            }
+
         // there is a place-holder that signifies that a type is busy building a TypeInfo;
         // mark the type as having its TypeInfo building "in progress"
         setTypeInfo(pool.infoPlaceholder());
@@ -1768,7 +1775,11 @@ public abstract class TypeConstant
             return null;
             }
 
-        if (info == null || !isUpToDate(info))
+        if (info == null && (info = TypeInfoCache.lookup(this)) != null)
+            {
+            setTypeInfo(info);
+            }
+        else if (info == null || !isUpToDate(info))
             {
             setTypeInfo(getConstantPool().infoPlaceholder());
             info = buildTypeInfo(errs);
@@ -5640,7 +5651,45 @@ public abstract class TypeConstant
      */
     public boolean isA(TypeConstant typeLeft)
         {
-        return calculateRelation(typeLeft) != Relation.INCOMPATIBLE;
+        // the display only caches the answers between the registered types
+        int nId = getPosition() >= 0 ? typeLeft.ensureDisplayId() : 0;
+        if (nId == 0)
+            {
+            return calculateRelation(typeLeft) != Relation.INCOMPATIBLE;
+            }
+
+        TypeDisplay display = m_display;
+        if (display != null)
+            {
+            int nIsA = display.lookup(nId);
+            if (nIsA != TypeDisplay.UNKNOWN)
+                {
+                return nIsA == TypeDisplay.IS_A;
+                }
+            }
+        else
+            {
+            display = TypeDisplay.EMPTY;
+            }
+
+        boolean fIsA = calculateRelation(typeLeft) != Relation.INCOMPATIBLE;
+        m_display = display.with(nId, fIsA);
+        return fIsA;
+        }
+
+    /**
+     * @return the id of this type in the {@link TypeDisplay "isA" displays}, or zero if this type
+     *         is not registered
+     */
+    private int ensureDisplayId()
+        {
+        int nId = m_nDisplayId;
+        if (nId == 0 && getPosition() >= 0)
+            {
+            // a race could assign two ids to the same type; that only costs a few display misses
+            m_nDisplayId = nId = TypeDisplay.allocateId();
+            }
+        return nId;
         }
 
     /**
@@ -7145,6 +7194,8 @@ public abstract class TypeConstant
         m_cInvalidations = 0;
         m_typeinfo       = null;
         m_mapRelations   = null;
+        m_display        = null;
+        m_nDisplayId     = 0;
         m_handle         = null;
         m_typeNormalized = null;
         }
@@ -7480,6 +7531,16 @@ public abstract class TypeConstant
      */
     private transient volatile Map<TypeConstant, Relation> m_mapRelations;
 
+    /**
+     * A display of "isA" responses for the registered types; see {@link #isA}.
+     */
+    private transient volatile TypeDisplay m_display;
+
+    /**
+     * This type's id in the displays of other types (zero if not yet assigned).
+     */
+    private transient int m_nDisplayId;
+
     /**
      * The set of "isA() in progress" types.
      */
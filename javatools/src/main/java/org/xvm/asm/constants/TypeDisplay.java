@@ -0,0 +1,169 @@
+package org.xvm.asm.constants;
+
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * A TypeDisplay is an immutable table of the "isA" answers for a given (R-value) type, keyed by the
+ * display ids of the L-value types. A display id is assigned to a registered TypeConstant the first
+ * time it's used as a left side of the "isA" test, which allows the repeated checks against the
+ * same type (e.g. the runtime "instanceof" checks) to be answered by a single array probe instead
+ * of the pool lookups and the relation map.
+ * <p>
+ * The table is open-addressed; each entry holds the display id shifted left by one, with the lowest
+ * bit holding the answer. To add an answer, a new (slightly larger) display is created; losing
+ * a concurrent update is harmless, since the answer is simply re-calculated next time.
+ */
+final class TypeDisplay
+    {
+    /**
+     * Construct a display with the specified table.
+     */
+    private TypeDisplay(int[] anEntry, int cEntries)
+        {
+        f_anEntry  = anEntry;
+        f_cEntries = cEntries;
+        }
+
+    /**
+     * Look up the "isA" answer for the specified display id.
+     *
+     * @param nId  a display id (positive)
+     *
+     * @return {@link #IS_A} or {@link #NOT_A} if the answer is known; {@link #UNKNOWN} otherwise
+     */
+    int lookup(int nId)
+        {
+        int[] anEntry = f_anEntry;
+        int   nMask   = anEntry.length - 1;
+        for (int i = hash(nId) & nMask; ; i = (i + 1) & nMask)
+            {
+            int nEntry = anEntry[i];
+            if (nEntry == 0)
+                {
+                return UNKNOWN;
+                }
+            if (nEntry >>> 1 == nId)
+                {
+                return nEntry & 1;
+                }
+            }
+        }
+
+    /**
+     * Produce a display that in addition to the answers known to this display knows the
+     * specified one.
+     *
+     * @param nId   a display id (positive)
+     * @param fIsA  the "isA" answer
+     *
+     * @return a new TypeDisplay, or this display if it's already full
+     */
+    TypeDisplay with(int nId, boolean fIsA)
+        {
+        int cEntries = f_cEntries;
+        if (cEntries >= MAX_ENTRIES)
+            {
+            return this;
+            }
+
+        int[] anOld = f_anEntry;
+        int   cNew  = (cEntries + 1) * 2 > anOld.length ? anOld.length * 2 : anOld.length;
+        int[] anNew = new int[cNew];
+
+        for (int nEntry : anOld)
+            {
+            if (nEntry != 0)
+                {
+                insert(anNew, nEntry);
+                }
+            }
+        insert(anNew, nId << 1 | (fIsA ? IS_A : NOT_A));
+
+        return new TypeDisplay(anNew, cEntries + 1);
+        }
+
+    /**
+     * Insert the entry into the specified table, which must have a free slot.
+     */
+    private static void insert(int[] anEntry, int nEntry)
+        {
+        int nMask = anEntry.length - 1;
+        int i     = hash(nEntry >>> 1) & nMask;
+        while (anEntry[i] != 0)
+            {
+            i = (i + 1) & nMask;
+            }
+        anEntry[i] = nEntry;
+        }
+
+    /**
+     * @return the hash (the table index before masking) for the specified display id
+     */
+    private static int hash(int nId)
+        {
+        int n = nId * 0x9E3779B9;
+        return n ^ (n >>> 16);
+        }
+
+    /**
+     * @return a new display id; never zero
+     */
+    static int allocateId()
+        {
+        int nId = s_cIds.incrementAndGet();
+        if (nId > MAX_ID)
+            {
+            // out of ids; the types that don't have an id simply don't use the display
+            s_cIds.set(MAX_ID);
+            return 0;
+            }
+        return nId;
+        }
+
+    @Override
+    public String toString()
+        {
+        return "TypeDisplay{entries=" + f_cEntries + '}';
+        }
+
+
+    // ----- constants and fields ------------------------------------------------------------------
+
+    static final int NOT_A   = 0;
+    static final int IS_A    = 1;
+    static final int UNKNOWN = -1;
+
+    /**
+     * An empty display.
+     */
+    static final TypeDisplay EMPTY = new TypeDisplay(new int[8], 0);
+
+    /**
+     * The maximum number of answers cached by a single display; a type that is tested against more
+     * types than that uses the relation map for the rest of them.
+     */
+    private static final int MAX_ENTRIES = 256;
+
+    /**
+     * The largest display id (the entry uses one bit for the answer).
+     */
+    private static final int MAX_ID = Integer.MAX_VALUE >>> 1;
+
+    /**
+     * The display id counter.
+     */
+    private static final AtomicInteger s_cIds = new AtomicInteger();
+
+    /**
+     * The table of entries; the length is a power of two and the table is never more than half
+     * full.
+     */
+    private final int[] f_anEntry;
+
+    /**
+     * The number of entries.
+     */
+    private final int f_cEntries;
+    }
@@ -469,6 +469,14 @@ public class TypeInfo
         return f_cInvalidations;
         }
 
+    /**
+     * @return the nested depth of this TypeInfo; {@code 0} for a class TypeInfo
+     */
+    int getDepth()
+        {
+        return f_cDepth;
+        }
+
     /**
      * Determine if this TypeInfo is impacted by changes in the TypeInfos built for any of the
      * classes specified by the passed set of IdentityConstants.
@@ -0,0 +1,1981 @@
+package org.xvm.asm.constants;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+
+import java.nio.channels.FileChannel;
+
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import java.util.zip.CRC32C;
+
+import org.xvm.asm.Annotation;
+import org.xvm.asm.ClassStructure;
+import org.xvm.asm.Component;
+import org.xvm.asm.Component.Composition;
+import org.xvm.asm.Component.Contribution;
+import org.xvm.asm.Constant;
+import org.xvm.asm.Constant.Format;
+import org.xvm.asm.ConstantPool;
+import org.xvm.asm.Constants;
+import org.xvm.asm.Constants.Access;
+import org.xvm.asm.FileStructure;
+import org.xvm.asm.MethodStructure;
+import org.xvm.asm.ModuleStructure;
+import org.xvm.asm.PropertyStructure;
+
+import org.xvm.asm.constants.IdentityConstant.NestedIdentity;
+import org.xvm.asm.constants.MethodBody.Implementation;
+import org.xvm.asm.constants.PropertyBody.Effect;
+import org.xvm.asm.constants.TypeConstant.Origin;
+import org.xvm.asm.constants.TypeInfo.Progress;
+
+import org.xvm.util.ByteBufferDataInput;
+import org.xvm.util.ListMap;
+
+import static org.xvm.util.Handy.readMagnitude;
+import static org.xvm.util.Handy.readPackedLong;
+import static org.xvm.util.Handy.readUtf8String;
+import static org.xvm.util.Handy.writePackedLong;
+import static org.xvm.util.Handy.writeUtf8String;
+
+
+/**
+ * A persistent cache of the TypeInfos that were built for the types of a library module.
+ * <p>
+ * Building a TypeInfo flattens the entire composition of a type, and without a cache, every
+ * compilation repeats that work for all the types of the core library that it touches.
+ * <p>
+ * The caches are off unless "-Dxvm.typeinfo.cache" is specified; its value is either the
+ * directory to keep the cache files in, or "true" to use the "~/.xtclang/typeinfo" directory. The
+ * cache directory is never one of the library or output directories, so the cache files never end
+ * up in a packaged library. The cache for a module is named after the module file and its location
+ * (e.g. "ecstasy-1f2e3d4c.typeinfo" for ".../lib/ecstasy.xtc"); it holds the complete TypeInfos for
+ * the types defined by that module, encoded using the constants of a private ConstantPool. The
+ * file also records the fingerprint (the length and the checksum of the .xtc file) of every module
+ * that the cached TypeInfos refer to, and a cached TypeInfo is only used if none of the modules it
+ * refers to has changed since.
+ * <p>
+ * Only the ConstantPools that have been explicitly {@link #bind bound} to the caches use them;
+ * the compiler binds the modules it compiles and the library modules they link to. The runtime
+ * does not use the caches, because the native templates alter the structures of the core library
+ * as they are loaded, so the TypeInfos built by the runtime differ from the ones built by the
+ * compiler.
+ */
+public class TypeInfoCache
+    {
+    /**
+     * Construct a TypeInfoCache.
+     *
+     * @param file     the cache file
+     * @param sModule  the name of the module that the cached types belong to
+     */
+    private TypeInfoCache(File file, String sModule)
+        {
+        f_file    = file;
+        f_sModule = sModule;
+        }
+
+
+    // ----- public API ----------------------------------------------------------------------------
+
+    /**
+     * @return true iff the use of the persistent TypeInfo caches is enabled (it is not by default;
+     *         specify "-Dxvm.typeinfo.cache=true" or "-Dxvm.typeinfo.cache=<dir>" to enable it)
+     */
+    public static boolean isEnabled()
+        {
+        return s_dirCache != null;
+        }
+
+    /**
+     * @return the directory that holds the cache files, or null if the caches are disabled
+     */
+    public static File getCacheDirectory()
+        {
+        return s_dirCache;
+        }
+
+    /**
+     * Specify the directory to hold the cache files, overriding the "xvm.typeinfo.cache" system
+     * property. Only the subsequent {@link #bind} calls are affected.
+     *
+     * @param dirCache  the cache directory, or null to disable the caches
+     */
+    public static void setCacheDirectory(File dirCache)
+        {
+        s_dirCache = dirCache;
+        }
+
+    /**
+     * Allow the types of the specified FileStructure and of all the library modules that it is
+     * linked to use the persistent TypeInfo caches.
+     *
+     * @param fileTop  the (linked) FileStructure of a module being compiled
+     */
+    public static void bind(FileStructure fileTop)
+        {
+        File dirCache = s_dirCache;
+        if (dirCache != null)
+            {
+            for (ConstantPool pool : collectPools(fileTop))
+                {
+                if (pool.getTypeInfoCache() == null)
+                    {
+                    pool.setTypeInfoCache(new Binding(pool, dirCache));
+                    }
+                }
+            }
+        }
+
+    /**
+     * Add the TypeInfos that were not found in the persistent caches, and have since been built by
+     * the ConstantPools of the specified FileStructure and of the library modules that it is linked
+     * to, into the corresponding caches.
+     *
+     * @param fileTop  the FileStructure of a module that has been compiled
+     */
+    public static void store(FileStructure fileTop)
+        {
+        Set<TypeInfoCache> setModified = new HashSet<>();
+        for (ConstantPool pool : collectPools(fileTop))
+            {
+            Binding binding = pool.getTypeInfoCache();
+            if (binding == null)
+                {
+                continue;
+                }
+
+            // note: the pool's list of constants can't be used here, because the compiler drops
+            // the constants that are not referred to by the module structure before this point
+            Map<TypeInfoCache, List<TypeInfo>> mapInfos = new HashMap<>();
+            for (Iterator<TypeConstant> iter = binding.f_setMissed.iterator(); iter.hasNext(); )
+                {
+                TypeConstant type = iter.next();
+                TypeInfo     info = type.getTypeInfo();
+                iter.remove();
+                if (TypeConstant.isComplete(info) && info.getType() == type
+                        && type.isUpToDate(info))
+                    {
+                    mapInfos.computeIfAbsent(binding.getCache(type), k -> new ArrayList<>())
+                            .add(info);
+                    }
+                }
+
+            mapInfos.forEach((cache, listInfo) ->
+                {
+                if (cache.add(binding, listInfo))
+                    {
+                    setModified.add(cache);
+                    }
+                });
+            }
+
+        // each modified cache is written just once, no matter how many pools contributed to it
+        for (TypeInfoCache cache : setModified)
+            {
+            cache.write();
+            }
+        }
+
+    /**
+     * Obtain the TypeInfo for the specified type from the persistent cache.
+     *
+     * @param type  a registered TypeConstant
+     *
+     * @return the complete TypeInfo for the type, or null if the cache doesn't have it
+     */
+    static TypeInfo lookup(TypeConstant type)
+        {
+        Binding binding = type.getConstantPool().getTypeInfoCache();
+        if (binding == null || type.isFormalType())
+            {
+            return null;
+            }
+
+        TypeInfoCache cache = binding.getCache(type);
+        if (cache == null
+                || !binding.isPersistable(type, Collections.newSetFromMap(new IdentityHashMap<>())))
+            {
+            return null;
+            }
+
+        TypeInfo info = cache.load(binding, type);
+        if (info == null)
+            {
+            // the TypeInfo is about to be built; remember to store it
+            binding.f_setMissed.add(type);
+            }
+        return info;
+        }
+
+
+    // ----- internal ------------------------------------------------------------------------------
+
+    /**
+     * @return the ConstantPools of the specified FileStructure and of the library modules that it
+     *         is linked to
+     */
+    private static Set<ConstantPool> collectPools(FileStructure fileTop)
+        {
+        Set<ConstantPool> setPools = Collections.newSetFromMap(new IdentityHashMap<>());
+        setPools.add(fileTop.getConstantPool());
+        for (String sModule : fileTop.moduleNames())
+            {
+            ModuleStructure module = fileTop.getModule(sModule);
+            if (module != null && module.isFingerprint())
+                {
+                module = module.getFingerprintOrigin();
+                }
+            if (module != null)
+                {
+                setPools.add(module.getConstantPool());
+                }
+            }
+        return setPools;
+        }
+
+    /**
+     * Obtain the TypeInfo for the specified type from this cache.
+     *
+     * @param binding  the binding of the type's pool
+     * @param type     the type
+     *
+     * @return the TypeInfo or null
+     */
+    private synchronized TypeInfo load(Binding binding, TypeConstant type)
+        {
+        ensureLoaded();
+
+        byte[] abEntry = f_mapEntries.get(type);
+        if (abEntry == null)
+            {
+            return null;
+            }
+
+        try
+            {
+            return new Decoder(binding, binding.ensureTransfer(this), abEntry).readTypeInfo(type);
+            }
+        catch (IOException | CacheMiss e)
+            {
+            return null;
+            }
+        }
+
+    /**
+     * Add the specified TypeInfos to this cache.
+     *
+     * @param binding   the binding of the TypeInfos' pool
+     * @param listInfo  the TypeInfos
+     *
+     * @return true iff anything was added
+     */
+    private synchronized boolean add(Binding binding, List<TypeInfo> listInfo)
+        {
+        ensureLoaded();
+
+        Transfer transfer = binding.ensureTransfer(this);
+        if (transfer.isOutdated())
+            {
+            // at least one of the modules has changed since the cache was written
+            reset();
+            transfer = binding.ensureTransfer(this);
+            }
+
+        boolean fAdded = false;
+        for (TypeInfo info : listInfo)
+            {
+            if (!f_mapEntries.containsKey(info.getType()))
+                {
+                try
+                    {
+                    Encoder encoder = new Encoder(binding, transfer);
+                    byte[]  abEntry = encoder.writeTypeInfo(info);
+                    f_mapEntries.put(encoder.m_typeCached, abEntry);
+                    fAdded = true;
+                    }
+                catch (IOException | CacheMiss e)
+                    {
+                    // the TypeInfo can't be cached
+                    }
+                }
+            }
+        return fAdded;
+        }
+
+    /**
+     * Read the cache file unless it has already been read.
+     */
+    private void ensureLoaded()
+        {
+        if (m_pool != null)
+            {
+            return;
+            }
+
+        reset();
+        if (!f_file.isFile())
+            {
+            return;
+            }
+
+        try
+            {
+            read(Files.readAllBytes(f_file.toPath()));
+            }
+        catch (IOException | RuntimeException e)
+            {
+            // an unreadable or a corrupted cache is simply discarded
+            reset();
+            }
+        }
+
+    /**
+     * Discard the contents of this cache.
+     */
+    private void reset()
+        {
+        m_pool = new FileStructure(f_sModule).getConstantPool();
+        f_listModules.clear();
+        f_listFingerprints.clear();
+        f_mapEntries.clear();
+        ++m_cEpoch;
+        }
+
+    /**
+     * Make the specified module known to the cache pool, so that the constants of that module
+     * (including the native module, which the libraries are not linked to) can be registered with
+     * the cache pool.
+     */
+    private void addModule(String sModule)
+        {
+        m_pool.getFileStructure().ensureModule(sModule);
+        }
+
+    /**
+     * Read the contents of the cache from the specified bytes.
+     */
+    private void read(byte[] ab)
+            throws IOException
+        {
+        int cb = ab.length - 4;
+        if (cb < 4)
+            {
+            return;
+            }
+
+        CRC32C crc = new CRC32C();
+        crc.update(ab, 0, cb);
+        if ((int) crc.getValue() != ByteBuffer.wrap(ab, cb, 4).getInt())
+            {
+            return;
+            }
+
+        ByteBufferDataInput in = new ByteBufferDataInput(ByteBuffer.wrap(ab, 0, cb));
+        if (in.readInt() != FILE_MAGIC
+                || readMagnitude(in) != FILE_VERSION
+                || readMagnitude(in) != Constants.VERSION_MAJOR_CUR
+                || readMagnitude(in) != Constants.VERSION_MINOR_CUR)
+            {
+            return;
+            }
+
+        for (int i = 0, c = readMagnitude(in); i < c; ++i)
+            {
+            String sModule = readUtf8String(in);
+            f_listModules.add(sModule);
+            f_listFingerprints.add(in.readLong());
+            addModule(sModule);
+            }
+
+        m_pool.readConstants(in);
+
+        for (int i = 0, c = readMagnitude(in); i < c; ++i)
+            {
+            TypeConstant type    = (TypeConstant) m_pool.getConstant(readMagnitude(in));
+            byte[]       abEntry = new byte[readMagnitude(in)];
+            in.readFully(abEntry);
+            f_mapEntries.put(type, abEntry);
+            }
+        }
+
+    /**
+     * Write the cache file. The file is replaced atomically, so a concurrent reader never sees a
+     * partially written cache. Failures are ignored, since the cache is just an optimization (for
+     * example, a read-only output directory simply doesn't get one).
+     */
+    private synchronized void write()
+        {
+        File fileTemp = new File(f_file.getPath() + ".tmp");
+        try
+            {
+            Files.createDirectories(f_file.getAbsoluteFile().getParentFile().toPath());
+
+            ByteArrayOutputStream outRaw = new ByteArrayOutputStream();
+            DataOutputStream      out    = new DataOutputStream(outRaw);
+
+            out.writeInt(FILE_MAGIC);
+            writePackedLong(out, FILE_VERSION);
+            writePackedLong(out, Constants.VERSION_MAJOR_CUR);
+            writePackedLong(out, Constants.VERSION_MINOR_CUR);
+
+            writePackedLong(out, f_listModules.size());
+            for (int i = 0, c = f_listModules.size(); i < c; ++i)
+                {
+                writeUtf8String(out, f_listModules.get(i));
+                out.writeLong(f_listFingerprints.get(i));
+                }
+
+            m_pool.writeConstants(out);
+
+            writePackedLong(out, f_mapEntries.size());
+            for (Map.Entry<TypeConstant, byte[]> entry : f_mapEntries.entrySet())
+                {
+                byte[] abEntry = entry.getValue();
+                writePackedLong(out, entry.getKey().getPosition());
+                writePackedLong(out, abEntry.length);
+                out.write(abEntry);
+                }
+
+            CRC32C crc = new CRC32C();
+            crc.update(outRaw.toByteArray());
+            out.writeInt((int) crc.getValue());
+
+            Files.write(fileTemp.toPath(), outRaw.toByteArray());
+            try
+                {
+                Files.move(fileTemp.toPath(), f_file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+            catch (AtomicMoveNotSupportedException e)
+                {
+                Files.move(fileTemp.toPath(), f_file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        catch (IOException e)
+            {
+            try
+                {
+                Files.deleteIfExists(fileTemp.toPath());
+                }
+            catch (IOException ignore) {}
+            }
+        }
+
+    /**
+     * @return true iff all the classes and types that the specified constant refers to are known
+     *         to the file structure of the specified pool, i.e. the constant can be registered with
+     *         that pool
+     */
+    private static boolean isShared(Constant constant, ConstantPool pool)
+        {
+        if (constant instanceof IdentityConstant id && !id.isShared(pool) ||
+            constant instanceof TypeConstant type   && !type.isShared(pool))
+            {
+            return false;
+            }
+
+        boolean[] afShared = {true};
+        constant.forEachUnderlying(constSub ->
+            {
+            if (afShared[0] && !isShared(constSub, pool))
+                {
+                afShared[0] = false;
+                }
+            });
+        return afShared[0];
+        }
+
+    /**
+     * Calculate the fingerprint of a module file, which is a combination of the file length and the
+     * checksum of its contents. The file is read rather than mapped, so that no mapping is left
+     * behind to prevent the module file from being replaced by a subsequent compilation.
+     *
+     * @param file  the module file
+     *
+     * @return the fingerprint, or zero if the file cannot be read
+     */
+    private static long fingerprint(File file)
+        {
+        long   cb     = file.length();
+        long   lMod   = file.lastModified();
+        long[] alInfo = s_mapFingerprints.get(file);
+        if (alInfo != null && alInfo[0] == cb && alInfo[1] == lMod)
+            {
+            return alInfo[2];
+            }
+
+        long lPrint;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+            {
+            CRC32C     crc    = new CRC32C();
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            long       cbRead = 0L;
+            while (channel.read(buffer) >= 0)
+                {
+                buffer.flip();
+                cbRead += buffer.remaining();
+                crc.update(buffer);
+                buffer.clear();
+                }
+            lPrint = cbRead << 32 | crc.getValue();
+            }
+        catch (IOException | RuntimeException e)
+            {
+            return 0L;
+            }
+
+        s_mapFingerprints.put(file, new long[] {cb, lMod, lPrint});
+        return lPrint;
+        }
+
+    /**
+     * @return the cache directory specified by the "xvm.typeinfo.cache" system property, or null
+     *         if the caches are disabled
+     */
+    private static File loadCacheDirectory()
+        {
+        String sDir = System.getProperty("xvm.typeinfo.cache");
+        if (sDir == null || sDir.isEmpty() || sDir.equalsIgnoreCase("false"))
+            {
+            return null;
+            }
+
+        return sDir.equalsIgnoreCase("true")
+                ? new File(new File(System.getProperty("user.home"), ".xtclang"), "typeinfo")
+                : new File(sDir);
+        }
+
+    @Override
+    public String toString()
+        {
+        return "TypeInfoCache{file=" + f_file + ", entries=" + f_mapEntries.size() + '}';
+        }
+
+
+    // ----- inner class: Binding ------------------------------------------------------------------
+
+    /**
+     * The binding of a ConstantPool to the persistent TypeInfo caches.
+     */
+    public static class Binding
+        {
+        private Binding(ConstantPool pool, File dirCache)
+            {
+            f_pool     = pool;
+            f_dirCache = dirCache;
+            }
+
+        /**
+         * @return the cache for the specified type, or null if the type doesn't belong to a
+         *         module that has been loaded from a file
+         */
+        private TypeInfoCache getCache(TypeConstant type)
+            {
+            if (!type.isSingleDefiningConstant()
+                    || !(type.getDefiningConstant() instanceof IdentityConstant id))
+                {
+                return null;
+                }
+
+            return f_mapCaches.computeIfAbsent(id.getModuleConstant().getName(),
+                    sModule -> Optional.ofNullable(createCache(sModule))).orElse(null);
+            }
+
+        /**
+         * Quickly rule out the types that refer to transient constants or to the modules that have
+         * not been loaded from a file (e.g. a library type parameterized by a type from the module
+         * being compiled), since the TypeInfos for such types can never be cached.
+         *
+         * @param constant    a constant that a type is composed of
+         * @param setVisited  the constants that have already been checked
+         *
+         * @return false iff the constant refers to a transient constant or to a module that has not
+         *         been loaded from a file
+         */
+        private boolean isPersistable(Constant constant, Set<Constant> setVisited)
+            {
+            if (!setVisited.add(constant))
+                {
+                return true;
+                }
+
+            if (constant instanceof ModuleConstant idModule)
+                {
+                return getFingerprint(idModule.getName()) != 0L;
+                }
+
+            if (UNCACHEABLE.contains(constant.getFormat()))
+                {
+                // e.g. the native rebase types, which are never registered
+                return false;
+                }
+
+            boolean[] afPersistable = {true};
+            constant.forEachUnderlying(constSub ->
+                afPersistable[0] = afPersistable[0] && isPersistable(constSub, setVisited));
+            return afPersistable[0];
+            }
+
+        /**
+         * @return the cache for the specified module, or null if the module has not been loaded
+         *         from a file
+         */
+        private TypeInfoCache createCache(String sModule)
+            {
+            File fileModule = getModuleFile(sModule);
+            if (fileModule == null)
+                {
+                return null;
+                }
+
+            // the same module may be loaded from different library directories, each of which
+            // gets its own cache file
+            String sName = fileModule.getName();
+            int    ofExt = sName.lastIndexOf('.');
+            String sPath = fileModule.getAbsoluteFile().getParent();
+            File   file  = new File(f_dirCache,
+                    (ofExt > 0 ? sName.substring(0, ofExt) : sName) + '-'
+                    + String.format("%08x", sPath == null ? 0 : sPath.hashCode()) + FILE_EXT);
+            return s_mapCaches.computeIfAbsent(file, f -> new TypeInfoCache(f, sModule));
+            }
+
+        /**
+         * @return the file that the specified module has been loaded from (in the context of this
+         *         binding's pool), or null if there is no such file
+         */
+        private File getModuleFile(String sModule)
+            {
+            ModuleStructure module = getModule(sModule);
+            if (module == null)
+                {
+                return null;
+                }
+
+            FileStructure file = module.getFileStructure();
+            return file.getModule() == module ? file.getOSFile() : null;
+            }
+
+        /**
+         * @return the specified module (in the context of this binding's pool), or null if the
+         *         module is not known
+         */
+        private ModuleStructure getModule(String sModule)
+            {
+            ModuleStructure module = f_pool.getFileStructure().getModule(sModule);
+            if (module != null && module.isFingerprint())
+                {
+                module = module.getFingerprintOrigin();
+                }
+            if (module == null)
+                {
+                // the NakedRef type comes from the native module, which isn't linked to
+                TypeConstant typeNakedRef = f_pool.getNakedRefType();
+                if (typeNakedRef == null)
+                    {
+                    return null;
+                    }
+
+                module = typeNakedRef.getConstantPool().getFileStructure().getModule();
+                if (!module.getName().equals(sModule))
+                    {
+                    return null;
+                    }
+                }
+            return module;
+            }
+
+        /**
+         * @return the fingerprint of the specified module (in the context of this binding's pool),
+         *         or zero if the module has not been loaded from a file
+         */
+        private long getFingerprint(String sModule)
+            {
+            return f_mapFingerprints.computeIfAbsent(sModule, s ->
+                {
+                File file = getModuleFile(s);
+                return file == null ? 0L : fingerprint(file);
+                });
+            }
+
+        /**
+         * Obtain the Transfer that maps the constants of the specified cache into this binding's
+         * pool, and bring it up to date with the modules of the cache. Must be called while
+         * holding the cache monitor.
+         */
+        private Transfer ensureTransfer(TypeInfoCache cache)
+            {
+            Transfer transfer = f_mapTransfers.get(cache);
+            if (transfer == null || transfer.m_nEpoch != cache.m_cEpoch)
+                {
+                transfer = new Transfer(cache.m_cEpoch);
+                f_mapTransfers.put(cache, transfer);
+                }
+
+            List<String> listModules = cache.f_listModules;
+            int          cModules    = listModules.size();
+            int          cChecked    = transfer.m_abState.length;
+            if (cChecked < cModules)
+                {
+                byte[] abState = Arrays.copyOf(transfer.m_abState, cModules);
+                for (int i = cChecked; i < cModules; ++i)
+                    {
+                    long lPrint = getFingerprint(listModules.get(i));
+                    abState[i]  = lPrint == 0L
+                            ? Transfer.ABSENT
+                            : lPrint == cache.f_listFingerprints.get(i)
+                                ? Transfer.VALID
+                                : Transfer.CHANGED;
+                    }
+                transfer.m_abState = abState;
+                }
+            return transfer;
+            }
+
+        /**
+         * The pool that is bound to the caches.
+         */
+        private final ConstantPool f_pool;
+
+        /**
+         * The directory that holds the cache files.
+         */
+        private final File f_dirCache;
+
+        /**
+         * The caches by module name.
+         */
+        private final Map<String, Optional<TypeInfoCache>> f_mapCaches = new ConcurrentHashMap<>();
+
+        /**
+         * The module fingerprints by module name.
+         */
+        private final Map<String, Long> f_mapFingerprints = new ConcurrentHashMap<>();
+
+        /**
+         * The types that were not found in the caches.
+         */
+        private final Set<TypeConstant> f_setMissed = ConcurrentHashMap.newKeySet();
+
+        /**
+         * The transfers by cache.
+         */
+        private final Map<TypeInfoCache, Transfer> f_mapTransfers = new ConcurrentHashMap<>();
+        }
+
+
+    // ----- inner class: Transfer -----------------------------------------------------------------
+
+    /**
+     * The state of a cache with respect to a particular pool: the validity of each module recorded
+     * by the cache, and the constants of the cache that have been registered with the pool.
+     */
+    private static class Transfer
+        {
+        private Transfer(int nEpoch)
+            {
+            m_nEpoch = nEpoch;
+            }
+
+        /**
+         * @return true iff any of the cache's modules has changed
+         */
+        private boolean isOutdated()
+            {
+            for (byte bState : m_abState)
+                {
+                if (bState == CHANGED)
+                    {
+                    return true;
+                    }
+                }
+            return false;
+            }
+
+        private static final byte VALID   = 0;
+        private static final byte ABSENT  = 1;
+        private static final byte CHANGED = 2;
+
+        /**
+         * The epoch of the cache that this transfer corresponds to.
+         */
+        private final int m_nEpoch;
+
+        /**
+         * The state of each module of the cache.
+         */
+        private byte[] m_abState = new byte[0];
+
+        /**
+         * The pool constants by cache constant position.
+         */
+        private Constant[] m_aconst = new Constant[0];
+
+        /**
+         * The cache constants by pool constant.
+         */
+        private final Map<Constant, Encoded> f_mapEncoded = new IdentityHashMap<>();
+        }
+
+    /**
+     * A pool constant that has been registered with the cache pool.
+     */
+    private static class Encoded
+        {
+        private Encoded(Constant constCached, long lModules)
+            {
+            this.constCached = constCached;
+            this.lModules    = lModules;
+            }
+
+        /**
+         * The constant registered with the cache pool.
+         */
+        private final Constant constCached;
+
+        /**
+         * The bit mask of the modules that the constant refers to.
+         */
+        private final long lModules;
+        }
+
+
+    // ----- inner class: Encoder ------------------------------------------------------------------
+
+    /**
+     * Writes a TypeInfo using the constants of the cache pool. The objects that a TypeInfo shares
+     * among its members (such as the PropertyInfo objects held by both the property maps) are
+     * written once and then referred to by their ordinal.
+     */
+    private class Encoder
+        {
+        private Encoder(Binding binding, Transfer transfer)
+            {
+            f_binding  = binding;
+            f_transfer = transfer;
+            }
+
+        /**
+         * @return the encoded TypeInfo
+         */
+        private byte[] writeTypeInfo(TypeInfo info)
+                throws IOException
+            {
+            DataOutputStream out = f_out;
+
+            m_typeCached = (TypeConstant) writeConst(info.getType());
+            if (m_typeCached == null)
+                {
+                throw new CacheMiss();
+                }
+            ClassStructure struct = info.getClassStructure();
+            writeConst(struct == null ? null : struct.getIdentityConstant());
+            writePackedLong(out, info.getDepth());
+            out.writeBoolean(info.isExplicitlyAbstract());
+
+            writeMap(info.getTypeParams(), this::writeNid, this::writeParamInfo);
+            writeConstArray(info.getClassAnnotations());
+            writeConstArray(info.getMixinAnnotations());
+            writeConst(info.getExtends());
+            writeConst(info.getRebases());
+            writeConst(info.getInto());
+            writeList(info.getContributionList(), this::writeContribution);
+            writeMap(info.getClassChain(), this::writeConst, this::writeOrigin);
+            writeMap(info.getDefaultChain(), this::writeConst, this::writeOrigin);
+            writeMap(info.getProperties(), this::writeConst, this::writePropertyInfo);
+            writeMap(info.getMethods(), this::writeConst, this::writeMethodInfo);
+            writeMap(info.getVirtProperties(), this::writeNid, this::writePropertyInfo);
+            writeMap(info.getVirtMethods(), this::writeNid, this::writeMethodInfo);
+            writeMap(info.getChildInfosByName(), s -> writeUtf8String(out, s), this::writeChildInfo);
+
+            // the entry starts with the list of the modules that it refers to
+            ByteArrayOutputStream outEntry = new ByteArrayOutputStream();
+            DataOutputStream      outHead  = new DataOutputStream(outEntry);
+            long lModules = m_lModules;
+            writePackedLong(outHead, Long.bitCount(lModules));
+            for (int iModule = 0; lModules != 0L; ++iModule, lModules >>>= 1)
+                {
+                if ((lModules & 1L) != 0L)
+                    {
+                    writePackedLong(outHead, iModule);
+                    }
+                }
+            f_outRaw.writeTo(outEntry);
+            return outEntry.toByteArray();
+            }
+
+        private void writeParamInfo(ParamInfo param)
+                throws IOException
+            {
+            if (writeRef(param))
+                {
+                writeNid(param.getNestedIdentity());
+                writeUtf8String(f_out, param.getName());
+                writeConst(param.getConstraintType());
+                writeConst(param.isActualTypeSpecified() ? param.getActualType() : null);
+                }
+            }
+
+        private void writeContribution(Contribution contrib)
+                throws IOException
+            {
+            if (writeRef(contrib))
+                {
+                Composition composition = contrib.getComposition();
+                if (composition == Composition.Import)
+                    {
+                    throw new CacheMiss();
+                    }
+
+                writeConst(contrib.getComponent().getIdentityConstant());
+                f_out.writeByte(composition.ordinal());
+                writeConst(contrib.getTypeConstant());
+                writeConst(contrib.getAnnotation());
+                writeConst(contrib.getDelegatePropertyConstant());
+
+                Map<StringConstant, TypeConstant> mapParams = contrib.getTypeParams();
+                f_out.writeBoolean(mapParams != null);
+                if (mapParams != null)
+                    {
+                    writePackedLong(f_out, mapParams.size());
+                    for (Map.Entry<StringConstant, TypeConstant> entry : mapParams.entrySet())
+                        {
+                        writeConst(entry.getKey());
+                        writeConst(entry.getValue());
+                        }
+                    }
+                }
+            }
+
+        private void writeOrigin(Origin origin)
+                throws IOException
+            {
+            if (writeRef(origin))
+                {
+                writeConst(origin.getType());
+                f_out.writeBoolean(origin.isAnchored());
+                }
+            }
+
+        private void writePropertyInfo(PropertyInfo prop)
+                throws IOException
+            {
+            if (writeRef(prop))
+                {
+                PropertyBody[] aBody = prop.getPropertyBodies();
+                writePackedLong(f_out, aBody.length);
+                for (PropertyBody body : aBody)
+                    {
+                    writePropertyBody(body);
+                    }
+                writeConst(prop.getType());
+                f_out.writeBoolean(prop.hasField());
+                f_out.writeBoolean(prop.isSetterUnreachable());
+                writePackedLong(f_out, prop.getRank());
+                }
+            }
+
+        private void writePropertyBody(PropertyBody body)
+                throws IOException
+            {
+            if (writeRef(body))
+                {
+                DataOutputStream  out    = f_out;
+                PropertyStructure struct = body.getStructure();
+                writeConst(struct == null ? null : struct.getIdentityConstant());
+
+                ParamInfo param = body.getFormalInfo();
+                out.writeBoolean(param != null);
+                if (param != null)
+                    {
+                    writeParamInfo(param);
+                    return;
+                    }
+
+                out.writeByte(body.getImplementation().ordinal());
+                writeConst(body.getDelegate());
+                writeConst(body.getType());
+                out.writeBoolean(body.isRO());
+                out.writeBoolean(body.isRW());
+                out.writeBoolean(body.hasCustomCode());
+                out.writeByte(body.getGetterEffect().ordinal());
+                out.writeByte(body.getSetterEffect().ordinal());
+                out.writeBoolean(body.hasField());
+                out.writeBoolean(body.isConstant());
+                writeConst(body.getInitialValue());
+                writeConst(body.getInitializer());
+                }
+            }
+
+        private void writeMethodInfo(MethodInfo method)
+                throws IOException
+            {
+            if (writeRef(method))
+                {
+                MethodBody[] aBody = method.getChain();
+                writePackedLong(f_out, aBody.length);
+                for (MethodBody body : aBody)
+                    {
+                    writeMethodBody(body);
+                    }
+                }
+            }
+
+        private void writeMethodBody(MethodBody body)
+                throws IOException
+            {
+            if (writeRef(body))
+                {
+                Implementation impl = body.getImplementation();
+                writeConst(body.getIdentity());
+                writeConst(body.getSignature());
+                f_out.writeByte(impl.ordinal());
+                switch (impl)
+                    {
+                    case Capped:
+                        writeNid(body.getNarrowingNestedIdentity());
+                        break;
+
+                    case Delegating:
+                    case Field:
+                        writeConst(body.getPropertyConstant());
+                        break;
+                    }
+
+                // the structure only needs to be recorded if it isn't the one that the method
+                // constant refers to (e.g. for a body with resolved generic types)
+                MethodStructure method = body.getMethodStructure();
+                writeConst(method == null || method.getIdentityConstant().equals(body.getIdentity())
+                        ? null
+                        : method.getIdentityConstant());
+                }
+            }
+
+        private void writeChildInfo(ChildInfo child)
+                throws IOException
+            {
+            if (writeRef(child))
+                {
+                writeConst(child.getIdentity());
+                f_out.writeByte(child.getAccess().ordinal());
+
+                Set<IdentityConstant> setIds = child.getAllIdentities();
+                if (setIds.size() == 1)
+                    {
+                    // a singleton set
+                    f_out.writeBoolean(true);
+                    writeConst(setIds.iterator().next());
+                    }
+                else if (setIds.getClass() == HashSet.class)
+                    {
+                    f_out.writeBoolean(false);
+                    writePackedLong(f_out, setIds.size());
+                    for (IdentityConstant id : setIds)
+                        {
+                        writeConst(id);
+                        }
+                    }
+                else
+                    {
+                    throw new CacheMiss();
+                    }
+                }
+            }
+
+        /**
+         * Write a nested identity, which is a String, a Constant, or a NestedIdentity.
+         */
+        private void writeNid(Object nid)
+                throws IOException
+            {
+            if (nid == null)
+                {
+                f_out.writeByte(NID_NULL);
+                }
+            else if (nid instanceof String s)
+                {
+                f_out.writeByte(NID_STRING);
+                writeUtf8String(f_out, s);
+                }
+            else if (nid instanceof NestedIdentity nidNested)
+                {
+                if (!nidNested.isCacheable())
+                    {
+                    throw new CacheMiss();
+                    }
+                f_out.writeByte(NID_NESTED);
+                writeConst(nidNested.getIdentityConstant());
+                writeConst((TypeConstant) nidNested.getResolver());
+                }
+            else
+                {
+                f_out.writeByte(NID_CONSTANT);
+                writeConst((Constant) nid);
+                }
+            }
+
+        private void writeConstArray(Constant[] aconst)
+                throws IOException
+            {
+            writePackedLong(f_out, aconst.length);
+            for (Constant constant : aconst)
+                {
+                writeConst(constant);
+                }
+            }
+
+        private <T> void writeList(List<T> list, IOWriter<T> writer)
+                throws IOException
+            {
+            writePackedLong(f_out, list.size());
+            for (T t : list)
+                {
+                writer.write(t);
+                }
+            }
+
+        private <K, V> void writeMap(Map<K, V> map, IOWriter<K> writerKey, IOWriter<V> writerValue)
+                throws IOException
+            {
+            int nKind;
+            if (map == Collections.emptyMap())
+                {
+                nKind = MAP_EMPTY;
+                }
+            else if (map == ListMap.EMPTY)
+                {
+                nKind = MAP_LIST_EMPTY;
+                }
+            else if (map.getClass() == ListMap.class)
+                {
+                nKind = MAP_LIST;
+                }
+            else if (map.getClass() == HashMap.class)
+                {
+                nKind = MAP_HASH;
+                }
+            else if (map.getClass() == LinkedHashMap.class)
+                {
+                nKind = MAP_LINKED;
+                }
+            else
+                {
+                throw new CacheMiss();
+                }
+
+            f_out.writeByte(nKind);
+            writePackedLong(f_out, map.size());
+            for (Map.Entry<K, V> entry : map.entrySet())
+                {
+                writerKey.write(entry.getKey());
+                writerValue.write(entry.getValue());
+                }
+            }
+
+        /**
+         * Write a reference to a shared object.
+         *
+         * @return true iff the object has not been written yet, in which case the caller must
+         *         write the object's contents
+         */
+        private boolean writeRef(Object o)
+                throws IOException
+            {
+            Integer index = f_mapRefs.get(o);
+            if (index == null)
+                {
+                f_mapRefs.put(o, f_mapRefs.size());
+                writePackedLong(f_out, 0);
+                return true;
+                }
+
+            writePackedLong(f_out, index + 1);
+            return false;
+            }
+
+        /**
+         * Write a (possibly null) constant by registering it with the cache pool.
+         *
+         * @return the constant registered with the cache pool
+         */
+        private Constant writeConst(Constant constant)
+                throws IOException
+            {
+            if (constant == null)
+                {
+                writePackedLong(f_out, REF_NULL);
+                return null;
+                }
+
+            // the TypeInfos of a pool share most of their constants, so each constant is only
+            // checked and registered with the cache pool once
+            Map<Constant, Encoded> mapEncoded = f_transfer.f_mapEncoded;
+            Encoded                encoded    = mapEncoded.get(constant);
+            if (encoded != null)
+                {
+                m_lModules |= encoded.lModules;
+                writePackedLong(f_out, encoded.constCached.getPosition());
+                return encoded.constCached;
+                }
+
+            // the native rebase classes are not registered with any pool; they are referred to by
+            // the interfaces they represent
+            if (constant instanceof NativeRebaseConstant idRebase)
+                {
+                writePackedLong(f_out, REF_REBASE_CLASS);
+                writeConst(idRebase.getClassConstant());
+                return null;
+                }
+            if (constant instanceof TerminalTypeConstant type
+                    && type.getDefiningConstant() instanceof NativeRebaseConstant idRebase)
+                {
+                writePackedLong(f_out, REF_REBASE_TYPE);
+                writeConst(idRebase.getClassConstant());
+                return null;
+                }
+            if (constant instanceof AccessTypeConstant type
+                    && type.getUnderlyingType() instanceof TerminalTypeConstant typeRebase
+                    && typeRebase.getDefiningConstant() instanceof NativeRebaseConstant idRebase)
+                {
+                writePackedLong(f_out, REF_REBASE_ACCESS);
+                writeConst(idRebase.getClassConstant());
+                f_out.writeByte(type.getAccess().ordinal());
+                return null;
+                }
+
+            long lModules = check(constant, Collections.newSetFromMap(new IdentityHashMap<>()));
+
+            // the check above makes all the modules of the constant known to the cache pool, but
+            // not every reference is visible as an underlying constant (e.g. the method that a
+            // type parameter belongs to); such a constant must not be adopted by the cache pool
+            if (!isShared(constant, m_pool))
+                {
+                throw new CacheMiss();
+                }
+
+            Constant constCached = m_pool.register(constant);
+            if (constCached.getPosition() < 0)
+                {
+                throw new CacheMiss();
+                }
+
+            mapEncoded.put(constant, new Encoded(constCached, lModules));
+            m_lModules |= lModules;
+            writePackedLong(f_out, constCached.getPosition());
+            return constCached;
+            }
+
+        /**
+         * Verify that the constant can be persisted and collect the modules that it refers to.
+         *
+         * @return the bit mask of the modules that the constant refers to
+         */
+        private long check(Constant constant, Set<Constant> setVisited)
+            {
+            if (!setVisited.add(constant))
+                {
+                return 0L;
+                }
+
+            if (UNCACHEABLE.contains(constant.getFormat())
+                    || constant instanceof UnresolvedTypeConstant
+                    || constant instanceof PendingTypeConstant
+                    || constant instanceof SignatureConstant sig && sig.isProperty()
+                    || constant.containsUnresolved())
+                {
+                throw new CacheMiss();
+                }
+
+            long[] alModules = {constant instanceof ModuleConstant idModule
+                    ? 1L << ensureModule(idModule.getName())
+                    : 0L};
+            constant.forEachUnderlying(constSub -> alModules[0] |= check(constSub, setVisited));
+            return alModules[0];
+            }
+
+        /**
+         * @return the index of the specified module in the cache's list of modules
+         */
+        private int ensureModule(String sModule)
+            {
+            int iModule = f_listModules.indexOf(sModule);
+            if (iModule < 0)
+                {
+                long lPrint = f_binding.getFingerprint(sModule);
+                if (lPrint == 0L)
+                    {
+                    throw new CacheMiss();
+                    }
+
+                iModule = f_listModules.size();
+                if (iModule >= Long.SIZE)
+                    {
+                    // the modules referred to by an entry are tracked using a bit mask
+                    throw new CacheMiss();
+                    }
+                f_listModules.add(sModule);
+                f_listFingerprints.add(lPrint);
+                f_binding.ensureTransfer(TypeInfoCache.this);
+                addModule(sModule);
+                }
+            else if (f_transfer.m_abState[iModule] != Transfer.VALID)
+                {
+                throw new CacheMiss();
+                }
+            return iModule;
+            }
+
+        /**
+         * The binding of the pool that the TypeInfo comes from.
+         */
+        private final Binding f_binding;
+
+        /**
+         * The transfer of the binding.
+         */
+        private final Transfer f_transfer;
+
+        private final ByteArrayOutputStream f_outRaw      = new ByteArrayOutputStream();
+        private final DataOutputStream      f_out         = new DataOutputStream(f_outRaw);
+        private final Map<Object, Integer>  f_mapRefs     = new IdentityHashMap<>();
+
+        /**
+         * The bit mask of the modules (by index in the cache's list of modules) that the
+         * TypeInfo refers to.
+         */
+        private long m_lModules;
+
+        /**
+         * The TypeInfo's type registered with the cache pool.
+         */
+        private TypeConstant m_typeCached;
+        }
+
+
+    // ----- inner class: Decoder ------------------------------------------------------------------
+
+    /**
+     * Reads a TypeInfo written by the {@link Encoder}, registering the constants with the pool of
+     * the binding.
+     */
+    private class Decoder
+        {
+        private Decoder(Binding binding, Transfer transfer, byte[] abEntry)
+            {
+            f_binding   = binding;
+            f_pool      = binding.f_pool;
+            f_poolOwner = binding.getModule(f_sModule).getConstantPool();
+            f_transfer  = transfer;
+            f_in        = new ByteBufferDataInput(ByteBuffer.wrap(abEntry));
+            }
+
+        /**
+         * @return the TypeInfo for the specified type
+         */
+        private TypeInfo readTypeInfo(TypeConstant type)
+                throws IOException
+            {
+            ByteBufferDataInput in = f_in;
+
+            for (int i = 0, c = readMagnitude(in); i < c; ++i)
+                {
+                if (f_transfer.m_abState[readMagnitude(in)] != Transfer.VALID)
+                    {
+                    return null;
+                    }
+                }
+
+            if (readConst() != type)
+                {
+                throw new CacheMiss();
+                }
+
+            ClassStructure struct    = (ClassStructure) readComponent();
+            int            cDepth    = readMagnitude(in);
+            boolean        fAbstract = in.readBoolean();
+
+            Map<Object, ParamInfo>              mapTypeParams  = readMap(this::readNid, this::readParamInfo);
+            Annotation[]                        aannoClass     = readAnnotations();
+            Annotation[]                        aannoMixin     = readAnnotations();
+            TypeConstant                        typeExtends    = (TypeConstant) readConst();
+            TypeConstant                        typeRebases    = (TypeConstant) readConst();
+            TypeConstant                        typeInto       = (TypeConstant) readConst();
+            List<Contribution>                  listProcess    = readList(this::readContribution);
+            ListMap<IdentityConstant, Origin>   listmapClass   = (ListMap<IdentityConstant, Origin>)
+                                                                 readMap(this::readIdentity, this::readOrigin);
+            ListMap<IdentityConstant, Origin>   listmapDefault = (ListMap<IdentityConstant, Origin>)
+                                                                 readMap(this::readIdentity, this::readOrigin);
+            Map<PropertyConstant, PropertyInfo> mapProps       = readMap(() -> (PropertyConstant) readConst(),
+                                                                         this::readPropertyInfo);
+            Map<MethodConstant, MethodInfo>     mapMethods     = readMap(() -> (MethodConstant) readConst(),
+                                                                         this::readMethodInfo);
+            Map<Object, PropertyInfo>           mapVirtProps   = readMap(this::readNid, this::readPropertyInfo);
+            Map<Object, MethodInfo>             mapVirtMethods = readMap(this::readNid, this::readMethodInfo);
+            ListMap<String, ChildInfo>          mapChildren    = (ListMap<String, ChildInfo>)
+                                                                 readMap(() -> readUtf8String(f_in), this::readChildInfo);
+
+            return new TypeInfo(type, f_pool.getInvalidationCount(), struct, cDepth, fAbstract,
+                    mapTypeParams, aannoClass, aannoMixin, typeExtends, typeRebases, typeInto,
+                    listProcess, listmapClass, listmapDefault, mapProps, mapMethods,
+                    mapVirtProps, mapVirtMethods, mapChildren, null, Progress.Complete);
+            }
+
+        private ParamInfo readParamInfo()
+                throws IOException
+            {
+            int iRef = readRef();
+            if (iRef >= 0)
+                {
+                return (ParamInfo) f_listRefs.get(iRef);
+                }
+
+            int iNew = reserveRef();
+            return (ParamInfo) setRef(iNew, new ParamInfo(readNid(), readUtf8String(f_in),
+                    (TypeConstant) readConst(), (TypeConstant) readConst()));
+            }
+
+        private Contribution readContribution()
+                throws IOException
+            {
+            int iRef = readRef();
+            if (iRef >= 0)
+                {
+                return (Contribution) f_listRefs.get(iRef);
+                }
+
+            int          iNew        = reserveRef();
+            Component    component   = readComponent();
+            Composition  composition = Composition.valueOf(f_in.readUnsignedByte());
+            TypeConstant type        = (TypeConstant) readConst();
+            Annotation   anno        = (Annotation) readConst();
+            PropertyConstant idProp  = (PropertyConstant) readConst();
+
+            ListMap<StringConstant, TypeConstant> mapParams = null;
+            if (f_in.readBoolean())
+                {
+                mapParams = new ListMap<>();
+                for (int i = 0, c = readMagnitude(f_in); i < c; ++i)
+                    {
+                    mapParams.put((StringConstant) readConst(), (TypeConstant) readConst());
+                    }
+                }
+
+            Contribution contrib = switch (composition)
+                {
+                case Annotation   -> component.new Contribution(anno, type);
+                case Delegates    -> component.new Contribution(type, idProp);
+                case Incorporates -> mapParams == null
+                        ? component.new Contribution(composition, type)
+                        : component.new Contribution(type, mapParams);
+                default           -> component.new Contribution(composition, type);
+                };
+            return (Contribution) setRef(iNew, contrib);
+            }
+
+        private Origin readOrigin()
+                throws IOException
+            {
+            int iRef = readRef();
+            if (iRef >= 0)
+                {
+                return (Origin) f_listRefs.get(iRef);
+                }
+
+            int          iNew = reserveRef();
+            TypeConstant type = (TypeConstant) readConst();
+            return (Origin) setRef(iNew, type.new Origin(f_in.readBoolean()));
+            }
+
+        private PropertyInfo readPropertyInfo()
+                throws IOException
+            {
+            int iRef = readRef();
+            if (iRef >= 0)
+                {
+                return (PropertyInfo) f_listRefs.get(iRef);
+                }
+
+            int            iNew  = reserveRef();
+            PropertyBody[] aBody = new PropertyBody[readMagnitude(f_in)];
+            for (int i = 0, c = aBody.length; i < c; ++i)
+                {
+                aBody[i] = readPropertyBody();
+                }
+            return (PropertyInfo) setRef(iNew, new PropertyInfo(aBody, (TypeConstant) readConst(),
+                    f_in.readBoolean(), f_in.readBoolean(), readMagnitude(f_in)));
+            }
+
+        private PropertyBody readPropertyBody()
+                throws IOException
+            {
+            int iRef = readRef();
+            if (iRef >= 0)
+                {
+                return (PropertyBody) f_listRefs.get(iRef);
+                }
+
+            ByteBufferDataInput in     = f_in;
+            int                 iNew   = reserveRef();
+            PropertyStructure   struct = (PropertyStructure) readComponent();
+            if (in.readBoolean())
+                {
+                return (PropertyBody) setRef(iNew, new PropertyBody(struct, readParamInfo()));
+                }
+
+            if (struct == null)
+                {
+                throw new CacheMiss();
+                }
+
+            Implementation   impl       = Implementation.values()[in.readUnsignedByte()];
+            PropertyConstant idDelegate = (PropertyConstant) readConst();
+            TypeConstant     type       = (TypeConstant) readConst();
+            boolean          fRO        = in.readBoolean();
+            boolean          fRW        = in.readBoolean();
+            boolean          fCustom    = in.readBoolean();
+            Effect           effectGet  = Effect.values()[in.readUnsignedByte()];
+            Effect           effectSet  = Effect.values()[in.readUnsignedByte()];
+            boolean          fField     = in.readBoolean();
+            boolean          fConstant  = in.readBoolean();
+            Constant         constInit  = readConst();
+            MethodConstant   idInit     = (MethodConstant) readConst();
+
+            return (PropertyBody) setRef(iNew, new PropertyBody(struct, impl, idDelegate, type,
+                    fRO, fRW, fCustom, effectGet, effectSet, fField, fConstant, constInit, idInit));
+            }
+
+        private MethodInfo readMethodInfo()
+                throws IOException
+            {
+            int iRef = readRef();
+            if (iRef >= 0)
+                {
+                return (MethodInfo) f_listRefs.get(iRef);
+                }
+
+            int          iNew  = reserveRef();
+            MethodBody[] aBody = new MethodBody[readMagnitude(f_in)];
+            for (int i = 0, c = aBody.length; i < c; ++i)
+                {
+                aBody[i] = readMethodBody();
+                }
+            return (MethodInfo) setRef(iNew, new MethodInfo(aBody));
+            }
+
+        private MethodBody readMethodBody()
+                throws IOException
+            {
+            int iRef = readRef();
+            if (iRef >= 0)
+                {
+                return (MethodBody) f_listRefs.get(iRef);
+                }
+
+            int               iNew   = reserveRef();
+            MethodConstant    id     = (MethodConstant) readConst();
+            SignatureConstant sig    = (SignatureConstant) readConst();
+            Implementation    impl   = Implementation.values()[f_in.readUnsignedByte()];
+            Object            target = switch (impl)
+                {
+                case Capped              -> readNid();
+                case Delegating, Field   -> readConst();
+                default                  -> null;
+                };
+
+            MethodBody      body   = new MethodBody(id, sig, impl, target);
+            MethodStructure method = (MethodStructure) readComponent();
+            if (method != null)
+                {
+                body.setMethodStructure(method);
+                }
+            return (MethodBody) setRef(iNew, body);
+            }
+
+        private ChildInfo readChildInfo()
+                throws IOException
+            {
+            int iRef = readRef();
+            if (iRef >= 0)
+                {
+                return (ChildInfo) f_listRefs.get(iRef);
+                }
+
+            int       iNew   = reserveRef();
+            Component child  = readComponent();
+            Access    access = Access.valueOf(f_in.readUnsignedByte());
+
+            Set<IdentityConstant> setIds;
+            if (f_in.readBoolean())
+                {
+                setIds = Collections.singleton(readIdentity());
+                }
+            else
+                {
+                setIds = new HashSet<>();
+                for (int i = 0, c = readMagnitude(f_in); i < c; ++i)
+                    {
+                    setIds.add(readIdentity());
+                    }
+                }
+            return (ChildInfo) setRef(iNew, new ChildInfo(child, access, setIds));
+            }
+
+        private Object readNid()
+                throws IOException
+            {
+            return switch (f_in.readUnsignedByte())
+                {
+                case NID_NULL   -> null;
+                case NID_STRING -> readUtf8String(f_in);
+                case NID_NESTED -> readIdentity().resolveNestedIdentity(f_pool, (TypeConstant) readConst());
+                default         -> readConst();
+                };
+            }
+
+        private Annotation[] readAnnotations()
+                throws IOException
+            {
+            int c = readMagnitude(f_in);
+            if (c == 0)
+                {
+                return Annotation.NO_ANNOTATIONS;
+                }
+
+            Annotation[] aAnno = new Annotation[c];
+            for (int i = 0; i < c; ++i)
+                {
+                aAnno[i] = (Annotation) readConst();
+                }
+            return aAnno;
+            }
+
+        private <T> List<T> readList(IOReader<T> reader)
+                throws IOException
+            {
+            int     c    = readMagnitude(f_in);
+            List<T> list = new ArrayList<>(c);
+            for (int i = 0; i < c; ++i)
+                {
+                list.add(reader.read());
+                }
+            return list;
+            }
+
+        @SuppressWarnings("unchecked")
+        private <K, V> Map<K, V> readMap(IOReader<K> readerKey, IOReader<V> readerValue)
+                throws IOException
+            {
+            int nKind = f_in.readUnsignedByte();
+            int c     = readMagnitude(f_in);
+
+            Map<K, V> map = switch (nKind)
+                {
+                case MAP_EMPTY      -> Collections.emptyMap();
+                case MAP_LIST_EMPTY -> ListMap.EMPTY;
+                case MAP_LIST       -> new ListMap<>(c);
+                case MAP_HASH       -> new HashMap<>();
+                case MAP_LINKED     -> new LinkedHashMap<>();
+                default             -> throw new IOException("map kind " + nKind);
+                };
+
+            for (int i = 0; i < c; ++i)
+                {
+                map.put(readerKey.read(), readerValue.read());
+                }
+            return map;
+            }
+
+        /**
+         * @return the index of a previously read shared object, or -1 if the object follows
+         */
+        private int readRef()
+                throws IOException
+            {
+            return readMagnitude(f_in) - 1;
+            }
+
+        /**
+         * Reserve the index for a shared object that is about to be read.
+         */
+        private int reserveRef()
+            {
+            f_listRefs.add(null);
+            return f_listRefs.size() - 1;
+            }
+
+        private Object setRef(int index, Object o)
+            {
+            f_listRefs.set(index, o);
+            return o;
+            }
+
+        private IdentityConstant readIdentity()
+                throws IOException
+            {
+            return (IdentityConstant) readConst();
+            }
+
+        /**
+         * @return the component for the identity constant that follows, or null
+         */
+        private Component readComponent()
+                throws IOException
+            {
+            IdentityConstant id = readIdentity();
+            if (id == null)
+                {
+                return null;
+                }
+
+            Component component = id.getComponent();
+            if (component == null)
+                {
+                // the module may not be linked to from this pool (e.g. the native module)
+                ModuleStructure module = f_binding.getModule(id.getModuleConstant().getName());
+                if (module == null || (component = ((IdentityConstant)
+                        module.getConstantPool().register(id)).getComponent()) == null)
+                    {
+                    throw new CacheMiss();
+                    }
+                }
+            return component;
+            }
+
+        /**
+         * @return the (possibly null) constant that follows, registered with the binding's pool
+         */
+        private Constant readConst()
+                throws IOException
+            {
+            int iConst = (int) readPackedLong(f_in);
+            switch (iConst)
+                {
+                case REF_NULL:
+                    return null;
+
+                case REF_REBASE_CLASS:
+                    return findRebase((ClassConstant) readConst()).getDefiningConstant();
+
+                case REF_REBASE_TYPE:
+                    return findRebase((ClassConstant) readConst());
+
+                case REF_REBASE_ACCESS:
+                    return f_pool.ensureAccessTypeConstant(findRebase((ClassConstant) readConst()),
+                            Access.valueOf(f_in.readUnsignedByte()));
+                }
+
+            Transfer   transfer = f_transfer;
+            Constant[] aconst   = transfer.m_aconst;
+            if (iConst >= aconst.length)
+                {
+                transfer.m_aconst = aconst = Arrays.copyOf(aconst, Math.max(iConst + 1, aconst.length * 2));
+                }
+
+            Constant constant = aconst[iConst];
+            if (constant == null)
+                {
+                // the constants of the cache pool are first adopted by the pool of the module that
+                // owns the cache, since unlike the cache pool, that pool is a valid upstream pool
+                // for the pools that link to the module
+                constant = m_pool.getConstant(iConst);
+                if (isShared(constant, f_pool))
+                    {
+                    if (f_poolOwner != f_pool && isShared(constant, f_poolOwner))
+                        {
+                        constant = f_poolOwner.register(constant);
+                        }
+                    constant = f_pool.register(constant);
+                    }
+                else
+                    {
+                    // the NakedRef type comes from the native module, which isn't linked to; its
+                    // constants live in the pool of that module (as they do when computed)
+                    TypeConstant typeNakedRef = f_pool.getNakedRefType();
+                    if (typeNakedRef == null)
+                        {
+                        throw new IOException("unlinked constant: " + constant);
+                        }
+                    constant = typeNakedRef.getConstantPool().register(constant);
+                    }
+                aconst[iConst] = constant;
+                }
+            return constant;
+            }
+
+        /**
+         * @return the native rebase type of the binding's pool for the specified interface
+         */
+        private TypeConstant findRebase(ClassConstant idIface)
+            {
+            ConstantPool pool = f_pool;
+            for (TypeConstant type : new TypeConstant[]
+                    {
+                    pool.typeRefRB(), pool.typeVarRB(), pool.typeConstRB(), pool.typeServiceRB(),
+                    pool.typeModuleRB(), pool.typePackageRB(), pool.typeEnumRB(),
+                    })
+                {
+                if (((NativeRebaseConstant) type.getDefiningConstant()).getClassConstant().equals(idIface))
+                    {
+                    return type;
+                    }
+                }
+            throw new CacheMiss();
+            }
+
+        private final Binding             f_binding;
+        private final ConstantPool        f_pool;
+        private final ConstantPool        f_poolOwner;
+        private final Transfer            f_transfer;
+        private final ByteBufferDataInput f_in;
+        private final List<Object>        f_listRefs = new ArrayList<>();
+        }
+
+
+    // ----- helpers -------------------------------------------------------------------------------
+
+    /**
+     * Write a value to the encoder output.
+     */
+    @FunctionalInterface
+    private interface IOWriter<T>
+        {
+        void write(T t) throws IOException;
+        }
+
+    /**
+     * Read a value from the decoder input.
+     */
+    @FunctionalInterface
+    private interface IOReader<T>
+        {
+        T read() throws IOException;
+        }
+
+    /**
+     * Thrown when a TypeInfo cannot be written to or read from the cache.
+     */
+    private static class CacheMiss
+            extends RuntimeException
+        {
+        private CacheMiss()
+            {
+            super(null, null, false, false);
+            }
+        }
+
+
+    // ----- constants and fields ------------------------------------------------------------------
+
+    /**
+     * The directory that holds the cache files, or null iff the caches are disabled.
+     */
+    private static volatile File s_dirCache = loadCacheDirectory();
+
+    /**
+     * The cache file extension.
+     */
+    public static final String FILE_EXT = ".typeinfo";
+
+    /**
+     * The cache file "magic" header.
+     */
+    private static final int FILE_MAGIC = 0xEC57_71CA;
+
+    /**
+     * The version of the cache file format; must change whenever the encoding changes.
+     */
+    private static final int FILE_VERSION = 1;
+
+    /**
+     * The formats of the constants that cannot be persisted.
+     */
+    private static final Set<Format> UNCACHEABLE = EnumSet.of(Format.UnresolvedName,
+            Format.DeferredValue, Format.DynamicFormal, Format.NativeClass, Format.Register,
+            Format.BindTarget, Format.TimeZone, Format.ResponseSender);
+
+    private static final int REF_NULL          = -1;
+    private static final int REF_REBASE_CLASS  = -2;
+    private static final int REF_REBASE_TYPE   = -3;
+    private static final int REF_REBASE_ACCESS = -4;
+
+    private static final int NID_NULL     = 0;
+    private static final int NID_STRING   = 1;
+    private static final int NID_NESTED   = 2;
+    private static final int NID_CONSTANT = 3;
+
+    private static final int MAP_EMPTY      = 0;
+    private static final int MAP_LIST_EMPTY = 1;
+    private static final int MAP_LIST       = 2;
+    private static final int MAP_HASH       = 3;
+    private static final int MAP_LINKED     = 4;
+
+    /**
+     * The caches by cache file.
+     */
+    private static final Map<File, TypeInfoCache> s_mapCaches = new ConcurrentHashMap<>();
+
+    /**
+     * The module file fingerprints: {length, last modified, fingerprint} by file.
+     */
+    private static final Map<File, long[]> s_mapFingerprints = new ConcurrentHashMap<>();
+
+    /**
+     * The cache file.
+     */
+    private final File f_file;
+
+    /**
+     * The name of the module that the cached types belong to.
+     */
+    private final String f_sModule;
+
+    /**
+     * The pool that holds the constants of the cached TypeInfos; null until the cache is loaded.
+     */
+    private ConstantPool m_pool;
+
+    /**
+     * The names of the modules that the cached TypeInfos refer to.
+     */
+    private final List<String> f_listModules = new ArrayList<>();
+
+    /**
+     * The fingerprints of the modules, in the same order as the names.
+     */
+    private final List<Long> f_listFingerprints = new ArrayList<>();
+
+    /**
+     * The encoded TypeInfos by type.
+     */
+    private final Map<TypeConstant, byte[]> f_mapEntries = new HashMap<>();
+
+    /**
+     * Incremented each time the contents of the cache are discarded.
+     */
+    private int m_cEpoch;
+    }
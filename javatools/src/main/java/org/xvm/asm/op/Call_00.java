@@ -68,20 +68,22 @@ public class Call_00
 
         if (m_nFunctionId <= CONSTANT_OFFSET)
             {
-            MethodStructure function = getMethodStructure(frame);
-            if (function == null)
+            FunctionInfo info = getFunctionInfo(frame);
+            if (info == null)
                 {
                 return R_EXCEPTION;
                 }
 
+            MethodStructure function = info.f_function;
+
             if (function.isNative())
                 {
-                return getNativeTemplate(frame, function).
+                return info.f_template.
                     invokeNativeN(frame, function, null, Utils.OBJECTS_NONE, A_IGNORE);
                 }
 
-            ObjectHandle[] ahVar = new ObjectHandle[function.getMaxVars()];
-            return frame.call1(function, null, ahVar, A_IGNORE);
+            ObjectHandle[] ahVar = frame.allocateRegisters(function.getMaxVars());
+            return frame.adoptRegisters(frame.call1(function, null, ahVar, A_IGNORE), ahVar);
             }
 
         try
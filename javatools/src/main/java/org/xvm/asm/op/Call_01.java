@@ -106,22 +106,24 @@ public class Call_01
 
         if (m_nFunctionId <= CONSTANT_OFFSET)
             {
-            MethodStructure function = getMethodStructure(frame);
-            if (function == null)
+            FunctionInfo info = getFunctionInfo(frame);
+            if (info == null)
                 {
                 return R_EXCEPTION;
                 }
 
+            MethodStructure function = info.f_function;
+
             checkReturnRegister(frame, function);
 
             if (function.isNative())
                 {
-                return getNativeTemplate(frame, function).
+                return info.f_template.
                     invokeNativeN(frame, function, null, Utils.OBJECTS_NONE, m_nRetValue);
                 }
 
-            ObjectHandle[] ahVar = new ObjectHandle[function.getMaxVars()];
-            return frame.call1(function, null, ahVar, m_nRetValue);
+            ObjectHandle[] ahVar = frame.allocateRegisters(function.getMaxVars());
+            return frame.adoptRegisters(frame.call1(function, null, ahVar, m_nRetValue), ahVar);
             }
 
         try
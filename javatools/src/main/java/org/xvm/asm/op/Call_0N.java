@@ -96,22 +96,24 @@ public class Call_0N
 
         if (m_nFunctionId <= CONSTANT_OFFSET)
             {
-            MethodStructure function = getMethodStructure(frame);
-            if (function == null)
+            FunctionInfo info = getFunctionInfo(frame);
+            if (info == null)
                 {
                 return R_EXCEPTION;
                 }
 
+            MethodStructure function = info.f_function;
+
             checkReturnRegisters(frame, function);
 
             if (function.isNative())
                 {
-                return getNativeTemplate(frame, function).
+                return info.f_template.
                     invokeNativeNN(frame, function, null, Utils.OBJECTS_NONE, m_anRetValue);
                 }
 
-            ObjectHandle[] ahVar = new ObjectHandle[function.getMaxVars()];
-            return frame.callN(function, null, ahVar, m_anRetValue);
+            ObjectHandle[] ahVar = frame.allocateRegisters(function.getMaxVars());
+            return frame.adoptRegisters(frame.callN(function, null, ahVar, m_anRetValue), ahVar);
             }
 
         try
@@ -98,16 +98,16 @@ public class Call_10
 
             if (m_nFunctionId <= CONSTANT_OFFSET)
                 {
-                MethodStructure function = getMethodStructure(frame);
-                if (function == null)
+                FunctionInfo info = getFunctionInfo(frame);
+                if (info == null)
                     {
                     return R_EXCEPTION;
                     }
 
                 return isDeferred(hArg)
                         ? hArg.proceed(frame, frameCaller ->
-                            complete(frameCaller, frameCaller.popStack(), function))
-                        : complete(frame, hArg, function);
+                            complete(frameCaller, frameCaller.popStack(), info))
+                        : complete(frame, hArg, info);
                 }
 
             ObjectHandle hFunction = frame.getArgument(m_nFunctionId);
@@ -129,17 +129,19 @@ public class Call_10
             }
         }
 
-    protected int complete(Frame frame, ObjectHandle hArg, MethodStructure function)
+    protected int complete(Frame frame, ObjectHandle hArg, FunctionInfo info)
         {
+        MethodStructure function = info.f_function;
+
         if (function.isNative())
             {
-            return getNativeTemplate(frame, function).
+            return info.f_template.
                 invokeNative1(frame, function, null, hArg, A_IGNORE);
             }
 
-        ObjectHandle[] ahVar = new ObjectHandle[function.getMaxVars()];
+        ObjectHandle[] ahVar = frame.allocateRegisters(function.getMaxVars());
         ahVar[0] = hArg;
-        return frame.call1(function, null, ahVar, A_IGNORE);
+        return frame.adoptRegisters(frame.call1(function, null, ahVar, A_IGNORE), ahVar);
         }
 
     protected int complete(Frame frame, ObjectHandle hArg, FunctionHandle hFunction)
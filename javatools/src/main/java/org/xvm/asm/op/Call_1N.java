@@ -117,16 +117,16 @@ public class Call_1N
 
             if (m_nFunctionId <= CONSTANT_OFFSET)
                 {
-                MethodStructure function = getMethodStructure(frame);
-                if (function == null)
+                FunctionInfo info = getFunctionInfo(frame);
+                if (info == null)
                     {
                     return R_EXCEPTION;
                     }
 
                 return isDeferred(hArg)
                         ? hArg.proceed(frame, frameCaller ->
-                            complete(frameCaller, frameCaller.popStack(), function))
-                        : complete(frame, hArg, function);
+                            complete(frameCaller, frameCaller.popStack(), info))
+                        : complete(frame, hArg, info);
                 }
 
             ObjectHandle hFunction = frame.getArgument(m_nFunctionId);
@@ -148,19 +148,21 @@ public class Call_1N
             }
         }
 
-    protected int complete(Frame frame, ObjectHandle hArg, MethodStructure function)
+    protected int complete(Frame frame, ObjectHandle hArg, FunctionInfo info)
         {
+        MethodStructure function = info.f_function;
+
         checkReturnRegisters(frame, function);
 
         if (function.isNative())
             {
-            return getNativeTemplate(frame, function).
+            return info.f_template.
                 invokeNativeNN(frame, function, null, new ObjectHandle[] {hArg}, m_anRetValue);
             }
 
-        ObjectHandle[] ahVar = new ObjectHandle[function.getMaxVars()];
+        ObjectHandle[] ahVar = frame.allocateRegisters(function.getMaxVars());
         ahVar[0] = hArg;
-        return frame.callN(function, null, ahVar, m_anRetValue);
+        return frame.adoptRegisters(frame.callN(function, null, ahVar, m_anRetValue), ahVar);
         }
 
     protected int complete(Frame frame, ObjectHandle hArg, FunctionHandle hFunction)
@@ -114,16 +114,16 @@ public class Call_1T
 
             if (m_nFunctionId <= CONSTANT_OFFSET)
                 {
-                MethodStructure function = getMethodStructure(frame);
-                if (function == null)
+                FunctionInfo info = getFunctionInfo(frame);
+                if (info == null)
                     {
                     return R_EXCEPTION;
                     }
 
                 return isDeferred(hArg)
                         ? hArg.proceed(frame, frameCaller ->
-                            complete(frameCaller, frameCaller.popStack(), function))
-                        : complete(frame, hArg, function);
+                            complete(frameCaller, frameCaller.popStack(), info))
+                        : complete(frame, hArg, info);
                 }
 
             ObjectHandle hFunction = frame.getArgument(m_nFunctionId);
@@ -145,19 +145,21 @@ public class Call_1T
             }
         }
 
-    protected int complete(Frame frame, ObjectHandle hArg, MethodStructure function)
+    protected int complete(Frame frame, ObjectHandle hArg, FunctionInfo info)
         {
+        MethodStructure function = info.f_function;
+
         checkReturnTupleRegister(frame, function);
 
         if (function.isNative())
             {
-            return getNativeTemplate(frame, function).
+            return info.f_template.
                 invokeNativeT(frame, function, null, new ObjectHandle[] {hArg}, m_nRetValue);
             }
 
-        ObjectHandle[] ahVar = new ObjectHandle[function.getMaxVars()];
+        ObjectHandle[] ahVar = frame.allocateRegisters(function.getMaxVars());
         ahVar[0] = hArg;
-        return frame.callT(function, null, ahVar, m_nRetValue);
+        return frame.adoptRegisters(frame.callT(function, null, ahVar, m_nRetValue), ahVar);
         }
 
     protected int complete(Frame frame, ObjectHandle hArg, FunctionHandle hFunction)
@@ -100,13 +100,15 @@ public class Call_N0
 
             if (m_nFunctionId <= CONSTANT_OFFSET)
                 {
-                MethodStructure function = getMethodStructure(frame);
-                if (function == null)
+                FunctionInfo info = getFunctionInfo(frame);
+                if (info == null)
                     {
                     return R_EXCEPTION;
                     }
 
-                ObjectHandle[] ahVar = frame.getArguments(m_anArgValue, function.getMaxVars());
+                MethodStructure function = info.f_function;
+
+                ObjectHandle[] ahVar = frame.getCallArguments(m_anArgValue, function.getMaxVars());
 
                 if (anyDeferred(ahVar))
                     {
@@ -118,11 +120,11 @@ public class Call_N0
 
                 if (function.isNative())
                     {
-                    return getNativeTemplate(frame, function).
+                    return info.f_template.
                         invokeNativeN(frame, function, null, ahVar, A_IGNORE);
                     }
 
-                return frame.call1(function, null, ahVar, A_IGNORE);
+                return frame.adoptRegisters(frame.call1(function, null, ahVar, A_IGNORE), ahVar);
                 }
 
             ObjectHandle hFunction = frame.getArgument(m_nFunctionId);
@@ -112,13 +112,15 @@ public class Call_N1
 
             if (m_nFunctionId <= CONSTANT_OFFSET)
                 {
-                MethodStructure function = getMethodStructure(frame);
-                if (function == null)
+                FunctionInfo info = getFunctionInfo(frame);
+                if (info == null)
                     {
                     return R_EXCEPTION;
                     }
 
-                ObjectHandle[] ahVar = frame.getArguments(m_anArgValue, function.getMaxVars());
+                MethodStructure function = info.f_function;
+
+                ObjectHandle[] ahVar = frame.getCallArguments(m_anArgValue, function.getMaxVars());
 
                 checkReturnRegister(frame, function);
 
@@ -132,11 +134,11 @@ public class Call_N1
 
                 if (function.isNative())
                     {
-                    return getNativeTemplate(frame, function).
+                    return info.f_template.
                         invokeNativeN(frame, function, null, ahVar, m_nRetValue);
                     }
 
-                return frame.call1(function, null, ahVar, m_nRetValue);
+                return frame.adoptRegisters(frame.call1(function, null, ahVar, m_nRetValue), ahVar);
                 }
 
             ObjectHandle hFunction = frame.getArgument(m_nFunctionId);
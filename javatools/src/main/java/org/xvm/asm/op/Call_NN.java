@@ -115,12 +115,14 @@ public class Call_NN
 
             if (m_nFunctionId <= CONSTANT_OFFSET)
                 {
-                MethodStructure function = getMethodStructure(frame);
-                if (function == null)
+                FunctionInfo info = getFunctionInfo(frame);
+                if (info == null)
                     {
                     return R_EXCEPTION;
                     }
 
+                MethodStructure function = info.f_function;
+
                 ObjectHandle[] ahVar = frame.getArguments(m_anArgValue, function.getMaxVars());
 
                 checkReturnRegisters(frame, function);
@@ -135,7 +137,7 @@ public class Call_NN
 
                 if (function.isNative())
                     {
-                    return getNativeTemplate(frame, function).
+                    return info.f_template.
                         invokeNativeNN(frame, function, null, ahVar, m_anRetValue);
                     }
 
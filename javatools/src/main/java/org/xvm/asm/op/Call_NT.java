@@ -110,12 +110,14 @@ public class Call_NT
 
             if (m_nFunctionId <= CONSTANT_OFFSET)
                 {
-                MethodStructure function = getMethodStructure(frame);
-                if (function == null)
+                FunctionInfo info = getFunctionInfo(frame);
+                if (info == null)
                     {
                     return R_EXCEPTION;
                     }
 
+                MethodStructure function = info.f_function;
+
                 ObjectHandle[] ahVar = frame.getArguments(m_anArgValue, function.getMaxVars());
 
                 checkReturnTupleRegister(frame, function);
@@ -130,7 +132,7 @@ public class Call_NT
 
                 if (function.isNative())
                     {
-                    return getNativeTemplate(frame, function).
+                    return info.f_template.
                         invokeNativeT(frame, function, null, ahVar, m_nRetValue);
                     }
 
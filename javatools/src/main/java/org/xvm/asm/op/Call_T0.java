@@ -105,16 +105,16 @@ public class Call_T0
 
             if (m_nFunctionId <= CONSTANT_OFFSET)
                 {
-                MethodStructure function = getMethodStructure(frame);
-                if (function == null)
+                FunctionInfo info = getFunctionInfo(frame);
+                if (info == null)
                     {
                     return R_EXCEPTION;
                     }
 
                 return isDeferred(hArg)
                         ? hArg.proceed(frame, frameCaller ->
-                            complete(frameCaller, function, (TupleHandle) frameCaller.popStack()))
-                        :  complete(frame, function, (TupleHandle) hArg);
+                            complete(frameCaller, info, (TupleHandle) frameCaller.popStack()))
+                        :  complete(frame, info, (TupleHandle) hArg);
                 }
 
             ObjectHandle hFunction = frame.getArgument(m_nFunctionId);
@@ -136,8 +136,10 @@ public class Call_T0
             }
         }
 
-    protected int complete(Frame frame, MethodStructure function, TupleHandle hArg)
+    protected int complete(Frame frame, FunctionInfo info, TupleHandle hArg)
         {
+        MethodStructure function = info.f_function;
+
         ObjectHandle[] ahArg = hArg.m_ahValue;
         if (ahArg.length != function.getParamCount())
             {
@@ -146,7 +148,7 @@ public class Call_T0
 
         if (function.isNative())
             {
-            return getNativeTemplate(frame, function).
+            return info.f_template.
                 invokeNativeN(frame, function, null, ahArg, A_IGNORE);
             }
 
@@ -117,16 +117,16 @@ public class Call_TN
 
             if (m_nFunctionId <= CONSTANT_OFFSET)
                 {
-                MethodStructure function = getMethodStructure(frame);
-                if (function == null)
+                FunctionInfo info = getFunctionInfo(frame);
+                if (info == null)
                     {
                     return R_EXCEPTION;
                     }
 
                 return isDeferred(hArg)
                         ? hArg.proceed(frame, frameCaller ->
-                            complete(frameCaller, function, (TupleHandle) frameCaller.popStack()))
-                        : complete(frame, function, (TupleHandle) hArg);
+                            complete(frameCaller, info, (TupleHandle) frameCaller.popStack()))
+                        : complete(frame, info, (TupleHandle) hArg);
                 }
 
             ObjectHandle hFunction = frame.getArgument(m_nFunctionId);
@@ -148,8 +148,10 @@ public class Call_TN
             }
         }
 
-    protected int complete(Frame frame, MethodStructure function, TupleHandle hArg)
+    protected int complete(Frame frame, FunctionInfo info, TupleHandle hArg)
         {
+        MethodStructure function = info.f_function;
+
         checkReturnRegisters(frame, function);
 
         ObjectHandle[] ahArg = hArg.m_ahValue;
@@ -160,7 +162,7 @@ public class Call_TN
 
         if (function.isNative())
             {
-            return getNativeTemplate(frame, function).
+            return info.f_template.
                 invokeNativeNN(frame, function, null, ahArg, m_anRetValue);
             }
 
@@ -111,16 +111,16 @@ public class Call_TT
 
             if (m_nFunctionId <= CONSTANT_OFFSET)
                 {
-                MethodStructure function = getMethodStructure(frame);
-                if (function == null)
+                FunctionInfo info = getFunctionInfo(frame);
+                if (info == null)
                     {
                     return R_EXCEPTION;
                     }
 
                 return isDeferred(hArg)
                         ? hArg.proceed(frame, frameCaller ->
-                            complete(frameCaller, function, (TupleHandle) frameCaller.popStack()))
-                        : complete(frame, function, (TupleHandle) hArg);
+                            complete(frameCaller, info, (TupleHandle) frameCaller.popStack()))
+                        : complete(frame, info, (TupleHandle) hArg);
                 }
 
             ObjectHandle hFunction = frame.getArgument(m_nFunctionId);
@@ -142,8 +142,10 @@ public class Call_TT
             }
         }
 
-    protected int complete(Frame frame, MethodStructure function, TupleHandle hArg)
+    protected int complete(Frame frame, FunctionInfo info, TupleHandle hArg)
         {
+        MethodStructure function = info.f_function;
+
         checkReturnTupleRegister(frame, function);
 
         ObjectHandle[] ahArg = hArg.m_ahValue;
@@ -154,7 +156,7 @@ public class Call_TT
 
         if (function.isNative())
             {
-            return getNativeTemplate(frame, function).
+            return info.f_template.
                 invokeNativeT(frame, function, null, ahArg, m_nRetValue);
             }
 
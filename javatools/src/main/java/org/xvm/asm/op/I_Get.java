@@ -69,7 +69,7 @@ public class I_Get
             return ((IndexSupport) template).extractArrayValue(frame, hTarget, lIndex, m_nRetValue);
             }
 
-        CallChain chain = getOpChain(frame, hTarget.getType());
+        CallChain chain = getOpChain(hTarget.getComposition());
         if (chain == null)
             {
             chain = template.findOpChain(hTarget, "getElement", "[]", hIndex);
@@ -77,7 +77,7 @@ public class I_Get
                 {
                 return frame.raiseException("Invalid op: \"[]\"");
                 }
-            saveOpChain(frame, hTarget.getType(), chain);
+            saveOpChain(hTarget.getComposition(), chain);
             }
 
         MethodStructure method = chain.getTop();
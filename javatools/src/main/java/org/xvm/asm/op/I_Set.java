@@ -115,7 +115,7 @@ public class I_Set
                 assignArrayValue(frame, hTarget, ((JavaLong) hIndex).getValue(), hValue);
             }
 
-        CallChain chain = getOpChain(frame, hTarget.getType());
+        CallChain chain = getOpChain(hTarget.getComposition());
         if (chain == null)
             {
             chain = template.findOpChain(hTarget, "[]=", new ObjectHandle[] {hIndex, hValue});
@@ -123,7 +123,7 @@ public class I_Set
                 {
                 return frame.raiseException("Invalid op: \"[]=\"");
                 }
-            saveOpChain(frame, hTarget.getType(), chain);
+            saveOpChain(hTarget.getComposition(), chain);
             }
 
         ObjectHandle[] ahVar = new ObjectHandle[Math.max(chain.getMaxVars(), 2)];
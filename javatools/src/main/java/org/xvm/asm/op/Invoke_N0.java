@@ -96,7 +96,7 @@ public class Invoke_N0
 
         try
             {
-            ObjectHandle[] ahArg = frame.getArguments(m_anArgValue, chain.getMaxVars());
+            ObjectHandle[] ahArg = frame.getCallArguments(m_anArgValue, chain.getMaxVars());
 
             if (anyDeferred(ahArg))
                 {
@@ -104,7 +104,9 @@ public class Invoke_N0
                     chain.invoke(frameCaller, hTarget, ahArg, A_IGNORE);
                 return new Utils.GetArguments(ahArg, stepNext).doNext(frame);
                 }
-            return chain.invoke(frame, hTarget, ahArg, A_IGNORE);
+            return chain.isNative()
+                    ? chain.invoke(frame, hTarget, ahArg, A_IGNORE)
+                    : frame.adoptRegisters(chain.invoke(frame, hTarget, ahArg, A_IGNORE), ahArg);
             }
         catch (ExceptionHandle.WrapperException e)
             {
@@ -106,7 +106,7 @@ public class Invoke_N1
 
         try
             {
-            ObjectHandle[] ahArg = frame.getArguments(m_anArgValue, chain.getMaxVars());
+            ObjectHandle[] ahArg = frame.getCallArguments(m_anArgValue, chain.getMaxVars());
 
             if (anyDeferred(ahArg))
                 {
@@ -114,7 +114,9 @@ public class Invoke_N1
                     frameCaller -> chain.invoke(frameCaller, hTarget, ahArg, m_nRetValue);
                 return new Utils.GetArguments(ahArg, stepNext).doNext(frame);
                 }
-            return chain.invoke(frame, hTarget, ahArg, m_nRetValue);
+            return chain.isNative()
+                    ? chain.invoke(frame, hTarget, ahArg, m_nRetValue)
+                    : frame.adoptRegisters(chain.invoke(frame, hTarget, ahArg, m_nRetValue), ahArg);
             }
         catch (ExceptionHandle.WrapperException e)
             {
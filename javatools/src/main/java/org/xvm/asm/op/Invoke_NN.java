@@ -114,7 +114,7 @@ public class Invoke_NN
 
         try
             {
-            ObjectHandle[] ahArg = frame.getArguments(m_anArgValue, chain.getMaxVars());
+            ObjectHandle[] ahArg = frame.getCallArguments(m_anArgValue, chain.getMaxVars());
 
             if (anyDeferred(ahArg))
                 {
@@ -122,7 +122,9 @@ public class Invoke_NN
                     chain.invoke(frameCaller, hTarget, ahArg, m_anRetValue);
                 return new Utils.GetArguments(ahArg, stepNext).doNext(frame);
                 }
-            return chain.invoke(frame, hTarget, ahArg, m_anRetValue);
+            return chain.isNative()
+                    ? chain.invoke(frame, hTarget, ahArg, m_anRetValue)
+                    : frame.adoptRegisters(chain.invoke(frame, hTarget, ahArg, m_anRetValue), ahArg);
             }
         catch (ExceptionHandle.WrapperException e)
             {
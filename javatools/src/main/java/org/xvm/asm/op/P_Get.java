@@ -112,11 +112,9 @@ public class P_Get
                     ? hTarget.proceed(frame, frameCaller ->
                         {
                         ObjectHandle hT = frameCaller.popStack();
-                        return hT.getTemplate().getPropertyValue(
-                            frameCaller, hT, constProperty, m_nRetValue);
+                        return getPropertyValue(frameCaller, hT, constProperty, m_nRetValue);
                         })
-                    : hTarget.getTemplate().getPropertyValue(
-                            frame, hTarget, constProperty, m_nRetValue);
+                    : getPropertyValue(frame, hTarget, constProperty, m_nRetValue);
             }
         catch (ExceptionHandle.WrapperException e)
             {
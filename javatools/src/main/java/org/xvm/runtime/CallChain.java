@@ -162,9 +162,10 @@ public class CallChain
                 invokeNativeN(frame, getTop(), hTarget, Utils.OBJECTS_NONE, iReturn);
             }
 
-        ObjectHandle[] ahVar = new ObjectHandle[getMaxVars()];
+        ObjectHandle[] ahVar = frame.allocateRegisters(getMaxVars());
 
-        return hTarget.getTemplate().invoke1(frame, this, hTarget, ahVar, iReturn);
+        return frame.adoptRegisters(
+                hTarget.getTemplate().invoke1(frame, this, hTarget, ahVar, iReturn), ahVar);
         }
 
     /**
@@ -178,10 +179,11 @@ public class CallChain
                 invokeNative1(frame, getTop(), hTarget, hArg, iReturn);
             }
 
-        ObjectHandle[] ahVar = new ObjectHandle[Math.max(getMaxVars(), 1)];
+        ObjectHandle[] ahVar = frame.allocateRegisters(Math.max(getMaxVars(), 1));
         ahVar[0] = hArg;
 
-        return hTarget.getTemplate().invoke1(frame, this, hTarget, ahVar, iReturn);
+        return frame.adoptRegisters(
+                hTarget.getTemplate().invoke1(frame, this, hTarget, ahVar, iReturn), ahVar);
         }
 
     /**
@@ -195,10 +197,11 @@ public class CallChain
                 invokeNativeNN(frame, getTop(), hTarget, new ObjectHandle[]{hArg}, aiReturn);
             }
 
-        ObjectHandle[] ahVar = new ObjectHandle[Math.max(getMaxVars(), 1)];
+        ObjectHandle[] ahVar = frame.allocateRegisters(Math.max(getMaxVars(), 1));
         ahVar[0] = hArg;
 
-        return hTarget.getTemplate().invokeN(frame, this, hTarget, ahVar, aiReturn);
+        return frame.adoptRegisters(
+                hTarget.getTemplate().invokeN(frame, this, hTarget, ahVar, aiReturn), ahVar);
         }
 
     /**
@@ -246,10 +249,11 @@ public class CallChain
                 invokeNativeT(frame, getTop(), hTarget, new ObjectHandle[] {hArg}, iReturn);
             }
 
-        ObjectHandle[] ahVar = new ObjectHandle[Math.max(getMaxVars(), 1)];
+        ObjectHandle[] ahVar = frame.allocateRegisters(Math.max(getMaxVars(), 1));
         ahVar[0] = hArg;
 
-        return hTarget.getTemplate().invokeT(frame, this, hTarget, ahVar, iReturn);
+        return frame.adoptRegisters(
+                hTarget.getTemplate().invokeT(frame, this, hTarget, ahVar, iReturn), ahVar);
         }
 
     /**
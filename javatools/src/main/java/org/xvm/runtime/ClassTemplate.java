@@ -738,6 +738,18 @@ public abstract class ClassTemplate
         return f_asFieldsImplicit;
         }
 
+    /**
+     * Check whether this template relies on the default implementation of the property and field
+     * access. If so, the ops are allowed to read and write plain (non-transient, non-inflated)
+     * fields directly, bypassing the template.
+     *
+     * @return true iff the property access for this template is not customized
+     */
+    public boolean isDefaultPropertyAccess()
+        {
+        return DEFAULT_PROPERTY_ACCESS.get(getClass());
+        }
+
     /**
      * Retrieve a property value.
      *
@@ -2687,6 +2699,32 @@ public abstract class ClassTemplate
     public static String[] BOOLEAN = new String[] {"Boolean"};
     public static String[] BYTES   = new String[] {"collections.Array<numbers.UInt8>"};
 
+    /**
+     * Cached answers to {@link #isDefaultPropertyAccess()} per template class.
+     */
+    private static final ClassValue<Boolean> DEFAULT_PROPERTY_ACCESS = new ClassValue<>()
+        {
+        @Override
+        protected Boolean computeValue(Class<?> clz)
+            {
+            try
+                {
+                return clz.getMethod("getPropertyValue", Frame.class, ObjectHandle.class,
+                            PropertyConstant.class, int.class).getDeclaringClass() == ClassTemplate.class
+                    && clz.getMethod("getFieldValue", Frame.class, ObjectHandle.class,
+                            PropertyConstant.class, int.class).getDeclaringClass() == ClassTemplate.class
+                    && clz.getMethod("setPropertyValue", Frame.class, ObjectHandle.class,
+                            PropertyConstant.class, ObjectHandle.class).getDeclaringClass() == ClassTemplate.class
+                    && clz.getMethod("setFieldValue", Frame.class, ObjectHandle.class,
+                            PropertyConstant.class, ObjectHandle.class).getDeclaringClass() == ClassTemplate.class;
+                }
+            catch (NoSuchMethodException e)
+                {
+                return false;
+                }
+            }
+        };
+
     /**
      * The container.
      */
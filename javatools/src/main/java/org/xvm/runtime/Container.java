@@ -2,6 +2,7 @@ package org.xvm.runtime;
 
 
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
 import java.util.WeakHashMap;
 
@@ -9,6 +10,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.xvm.asm.ClassStructure;
 import org.xvm.asm.Constant;
@@ -49,6 +51,8 @@ import org.xvm.runtime.template.collections.xArray.Mutability;
 import org.xvm.runtime.template.reflect.xModule;
 import org.xvm.runtime.template.reflect.xPackage;
 
+import org.xvm.util.concurrent.FairShareExecutor;
+
 
 /**
  * The base Container functionality.
@@ -62,6 +66,11 @@ public abstract class Container
         f_parent   = containerParent;
         f_heap     = new ConstHeap(this);
         f_idModule = idModule;
+        // there is no reason for a container to hold more tokens than there are worker threads;
+        // more than that would only let a chatty container crowd out its siblings
+        f_executor = new FairShareExecutor(containerParent == null
+                ? runtime.getServiceExecutor()
+                : containerParent.f_executor, runtime.f_executorXVM.getWorkerCount());
 
         // don't register the native container
         if (containerParent != null)
@@ -147,14 +156,12 @@ public abstract class Container
      */
     public void schedule(ServiceContext service)
         {
-        // TODO: add a container level fair scheduling queue and submit the service there. The
-        // container should then follow a similar pattern and push processing of its fair scheduling
-        // queue to its parent container which eventually pushes to the runtime. Thus, there is a
-        // hierarchy of fairness. For now though we just skip over all of this and push the
-        // processing directly to the top level runtime.
+        // the service is queued at the container level; the container pushes the processing of its
+        // fair scheduling queue to its parent container which eventually pushes to the runtime;
+        // thus, there is a hierarchy of fairness
 
         f_pendingWorkCount.incrementAndGet();
-        f_runtime.submitService(() ->
+        f_executor.execute(() ->
             {
             try
                 {
@@ -170,7 +177,7 @@ public abstract class Container
                 {
                 f_pendingWorkCount.decrementAndGet();
                 }
-            });
+            }, service.getWorkerAffinity());
         }
 
     /**
@@ -478,6 +485,14 @@ public abstract class Container
         return getNativeContainer().getModuleRepository();
         }
 
+    /**
+     * @return the properties of the host process that the injected resources are based on
+     */
+    public Properties getHostProperties()
+        {
+        return getNativeContainer().getHostProperties();
+        }
+
     /**
      * Create a new FileStructure for the specified module built on top of the system modules.
      *
@@ -508,6 +523,264 @@ public abstract class Container
         }
 
 
+    // ----- resource limits -----------------------------------------------------------------------
+
+    /**
+     * Limit the number of services of this container (including the nested containers) that
+     * could be executing concurrently.
+     *
+     * @param cMax  the maximum number of threads (positive)
+     */
+    public void limitThreads(int cMax)
+        {
+        f_executor.setConcurrencyLimit(cMax);
+        }
+
+    /**
+     * Limit the CPU time that could be consumed by this container (including the nested
+     * containers). Once the limit is exceeded, the container is paused and the specified action
+     * is executed.
+     *
+     * @param cNanosMax   the CPU time limit in nanoseconds; zero or negative to remove the limit
+     * @param runOverrun  the action to execute when the limit is exceeded
+     */
+    public void limitCompute(long cNanosMax, Runnable runOverrun)
+        {
+        f_budgetCpu.setLimit(cNanosMax, runOverrun);
+        }
+
+    /**
+     * Limit the memory that could be used by this container (including the nested containers).
+     * Once the limit is exceeded, the container is paused and the specified action is executed.
+     * <p>
+     * The memory usage is an approximation; see {@link #getMemoryEstimate()}.
+     *
+     * @param cbMax       the memory limit in bytes; zero or negative to remove the limit
+     * @param runOverrun  the action to execute when the limit is exceeded
+     */
+    public void limitMemory(long cbMax, Runnable runOverrun)
+        {
+        f_budgetMemory.setLimit(cbMax, runOverrun);
+        }
+
+    /**
+     * @return the CPU time (in nanos) consumed by this container and its nested containers
+     */
+    public long getCpuTimeNanos()
+        {
+        return f_budgetCpu.getUsage();
+        }
+
+    /**
+     * The memory estimate is based on the (sampled) allocations of the container's services;
+     * after every garbage collection, it is scaled down by the portion of the heap that has
+     * survived the collection.
+     *
+     * @return the estimated memory (in bytes) used by this container and its nested containers
+     */
+    public long getMemoryEstimate()
+        {
+        return f_budgetMemory.getUsage();
+        }
+
+    /**
+     * Unlike the {@link #getMemoryEstimate() memory estimate}, this number is never scaled down.
+     *
+     * @return the (estimated) number of bytes allocated by this container and its nested
+     *         containers since they have been created
+     */
+    public long getBytesAllocated()
+        {
+        return f_adderAllocated.sum();
+        }
+
+    /**
+     * Stop scheduling this container's services (and nested containers). The services that are
+     * already executing are allowed to complete their current execution slice.
+     *
+     * @throws IllegalStateException if the container is already paused
+     */
+    public void pause()
+        {
+        if (!f_executor.setPaused(true))
+            {
+            throw new IllegalStateException("The container is already paused");
+            }
+        }
+
+    /**
+     * Resume scheduling this container's services.
+     *
+     * @throws IllegalStateException if the container is not paused
+     */
+    public void resume()
+        {
+        if (!f_executor.setPaused(false))
+            {
+            throw new IllegalStateException("The container is not paused");
+            }
+        }
+
+    /**
+     * @return true iff this container is paused
+     */
+    public boolean isPaused()
+        {
+        return f_executor.isPaused();
+        }
+
+    /**
+     * Account for the resources used by one of this container's services; called by the service
+     * thread at the end of an execution slice.
+     *
+     * @param cNanos       the CPU time used
+     * @param cbAllocated  the (estimated) number of bytes allocated
+     */
+    void recordUsage(long cNanos, long cbAllocated)
+        {
+        for (Container container = this; container != null; container = container.f_parent)
+            {
+            container.f_budgetCpu.add(cNanos);
+            container.f_budgetMemory.add(cbAllocated);
+            container.f_adderAllocated.add(cbAllocated);
+            }
+        }
+
+    /**
+     * Scale the memory estimate by the specified ratio; called after a garbage collection.
+     *
+     * @param dRatio  the portion of the heap that survived the collection
+     */
+    void scaleMemoryEstimate(double dRatio)
+        {
+        f_budgetMemory.scale(dRatio);
+        }
+
+    /**
+     * A resource budget: the usage, the limit and the action to execute when the limit is
+     * exceeded.
+     * <p>
+     * The usage is recorded by all the service threads of the container and its nested containers
+     * at the end of every execution slice, so it is kept in a {@link LongAdder} rather than in a
+     * single contended counter. Since summing up the adder is not free, the limit is only checked
+     * once per {@link #CHECK_INTERVAL} (and every time the limit is set), which allows the usage to
+     * overshoot the limit by the amount used during that interval.
+     */
+    protected class Budget
+        {
+        /**
+         * @return the current usage
+         */
+        public long getUsage()
+            {
+            return f_adderUsage.sum();
+            }
+
+        /**
+         * Set the limit; the overrun action is executed at most once per limit.
+         */
+        public void setLimit(long cLimit, Runnable runOverrun)
+            {
+            synchronized (this)
+                {
+                m_runOverrun = runOverrun;
+                m_fExceeded  = false;
+                m_cLimit     = Math.max(0, cLimit);
+                }
+            check(getUsage());
+            }
+
+        /**
+         * Add to the usage.
+         */
+        public void add(long c)
+            {
+            if (c != 0)
+                {
+                f_adderUsage.add(c);
+
+                if (m_cLimit > 0)
+                    {
+                    long ldNow = System.nanoTime();
+                    if (ldNow - m_ldNextCheck >= 0)
+                        {
+                        m_ldNextCheck = ldNow + CHECK_INTERVAL;
+                        check(getUsage());
+                        }
+                    }
+                }
+            }
+
+        /**
+         * Scale the usage. The concurrently added usage may or may not be scaled.
+         */
+        public void scale(double dRatio)
+            {
+            long cUsage = getUsage();
+            f_adderUsage.add((long) (cUsage * dRatio) - cUsage);
+            }
+
+        /**
+         * Pause the container and execute the overrun action if the limit has been exceeded.
+         */
+        private void check(long cUsage)
+            {
+            long cLimit = m_cLimit;
+            if (cLimit > 0 && cUsage > cLimit)
+                {
+                Runnable runOverrun;
+                synchronized (this)
+                    {
+                    if (m_fExceeded || m_cLimit != cLimit)
+                        {
+                        return;
+                        }
+                    m_fExceeded = true;
+                    runOverrun  = m_runOverrun;
+                    }
+
+                // the container may have been paused already
+                f_executor.setPaused(true);
+                if (runOverrun != null)
+                    {
+                    runOverrun.run();
+                    }
+                }
+            }
+
+        /**
+         * The minimum interval (in nanos) between two limit checks.
+         */
+        private static final long CHECK_INTERVAL = 1_000_000L;
+
+        /**
+         * The current usage.
+         */
+        private final LongAdder f_adderUsage = new LongAdder();
+
+        /**
+         * The limit; zero if there is no limit.
+         */
+        private volatile long m_cLimit;
+
+        /**
+         * The time (in {@link System#nanoTime()} units) after which the next limit check is due.
+         * Racy by design: a concurrent update can only cause an extra (or a postponed) check.
+         */
+        private volatile long m_ldNextCheck = System.nanoTime();
+
+        /**
+         * True iff the limit has been exceeded and the overrun action has been executed.
+         */
+        private boolean m_fExceeded;
+
+        /**
+         * The overrun action.
+         */
+        private Runnable m_runOverrun;
+        }
+
+
     // ----- x:Container API helpers ---------------------------------------------------------------
 
     /**
@@ -746,6 +1019,11 @@ public abstract class Container
      */
     protected final ModuleConstant f_idModule;
 
+    /**
+     * The fair scheduling queue for this container's services and nested containers.
+     */
+    protected final FairShareExecutor f_executor;
+
     /**
      * The service context for the container itself.
      */
@@ -763,6 +1041,21 @@ public abstract class Container
      */
     private final AtomicLong f_pendingWorkCount = new AtomicLong();
 
+    /**
+     * The CPU time budget.
+     */
+    private final Budget f_budgetCpu = new Budget();
+
+    /**
+     * The memory budget.
+     */
+    private final Budget f_budgetMemory = new Budget();
+
+    /**
+     * The total number of bytes allocated by this container's services and nested containers.
+     */
+    private final LongAdder f_adderAllocated = new LongAdder();
+
     /**
      * Set of services that were started by this container (stored as a Map with no values).
      */
@@ -0,0 +1,304 @@
+package org.xvm.runtime;
+
+
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+
+import java.util.Queue;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+
+/**
+ * A single thread that multiplexes the non-blocking network channels using a {@link Selector}.
+ * <p/>
+ * All the operations against the registered channels (including the registration itself and any
+ * changes to the interest sets) are performed on the event loop thread; other threads hand the
+ * work over using the {@link #execute} method. The selected channels are reported to their
+ * {@link Handler}s, which must never block.
+ * <p/>
+ * Each event loop owns a direct buffer that all its handlers use for reading, and a small pool of
+ * direct buffers that the writers fill (on any thread) and the handlers drain (on the event loop
+ * thread).
+ */
+public class EventLoop
+        implements Runnable
+    {
+    /**
+     * Construct and start an event loop.
+     *
+     * @param sName  the name of the event loop thread
+     */
+    public EventLoop(String sName)
+            throws IOException
+        {
+        f_selector = Selector.open();
+        f_thread   = new Thread(this, sName);
+        f_thread.setDaemon(true);
+        f_thread.start();
+        }
+
+    /**
+     * A handler of the readiness events for a registered channel. All the methods are called on
+     * the event loop thread.
+     */
+    public interface Handler
+        {
+        /**
+         * Process the ready operations of the specified key.
+         *
+         * @param key  the selected key
+         */
+        void onSelect(SelectionKey key)
+                throws IOException;
+
+        /**
+         * Called when {@link #onSelect} throws, or the event loop is shut down; the handler is
+         * expected to release the channel and complete any pending operations.
+         *
+         * @param e  the reason, or null if the event loop is shutting down
+         */
+        void onFailure(IOException e);
+        }
+
+
+    // ----- API -----------------------------------------------------------------------------------
+
+    /**
+     * Execute the specified task on the event loop thread.
+     *
+     * @param task  the task to execute; it must not block
+     */
+    public void execute(Runnable task)
+        {
+        f_queueTasks.add(task);
+        if (Thread.currentThread() != f_thread)
+            {
+            f_selector.wakeup();
+            }
+        }
+
+    /**
+     * @return true iff the caller is running on the event loop thread
+     */
+    public boolean inEventLoop()
+        {
+        return Thread.currentThread() == f_thread;
+        }
+
+    /**
+     * Register the specified channel with this event loop. Must be called on the event loop
+     * thread.
+     *
+     * @param channel  the non-blocking channel
+     * @param nOps     the initial interest set
+     * @param handler  the handler for the channel's events
+     *
+     * @return the selection key
+     */
+    public SelectionKey register(SelectableChannel channel, int nOps, Handler handler)
+            throws ClosedChannelException
+        {
+        assert inEventLoop();
+        return channel.register(f_selector, nOps, handler);
+        }
+
+    /**
+     * Obtain the read buffer of this event loop. The buffer is cleared and can only be used by the
+     * handlers for the duration of an {@link Handler#onSelect} call.
+     *
+     * @return the read buffer
+     */
+    public ByteBuffer getReadBuffer()
+        {
+        assert inEventLoop();
+        return f_bufRead.clear();
+        }
+
+    /**
+     * Obtain a write buffer from the pool (or allocate a new one). Can be called on any thread.
+     *
+     * @return a cleared direct buffer of {@link #WRITE_BUFFER_SIZE} bytes
+     */
+    public ByteBuffer allocateWriteBuffer()
+        {
+        ByteBuffer buf = f_poolWrite.poll();
+        return buf == null
+                ? ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE)
+                : buf.clear();
+        }
+
+    /**
+     * Return the specified write buffer to the pool. Can be called on any thread.
+     *
+     * @param buf  a buffer previously obtained from {@link #allocateWriteBuffer}
+     */
+    public void releaseWriteBuffer(ByteBuffer buf)
+        {
+        // the pool size is only approximately bounded; it's not worth synchronizing for
+        if (f_poolWrite.size() < MAX_POOLED_BUFFERS)
+            {
+            f_poolWrite.add(buf);
+            }
+        }
+
+    /**
+     * Stop the event loop. All the registered handlers are notified via
+     * {@link Handler#onFailure}.
+     */
+    public void shutdown()
+        {
+        m_fShutdown = true;
+        f_selector.wakeup();
+        }
+
+
+    // ----- Runnable ------------------------------------------------------------------------------
+
+    @Override
+    public void run()
+        {
+        Selector selector = f_selector;
+        while (!m_fShutdown)
+            {
+            try
+                {
+                selector.select();
+                }
+            catch (IOException e)
+                {
+                break;
+                }
+
+            runTasks();
+
+            for (SelectionKey key : selector.selectedKeys())
+                {
+                Handler handler = (Handler) key.attachment();
+                try
+                    {
+                    handler.onSelect(key);
+                    }
+                catch (CancelledKeyException ignore)
+                    {
+                    // the channel has been closed concurrently
+                    }
+                catch (IOException e)
+                    {
+                    fail(handler, e);
+                    }
+                catch (Throwable e)
+                    {
+                    // a bug in the handler must not take down the other channels on this loop
+                    System.err.println("Unhandled exception in " + f_thread.getName() + ": " + e);
+                    fail(handler, new IOException(e));
+                    }
+                }
+            selector.selectedKeys().clear();
+
+            // the tasks that the handlers have handed over (which didn't wake up the selector)
+            runTasks();
+            }
+
+        runTasks();
+        for (SelectionKey key : selector.keys())
+            {
+            fail((Handler) key.attachment(), null);
+            }
+
+        try
+            {
+            selector.close();
+            }
+        catch (IOException ignore) {}
+        }
+
+    /**
+     * Notify the specified handler of a failure, making sure the event loop survives it.
+     */
+    private void fail(Handler handler, IOException e)
+        {
+        try
+            {
+            handler.onFailure(e);
+            }
+        catch (Throwable t)
+            {
+            System.err.println("Unhandled exception in " + f_thread.getName() + ": " + t);
+            }
+        }
+
+    /**
+     * Run all the tasks that have been handed over to the event loop.
+     */
+    private void runTasks()
+        {
+        Runnable task;
+        while ((task = f_queueTasks.poll()) != null)
+            {
+            try
+                {
+                task.run();
+                }
+            catch (Throwable e)
+                {
+                System.err.println("Unhandled exception in " + f_thread.getName() + ": " + e);
+                }
+            }
+        }
+
+
+    // ----- constants and fields ------------------------------------------------------------------
+
+    /**
+     * The size of the per-loop read buffer.
+     */
+    public static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The size of the pooled write buffers.
+     */
+    public static final int WRITE_BUFFER_SIZE = 16 * 1024;
+
+    /**
+     * The maximum number of the write buffers kept in the pool.
+     */
+    private static final int MAX_POOLED_BUFFERS = 256;
+
+    /**
+     * The selector.
+     */
+    private final Selector f_selector;
+
+    /**
+     * The event loop thread.
+     */
+    private final Thread f_thread;
+
+    /**
+     * The tasks handed over from other threads.
+     */
+    private final Queue<Runnable> f_queueTasks = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The read buffer, shared by all the handlers.
+     */
+    private final ByteBuffer f_bufRead = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+
+    /**
+     * The pool of write buffers.
+     */
+    private final Queue<ByteBuffer> f_poolWrite = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Set to true to stop the event loop.
+     */
+    private volatile boolean m_fShutdown;
+    }
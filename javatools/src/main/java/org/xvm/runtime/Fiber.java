@@ -1,6 +1,8 @@
 package org.xvm.runtime;
 
 
+import java.lang.management.ManagementFactory;
+
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -176,14 +178,15 @@ public class Fiber
 
             case Running:
                 m_nanoStarted = System.nanoTime();
+                m_cbStarted   = (f_context.m_cSlices++ & (ALLOC_SAMPLE_RATE - 1)) == 0
+                        ? getThreadAllocatedBytes()
+                        : -1;
                 m_frame = null;
                 break;
 
             case Waiting:
             case Paused:
-                long cNanos = System.nanoTime() - m_nanoStarted;
-                m_nanoStarted = 0;
-                f_context.m_cRuntimeNanos += cNanos;
+                collectMetrics();
                 m_frame = f_context.getCurrentFrame();
                 m_cOps += cOps;
                 break;
@@ -194,6 +197,53 @@ public class Fiber
             }
         }
 
+    /**
+     * Add the time and (sampled) memory used by the current execution slice to the service
+     * metrics; called only from this fiber's service thread.
+     */
+    void collectMetrics()
+        {
+        long nanoStarted = m_nanoStarted;
+        if (nanoStarted != 0)
+            {
+            ServiceContext context = f_context;
+            long           cNanos  = System.nanoTime() - nanoStarted;
+
+            context.m_cRuntimeNanos += cNanos;
+            m_nanoStarted = 0;
+
+            long cbAllocated;
+            long cbStarted = m_cbStarted;
+            if (cbStarted >= 0)
+                {
+                cbAllocated = Math.max(0, getThreadAllocatedBytes() - cbStarted);
+                context.m_cbSampled     += cbAllocated;
+                context.m_cNanosSampled += cNanos;
+                m_cbStarted = -1;
+                }
+            else
+                {
+                // extrapolate using the service's sampled allocation rate
+                long cNanosSampled = context.m_cNanosSampled;
+                cbAllocated = cNanosSampled == 0
+                        ? 0
+                        : (long) ((double) context.m_cbSampled * cNanos / cNanosSampled);
+                }
+            context.m_cbAllocated += cbAllocated;
+
+            context.f_container.recordUsage(cNanos, cbAllocated);
+            }
+        }
+
+    /**
+     * @return the number of bytes allocated by the current thread so far or -1 if the JVM
+     *         doesn't support per-thread allocation accounting
+     */
+    private static long getThreadAllocatedBytes()
+        {
+        return THREAD_MX_BEAN == null ? -1 : THREAD_MX_BEAN.getCurrentThreadAllocatedBytes();
+        }
+
     /**
      * Obtain the current frame for this Fiber.
      */
@@ -385,6 +435,7 @@ public class Fiber
     public void onResponse()
         {
         m_fResponded = true;
+        f_context.onFiberResponded(this);
         }
 
     /**
@@ -620,6 +671,39 @@ public class Fiber
         }
 
 
+    // ----- constants -----------------------------------------------------------------------------
+
+    /**
+     * The allocation accounting is only done for the first and then one out of this many
+     * execution slices of a service (must be a power of two); the allocations of the other slices
+     * are extrapolated from the service's sampled allocation rate per nanosecond of CPU time.
+     */
+    public static final int ALLOC_SAMPLE_RATE = 8;
+
+    /**
+     * The bean used for the allocation accounting; null if not supported by the JVM.
+     */
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN;
+    static
+        {
+        com.sun.management.ThreadMXBean bean = null;
+        try
+            {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean beanSun
+                    && beanSun.isThreadAllocatedMemorySupported())
+                {
+                beanSun.setThreadAllocatedMemoryEnabled(true);
+                bean = beanSun;
+                }
+            }
+        catch (Throwable ignore)
+            {
+            // the allocation accounting is not available
+            }
+        THREAD_MX_BEAN = bean;
+        }
+
+
     // ----- data fields ---------------------------------------------------------------------------
 
     /**
@@ -676,6 +760,12 @@ public class Fiber
      */
     private long m_nanoStarted;
 
+    /**
+     * Metrics: the thread's allocated bytes when the fiber execution has started, or -1 if the
+     * current execution slice is not sampled.
+     */
+    private long m_cbStarted = -1;
+
     /**
      * The timeout that this fiber is subject to (optional).
      */
@@ -1,23 +1,72 @@
 package org.xvm.runtime;
 
 
-import org.xvm.runtime.Fiber.FiberStatus;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.xvm.runtime.ServiceContext.Synchronicity;
 
 
 /**
  * {@link FiberQueue} represents a queue-like data structure holding all pending Fibers and
  * facilitating a quick selection algorithm for the scheduler.
+ * <p>
+ * The frames are selected in the order they were added, skipping the ones that are not ready
+ * (see {@link #checkPriority}). To avoid scanning all the suspended fibers on every scheduling
+ * decision, the queue keeps the frames in separate structures:
+ * <ul>
+ *   <li/>the "initial" frames (new fibers) in a linked list, in the insertion order;
+ *   <li/>the "waiting" frames in a map keyed by the fiber; a waiting frame becomes "ready" when
+ *        the fiber is {@link #signal signaled} about a response, or when it times out, at which
+ *        point it's also moved to the "ready" set, which is ordered by the insertion order;
+ *   <li/>the waiting frames that are not concurrent-safe in a separate set, so a concurrent
+ *        service doesn't need to look at all the waiting frames to check whether a fiber can run;
+ *   <li/>the waiting frames that are subject to a timeout in a heap ordered by the timeout.
+ * </ul>
+ * As a result, the cost of a scheduling decision depends only on the number of frames that are
+ * ready (or blocked by the service synchronicity) rather than on the total number of suspended
+ * fibers.
+ * <p>
+ * All the methods except {@link #signal} must be called on the service thread.
  */
 public class FiberQueue
     {
     private final ServiceContext f_context;
 
-    // a circular array
-    private Frame[] m_aFrame = new Frame[16];
+    // the initial (new) frames in the insertion order
+    private Entry m_entryInitialHead;
+    private Entry m_entryInitialTail;
+
+    // all the waiting frames (ready or not) in the insertion order
+    private final Map<Fiber, Entry> f_mapWaiting = new LinkedHashMap<>();
+
+    // the waiting frames that are ready (responded or timed out) ordered by the insertion order
+    private final TreeSet<Entry> f_setReady = new TreeSet<>(Comparator.comparingLong(e -> e.f_nSeq));
+
+    // the waiting frames that were not concurrent-safe when added
+    private final Set<Entry> f_setUnsafe = new LinkedHashSet<>();
+
+    // the waiting frames subject to a timeout, ordered by the timeout; the entries are removed lazily
+    private final PriorityQueue<Entry> f_heapTimeout = new PriorityQueue<>(
+            Comparator.comparingLong(e -> e.f_ldtTimeout));
 
-    private int m_ixHead = -1; // head
-    private int m_ixTail = 0;  // past the tail - insertion point
-    private int m_cSize  = 0;
+    // the number of entries in the timeout heap that are no longer waiting
+    private int m_cStaleTimeouts;
+
+    // the fibers that have been signaled by (potentially) other threads
+    private final Queue<Fiber> f_queueSignaled = new ConcurrentLinkedQueue<>();
+
+    private long m_nSeq;
+    private int  m_cSize;
 
     public FiberQueue(ServiceContext ctx)
         {
@@ -26,22 +75,64 @@ public class FiberQueue
 
     public void add(Frame frame)
         {
-        Frame[] aFrame = ensureCapacity(++m_cSize);
-
-        int iInsert = m_ixTail;
+        Fiber fiber = frame.f_fiber;
+        Entry entry = new Entry(frame, m_nSeq++);
 
-        if (aFrame[iInsert] != null)
+        switch (fiber.getStatus())
             {
-            compact();
-            iInsert = m_ixTail;
-            }
-        aFrame[iInsert] = frame;
+            case Initial:
+                entry.m_nState = Entry.INITIAL;
 
-        if (m_ixHead < 0)
-            {
-            m_ixHead = iInsert;
+                Entry entryTail = m_entryInitialTail;
+                if (entryTail == null)
+                    {
+                    m_entryInitialHead = entry;
+                    }
+                else
+                    {
+                    entryTail.m_next = entry;
+                    entry.m_prev     = entryTail;
+                    }
+                m_entryInitialTail = entry;
+                break;
+
+            case Waiting:
+                entry.m_nState = Entry.WAITING;
+                f_mapWaiting.put(fiber, entry);
+
+                if (!frame.isSafeStack())
+                    {
+                    f_setUnsafe.add(entry);
+                    }
+
+                if (fiber.isReady())
+                    {
+                    // the response may have arrived before the fiber got suspended
+                    markReady(entry);
+                    }
+                else if (entry.f_ldtTimeout > 0)
+                    {
+                    entry.m_fTimed = true;
+                    f_heapTimeout.add(entry);
+                    }
+                break;
+
+            default:
+                throw new IllegalStateException();
             }
-        m_ixTail = (iInsert + 1) % aFrame.length;
+
+        m_cSize++;
+        }
+
+    /**
+     * Signal the queue that the specified fiber could have become ready. This method can be
+     * called on any thread.
+     *
+     * @param fiber  the fiber that has received a response
+     */
+    public void signal(Fiber fiber)
+        {
+        f_queueSignaled.add(fiber);
         }
 
     public boolean isEmpty()
@@ -54,24 +145,7 @@ public class FiberQueue
      */
     public boolean isReady()
         {
-        if (m_cSize == 0)
-            {
-            return false;
-            }
-
-        int cFrames = m_aFrame.length;
-        int ixHead  = m_ixHead;
-        for (int i = 0; i < cFrames; i++)
-            {
-            int ix = (i + ixHead) % cFrames;
-
-            int iPriority = checkPriority(ix);
-            if (iPriority >= 0)
-                {
-                return true;
-                }
-            }
-        return false;
+        return m_cSize > 0 && findReady() != null;
         }
 
     public int size()
@@ -79,6 +153,17 @@ public class FiberQueue
         return m_cSize;
         }
 
+    /**
+     * An approximation of {@link #isReady()} that can be called on any thread: it doesn't modify
+     * the queue and doesn't evaluate whether the candidate fibers could actually run.
+     *
+     * @return {@code true} iff there are fibers which could possibly be ready for processing
+     */
+    public boolean isPossiblyReady()
+        {
+        return m_entryInitialHead != null || !f_setReady.isEmpty() || !f_queueSignaled.isEmpty();
+        }
+
     /**
      * Retrieve the first frame that is ready.
      */
@@ -89,20 +174,8 @@ public class FiberQueue
             return null;
             }
 
-        int cFrames = m_aFrame.length;
-        int ixHead  = m_ixHead;
-        for (int i = 0; i < cFrames; i++)
-            {
-            int ix = (i + ixHead) % cFrames;
-
-            int iPriority = checkPriority(ix);
-            if (iPriority >= 0)
-                {
-                return remove(ix);
-                }
-            }
-
-        return null;
+        Entry entry = findReady();
+        return entry == null ? null : remove(entry);
         }
 
     /**
@@ -115,18 +188,36 @@ public class FiberQueue
             return null;
             }
 
-        int cFrames = m_aFrame.length;
-        int ixHead  = m_ixHead;
-        for (int i = 0; i < cFrames; i++)
-            {
-            int ix = (i + ixHead) % cFrames;
+        Entry entryInitial = m_entryInitialHead;
+        Entry entryWaiting = f_mapWaiting.isEmpty()
+                ? null
+                : f_mapWaiting.values().iterator().next();
 
-            if (m_aFrame[ix] != null)
+        return remove(entryWaiting == null ||
+                      entryInitial != null && entryInitial.f_nSeq < entryWaiting.f_nSeq
+                ? entryInitial
+                : entryWaiting);
+        }
+
+    /**
+     * @return the earliest timeout (timestamp) among the waiting fibers or zero if none of the
+     *         waiting fibers is subject to a timeout
+     */
+    public long getNextTimeout()
+        {
+        PriorityQueue<Entry> heap = f_heapTimeout;
+        for (Entry entry = heap.peek(); entry != null; entry = heap.peek())
+            {
+            if (entry.m_nState == Entry.WAITING)
                 {
-                return remove(ix);
+                return entry.f_ldtTimeout;
                 }
+
+            heap.poll();
+            entry.m_fTimed = false;
+            m_cStaleTimeouts--;
             }
-        return null;
+        return 0;
         }
 
     /**
@@ -140,41 +231,121 @@ public class FiberQueue
             }
 
         StringBuilder sb = new StringBuilder();
-        int cFrames = m_aFrame.length;
-        int ixHead  = m_ixHead;
-        for (int i = 0; i < cFrames; i++)
+        for (Entry entry : f_mapWaiting.values())
             {
-            int ix = (i + ixHead) % cFrames;
-
-            int iPriority = checkPriority(ix);
-            if (iPriority == -1)
+            if (checkPriority(entry) == -1)
                 {
-                Frame frame = m_aFrame[ix];
+                Frame frame = entry.f_frame;
                 if (sb.isEmpty())
                     {
                     sb.append(frame.f_context);
                     }
                 sb.append("\nframe=")
-                  .append(frame);
+                  .append(frame)
+                  .append(" waiting");
+                }
+            }
+        return sb.toString();
+        }
 
-                Fiber fiber = frame.f_fiber;
-                switch (fiber.getStatus())
-                    {
-                    case Waiting:
-                        sb.append(" waiting");
-                        break;
+    /**
+     * Find the first (in the insertion order) entry that is ready for processing.
+     *
+     * @return the entry or null if none is ready
+     */
+    private Entry findReady()
+        {
+        processSignals();
+        processTimeouts();
 
-                    case Initial:
-                        sb.append(" new");
-                        break;
-                    }
+        // merge the initial list and the ready set, both ordered by the insertion sequence
+        Iterator<Entry> iterReady    = f_setReady.iterator();
+        Entry           entryReady   = iterReady.hasNext() ? iterReady.next() : null;
+        Entry           entryInitial = f_context.getSynchronicity() == Synchronicity.Critical
+                ? null // no new fiber can start in a critical section
+                : m_entryInitialHead;
+
+        while (entryReady != null || entryInitial != null)
+            {
+            Entry entry;
+            if (entryInitial == null ||
+                entryReady != null && entryReady.f_nSeq < entryInitial.f_nSeq)
+                {
+                entry      = entryReady;
+                entryReady = iterReady.hasNext() ? iterReady.next() : null;
+                }
+            else
+                {
+                entry        = entryInitial;
+                entryInitial = entryInitial.m_next;
+                }
+
+            if (checkPriority(entry) >= 0)
+                {
+                return entry;
+                }
+            }
+        return null;
+        }
+
+    /**
+     * Move all the signaled waiting fibers that have received a response to the "ready" set.
+     */
+    private void processSignals()
+        {
+        Fiber fiber;
+        while ((fiber = f_queueSignaled.poll()) != null)
+            {
+            Entry entry = f_mapWaiting.get(fiber);
+            if (entry != null && entry.m_nState == Entry.WAITING && fiber.isReady())
+                {
+                markReady(entry);
                 }
             }
-        return sb.toString();
         }
 
     /**
-     * Calculate the priority of the fiber at the specified index.
+     * Move all the waiting fibers that have timed out to the "ready" set.
+     */
+    private void processTimeouts()
+        {
+        PriorityQueue<Entry> heap = f_heapTimeout;
+        if (heap.isEmpty())
+            {
+            return;
+            }
+
+        long ldtNow = System.currentTimeMillis();
+        for (Entry entry = heap.peek(); entry != null && entry.f_ldtTimeout < ldtNow; entry = heap.peek())
+            {
+            heap.poll();
+            entry.m_fTimed = false;
+            if (entry.m_nState == Entry.WAITING)
+                {
+                markReady(entry);
+                }
+            else
+                {
+                m_cStaleTimeouts--;
+                }
+            }
+        }
+
+    /**
+     * Move the specified waiting entry to the "ready" set.
+     */
+    private void markReady(Entry entry)
+        {
+        entry.m_nState = Entry.READY;
+        f_setReady.add(entry);
+        if (entry.m_fTimed)
+            {
+            pruneTimeouts();
+            }
+        }
+
+    /**
+     * Calculate the priority of the fiber for the specified entry.
      * The return values are:
      * <ul>
      *   <li/>[2]  running
@@ -182,17 +353,11 @@ public class FiberQueue
      *   <li/>[0]  initial new
      *   <li/>[-1] not ready
      *   <li/>[-2] blocked
-     *   <li/>[-3] empty
      * </ul>
      */
-    private int checkPriority(int ix)
+    private int checkPriority(Entry entry)
         {
-        Frame frame = m_aFrame[ix];
-        if (frame == null)
-            {
-            return -3;
-            }
-
+        Frame frame = entry.f_frame;
         Fiber fiber = frame.f_fiber;
         switch (fiber.getStatus())
             {
@@ -256,129 +421,139 @@ public class FiberQueue
      */
     private boolean isAnyNonConcurrentWaiting(Fiber fiberCandidate)
         {
-        Frame[] aFrame      = m_aFrame;
-        int     cFrames     = aFrame.length;
-        Fiber   fiberCaller = fiberCandidate.f_fiberCaller;
+        Fiber fiberCaller = fiberCandidate.f_fiberCaller;
 
-        for (int i = 0; i < cFrames; i++)
+        for (Iterator<Entry> iter = f_setUnsafe.iterator(); iter.hasNext();)
             {
-            Frame frame = aFrame[i];
-            if (frame == null)
-                {
-                continue;
-                }
-
+            Entry entry = iter.next();
+            Frame frame = entry.f_frame;
             Fiber fiber = frame.f_fiber;
             if (fiber != fiberCandidate)
                 {
-                if (fiber.getStatus() == FiberStatus.Waiting)
+                if (frame.isSafeStack())
                     {
-                    if (frame.isSafeStack() ||
-                        fiberCaller != null && fiberCaller.isContinuationOf(fiber))
-                        {
-                        continue;
-                        }
-                    fiberCandidate.setBlocker(frame);
-                    return true;
+                    // a mutable "this" has become immutable since the frame was added
+                    iter.remove();
+                    continue;
                     }
+
+                if (fiberCaller != null && fiberCaller.isContinuationOf(fiber))
+                    {
+                    continue;
+                    }
+                fiberCandidate.setBlocker(frame);
+                return true;
                 }
             }
         fiberCandidate.setBlocker(null);
         return false;
         }
 
-    private Frame remove(int ix)
+    private Frame remove(Entry entry)
         {
-        Frame frame = m_aFrame[ix];
-
-        assert frame != null;
-
-        m_aFrame[ix] = null;
-
-        if (--m_cSize > 0)
+        switch (entry.m_nState)
             {
-            // move the head if necessary
-            if (ix == m_ixHead)
+            case Entry.INITIAL:
                 {
-                int cCapacity = m_aFrame.length;
-                do
+                Entry entryPrev = entry.m_prev;
+                Entry entryNext = entry.m_next;
+                if (entryPrev == null)
                     {
-                    ix = (ix + 1) % cCapacity;
+                    m_entryInitialHead = entryNext;
                     }
-                while (m_aFrame[ix] == null);
-
-                m_ixHead = ix;
+                else
+                    {
+                    entryPrev.m_next = entryNext;
+                    }
+                if (entryNext == null)
+                    {
+                    m_entryInitialTail = entryPrev;
+                    }
+                else
+                    {
+                    entryNext.m_prev = entryPrev;
+                    }
+                break;
                 }
+
+            case Entry.READY:
+                f_setReady.remove(entry);
+                // fall through
+            case Entry.WAITING:
+                f_mapWaiting.remove(entry.f_frame.f_fiber);
+                f_setUnsafe.remove(entry);
+
+                if (entry.m_nState == Entry.WAITING && entry.m_fTimed)
+                    {
+                    entry.m_nState = Entry.REMOVED;
+                    pruneTimeouts();
+                    }
+                break;
+
+            default:
+                throw new IllegalStateException();
             }
-        else
-            {
-            m_ixHead = -1;
-            m_ixTail = 0;
-            }
-        return frame;
+
+        entry.m_nState = Entry.REMOVED;
+        m_cSize--;
+        return entry.f_frame;
         }
 
-    private Frame[] ensureCapacity(int cCapacity)
+    /**
+     * Account for an entry in the timeout heap that is no longer waiting, rebuilding the heap if
+     * there are too many of those.
+     */
+    private void pruneTimeouts()
         {
-        Frame[] aFrame = m_aFrame;
-        int     cOld   = aFrame.length;
-        if (cCapacity > cOld)
+        PriorityQueue<Entry> heap = f_heapTimeout;
+        if (++m_cStaleTimeouts > 16 && m_cStaleTimeouts > heap.size() >>> 1)
             {
-            int     cNew = Math.max(cCapacity, cOld + (cOld >> 2)); // 1.25
-            Frame[] aNew = new Frame[cNew];
-
-            assert m_ixHead == m_ixTail;
-            if (m_ixHead == 0)
+            heap.removeIf(e ->
                 {
-                System.arraycopy(aFrame, 0, aNew, 0, cOld);
-                }
-            else
-                {
-                // copy and re-arrange
-                int cHead = cOld - m_ixHead;
-                System.arraycopy(aFrame, m_ixHead, aNew, 0,     cHead);
-                System.arraycopy(aFrame, 0       , aNew, cHead, m_ixHead);
-                m_ixHead = 0;
-                m_ixTail = cOld;
-                }
-            m_aFrame = aFrame = aNew;
+                if (e.m_nState == Entry.WAITING)
+                    {
+                    return false;
+                    }
+                e.m_fTimed = false;
+                return true;
+                });
+            m_cStaleTimeouts = 0;
             }
-        return aFrame;
         }
 
-    // move all the not-empty spaces toward the head
-    private void compact()
+    public String toString()
         {
-        Frame[] aFrame  = m_aFrame;
-        int     cFrames = aFrame.length;
+        return "size=" + m_cSize;
+        }
 
-        assert aFrame[m_ixHead] != null;
 
-        int iFrom = (m_ixHead + 1) % cFrames;
-        int iTo   = iFrom;
+    // ----- Entry ---------------------------------------------------------------------------------
 
-        for (int i = 1; i < cFrames; i++)
+    /**
+     * A suspended frame in the queue.
+     */
+    private static class Entry
+        {
+        Entry(Frame frame, long nSeq)
             {
-            Frame frame = aFrame[iFrom];
-            if (frame != null)
-                {
-                if (iFrom != iTo)
-                    {
-                    assert aFrame[iTo] == null;
-                    aFrame[iTo] = frame;
-                    aFrame[iFrom] = null;
-                    }
-                iTo = (iTo + 1) % cFrames;
-                }
-            iFrom = (iFrom + 1) % cFrames;
+            f_frame      = frame;
+            f_nSeq       = nSeq;
+            f_ldtTimeout = frame.f_fiber.getTimeoutStamp();
             }
 
-        assert aFrame[iTo] == null;
-        m_ixTail = iTo;
-        }
+        static final int INITIAL = 0;
+        static final int WAITING = 1;
+        static final int READY   = 2;
+        static final int REMOVED = 3;
 
-    public String toString()
-        {
-        return "size=" + m_cSize;
+        final Frame f_frame;
+        final long  f_nSeq;
+        final long  f_ldtTimeout;
+        int         m_nState;
+        boolean     m_fTimed; // true iff the entry is in the timeout heap
+
+        // the links of the "initial" list
+        Entry m_prev;
+        Entry m_next;
         }
     }
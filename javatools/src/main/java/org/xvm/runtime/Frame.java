@@ -36,6 +36,8 @@ import org.xvm.runtime.ObjectHandle.ExceptionHandle;
 import org.xvm.runtime.ObjectHandle.NativeFutureHandle;
 import org.xvm.runtime.ServiceContext.Synchronicity;
 
+import org.xvm.runtime.jit.JitMethod;
+
 import org.xvm.runtime.template.xBoolean;
 import org.xvm.runtime.template.xException;
 import org.xvm.runtime.template.xNullable;
@@ -92,6 +94,7 @@ public class Frame
     public  Frame                   m_frameNext;    // the next frame to call
     public  Continuation            m_continuation; // a function to call after this frame returns
 
+    public  boolean                 m_fPooled;      // the registers can be recycled upon return
     public  CallChain               m_chain;        // an invocation call chain
     public  int                     m_nChainDepth;  // this frame's depth in the call chain
 
@@ -111,6 +114,11 @@ public class Frame
     public static final int RESOLVED_TYPE   = 0x4;
     public static final int FUTURE_HANDLE   = 0x8;
 
+    /**
+     * The maximum call stack depth.
+     */
+    public static final int MAX_DEPTH = 128;
+
     /**
      * Construct a frame.
      *
@@ -135,11 +143,13 @@ public class Frame
                     : hTarget.isStruct()
                         ? hTarget
                         : hTarget.revealOrigin();
+        RegisterPool pool = f_context.f_poolRegisters;
+
         f_ahVar     = ahVar;
-        f_aInfo     = new VarInfo[ahVar.length];
+        f_aInfo     = pool.allocateInfos(ahVar.length);
 
         int cScopes = function == null ? 1 : function.getMaxScopes();
-        f_anNextVar = new int[cScopes];
+        f_anNextVar = pool.allocateScopes(cScopes);
         f_anNextVar[0] = function == null ? 0 : function.getParamCount();
 
         f_iReturn   = iReturn;
@@ -340,7 +350,7 @@ public class Frame
      */
     protected int ensureInitialized(Frame frameNext)
         {
-        return frameNext.f_nDepth > 128
+        return frameNext.f_nDepth > MAX_DEPTH
                 ? raiseException("Stack overflow")
                 : frameNext.f_function.ensureInitialized(this, frameNext);
         }
@@ -401,6 +411,44 @@ public class Frame
         return Op.R_CALL;
         }
 
+    /**
+     * Allocate the registers for a frame that is about to be called by this frame. Unless the
+     * array is subsequently {@link #adoptRegisters adopted} by the called frame, it's simply
+     * left to the garbage collector.
+     *
+     * @param cVars  the number of registers
+     *
+     * @return an empty register array, possibly recycled from a frame that has already returned
+     */
+    public ObjectHandle[] allocateRegisters(int cVars)
+        {
+        return f_context.f_poolRegisters.allocateRegisters(cVars);
+        }
+
+    /**
+     * Mark the frame that has just been created to be called by this frame as the owner of the
+     * specified register array, allowing its registers to be recycled when it returns.
+     * <p>
+     * The caller must guarantee that it's not going to use the array once the call is made.
+     *
+     * @param iResult  the result of the call (e.g. {@link #call1})
+     * @param ahVar    the register array obtained via {@link #allocateRegisters}
+     *
+     * @return the passed in iResult
+     */
+    public int adoptRegisters(int iResult, ObjectHandle[] ahVar)
+        {
+        if (iResult == Op.R_CALL)
+            {
+            Frame frameNext = m_frameNext;
+            if (frameNext.f_ahVar == ahVar && frameNext.f_function != null)
+                {
+                frameNext.m_fPooled = true;
+                }
+            }
+        return iResult;
+        }
+
     // a convenience method
     public int callInitialized(Frame frameNext)
         {
@@ -410,7 +458,10 @@ public class Frame
     // a convenience method; ahVar - prepared variables
     public int call1(MethodStructure method, ObjectHandle hTarget, ObjectHandle[] ahVar, int iReturn)
         {
-        return ensureInitialized(createFrame1(method, hTarget, ahVar, iReturn));
+        int iResult = callCompiled(method, ahVar, iReturn);
+        return iResult == JitMethod.R_INTERPRET
+                ? ensureInitialized(createFrame1(method, hTarget, ahVar, iReturn))
+                : iResult;
         }
 
     // a convenience method; ahVar - prepared variables
@@ -428,7 +479,14 @@ public class Frame
     // a convenience method; ahVar - prepared variables
     public int invoke1(CallChain chain, int nDepth, ObjectHandle hTarget, ObjectHandle[] ahVar, int iReturn)
         {
-        Frame frameNext = createFrame1(chain.getMethod(nDepth), hTarget, ahVar, iReturn);
+        MethodStructure method  = chain.getMethod(nDepth);
+        int             iResult = callCompiled(method, ahVar, iReturn);
+        if (iResult != JitMethod.R_INTERPRET)
+            {
+            return iResult;
+            }
+
+        Frame frameNext = createFrame1(method, hTarget, ahVar, iReturn);
 
         frameNext.m_chain       = chain;
         frameNext.m_nChainDepth = nDepth;
@@ -458,6 +516,21 @@ public class Frame
         return ensureInitialized(frameNext);
         }
 
+    /**
+     * Attempt to execute the specified method by the JIT tier, which is only capable of executing
+     * methods that don't need the target.
+     *
+     * @return the result of the execution or {@link JitMethod#R_INTERPRET} if the method needs to
+     *         be executed by the interpreter
+     */
+    protected int callCompiled(MethodStructure method, ObjectHandle[] ahVar, int iReturn)
+        {
+        JitMethod jit = method.getJitMethod();
+        return jit == null
+                ? JitMethod.R_INTERPRET
+                : jit.call(this, ahVar, iReturn, MAX_DEPTH - f_nDepth);
+        }
+
     // a convenience method
     public int wait(CompletableFuture<ObjectHandle> cf, int iReturn)
         {
@@ -1633,6 +1706,29 @@ public class Frame
         return ahArg;
         }
 
+    /**
+     * Same as {@link #getArguments}, but the array is {@link #allocateRegisters allocated} to
+     * become the registers of a frame that is about to be called.
+     *
+     * @return the array of handles (can contain DeferredCallHandle objects)
+     *
+     * @throws ExceptionHandle.WrapperException if the async assignment has failed
+     */
+    public ObjectHandle[] getCallArguments(int[] aiArg, int cVars)
+                throws ExceptionHandle.WrapperException
+        {
+        int cArgs = aiArg.length;
+
+        ObjectHandle[] ahArg = allocateRegisters(Math.max(cArgs, cVars));
+
+        for (int i = cArgs - 1; i >= 0; --i)
+            {
+            ahArg[i] = getArgument(aiArg[i]);
+            }
+
+        return ahArg;
+        }
+
     // check if the specified index points to an unused register
     public boolean isNextRegister(int nVar)
         {
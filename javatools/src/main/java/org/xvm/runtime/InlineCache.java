@@ -0,0 +1,157 @@
+package org.xvm.runtime;
+
+
+import java.lang.ref.WeakReference;
+
+
+/**
+ * A thread-safe inline cache used by ops to memoize run-time information that depends on a
+ * run-time "key", most commonly a {@link TypeComposition}, a {@link ClassTemplate} or a
+ * {@link Container}. The keys are compared by identity.
+ * <p>
+ * The cache starts as monomorphic (a single entry) and becomes polymorphic (up to
+ * {@link #MAX_ENTRIES} entries) as new keys are encountered; beyond that (megamorphic) the least
+ * recently added entries are discarded. Since the entries are immutable and replaced as a whole,
+ * the cache can be used concurrently by any number of services without any locking.
+ * <p>
+ * The keys are held weakly, so a cache attached to an op of a shared module doesn't prevent a
+ * terminated container from being collected; the values are held strongly, but only until their
+ * entry is replaced or discarded. (A value that refers back to its own key keeps the key reachable
+ * until then as well.)
+ *
+ * @param <K>  the key type
+ * @param <V>  the value type
+ */
+public class InlineCache<K, V>
+    {
+    /**
+     * Retrieve the value cached for the specified key.
+     *
+     * @param key  the key
+     *
+     * @return the cached value or null
+     */
+    @SuppressWarnings("unchecked")
+    public V get(K key)
+        {
+        Object oCache = m_oCache;
+        if (oCache instanceof Entry entry)
+            {
+            return entry.get() == key ? (V) entry.f_value : null;
+            }
+
+        if (oCache != null)
+            {
+            for (Entry entry : (Entry[]) oCache)
+                {
+                if (entry.get() == key)
+                    {
+                    return (V) entry.f_value;
+                    }
+                }
+            }
+        return null;
+        }
+
+    /**
+     * Cache the specified value for the specified key.
+     *
+     * @param key    the key (not null)
+     * @param value  the value (not null)
+     */
+    public void put(K key, V value)
+        {
+        assert key != null && value != null;
+
+        Entry  entryNew = new Entry(key, value);
+        Object oCache   = m_oCache;
+        if (oCache == null)
+            {
+            m_oCache = entryNew;
+            return;
+            }
+
+        Entry[] aOld = oCache instanceof Entry entry
+                ? new Entry[] {entry}
+                : (Entry[]) oCache;
+        Entry[] aNew = new Entry[Math.min(aOld.length + 1, MAX_ENTRIES)];
+        int     cNew = 0;
+
+        aNew[cNew++] = entryNew;
+        for (int i = 0, c = aOld.length; i < c && cNew < MAX_ENTRIES; i++)
+            {
+            Entry  entry = aOld[i];
+            Object oKey  = entry.get();
+            if (oKey != null && oKey != key)
+                {
+                aNew[cNew++] = entry;
+                }
+            }
+
+        if (cNew == 1)
+            {
+            m_oCache = entryNew;
+            }
+        else
+            {
+            if (cNew < aNew.length)
+                {
+                Entry[] aTrim = new Entry[cNew];
+                System.arraycopy(aNew, 0, aTrim, 0, cNew);
+                aNew = aTrim;
+                }
+            m_oCache = aNew;
+            }
+        }
+
+    /**
+     * Discard all the cached entries.
+     */
+    public void clear()
+        {
+        m_oCache = null;
+        }
+
+    @Override
+    public String toString()
+        {
+        Object oCache = m_oCache;
+        return "InlineCache{" + (oCache == null
+                ? "empty"
+                : oCache instanceof Entry
+                        ? "monomorphic"
+                        : "polymorphic(" + ((Entry[]) oCache).length + ')') + '}';
+        }
+
+
+    // ----- inner class: Entry --------------------------------------------------------------------
+
+    /**
+     * An immutable cache entry.
+     */
+    private static class Entry
+            extends WeakReference<Object>
+        {
+        Entry(Object key, Object value)
+            {
+            super(key);
+
+            f_value = value;
+            }
+
+        final Object f_value;
+        }
+
+
+    // ----- fields --------------------------------------------------------------------------------
+
+    /**
+     * The maximum number of entries in a polymorphic cache.
+     */
+    public static final int MAX_ENTRIES = 4;
+
+    /**
+     * Either null (empty), an Entry (monomorphic) or an Entry[] (polymorphic).
+     */
+    private volatile Object m_oCache;
+    }
@@ -15,6 +15,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
 
 import java.util.concurrent.ConcurrentHashMap;
@@ -562,11 +563,12 @@ public class NativeContainer
             {
             List<StringHandle> listKeys = new ArrayList<>();
             List<StringHandle> listVals = new ArrayList<>();
-            for (String sKey : (Set<String>) (Set) System.getProperties().keySet())
+            Properties         props    = getHostProperties();
+            for (String sKey : props.stringPropertyNames())
                 {
                 if (sKey.startsWith("xvm."))
                     {
-                    String sVal = System.getProperty(sKey);
+                    String sVal = props.getProperty(sKey);
                     if (sVal != null)
                         {
                         listKeys.add(xString.makeHandle(sKey.substring(4)));
@@ -815,6 +817,26 @@ public class NativeContainer
         return f_repository;
         }
 
+    @Override
+    public Properties getHostProperties()
+        {
+        Properties props = m_propsHost;
+        return props == null ? System.getProperties() : props;
+        }
+
+    /**
+     * Specify the properties of the host process that the injected resources (such as "curDir"
+     * and "properties") are based on. By default, those are the system properties of this JVM;
+     * a JVM that runs modules on behalf of other processes supplies the properties of the process
+     * that a module runs for. This must be done before any of the resources is injected.
+     *
+     * @param props  the host properties, or null to use the system properties
+     */
+    public void setHostProperties(Properties props)
+        {
+        m_propsHost = props;
+        }
+
     @Override
     public FileStructure createFileStructure(ModuleStructure moduleApp)
         {
@@ -966,6 +988,7 @@ public class NativeContainer
     private ObjectHandle m_hCurDir;
     private ObjectHandle m_hTmpDir;
     private ObjectHandle m_hProperties;
+    private Properties   m_propsHost;
 
     private ObjectHandle m_hSecureNetwork;
     private ObjectHandle m_hInsecureNetwork;
@@ -0,0 +1,159 @@
+package org.xvm.runtime;
+
+
+import java.util.Arrays;
+
+import org.xvm.runtime.Frame.VarInfo;
+
+
+/**
+ * {@link RegisterPool} is a size-classed free list of the per-frame arrays (the registers, the
+ * register infos and the scope indexes) used by the frames of a single service.
+ * <p>
+ * The arrays are only returned to the pool by a frame that "owns" its registers (see
+ * {@link Frame#adoptRegisters}) when it returns normally, and only if nothing could still refer
+ * to the frame's registers, i.e. no Ref to any of the registers has been created and there is no
+ * continuation or debugger that may look at the frame after the return.
+ * <p>
+ * The pool is not thread-safe; it must only be accessed on the service thread.
+ */
+public class RegisterPool
+    {
+    /**
+     * @return an empty register array of the specified size
+     */
+    public ObjectHandle[] allocateRegisters(int cVars)
+        {
+        FreeList list = cVars <= MAX_SIZE ? f_aListVars[cVars] : null;
+        return list == null || list.m_c == 0
+                ? new ObjectHandle[cVars]
+                : (ObjectHandle[]) list.pop();
+        }
+
+    /**
+     * @return an empty VarInfo array of the specified size
+     */
+    public VarInfo[] allocateInfos(int cVars)
+        {
+        FreeList list = cVars <= MAX_SIZE ? f_aListInfos[cVars] : null;
+        return list == null || list.m_c == 0
+                ? new VarInfo[cVars]
+                : (VarInfo[]) list.pop();
+        }
+
+    /**
+     * @return a zeroed array of the scope indexes of the specified size
+     */
+    public int[] allocateScopes(int cScopes)
+        {
+        FreeList list = cScopes <= MAX_SIZE ? f_aListScopes[cScopes] : null;
+        return list == null || list.m_c == 0
+                ? new int[cScopes]
+                : (int[]) list.pop();
+        }
+
+    /**
+     * Return the arrays used by the specified frame (which has just returned) to the pool, unless
+     * any of its registers is still referred to.
+     *
+     * @param frame  a frame that owns its registers
+     *
+     * @return true iff the arrays have been recycled
+     */
+    public boolean release(Frame frame)
+        {
+        VarInfo[] aInfo = frame.f_aInfo;
+        for (VarInfo info : aInfo)
+            {
+            if (info != null && info.getRef() != null)
+                {
+                // a Ref to the register has escaped
+                return false;
+                }
+            }
+
+        ObjectHandle[] ahVar = frame.f_ahVar;
+        int            cVars = ahVar.length;
+        if (cVars <= MAX_SIZE)
+            {
+            Arrays.fill(ahVar, null);
+            push(f_aListVars, cVars, ahVar);
+            }
+
+        cVars = aInfo.length;
+        if (cVars <= MAX_SIZE)
+            {
+            Arrays.fill(aInfo, null);
+            push(f_aListInfos, cVars, aInfo);
+            }
+
+        int[] anScope = frame.f_anNextVar;
+        if (anScope.length <= MAX_SIZE)
+            {
+            Arrays.fill(anScope, 0);
+            push(f_aListScopes, anScope.length, anScope);
+            }
+        return true;
+        }
+
+    /**
+     * Add the specified array to the free list for the specified size.
+     */
+    private static void push(FreeList[] aList, int nSize, Object array)
+        {
+        FreeList list = aList[nSize];
+        if (list == null)
+            {
+            list = aList[nSize] = new FreeList();
+            }
+        list.push(array);
+        }
+
+
+    // ----- FreeList ------------------------------------------------------------------------------
+
+    /**
+     * A bounded stack of free arrays of the same size; the arrays above the capacity are left to
+     * the garbage collector.
+     */
+    private static class FreeList
+        {
+        void push(Object array)
+            {
+            int c = m_c;
+            if (c < MAX_DEPTH)
+                {
+                f_aArray[c] = array;
+                m_c = c + 1;
+                }
+            }
+
+        Object pop()
+            {
+            int    c     = --m_c;
+            Object array = f_aArray[c];
+            f_aArray[c] = null;
+            return array;
+            }
+
+        private final Object[] f_aArray = new Object[MAX_DEPTH];
+        private int            m_c;
+        }
+
+
+    // ----- constants and fields ------------------------------------------------------------------
+
+    /**
+     * The largest array size that is pooled.
+     */
+    private static final int MAX_SIZE = 64;
+
+    /**
+     * The maximum number of free arrays of any given size; a deeper recursion simply allocates.
+     */
+    private static final int MAX_DEPTH = 32;
+
+    private final FreeList[] f_aListVars   = new FreeList[MAX_SIZE + 1];
+    private final FreeList[] f_aListInfos  = new FreeList[MAX_SIZE + 1];
+    private final FreeList[] f_aListScopes = new FreeList[MAX_SIZE + 1];
+    }
@@ -1,19 +1,40 @@
 package org.xvm.runtime;
 
 
+import org.xvm.util.concurrent.AffinityExecutor;
 import org.xvm.util.concurrent.ConcurrentLinkedBlockingQueue;
+import org.xvm.util.concurrent.VirtualThreads;
+import org.xvm.util.concurrent.WorkStealingExecutor;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+
+import java.io.IOException;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
 
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.WeakHashMap;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import java.util.concurrent.atomic.AtomicLong;
 
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+
+import javax.management.openmbean.CompositeData;
+
 
 /**
  * The runtime.
@@ -37,21 +58,36 @@ public class Runtime
             return thread;
             };
 
-        // TODO: replace with a fair scheduling based ExecutorService
-        f_executorXVM = new ThreadPoolExecutor(parallelism, parallelism, 0, TimeUnit.SECONDS,
-                new ConcurrentLinkedBlockingQueue<>(), factoryXVM);
+        // the fairness among containers and services is provided by the Container's
+        // FairShareExecutor hierarchy; see Container.schedule()
+        f_executorXVM = new WorkStealingExecutor(parallelism, factoryXVM);
 
-        ThreadGroup groupIO = new ThreadGroup("IO");
-        ThreadFactory factoryIO = r ->
+        boolean fVirtual = Boolean.getBoolean(PROP_VIRTUAL_THREADS);
+        if (fVirtual && !VirtualThreads.isSupported())
             {
-            Thread thread = new Thread(groupIO, r);
-            thread.setDaemon(true);
-            thread.setName("IOWorker@" + thread.hashCode());
-            return thread;
-            };
+            System.err.println("Warning: virtual threads require Java 21 or later; \""
+                    + PROP_VIRTUAL_THREADS + "\" is ignored");
+            fVirtual = false;
+            }
+        f_fVirtualThreads = fVirtual;
 
-        f_executorIO = new ThreadPoolExecutor(parallelism, 1024, 0, TimeUnit.SECONDS,
-                new ConcurrentLinkedBlockingQueue<>(), factoryIO);
+        if (fVirtual)
+            {
+            f_executorIO = VirtualThreads.newThreadPerTaskExecutor("IOWorker@");
+            }
+        else
+            {
+            f_executorIO = new ThreadPoolExecutor(parallelism, 1024, 0, TimeUnit.SECONDS,
+                    new ConcurrentLinkedBlockingQueue<>(), createThreadFactory("IOWorker"));
+            }
+
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans())
+            {
+            if (bean instanceof NotificationEmitter emitter)
+                {
+                emitter.addNotificationListener(f_listenerGC, null, null);
+                }
+            }
         }
 
     public void start()
@@ -59,7 +95,7 @@ public class Runtime
         }
 
     /**
-     * Register the specified container (used only for debugging)
+     * Register the specified container.
      */
     public void registerContainer(Container container)
         {
@@ -70,7 +106,7 @@ public class Runtime
         }
 
     /**
-     * @return a set of Container objects (used only for debugging)
+     * @return a set of registered Container objects
      */
     public Set<Container> containers()
         {
@@ -83,14 +119,23 @@ public class Runtime
     /**
      * Submit ServiceContext work for eventual processing by the runtime.
      *
-     * @param task the task to process
+     * @param task       the task to process
+     * @param nAffinity  the index of the preferred worker or -1 if there is no preference
      */
-    protected void submitService(Runnable task)
+    protected void submitService(Runnable task, int nAffinity)
         {
-        f_executorXVM.submit(task);
+        f_executorXVM.execute(task, nAffinity);
         m_lastXvmSubmitNanos = System.nanoTime();
         }
 
+    /**
+     * @return the executor that top level containers should push their work to
+     */
+    protected AffinityExecutor getServiceExecutor()
+        {
+        return f_executorService;
+        }
+
     /**
      * Submit IO work for eventual processing by the runtime.
      *
@@ -101,6 +146,84 @@ public class Runtime
         f_executorIO.submit(task);
         }
 
+    /**
+     * Create an executor for the tasks that spend most of their time blocked (e.g. in IO calls).
+     * Depending on the {@link #PROP_VIRTUAL_THREADS} setting, the executor either starts a virtual
+     * thread for each task or uses an unbounded pool of daemon platform threads.
+     *
+     * @param sName  the name of the executor (also used for the thread names)
+     *
+     * @return a new executor
+     */
+    public ExecutorService createBlockingExecutor(String sName)
+        {
+        return f_fVirtualThreads
+                ? VirtualThreads.newThreadPerTaskExecutor(sName + '@')
+                : Executors.newCachedThreadPool(createThreadFactory(sName));
+        }
+
+    /**
+     * @return true iff the blocking operations run on virtual threads
+     */
+    public boolean isVirtualThreads()
+        {
+        return f_fVirtualThreads;
+        }
+
+    /**
+     * Create a factory for daemon platform threads in a new thread group.
+     *
+     * @param sName  the name of the thread group (also used for the thread names)
+     */
+    private static ThreadFactory createThreadFactory(String sName)
+        {
+        ThreadGroup group = new ThreadGroup(sName);
+        return r ->
+            {
+            Thread thread = new Thread(group, r);
+            thread.setDaemon(true);
+            thread.setName(sName + "@" + thread.hashCode());
+            return thread;
+            };
+        }
+
+    /**
+     * Obtain an event loop for a new network channel. The event loops are created lazily, and the
+     * channels are spread across them in a round-robin fashion. The number of the event loops is
+     * controlled by the {@link #PROP_EVENT_LOOPS} setting.
+     *
+     * @return an event loop
+     */
+    public EventLoop getEventLoop()
+            throws IOException
+        {
+        EventLoop[] aLoop = m_aEventLoop;
+        if (aLoop == null)
+            {
+            synchronized (this)
+                {
+                aLoop = m_aEventLoop;
+                if (aLoop == null)
+                    {
+                    int cLoops = Integer.getInteger(PROP_EVENT_LOOPS, 0);
+                    if (cLoops <= 0)
+                        {
+                        cLoops = Math.max(1, Math.min(4,
+                                java.lang.Runtime.getRuntime().availableProcessors() / 2));
+                        }
+
+                    aLoop = new EventLoop[cLoops];
+                    for (int i = 0; i < cLoops; i++)
+                        {
+                        aLoop[i] = new EventLoop("EventLoop-" + i);
+                        }
+                    m_aEventLoop = aLoop;
+                    }
+                }
+            }
+        return aLoop[(int) (f_cEventLoopUses.getAndIncrement() % aLoop.length)];
+        }
+
     /**
      * @return a unique id
      */
@@ -113,6 +236,65 @@ public class Runtime
         {
         f_executorIO .shutdown();
         f_executorXVM.shutdown();
+
+        EventLoop[] aLoop = m_aEventLoop;
+        if (aLoop != null)
+            {
+            for (EventLoop loop : aLoop)
+                {
+                loop.shutdown();
+                }
+            }
+
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans())
+            {
+            if (bean instanceof NotificationEmitter emitter)
+                {
+                try
+                    {
+                    emitter.removeNotificationListener(f_listenerGC);
+                    }
+                catch (ListenerNotFoundException ignore)
+                    {
+                    }
+                }
+            }
+        }
+
+    /**
+     * Scale down the containers' memory estimates by the portion of the heap that has survived
+     * a garbage collection.
+     */
+    private void onGarbageCollection(Notification notification, Object oHandback)
+        {
+        if (!notification.getType().equals(
+                GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION))
+            {
+            return;
+            }
+
+        GcInfo info = GarbageCollectionNotificationInfo.from(
+                (CompositeData) notification.getUserData()).getGcInfo();
+
+        long cbBefore = 0;
+        long cbAfter  = 0;
+        for (MemoryUsage usage : info.getMemoryUsageBeforeGc().values())
+            {
+            cbBefore += usage.getUsed();
+            }
+        for (MemoryUsage usage : info.getMemoryUsageAfterGc().values())
+            {
+            cbAfter += usage.getUsed();
+            }
+
+        if (cbBefore > 0 && cbAfter < cbBefore)
+            {
+            double dRatio = (double) cbAfter / cbBefore;
+            for (Container container : containers())
+                {
+                container.scaleMemoryEstimate(dRatio);
+                }
+            }
         }
 
     public boolean isIdle()
@@ -136,17 +318,49 @@ public class Runtime
     // ----- constants and fields ------------------------------------------------------------------
 
     /**
-     * The executor for XVM services.
+     * The name of the system property that enables running the blocking operations (IO and the
+     * blocking native calls) on virtual threads. Requires Java 21 or later; ignored otherwise.
+     * <p>
+     * Virtual threads pay off when many operations are blocked at the same time (e.g. the HTTP
+     * request handlers). A file operation holds on to its carrier thread for the duration of the
+     * call, so a few large sequential file operations are somewhat slower than on the pool of
+     * platform threads.
+     */
+    public static final String PROP_VIRTUAL_THREADS = "xvm.virtualThreads";
+
+    /**
+     * The name of the system property that specifies the number of the network event loops.
      */
-    public final ThreadPoolExecutor f_executorXVM;
+    public static final String PROP_EVENT_LOOPS = "xvm.eventLoops";
 
     /**
      * The executor for XVM services.
      */
-    public final ThreadPoolExecutor f_executorIO;
+    public final WorkStealingExecutor f_executorXVM;
+
+    /**
+     * The executor for IO operations.
+     */
+    public final ExecutorService f_executorIO;
+
+    /**
+     * True iff the blocking operations run on virtual threads.
+     */
+    private final boolean f_fVirtualThreads;
 
     /**
-     * The set of containers (stored as a Map with no values); used only for debugging.
+     * The AffinityExecutor view of {@link #submitService}.
+     */
+    private final AffinityExecutor f_executorService = this::submitService;
+
+    /**
+     * The garbage collection listener used for the containers' memory accounting.
+     */
+    private final NotificationListener f_listenerGC = this::onGarbageCollection;
+
+    /**
+     * The set of containers (stored as a Map with no values); used for debugging and the
+     * memory accounting.
      */
     private final Map<Container, Object> f_containers = new WeakHashMap<>();
 
@@ -155,6 +369,16 @@ public class Runtime
      */
     protected final AtomicLong f_idProducer = new AtomicLong();
 
+    /**
+     * The network event loops (created lazily).
+     */
+    private volatile EventLoop[] m_aEventLoop;
+
+    /**
+     * The counter used to spread the network channels across the event loops.
+     */
+    private final AtomicLong f_cEventLoopUses = new AtomicLong();
+
     /**
      * The time at which the last service task was submitted.
      */
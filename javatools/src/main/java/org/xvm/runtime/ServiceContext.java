@@ -4,21 +4,18 @@ package org.xvm.runtime;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.VarHandle;
 
-import java.lang.ref.WeakReference;
-
 import java.util.Arrays;
-import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
-import java.util.TimerTask;
 import java.util.WeakHashMap;
 
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
 
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -67,6 +64,10 @@ import org.xvm.runtime.template._native.reflect.xRTFunction.NativeFunctionHandle
 
 import org.xvm.runtime.template._native.temporal.xLocalClock;
 
+import org.xvm.util.concurrent.MpscArrayQueue;
+import org.xvm.util.concurrent.TimingWheel.Timeout;
+import org.xvm.util.concurrent.WorkStealingExecutor;
+
 
 /**
  * The service context.
@@ -271,38 +272,6 @@ public class ServiceContext
 
     // ----- Op support ----------------------------------------------------------------------------
 
-    /**
-     * Retrieve an Op specific info.
-     *
-     * @param op       the op
-     * @param category the category of the cached info (op specific)
-     *
-     * @return the op info for the specified category
-     */
-    public Object getOpInfo(Op op, Enum category)
-        {
-        EnumMap mapByCategory = f_mapOpInfo.get(op);
-        if (mapByCategory == null)
-            {
-            return null;
-            }
-        WeakReference ref = (WeakReference) mapByCategory.get(category);
-        return ref == null ? null : ref.get();
-        }
-
-    /**
-     * Store an Op specific info.
-     *
-     * @param op       the op
-     * @param category the category of the cached info (op specific)
-     * @param info     the info
-     */
-    public void setOpInfo(Op op, Enum category, Object info)
-        {
-        f_mapOpInfo.computeIfAbsent(op, (op_) -> new EnumMap(category.getClass()))
-                   .put(category, new WeakReference(info));
-        }
-
     /**
      * @return service-local value represented by the specified ref
      */
@@ -357,7 +326,9 @@ public class ServiceContext
     // ----- scheduling  ---------------------------------------------------------------------------
 
     /**
-     * Attempt to complete all pending work.
+     * Attempt to complete all pending work. The ready fibers are executed one after another until
+     * there are none left or the scheduling quantum (see {@link #QUANTUM_OPS} and
+     * {@link #QUANTUM_NANOS}) is used up.
      *
      * @return true if the context has no further processing to perform at this time
      */
@@ -367,11 +338,14 @@ public class ServiceContext
         ServiceContext ctxPrior = tloCtx[0];
         tloCtx[0] = this;
 
+        m_nWorkerAffinity = WorkStealingExecutor.getCurrentWorkerIndex();
+
         try
             {
-            Frame frame = nextFiber();
-
-            if (frame != null)
+            long  ldtStart = System.nanoTime();
+            long  cOpsLeft = QUANTUM_OPS;
+            Frame frame;
+            while ((frame = nextFiber()) != null)
                 {
                 try (var ignored = ConstantPool.withPool(frame.poolContext()))
                     {
@@ -380,7 +354,6 @@ public class ServiceContext
                     if (frame != null)
                         {
                         suspendFiber(frame);
-                        return false;
                         }
                     }
                 catch (Throwable e)
@@ -389,6 +362,13 @@ public class ServiceContext
                     System.err.println("Unexpected service execution failure: " + f_sName);
                     e.printStackTrace(System.err);
                     }
+
+                cOpsLeft -= m_cOpsExecuted;
+                if (cOpsLeft <= 0 || System.nanoTime() - ldtStart >= QUANTUM_NANOS)
+                    {
+                    // the quantum is used up; let other services run
+                    return !isContended();
+                    }
                 }
             }
         finally
@@ -403,7 +383,7 @@ public class ServiceContext
                 }
             }
 
-        return !f_queueSuspended.isReady();
+        return true;
         }
 
     /**
@@ -427,7 +407,7 @@ public class ServiceContext
         {
         if (fAllowInlineExecution && drainWork())
             {
-            if (getStatus() == ServiceStatus.Terminated)
+            if (isTerminated())
                 {
                 f_container.terminate(this);
                 }
@@ -442,6 +422,14 @@ public class ServiceContext
             }
         }
 
+    /**
+     * @return the index of the runtime worker that has most recently processed this service or -1
+     */
+    public int getWorkerAffinity()
+        {
+        return m_nWorkerAffinity;
+        }
+
     /**
      * Attempt to acquire the context's scheduling lock.
      *
@@ -471,29 +459,19 @@ public class ServiceContext
         // doesn't represent new work then the scheduled task will be a no-op and just come back here
         // to release again, and is thus safe.
 
+        // the nearest timeout must be computed while still holding the lock
+        long ldtTimeout = f_setFibers.isEmpty() ? 0 : f_queueSuspended.getNextTimeout();
+
         long lLockPreState = m_lLockScheduling; // read lock state prior to isContended check
         if (isContended() || !SCHEDULING_LOCK_HANDLE.compareAndSet(this, lLockPreState, 0L))
             {
             // we've detected service or lock contention, reschedule
             f_container.schedule(this);
             }
-        else if (!f_setFibers.isEmpty())
+        else if (ldtTimeout > 0)
             {
             // make sure to wake up for the nearest timeout
-            long ldtTimeout = Long.MAX_VALUE;
-            for (Fiber fiber : f_setFibers)
-                {
-                long ldtTimeoutFiber = fiber.getTimeoutStamp();
-                if (ldtTimeoutFiber > 0)
-                    {
-                    ldtTimeout = Math.min(ldtTimeout, ldtTimeoutFiber);
-                    }
-                }
-
-            if (ldtTimeout != Long.MAX_VALUE)
-                {
-                f_wakeUpScheduler.schedule(ldtTimeout);
-                }
+            f_wakeUpScheduler.schedule(ldtTimeout);
             }
         }
 
@@ -503,13 +481,52 @@ public class ServiceContext
      * @param msg     the request message
      * @param fAsync  if true, avoid the in-line optimization for the request execution
      *
-     * @return true if the service has become "overwhelmed" - too many outstanding messages
+     * @return true if the service has become "overwhelmed" - too many outstanding messages - and
+     *         the caller should be pushed back (see {@link MailboxPolicy#Block})
      */
     public boolean addRequest(Message msg, boolean fAsync)
         {
-        f_queueMsg.add(msg);
+        if (m_cOverflow > 0 || !f_mailbox.offer(msg))
+            {
+            // the mailbox is full (or there are older messages in the overflow queue already);
+            // remember the mailbox position, so the consumer can restore the order
+            msg.m_lMailboxIndex = f_mailbox.getProducerIndex();
+            OVERFLOW_HANDLE.getAndAdd(this, 1);
+            f_queueOverflow.add(msg);
+            }
         ensureScheduled(fAsync);
-        return isOverwhelmed();
+        return m_policyMailbox == MailboxPolicy.Block && isOverwhelmed();
+        }
+
+    /**
+     * Take the next message from the service request queue. Must only be called by the thread
+     * that holds the scheduling lock.
+     *
+     * @return the next message or null if there are no messages
+     */
+    private Message pollRequest()
+        {
+        if (m_cOverflow > 0)
+            {
+            // an overflow message goes first, unless there are older messages in the mailbox
+            Message msg = f_queueOverflow.peek();
+            if (msg != null &&
+                    (msg.m_lMailboxIndex <= f_mailbox.getConsumerIndex() || f_mailbox.isEmpty()))
+                {
+                f_queueOverflow.poll();
+                OVERFLOW_HANDLE.getAndAdd(this, -1);
+                return msg;
+                }
+            }
+        return f_mailbox.poll();
+        }
+
+    /**
+     * @return true iff there are no pending messages
+     */
+    private boolean isMailboxEmpty()
+        {
+        return m_cOverflow == 0 && f_mailbox.isEmpty();
         }
 
     /**
@@ -517,7 +534,75 @@ public class ServiceContext
      */
     public boolean isOverwhelmed()
         {
-        return f_queueMsg.size() + f_queueSuspended.size() > QUEUE_THRESHOLD;
+        return getBacklogDepth() > m_cMailboxCapacity;
+        }
+
+    /**
+     * Configure the capacity of this service's mailbox and the policy to apply to the callers
+     * when the service is {@link #isOverwhelmed() overwhelmed}. Unless configured, a service uses
+     * the {@link #QUEUE_THRESHOLD} and the {@link #DEFAULT_POLICY}.
+     *
+     * @param cCapacity  the number of pending messages and suspended fibers above which the
+     *                   service is considered overwhelmed
+     * @param policy     the policy to apply
+     */
+    public void configureMailbox(int cCapacity, MailboxPolicy policy)
+        {
+        if (cCapacity <= 0)
+            {
+            throw new IllegalArgumentException("capacity=" + cCapacity);
+            }
+        if (policy == null)
+            {
+            throw new IllegalArgumentException("policy is required");
+            }
+        m_cMailboxCapacity = cCapacity;
+        m_policyMailbox    = policy;
+        }
+
+    /**
+     * @return the backlog depth above which this service is considered overwhelmed
+     */
+    public int getMailboxCapacity()
+        {
+        return m_cMailboxCapacity;
+        }
+
+    /**
+     * @return the current mailbox policy
+     */
+    public MailboxPolicy getMailboxPolicy()
+        {
+        return m_policyMailbox;
+        }
+
+    /**
+     * Apply the mailbox policy to a call from the specified frame that could not be accepted
+     * because this service is overwhelmed.
+     *
+     * @param frame    the caller's frame
+     * @param fIgnore  true iff the caller doesn't care about the result of the call
+     *
+     * @return {@link Op#R_NEXT} if the call has been silently dropped or {@link Op#R_EXCEPTION}
+     *         if it has been rejected
+     */
+    private int refuseRequest(Frame frame, boolean fIgnore)
+        {
+        if (m_policyMailbox == MailboxPolicy.Shed && fIgnore)
+            {
+            f_atomicShed.incrementAndGet();
+            return Op.R_NEXT;
+            }
+        return frame.raiseException(xException.serviceOverwhelmed(frame, f_sName));
+        }
+
+    /**
+     * @return true iff the service is overwhelmed and its mailbox policy is to refuse (rather than
+     *         to {@link MailboxPolicy#Block block}) the new requests
+     */
+    public boolean isRefusing()
+        {
+        return m_policyMailbox != MailboxPolicy.Block && isOverwhelmed();
         }
 
     /**
@@ -557,7 +642,7 @@ public class ServiceContext
         FiberQueue qFiber = f_queueSuspended;
 
         Message message;
-        while ((message = f_queueMsg.poll()) != null)
+        while ((message = pollRequest()) != null)
             {
             qFiber.add(message.createFrame(this));
             }
@@ -594,6 +679,17 @@ public class ServiceContext
             }
         }
 
+    /**
+     * A notification that the specified fiber of this service has received a response and could
+     * possibly be resumed; could be called on any thread.
+     *
+     * @param fiber  the fiber
+     */
+    void onFiberResponded(Fiber fiber)
+        {
+        f_queueSuspended.signal(fiber);
+        }
+
     /**
      * Start or resume execution of the specified frame.
      *
@@ -609,6 +705,7 @@ public class ServiceContext
         int   iPCLast = iPC;
 
         m_frameCurrent = frame;
+        m_cOpsExecuted = 0;
 
         switch (fiber.prepareRun(frame))
             {
@@ -645,7 +742,7 @@ public class ServiceContext
 
                 if (++cOps > 1_000_000)
                     {
-                    fiber.setStatus(FiberStatus.Paused, cOps);
+                    fiber.setStatus(FiberStatus.Paused, m_cOpsExecuted = cOps);
                     return frame;
                     }
 
@@ -688,6 +785,10 @@ public class ServiceContext
                         }
 
                     Frame.Continuation continuation = frame.m_continuation;
+                    if (frame.m_fPooled && continuation == null && !isDebuggerActive())
+                        {
+                        f_poolRegisters.release(frame);
+                        }
                     frame = m_frameCurrent = frame.f_framePrev; // GC the old frame
 
                     if (frame != null)
@@ -737,6 +838,7 @@ public class ServiceContext
                     if (frame == null)
                         {
                         // all done
+                        m_cOpsExecuted = cOps;
                         terminateFiber(fiber);
                         return m_frameCurrent = null;
                         }
@@ -821,16 +923,16 @@ public class ServiceContext
                     }
 
                 case Op.R_REPEAT:
-                    fiber.setStatus(FiberStatus.Waiting, cOps);
+                    fiber.setStatus(FiberStatus.Waiting, m_cOpsExecuted = cOps);
                     return frame;
 
                 case Op.R_BLOCK:
                     frame.m_iPC = iPCLast + 1;
-                    fiber.setStatus(FiberStatus.Waiting, cOps);
+                    fiber.setStatus(FiberStatus.Waiting, m_cOpsExecuted = cOps);
                     return frame;
 
                 case Op.R_PAUSE:
-                    fiber.setStatus(FiberStatus.Paused, cOps);
+                    fiber.setStatus(FiberStatus.Paused, m_cOpsExecuted = cOps);
                     return frame;
 
                 default:
@@ -896,6 +998,8 @@ public class ServiceContext
      */
     protected void terminateFiber(Fiber fiber)
         {
+        fiber.collectMetrics();
+
         if (fiber == m_fiberSyncOwner)
             {
             // they somehow terminated the fiber without exiting the critical section;
@@ -930,7 +1034,7 @@ public class ServiceContext
 
             // process all outstanding messages
             Message message;
-            while ((message = f_queueMsg.poll()) != null)
+            while ((message = pollRequest()) != null)
                 {
                 qFiber.add(message.createFrame(this));
                 }
@@ -999,14 +1103,101 @@ public class ServiceContext
 
     /**
      * A service is considered to be contended if it is running and if any other requests are
-     * pending for the service.
+     * pending for the service. This method must be called on the service thread or while holding
+     * the scheduling lock.
      *
      * @return true iff the service is contended
      */
     public boolean isContended()
         {
         return m_frameCurrent != null || !f_queueResponse.isEmpty() ||
-                !f_queueMsg.isEmpty() || f_queueSuspended.isReady();
+                !isMailboxEmpty() || f_queueSuspended.isReady();
+        }
+
+    /**
+     * A variant of {@link #isContended()} that can be called on any thread (e.g. by another
+     * service) without holding the scheduling lock.
+     *
+     * @return true iff the service is (most likely) contended
+     */
+    public boolean isContendedUnlocked()
+        {
+        return m_frameCurrent != null || !f_queueResponse.isEmpty() ||
+                !isMailboxEmpty() || f_queueSuspended.isPossiblyReady();
+        }
+
+    /**
+     * @return the wall-clock time (in nanos) since this service has been created
+     */
+    public long getUpTimeNanos()
+        {
+        return System.nanoTime() - f_nanosCreated;
+        }
+
+    /**
+     * @return the total time (in nanos) this service has been running
+     */
+    public long getCpuTimeNanos()
+        {
+        return m_cRuntimeNanos;
+        }
+
+    /**
+     * Note: this value is only approximate when called from outside the service thread.
+     *
+     * @return the number of pending messages and suspended fibers
+     */
+    public int getBacklogDepth()
+        {
+        return f_mailbox.size() + m_cOverflow + f_queueSuspended.size();
+        }
+
+    /**
+     * @return the number of fire-and-forget calls dropped by the {@link MailboxPolicy#Shed} policy
+     */
+    public long getShedCount()
+        {
+        return f_atomicShed.get();
+        }
+
+    /**
+     * The allocation accounting is sampled (see {@link Fiber#ALLOC_SAMPLE_RATE}); the result is
+     * an estimate of the number of bytes allocated by the service since it has been created,
+     * or zero if the JVM doesn't support per-thread allocation accounting.
+     *
+     * @return the estimated number of bytes allocated by this service
+     */
+    public long getBytesAllocated()
+        {
+        return m_cbAllocated;
+        }
+
+    /**
+     * The runtime doesn't track the memory held by each service; the result is the container's
+     * {@link Container#getMemoryEstimate() memory estimate} apportioned by the service's share of
+     * the container's allocations.
+     *
+     * @return the estimated number of bytes held by this service
+     */
+    public long getBytesReserved()
+        {
+        Container container   = f_container;
+        long      cbService   = m_cbAllocated;
+        long      cbContainer = container.getBytesAllocated();
+
+        return cbService <= 0 || cbContainer <= 0
+                ? 0
+                : (long) ((double) container.getMemoryEstimate() *
+                          Math.min(cbService, cbContainer) / cbContainer);
+        }
+
+    /**
+     * @return true iff the service has been terminated; unlike {@link #getStatus()}, this method
+     *         doesn't need to look at all the fibers
+     */
+    public boolean isTerminated()
+        {
+        return m_hService == null;
         }
 
     /**
@@ -1185,7 +1376,7 @@ public class ServiceContext
     public CompletableFuture<ObjectHandle> postRequest(Frame frame, FunctionHandle hFunction,
                                                        ObjectHandle[] ahArg, int cReturns)
         {
-        if (getStatus() == ServiceStatus.Terminated)
+        if (isTerminated())
             {
             return null;
             }
@@ -1213,6 +1404,13 @@ public class ServiceContext
         {
         assert iReturn != Op.A_IGNORE_ASYNC;
 
+        if (isRefusing())
+            {
+            // the caller always waits for the completion of these requests (e.g. property get or
+            // set), so they are never shed
+            return refuseRequest(frame, false);
+            }
+
         OpRequest request = new OpRequest(frame, op, iReturn == Op.A_IGNORE ? 0 : 1, () -> typeRet);
 
         addRequest(request, frame.isDynamicVar(iReturn));
@@ -1295,7 +1493,7 @@ public class ServiceContext
     public int sendInvoke1Request(Frame frame, FunctionHandle hFunction,
                                   ObjectHandle hTarget, ObjectHandle[] ahArg, boolean fTuple, int iReturn)
         {
-        if (getStatus() == ServiceStatus.Terminated)
+        if (isTerminated())
             {
             return frame.raiseException(xException.serviceTerminated(frame, f_sName));
             }
@@ -1347,6 +1545,11 @@ public class ServiceContext
             };
 
 
+        if (isRefusing())
+            {
+            return refuseRequest(frame, iReturn == Op.A_IGNORE_ASYNC);
+            }
+
         Supplier<TypeConstant[]> supplier = cReturns == 0
                 ? null
                 : () -> resolveFormalReturnTypes(hFunction, ahArg);
@@ -1389,7 +1592,7 @@ public class ServiceContext
     public int sendInvokeNRequest(Frame frame, FunctionHandle hFunction,
                                   ObjectHandle hTarget, ObjectHandle[] ahArg, int[] aiReturn)
         {
-        if (getStatus() == ServiceStatus.Terminated)
+        if (isTerminated())
             {
             return frame.raiseException(xException.serviceTerminated(frame, f_sName));
             }
@@ -1415,6 +1618,11 @@ public class ServiceContext
                 }
             };
 
+        if (isRefusing())
+            {
+            return refuseRequest(frame, cReturns == 0);
+            }
+
         Supplier<TypeConstant[]>          supplier = () -> resolveFormalReturnTypes(hFunction, ahArg);
         OpRequest                         request  = new OpRequest(frame, opCall, cReturns, supplier);
         CompletableFuture<ObjectHandle[]> future   = request.f_future;
@@ -1517,7 +1725,7 @@ public class ServiceContext
     public int sendProperty01Request(Frame frame, ObjectHandle hTarget,
                                      PropertyConstant idProp, int iReturn, PropertyOperation01 op)
         {
-        if (getStatus() == ServiceStatus.Terminated)
+        if (isTerminated())
             {
             return frame.raiseException(xException.serviceTerminated(frame, f_sName));
             }
@@ -1555,7 +1763,7 @@ public class ServiceContext
     public int sendProperty10Request(Frame frame, ObjectHandle hTarget,
                                      PropertyConstant idProp, ObjectHandle hValue, PropertyOperation10 op)
         {
-        if (getStatus() == ServiceStatus.Terminated)
+        if (isTerminated())
             {
             return frame.raiseException(xException.serviceTerminated(frame, f_sName));
             }
@@ -1711,6 +1919,11 @@ public class ServiceContext
         public final int             f_iCallerId; // the FrameId of the caller
         public final int             f_iCallerPC; // the PC of the caller
 
+        /**
+         * The mailbox producer index at the time this message was placed into the overflow queue.
+         */
+        long m_lMailboxIndex;
+
         protected Message(Frame frameCaller)
             {
             if (frameCaller == null)
@@ -2121,24 +2334,70 @@ public class ServiceContext
 
                 if (ldtNow < f_ldtScheduled)
                     {
-                    m_taskCurrent.cancel();
+                    m_timeoutCurrent.cancel();
                     }
                 }
 
-            f_ldtScheduled = ldtWakeUp;
-            m_taskCurrent  = new TimerTask()
+            f_ldtScheduled   = ldtWakeUp;
+            m_timeoutCurrent = xLocalClock.TIMER.schedule(() -> ensureScheduled(false),
+                    Math.max(1, ldtWakeUp - ldtNow), TimeUnit.MILLISECONDS);
+            }
+
+        private long    f_ldtScheduled;   // when
+        private Timeout m_timeoutCurrent; // what
+        }
+
+    /**
+     * @return the default mailbox capacity specified by the "xvm.mailbox.capacity" property; an
+     *         invalid value is reported and replaced with the built-in default
+     */
+    private static int loadMailboxCapacity()
+        {
+        int    cDefault  = 256;
+        String sCapacity = System.getProperty("xvm.mailbox.capacity");
+        if (sCapacity == null)
+            {
+            return cDefault;
+            }
+
+        try
+            {
+            int cCapacity = Integer.parseInt(sCapacity.trim());
+            if (cCapacity > 0)
                 {
-                public void run()
-                    {
-                    ensureScheduled(false);
-                    }
-                };
+                return cCapacity;
+                }
+            }
+        catch (NumberFormatException ignore) {}
+
+        System.err.println("Warning: invalid \"xvm.mailbox.capacity\" value \"" + sCapacity +
+                "\"; using " + cDefault);
+        return cDefault;
+        }
 
-            xLocalClock.TIMER.schedule(m_taskCurrent, Math.max(1, ldtWakeUp - ldtNow));
+    /**
+     * @return the default mailbox policy specified by the "xvm.mailbox.policy" property; an
+     *         invalid value is reported and replaced with the {@link MailboxPolicy#Block} policy
+     */
+    private static MailboxPolicy loadMailboxPolicy()
+        {
+        String sPolicy = System.getProperty("xvm.mailbox.policy");
+        if (sPolicy == null)
+            {
+            return MailboxPolicy.Block;
             }
 
-        private long      f_ldtScheduled; // when
-        private TimerTask m_taskCurrent;  // what
+        for (MailboxPolicy policy : MailboxPolicy.values())
+            {
+            if (policy.name().equalsIgnoreCase(sPolicy.trim()))
+                {
+                return policy;
+                }
+            }
+
+        System.err.println("Warning: invalid \"xvm.mailbox.policy\" value \"" + sPolicy +
+                "\"; using " + MailboxPolicy.Block);
+        return MailboxPolicy.Block;
         }
 
 
@@ -2150,9 +2409,32 @@ public class ServiceContext
     public final Container f_container;
 
     /**
-     * The queue size threshold at which the caller should be pushed back.
+     * The default backlog depth above which a service is considered overwhelmed; specified by the
+     * "xvm.mailbox.capacity" property.
+     */
+    public static final int QUEUE_THRESHOLD = loadMailboxCapacity();
+
+    /**
+     * The size of the mailbox array; the messages above that go into the overflow queue.
+     */
+    private static final int MAILBOX_SIZE = Math.min(QUEUE_THRESHOLD, 1024);
+
+    /**
+     * The maximum number of ops a service executes in one scheduling quantum before yielding the
+     * thread to other services.
      */
-    public static final int QUEUE_THRESHOLD = 256;
+    public static final long QUANTUM_OPS = Long.getLong("xvm.scheduler.quantumOps", 100_000);
+
+    /**
+     * The maximum time (in nanos) of one scheduling quantum.
+     */
+    public static final long QUANTUM_NANOS = Long.getLong("xvm.scheduler.quantumNanos", 1_000_000);
+
+    /**
+     * The default policy to apply to the callers when a service is overwhelmed; specified by the
+     * "xvm.mailbox.policy" property.
+     */
+    public static final MailboxPolicy DEFAULT_POLICY = loadMailboxPolicy();
 
     /**
      * The container's ConstantPool.
@@ -2184,6 +2466,11 @@ public class ServiceContext
      */
     protected int m_iFrameCounter;
 
+    /**
+     * The free lists of the frame registers; only accessed on the service thread.
+     */
+    final RegisterPool f_poolRegisters = new RegisterPool();
+
     /**
      * The current Timeout that will be used by the service when it invokes other services.
      */
@@ -2195,9 +2482,36 @@ public class ServiceContext
     private ObjectHandle m_hSynchronizedSection = xNullable.NULL;
 
     /**
-     * Metrics: the total time (in nanos) this service has been running.
+     * Metrics: the time (in nanos) this service has been created at.
+     */
+    private final long f_nanosCreated = System.nanoTime();
+
+    /**
+     * Metrics: the total time (in nanos) this service has been running. Only updated by the
+     * service thread, but can be read by any thread.
+     */
+    protected volatile long m_cRuntimeNanos;
+
+    /**
+     * Metrics: the estimated number of bytes allocated by this service. Only updated by the
+     * service thread, but can be read by any thread.
+     */
+    protected volatile long m_cbAllocated;
+
+    /**
+     * Metrics: the number of execution slices used to sample the allocation accounting.
+     */
+    protected int m_cSlices;
+
+    /**
+     * Metrics: the number of bytes allocated during the sampled execution slices.
+     */
+    protected long m_cbSampled;
+
+    /**
+     * Metrics: the time (in nanos) of the sampled execution slices.
      */
-    protected long m_cRuntimeNanos;
+    protected long m_cNanosSampled;
 
     /**
      * Support for Clock adn Timer: the count of pending timer events.
@@ -2210,9 +2524,60 @@ public class ServiceContext
     private Frame m_frameCurrent;
 
     /**
-     * The queue of incoming messages.
+     * The number of ops processed by the most recent {@link #execute(Frame)} call.
      */
-    private final Queue<Message> f_queueMsg = new ConcurrentLinkedQueue<>();
+    private int m_cOpsExecuted;
+
+    /**
+     * The incoming messages.
+     */
+    private final MpscArrayQueue<Message> f_mailbox = new MpscArrayQueue<>(MAILBOX_SIZE);
+
+    /**
+     * The incoming messages that didn't fit into the mailbox. Only polled by the thread that holds
+     * the scheduling lock.
+     */
+    private final Queue<Message> f_queueOverflow = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The number of messages in the {@link #f_queueOverflow}; updated via {@link #OVERFLOW_HANDLE}.
+     */
+    private volatile int m_cOverflow;
+
+    /**
+     * The backlog depth above which the service is considered overwhelmed.
+     */
+    private volatile int m_cMailboxCapacity = QUEUE_THRESHOLD;
+
+    /**
+     * The policy to apply to the callers when the service is overwhelmed.
+     */
+    private volatile MailboxPolicy m_policyMailbox = DEFAULT_POLICY;
+
+    /**
+     * The number of calls dropped due to the {@link MailboxPolicy#Shed} policy.
+     */
+    private final AtomicLong f_atomicShed = new AtomicLong();
+
+    /**
+     * The policy to apply to the calls from other services when this service is overwhelmed.
+     */
+    public enum MailboxPolicy
+        {
+        /**
+         * Accept the call, but make the calling fiber wait for its completion, even if the caller
+         * doesn't care about the result.
+         */
+        Block,
+        /**
+         * Raise an exception in the calling fiber.
+         */
+        Reject,
+        /**
+         * Drop the calls whose result is ignored by the caller; reject all other calls.
+         */
+        Shed,
+        }
 
     /**
      * The queue of message responses.
@@ -2256,6 +2621,12 @@ public class ServiceContext
      */
     volatile long m_lLockScheduling;
 
+    /**
+     * The index of the runtime worker that has most recently processed this service; used as a
+     * scheduling hint to keep the service on the same (cache-warm) thread.
+     */
+    private volatile int m_nWorkerAffinity = -1;
+
     /**
      * The current service status. Must be the same names as in natural Service.StatusIndicator.
      */
@@ -2278,12 +2649,20 @@ public class ServiceContext
      * VarHandle for {@link #m_lLockScheduling}.
      */
     static final VarHandle SCHEDULING_LOCK_HANDLE;
+
+    /**
+     * VarHandle for {@link #m_cOverflow}.
+     */
+    private static final VarHandle OVERFLOW_HANDLE;
+
     static
         {
         try
             {
             SCHEDULING_LOCK_HANDLE = MethodHandles.lookup().findVarHandle(ServiceContext.class,
                 "m_lLockScheduling", long.class);
+            OVERFLOW_HANDLE        = MethodHandles.lookup().findVarHandle(ServiceContext.class,
+                "m_cOverflow", int.class);
             }
         catch (IllegalAccessException | NoSuchFieldException e)
             {
@@ -2291,13 +2670,6 @@ public class ServiceContext
             }
         }
 
-    /**
-     * A "service-local" cache for run-time information that needs to be calculated by various ops.
-     * Since only one fiber can access the service context at any time, a simple HashMap is used.
-     * To prevent leaks, the values in the EnumMap are WekRef objects.
-     */
-    private final Map<Op, EnumMap> f_mapOpInfo = new WeakHashMap<>();
-
     /**
      * A "service-local" cache for transient field values.
      */
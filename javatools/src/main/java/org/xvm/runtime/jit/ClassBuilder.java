@@ -0,0 +1,609 @@
+package org.xvm.runtime.jit;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * A minimal JVM class file assembler used by the {@link JitCompiler}.
+ * <p>
+ * It supports exactly what the JIT needs: a constant pool with UTF8, Class, Integer, Long, field
+ * and method references, methods with a "Code" attribute, and forward/backward branches via
+ * {@link Label}s.
+ * <p>
+ * The produced class files use the Java 5 format (major version 49), which is verified by the
+ * type-inferencing verifier and therefore doesn't require a "StackMapTable" attribute.
+ */
+public class ClassBuilder
+    {
+    /**
+     * Construct a ClassBuilder.
+     *
+     * @param sName        the internal name of the class (e.g. "org/xvm/runtime/jit/Foo")
+     * @param sSuper       the internal name of the super class
+     * @param asInterface  the internal names of the implemented interfaces
+     */
+    public ClassBuilder(String sName, String sSuper, String... asInterface)
+        {
+        f_nThis  = classRef(sName);
+        f_nSuper = classRef(sSuper);
+
+        int[] anInterface = new int[asInterface.length];
+        for (int i = 0, c = asInterface.length; i < c; i++)
+            {
+            anInterface[i] = classRef(asInterface[i]);
+            }
+        f_anInterface = anInterface;
+        }
+
+    /**
+     * Start a new method.
+     *
+     * @param nAccess      the access flags
+     * @param sName        the method name
+     * @param sDescriptor  the method descriptor
+     * @param cArgSlots    the number of local variable slots taken by the arguments (including
+     *                     "this" for instance methods)
+     *
+     * @return the MethodBuilder to add the code to
+     */
+    public MethodBuilder addMethod(int nAccess, String sName, String sDescriptor, int cArgSlots)
+        {
+        MethodBuilder method = new MethodBuilder(nAccess, utf8(sName), utf8(sDescriptor), cArgSlots);
+        f_listMethods.add(method);
+        return method;
+        }
+
+    /**
+     * Produce the class file bytes.
+     *
+     * @return the class file as a byte array
+     */
+    public byte[] toByteArray()
+        {
+        ByteArrayOutputStream outBytes = new ByteArrayOutputStream();
+        DataOutputStream      out      = new DataOutputStream(outBytes);
+        try
+            {
+            int nCode = utf8("Code");
+
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(49);
+            out.writeShort(m_nNextConst);
+            out.write(f_outConsts.toByteArray());
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(f_nThis);
+            out.writeShort(f_nSuper);
+            out.writeShort(f_anInterface.length);
+            for (int n : f_anInterface)
+                {
+                out.writeShort(n);
+                }
+            out.writeShort(0); // fields
+            out.writeShort(f_listMethods.size());
+            for (MethodBuilder method : f_listMethods)
+                {
+                method.write(out, nCode);
+                }
+            out.writeShort(0); // attributes
+            }
+        catch (IOException e)
+            {
+            throw new IllegalStateException(e);
+            }
+        return outBytes.toByteArray();
+        }
+
+
+    // ----- constant pool -------------------------------------------------------------------------
+
+    /**
+     * @return the index of the UTF8 constant for the specified string
+     */
+    public int utf8(String s)
+        {
+        return ensureConst("U" + s, out -> {out.writeByte(1); out.writeUTF(s);}, 1);
+        }
+
+    /**
+     * @return the index of the Class constant for the specified internal class name
+     */
+    public int classRef(String sName)
+        {
+        int nName = utf8(sName);
+        return ensureConst("C" + sName, out -> {out.writeByte(7); out.writeShort(nName);}, 1);
+        }
+
+    /**
+     * @return the index of the Long constant for the specified value
+     */
+    public int longConst(long l)
+        {
+        return ensureConst("J" + l, out -> {out.writeByte(5); out.writeLong(l);}, 2);
+        }
+
+    /**
+     * @return the index of the Integer constant for the specified value
+     */
+    public int intConst(int n)
+        {
+        return ensureConst("I" + n, out -> {out.writeByte(3); out.writeInt(n);}, 1);
+        }
+
+    /**
+     * @return the index of the Fieldref constant
+     */
+    public int fieldRef(String sOwner, String sName, String sDescriptor)
+        {
+        return memberRef(9, sOwner, sName, sDescriptor);
+        }
+
+    /**
+     * @return the index of the Methodref constant
+     */
+    public int methodRef(String sOwner, String sName, String sDescriptor)
+        {
+        return memberRef(10, sOwner, sName, sDescriptor);
+        }
+
+    private int memberRef(int nTag, String sOwner, String sName, String sDescriptor)
+        {
+        int nClass = classRef(sOwner);
+        int nName  = utf8(sName);
+        int nDesc  = utf8(sDescriptor);
+        int nNT    = ensureConst("N" + sName + ' ' + sDescriptor,
+                        out -> {out.writeByte(12); out.writeShort(nName); out.writeShort(nDesc);}, 1);
+        return ensureConst(nTag + sOwner + '.' + sName + ' ' + sDescriptor,
+                        out -> {out.writeByte(nTag); out.writeShort(nClass); out.writeShort(nNT);}, 1);
+        }
+
+    private int ensureConst(String sKey, ConstWriter writer, int cSlots)
+        {
+        Integer NIndex = f_mapConsts.get(sKey);
+        if (NIndex != null)
+            {
+            return NIndex;
+            }
+
+        int nIndex = m_nNextConst;
+        if (nIndex + cSlots > 0xFFFF)
+            {
+            throw new IllegalStateException("constant pool overflow");
+            }
+
+        try
+            {
+            writer.write(f_outConstsData);
+            }
+        catch (IOException e)
+            {
+            throw new IllegalStateException(e);
+            }
+
+        m_nNextConst = nIndex + cSlots;
+        f_mapConsts.put(sKey, nIndex);
+        return nIndex;
+        }
+
+    @FunctionalInterface
+    private interface ConstWriter
+        {
+        void write(DataOutputStream out)
+                throws IOException;
+        }
+
+
+    // ----- inner class: Label --------------------------------------------------------------------
+
+    /**
+     * A branch target within a method.
+     */
+    public static class Label
+        {
+        /**
+         * The bound code offset, or -1 if not yet bound.
+         */
+        private int m_nOffset = -1;
+
+        /**
+         * The expected operand stack depth at the label, or -1 if not yet known.
+         */
+        private int m_nDepth = -1;
+
+        /**
+         * The offsets of the unresolved branch instructions that refer to this label.
+         */
+        private List<Integer> m_listFixups;
+        }
+
+
+    // ----- inner class: MethodBuilder ------------------------------------------------------------
+
+    /**
+     * The code emitter for a single method.
+     * <p>
+     * Besides assembling the instructions, the MethodBuilder tracks the operand stack depth and
+     * the local variable slots in order to compute "max_stack" and "max_locals".
+     */
+    public class MethodBuilder
+        {
+        protected MethodBuilder(int nAccess, int nName, int nDesc, int cArgSlots)
+            {
+            f_nAccess   = nAccess;
+            f_nName     = nName;
+            f_nDesc     = nDesc;
+            m_cLocals   = cArgSlots;
+            m_cMaxLocal = cArgSlots;
+            }
+
+        /**
+         * Allocate a new local variable.
+         *
+         * @param fWide  true for a long (two slot) variable
+         *
+         * @return the slot index
+         */
+        public int allocateLocal(boolean fWide)
+            {
+            int nSlot = m_cLocals;
+            m_cLocals  += fWide ? 2 : 1;
+            m_cMaxLocal = Math.max(m_cMaxLocal, m_cLocals);
+            return nSlot;
+            }
+
+        /**
+         * @return the current code size
+         */
+        public int size()
+            {
+            return f_outCode.size();
+            }
+
+        /**
+         * Emit an instruction that has no operands.
+         *
+         * @param nOp     the opcode
+         * @param nDelta  the operand stack depth change
+         */
+        public void op(int nOp, int nDelta)
+            {
+            f_outCode.write(nOp);
+            adjust(nDelta);
+            }
+
+        /**
+         * Emit a local variable load or store instruction.
+         */
+        public void local(int nOp, int nSlot, int nDelta)
+            {
+            if (nSlot > 0xFF)
+                {
+                f_outCode.write(WIDE);
+                f_outCode.write(nOp);
+                writeShort(nSlot);
+                }
+            else
+                {
+                f_outCode.write(nOp);
+                f_outCode.write(nSlot);
+                }
+            adjust(nDelta);
+            }
+
+        /**
+         * Emit an "iinc" instruction.
+         */
+        public void iinc(int nSlot, int nIncrement)
+            {
+            f_outCode.write(WIDE);
+            f_outCode.write(IINC);
+            writeShort(nSlot);
+            writeShort(nIncrement);
+            }
+
+        /**
+         * Emit an instruction that refers to a constant pool entry.
+         */
+        public void constOp(int nOp, int nConst, int nDelta)
+            {
+            if (nOp == LDC && nConst > 0xFF)
+                {
+                nOp = LDC_W;
+                }
+
+            f_outCode.write(nOp);
+            if (nOp == LDC)
+                {
+                f_outCode.write(nConst);
+                }
+            else
+                {
+                writeShort(nConst);
+                }
+            adjust(nDelta);
+            }
+
+        /**
+         * Push the specified long value.
+         */
+        public void pushLong(long l)
+            {
+            if (l == 0 || l == 1)
+                {
+                op(l == 0 ? LCONST_0 : LCONST_1, 2);
+                }
+            else
+                {
+                constOp(LDC2_W, longConst(l), 2);
+                }
+            }
+
+        /**
+         * Push the specified int value.
+         */
+        public void pushInt(int n)
+            {
+            if (n >= -1 && n <= 5)
+                {
+                op(ICONST_0 + n, 1);
+                }
+            else if (n >= Byte.MIN_VALUE && n <= Byte.MAX_VALUE)
+                {
+                f_outCode.write(BIPUSH);
+                f_outCode.write(n);
+                adjust(1);
+                }
+            else if (n >= Short.MIN_VALUE && n <= Short.MAX_VALUE)
+                {
+                f_outCode.write(SIPUSH);
+                writeShort(n);
+                adjust(1);
+                }
+            else
+                {
+                constOp(LDC, intConst(n), 1);
+                }
+            }
+
+        /**
+         * Emit a branch instruction.
+         *
+         * @param nOp     the branch opcode
+         * @param label   the target label
+         * @param nDelta  the operand stack depth change caused by the branch instruction itself
+         */
+        public void branch(int nOp, Label label, int nDelta)
+            {
+            int nAt = size();
+            adjust(nDelta);
+
+            if (label.m_nDepth < 0)
+                {
+                label.m_nDepth = m_nDepth;
+                }
+            else if (label.m_nDepth != m_nDepth)
+                {
+                throw new IllegalStateException("stack depth mismatch at branch");
+                }
+
+            f_outCode.write(nOp);
+            if (label.m_nOffset >= 0)
+                {
+                writeShort(label.m_nOffset - nAt);
+                }
+            else
+                {
+                if (label.m_listFixups == null)
+                    {
+                    label.m_listFixups = new ArrayList<>();
+                    }
+                label.m_listFixups.add(nAt);
+                writeShort(0);
+                }
+
+            if (nOp == GOTO)
+                {
+                m_fReachable = false;
+                }
+            }
+
+        /**
+         * Bind the specified label to the current code offset.
+         */
+        public void bind(Label label)
+            {
+            assert label.m_nOffset < 0;
+
+            int nOffset = size();
+            label.m_nOffset = nOffset;
+
+            if (m_fReachable)
+                {
+                if (label.m_nDepth < 0)
+                    {
+                    label.m_nDepth = m_nDepth;
+                    }
+                else if (label.m_nDepth != m_nDepth)
+                    {
+                    throw new IllegalStateException("stack depth mismatch at label");
+                    }
+                }
+            else if (label.m_nDepth >= 0)
+                {
+                // only reachable by a branch
+                m_nDepth     = label.m_nDepth;
+                m_fReachable = true;
+                }
+
+            if (label.m_listFixups != null)
+                {
+                for (int nAt : label.m_listFixups)
+                    {
+                    m_listPatches.add(new int[] {nAt + 1, nOffset - nAt});
+                    }
+                label.m_listFixups = null;
+                }
+            }
+
+        /**
+         * Mark the current position as unreachable (after a return or a throw).
+         */
+        public void unreachable()
+            {
+            m_fReachable = false;
+            m_nDepth     = 0;
+            }
+
+        /**
+         * @return true iff the current position is reachable
+         */
+        public boolean isReachable()
+            {
+            return m_fReachable;
+            }
+
+        private void adjust(int nDelta)
+            {
+            m_nDepth += nDelta;
+            assert m_nDepth >= 0;
+            m_nMaxDepth = Math.max(m_nMaxDepth, m_nDepth);
+            }
+
+        private void writeShort(int n)
+            {
+            f_outCode.write(n >>> 8);
+            f_outCode.write(n);
+            }
+
+        protected void write(DataOutputStream out, int nCode)
+                throws IOException
+            {
+            byte[] abCode = f_outCode.toByteArray();
+            for (int[] anPatch : m_listPatches)
+                {
+                int nAt    = anPatch[0];
+                int nDelta = anPatch[1];
+                if (nDelta < Short.MIN_VALUE || nDelta > Short.MAX_VALUE)
+                    {
+                    throw new IllegalStateException("branch offset overflow");
+                    }
+                abCode[nAt]     = (byte) (nDelta >>> 8);
+                abCode[nAt + 1] = (byte) nDelta;
+                }
+            if (abCode.length > 0xFFFF)
+                {
+                throw new IllegalStateException("method too large");
+                }
+
+            out.writeShort(f_nAccess);
+            out.writeShort(f_nName);
+            out.writeShort(f_nDesc);
+            out.writeShort(1);          // attributes
+            out.writeShort(nCode);
+            out.writeInt(12 + abCode.length);
+            out.writeShort(m_nMaxDepth);
+            out.writeShort(m_cMaxLocal);
+            out.writeInt(abCode.length);
+            out.write(abCode);
+            out.writeShort(0);          // exception table
+            out.writeShort(0);          // attributes
+            }
+
+        private final int                   f_nAccess;
+        private final int                   f_nName;
+        private final int                   f_nDesc;
+        private final ByteArrayOutputStream f_outCode     = new ByteArrayOutputStream();
+        private final List<int[]>           m_listPatches = new ArrayList<>();
+
+        private int     m_cLocals;
+        private int     m_cMaxLocal;
+        private int     m_nDepth;
+        private int     m_nMaxDepth;
+        private boolean m_fReachable = true;
+        }
+
+
+    // ----- constants -----------------------------------------------------------------------------
+
+    public static final int ACC_PUBLIC = 0x0001;
+    public static final int ACC_STATIC = 0x0008;
+    public static final int ACC_FINAL  = 0x0010;
+    public static final int ACC_SUPER  = 0x0020;
+
+    public static final int ICONST_0      = 0x03;
+    public static final int LCONST_0      = 0x09;
+    public static final int LCONST_1      = 0x0a;
+    public static final int BIPUSH        = 0x10;
+    public static final int SIPUSH        = 0x11;
+    public static final int LDC           = 0x12;
+    public static final int LDC_W         = 0x13;
+    public static final int LDC2_W        = 0x14;
+    public static final int ILOAD         = 0x15;
+    public static final int LLOAD         = 0x16;
+    public static final int ALOAD         = 0x19;
+    public static final int LALOAD        = 0x2f;
+    public static final int ISTORE        = 0x36;
+    public static final int LSTORE        = 0x37;
+    public static final int POP           = 0x57;
+    public static final int POP2          = 0x58;
+    public static final int DUP           = 0x59;
+    public static final int DUP2          = 0x5c;
+    public static final int LADD          = 0x61;
+    public static final int ISUB          = 0x64;
+    public static final int LSUB          = 0x65;
+    public static final int LMUL          = 0x69;
+    public static final int LDIV          = 0x6d;
+    public static final int LNEG          = 0x75;
+    public static final int LSHL          = 0x79;
+    public static final int LSHR          = 0x7b;
+    public static final int LUSHR         = 0x7d;
+    public static final int IAND          = 0x7e;
+    public static final int LAND          = 0x7f;
+    public static final int IOR           = 0x80;
+    public static final int LOR           = 0x81;
+    public static final int IXOR          = 0x82;
+    public static final int LXOR          = 0x83;
+    public static final int IINC          = 0x84;
+    public static final int I2L           = 0x85;
+    public static final int L2I           = 0x88;
+    public static final int LCMP          = 0x94;
+    public static final int IFEQ          = 0x99;
+    public static final int IFNE          = 0x9a;
+    public static final int IFLT          = 0x9b;
+    public static final int IFGE          = 0x9c;
+    public static final int IFGT          = 0x9d;
+    public static final int IFLE          = 0x9e;
+    public static final int IF_ICMPEQ     = 0x9f;
+    public static final int IF_ICMPNE     = 0xa0;
+    public static final int GOTO          = 0xa7;
+    public static final int IRETURN       = 0xac;
+    public static final int LRETURN       = 0xad;
+    public static final int RETURN        = 0xb1;
+    public static final int GETSTATIC     = 0xb2;
+    public static final int INVOKESPECIAL = 0xb7;
+    public static final int INVOKESTATIC  = 0xb8;
+    public static final int ATHROW        = 0xbf;
+    public static final int WIDE          = 0xc4;
+
+
+    // ----- fields --------------------------------------------------------------------------------
+
+    private final ByteArrayOutputStream f_outConsts     = new ByteArrayOutputStream();
+    private final DataOutputStream      f_outConstsData = new DataOutputStream(f_outConsts);
+    private final Map<String, Integer>  f_mapConsts     = new HashMap<>();
+    private final List<MethodBuilder>   f_listMethods   = new ArrayList<>();
+
+    private int m_nNextConst = 1;
+
+    private final int   f_nThis;
+    private final int   f_nSuper;
+    private final int[] f_anInterface;
+    }
@@ -0,0 +1,46 @@
+package org.xvm.runtime.jit;
+
+
+/**
+ * The interface implemented by the JVM classes that the {@link JitCompiler} generates for hot
+ * Ecstasy methods.
+ * <p>
+ * The generated code operates on unboxed values only: every Int64 argument and the return value
+ * are passed as Java longs; Boolean values are passed as 0 or 1.
+ */
+public interface JitCode
+    {
+    /**
+     * Execute the compiled method.
+     *
+     * @param cDepth  the number of additional call frames the compiled code is allowed to use for
+     *                self-recursive calls before it must deoptimize
+     * @param alArg   the unboxed arguments
+     *
+     * @return the unboxed return value
+     *
+     * @throws Deoptimization       if the compiled code cannot proceed and the invocation must be
+     *                              re-executed by the interpreter
+     * @throws ArithmeticException  if the compiled code encountered a division by zero, which the
+     *                              interpreter reports as an Ecstasy exception
+     */
+    long execute(int cDepth, long[] alArg);
+
+    /**
+     * The shared exception instance thrown by the compiled code to request a deoptimization.
+     */
+    Deoptimization DEOPT = new Deoptimization();
+
+    /**
+     * An exception that indicates that the compiled code has bailed out. Since the compiled code
+     * is free of side effects, the interpreter can simply re-execute the invocation.
+     */
+    class Deoptimization
+            extends RuntimeException
+        {
+        private Deoptimization()
+            {
+            super("deoptimize", null, false, false);
+            }
+        }
+    }
@@ -0,0 +1,1147 @@
+package org.xvm.runtime.jit;
+
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.xvm.asm.Constant;
+import org.xvm.asm.Constant.Format;
+import org.xvm.asm.ConstantPool;
+import org.xvm.asm.MethodStructure;
+
+import org.xvm.asm.ast.AssignAST;
+import org.xvm.asm.ast.BiExprAST;
+import org.xvm.asm.ast.BinaryAST;
+import org.xvm.asm.ast.BreakStmtAST;
+import org.xvm.asm.ast.CallExprAST;
+import org.xvm.asm.ast.CondOpExprAST;
+import org.xvm.asm.ast.ConstantExprAST;
+import org.xvm.asm.ast.ContinueStmtAST;
+import org.xvm.asm.ast.DoWhileStmtAST;
+import org.xvm.asm.ast.ExprAST;
+import org.xvm.asm.ast.ForStmtAST;
+import org.xvm.asm.ast.IfStmtAST;
+import org.xvm.asm.ast.LoopStmtAST;
+import org.xvm.asm.ast.OrderedExprAST;
+import org.xvm.asm.ast.RegAllocAST;
+import org.xvm.asm.ast.RegisterAST;
+import org.xvm.asm.ast.RelOpExprAST;
+import org.xvm.asm.ast.ReturnStmtAST;
+import org.xvm.asm.ast.StmtBlockAST;
+import org.xvm.asm.ast.TernaryExprAST;
+import org.xvm.asm.ast.UnaryOpExprAST;
+import org.xvm.asm.ast.WhileStmtAST;
+
+import org.xvm.asm.constants.IdentityConstant;
+import org.xvm.asm.constants.IntConstant;
+import org.xvm.asm.constants.LiteralConstant;
+import org.xvm.asm.constants.MethodConstant;
+import org.xvm.asm.constants.TypeConstant;
+
+import org.xvm.runtime.jit.ClassBuilder.Label;
+import org.xvm.runtime.jit.ClassBuilder.MethodBuilder;
+
+import static org.xvm.runtime.jit.ClassBuilder.*;
+
+
+/**
+ * Compiles the {@link BinaryAST} of an Ecstasy method into a JVM hidden class that implements
+ * {@link JitCode}, so that the JVM's own JIT can optimize it.
+ * <p>
+ * Only a small, side-effect-free subset of the language is supported: methods whose parameters
+ * and single return value are Int64 or Boolean, with local variables, arithmetic, bitwise and
+ * relational operators, conditionals, loops and self-recursive calls. Any other node makes the
+ * method ineligible, and it stays in the interpreter. Since the compiled code never touches the
+ * heap, bailing out at any point (see {@link JitCode.Deoptimization}) and re-executing the
+ * invocation in the interpreter is always safe.
+ */
+public class JitCompiler
+    {
+    /**
+     * The kind of a value on the JVM operand stack.
+     */
+    enum Kind
+        {
+        /**
+         * An Int64 value, represented as a Java long.
+         */
+        LONG("J"),
+
+        /**
+         * A Boolean value, represented as a Java int (0 or 1).
+         */
+        BOOL("I"),
+
+        /**
+         * The result of a "compare" call, represented as a Java int (-1, 0 or 1); it can only be
+         * consumed by an {@link OrderedExprAST}.
+         */
+        ORDERED("I"),
+        ;
+
+        Kind(String sDesc)
+            {
+            f_sDesc = sDesc;
+            }
+
+        boolean isWide()
+            {
+            return this == LONG;
+            }
+
+        final String f_sDesc;
+        }
+
+    /**
+     * Determine the kind of the values of the specified type.
+     *
+     * @return the Kind or null if the type is not supported
+     */
+    static Kind kindOf(ConstantPool pool, TypeConstant type)
+        {
+        if (type == null)
+            {
+            return null;
+            }
+
+        type = type.resolveTypedefs();
+        return type.equals(pool.typeInt64())   ? Kind.LONG
+             : type.equals(pool.typeBoolean()) ? Kind.BOOL
+             :                                   null;
+        }
+
+    /**
+     * Determine whether the specified method's signature can be supported by the compiler.
+     *
+     * @return the array of the parameter kinds followed by the return kind, or null if the method
+     *         cannot be compiled
+     */
+    static Kind[] computeSignature(MethodStructure method)
+        {
+        if (method.isNative() || !method.hasCode() || method.getTypeParamCount() > 0 ||
+                method.getReturnCount() != 1 || method.isConditionalReturn())
+            {
+            return null;
+            }
+
+        ConstantPool pool    = method.getConstantPool();
+        int          cParams = method.getParamCount();
+        Kind[]       aKind   = new Kind[cParams + 1];
+        for (int i = 0; i <= cParams; i++)
+            {
+            TypeConstant type = i < cParams
+                    ? method.getParam(i).getType()
+                    : method.getReturn(0).getType();
+            if ((aKind[i] = kindOf(pool, type)) == null)
+                {
+                return null;
+                }
+            }
+        return aKind;
+        }
+
+    /**
+     * Compile the specified method.
+     *
+     * @param method  the method to compile
+     * @param aKind   the signature as computed by {@link #computeSignature}
+     *
+     * @return the compiled code or null if the method's AST contains unsupported nodes
+     *
+     * @throws IllegalStateException if the generated class fails to load (a compiler bug)
+     */
+    public static JitCode compile(MethodStructure method, Kind[] aKind)
+        {
+        BinaryAST ast;
+        try
+            {
+            ast = method.getAst();
+            }
+        catch (RuntimeException e)
+            {
+            return null;
+            }
+
+        if (ast == null)
+            {
+            return null;
+            }
+
+        try
+            {
+            byte[] abClass = new JitCompiler(method, aKind).generate(ast);
+
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(abClass, true);
+            return (JitCode) lookup.findConstructor(lookup.lookupClass(),
+                    MethodType.methodType(void.class)).invoke();
+            }
+        catch (Unsupported e)
+            {
+            return null;
+            }
+        catch (Throwable e)
+            {
+            // a verification failure means a bug in the compiler; let the caller report it
+            throw new IllegalStateException("JIT compilation failed for "
+                    + method.getIdentityConstant().getPathString(), e);
+            }
+        }
+
+    private JitCompiler(MethodStructure method, Kind[] aKind)
+        {
+        f_method  = method;
+        f_pool    = method.getConstantPool();
+        f_aKind   = aKind;
+        f_sName   = PACKAGE + "Jit$" + method.getName().replaceAll("[^A-Za-z0-9_]", "_");
+        f_builder = new ClassBuilder(f_sName, "java/lang/Object", PACKAGE + "JitCode");
+
+        StringBuilder sb = new StringBuilder("(I");
+        for (int i = 0, c = aKind.length - 1; i < c; i++)
+            {
+            sb.append(aKind[i].f_sDesc);
+            }
+        f_sBodyDesc = sb.append(')').append(aKind[aKind.length - 1].f_sDesc).toString();
+        }
+
+
+    // ----- class generation ----------------------------------------------------------------------
+
+    /**
+     * Generate the class file.
+     */
+    private byte[] generate(BinaryAST ast)
+            throws Unsupported
+        {
+        ClassBuilder builder = f_builder;
+
+        // the body goes first, so that unsupported nodes are detected before anything else
+        generateBody(ast);
+
+        MethodBuilder code = builder.addMethod(ACC_PUBLIC, "<init>", "()V", 1);
+        code.local(ALOAD, 0, 1);
+        code.constOp(INVOKESPECIAL, builder.methodRef("java/lang/Object", "<init>", "()V"), -1);
+        code.op(RETURN, 0);
+
+        // long execute(int cDepth, long[] alArg)
+        code = builder.addMethod(ACC_PUBLIC, "execute", "(I[J)J", 3);
+        code.local(ILOAD, 1, 1);
+        Kind[] aKind   = f_aKind;
+        int    cParams = aKind.length - 1;
+        for (int i = 0; i < cParams; i++)
+            {
+            code.local(ALOAD, 2, 1);
+            code.pushInt(i);
+            code.op(LALOAD, 0);
+            if (!aKind[i].isWide())
+                {
+                code.op(L2I, -1);
+                }
+            }
+        code.constOp(INVOKESTATIC, builder.methodRef(f_sName, BODY, f_sBodyDesc),
+                (aKind[cParams].isWide() ? 2 : 1) - 1 - argSlots());
+        if (!aKind[cParams].isWide())
+            {
+            code.op(I2L, 1);
+            }
+        code.op(LRETURN, -2);
+
+        return builder.toByteArray();
+        }
+
+    /**
+     * Generate the static method that holds the translated AST.
+     */
+    private void generateBody(BinaryAST ast)
+            throws Unsupported
+        {
+        Kind[]        aKind   = f_aKind;
+        int           cParams = aKind.length - 1;
+        MethodBuilder code    = f_builder.addMethod(ACC_PUBLIC | ACC_STATIC, BODY, f_sBodyDesc,
+                                    1 + argSlots());
+        m_code = code;
+
+        int[] anSlot = new int[cParams];
+        for (int i = 0, nSlot = 1; i < cParams; i++)
+            {
+            anSlot[i] = nSlot;
+            nSlot += aKind[i].isWide() ? 2 : 1;
+            }
+        m_anParamSlot = anSlot;
+
+        // the recursion guard
+        Label labelDeopt = m_labelDeopt = new Label();
+        code.local(ILOAD, 0, 1);
+        code.branch(IFLT, labelDeopt, -1);
+
+        // the back-edge budget
+        m_nBudgetSlot = code.allocateLocal(false);
+        code.pushInt(LOOP_BUDGET);
+        code.local(ISTORE, m_nBudgetSlot, -1);
+
+        compileStatement(ast);
+
+        // a method can't "fall off" its end; if the AST does, defer to the interpreter
+        code.bind(labelDeopt);
+        code.constOp(GETSTATIC, f_builder.fieldRef(PACKAGE + "JitCode", "DEOPT",
+                "L" + PACKAGE + "JitCode$Deoptimization;"), 1);
+        code.op(ATHROW, -1);
+        code.unreachable();
+        }
+
+    /**
+     * @return the number of the JVM local slots taken by the "body" method arguments, excluding
+     *         the depth argument
+     */
+    private int argSlots()
+        {
+        int cSlots = 0;
+        for (int i = 0, c = f_aKind.length - 1; i < c; i++)
+            {
+            cSlots += f_aKind[i].isWide() ? 2 : 1;
+            }
+        return cSlots;
+        }
+
+
+    // ----- statements ----------------------------------------------------------------------------
+
+    private void compileStatement(BinaryAST stmt)
+            throws Unsupported
+        {
+        MethodBuilder code = m_code;
+        if (!code.isReachable())
+            {
+            // dead code is not worth compiling (and the JVM would never verify it)
+            return;
+            }
+
+        if (stmt instanceof StmtBlockAST stmtBlock)
+            {
+            for (BinaryAST stmtNext : stmtBlock.getStmts())
+                {
+                compileStatement(stmtNext);
+                }
+            }
+        else if (stmt instanceof IfStmtAST stmtIf)
+            {
+            Label labelElse = new Label();
+            Label labelEnd  = new Label();
+
+            compileExpr(stmtIf.getCond(), Kind.BOOL);
+            code.branch(IFEQ, labelElse, -1);
+            compileStatement(stmtIf.getThen());
+            if (code.isReachable())
+                {
+                code.branch(GOTO, labelEnd, 0);
+                }
+            code.bind(labelElse);
+            if (stmtIf.getElse() != null)
+                {
+                compileStatement(stmtIf.getElse());
+                }
+            code.bind(labelEnd);
+            }
+        else if (stmt instanceof WhileStmtAST stmtWhile)
+            {
+            Loop loop = enterLoop();
+            code.bind(loop.f_labelContinue);
+            compileExpr(stmtWhile.getCond(), Kind.BOOL);
+            code.branch(IFEQ, loop.f_labelBreak, -1);
+            compileStatement(stmtWhile.getBody());
+            backEdge(loop.f_labelContinue);
+            exitLoop(loop);
+            }
+        else if (stmt instanceof DoWhileStmtAST stmtDo)
+            {
+            Loop  loop     = enterLoop();
+            Label labelTop = new Label();
+            code.bind(labelTop);
+            compileStatement(stmtDo.getBody());
+            code.bind(loop.f_labelContinue);
+            if (code.isReachable())
+                {
+                compileExpr(stmtDo.getCond(), Kind.BOOL);
+                code.branch(IFEQ, loop.f_labelBreak, -1);
+                backEdge(labelTop);
+                }
+            exitLoop(loop);
+            }
+        else if (stmt instanceof LoopStmtAST stmtLoop)
+            {
+            Loop loop = enterLoop();
+            code.bind(loop.f_labelContinue);
+            compileStatement(stmtLoop.getBody());
+            backEdge(loop.f_labelContinue);
+            exitLoop(loop);
+            }
+        else if (stmt instanceof ForStmtAST stmtFor)
+            {
+            if (stmtFor.getInit() != null)
+                {
+                compileStatement(stmtFor.getInit());
+                }
+
+            Loop  loop      = enterLoop();
+            Label labelCond = new Label();
+            code.bind(labelCond);
+            if (stmtFor.getCond() != null)
+                {
+                compileExpr(stmtFor.getCond(), Kind.BOOL);
+                code.branch(IFEQ, loop.f_labelBreak, -1);
+                }
+            compileStatement(stmtFor.getBody());
+            code.bind(loop.f_labelContinue);
+            if (stmtFor.getUpdate() != null)
+                {
+                compileStatement(stmtFor.getUpdate());
+                }
+            backEdge(labelCond);
+            exitLoop(loop);
+            }
+        else if (stmt instanceof BreakStmtAST stmtBreak)
+            {
+            code.branch(GOTO, currentLoop(stmtBreak.getDepth()).f_labelBreak, 0);
+            }
+        else if (stmt instanceof ContinueStmtAST stmtContinue)
+            {
+            code.branch(GOTO, currentLoop(stmtContinue.getDepth()).f_labelContinue, 0);
+            }
+        else if (stmt instanceof ReturnStmtAST stmtReturn)
+            {
+            ExprAST[] aExpr = stmtReturn.getExprs();
+            if (aExpr.length != 1)
+                {
+                throw Unsupported.INSTANCE;
+                }
+
+            Kind kind = f_aKind[f_aKind.length - 1];
+            compileExpr(aExpr[0], kind);
+            code.op(kind.isWide() ? LRETURN : IRETURN, kind.isWide() ? -2 : -1);
+            code.unreachable();
+            }
+        else if (stmt instanceof RegAllocAST stmtAlloc)
+            {
+            // a declaration without an assignment; zero it out to keep the JVM verifier happy
+            Local local = declare(stmtAlloc);
+            pushZero(local.f_kind);
+            store(local);
+            }
+        else if (stmt instanceof AssignAST stmtAssign)
+            {
+            compileAssign(stmtAssign, false);
+            }
+        else if (stmt instanceof UnaryOpExprAST stmtUnary && isIncDec(stmtUnary.getOp()))
+            {
+            compileIncDec(stmtUnary, false);
+            }
+        else if (stmt instanceof ExprAST expr)
+            {
+            Kind kind = compileExpr(expr);
+            code.op(kind.isWide() ? POP2 : POP, kind.isWide() ? -2 : -1);
+            }
+        else
+            {
+            throw Unsupported.INSTANCE;
+            }
+        }
+
+    private Loop enterLoop()
+        {
+        Loop loop = new Loop();
+        f_stackLoops.push(loop);
+        return loop;
+        }
+
+    private void exitLoop(Loop loop)
+        {
+        f_stackLoops.pop();
+        m_code.bind(loop.f_labelBreak);
+        }
+
+    private Loop currentLoop(int nDepth)
+            throws Unsupported
+        {
+        // labeled breaks and continues refer to arbitrary "statement parents"; not supported
+        if (nDepth != 0 || f_stackLoops.isEmpty())
+            {
+            throw Unsupported.INSTANCE;
+            }
+        return f_stackLoops.peek();
+        }
+
+    /**
+     * Jump back to the specified label, consuming the loop budget.
+     */
+    private void backEdge(Label label)
+        {
+        MethodBuilder code = m_code;
+        if (code.isReachable())
+            {
+            code.iinc(m_nBudgetSlot, -1);
+            code.local(ILOAD, m_nBudgetSlot, 1);
+            code.branch(IFLE, m_labelDeopt, -1);
+            code.branch(GOTO, label, 0);
+            }
+        }
+
+
+    // ----- expressions ---------------------------------------------------------------------------
+
+    /**
+     * Compile the expression that is expected to be of the specified kind.
+     */
+    private void compileExpr(ExprAST expr, Kind kindRequired)
+            throws Unsupported
+        {
+        if (compileExpr(expr) != kindRequired)
+            {
+            throw Unsupported.INSTANCE;
+            }
+        }
+
+    /**
+     * Compile the expression, leaving its value on the operand stack.
+     *
+     * @return the kind of the value
+     */
+    private Kind compileExpr(ExprAST expr)
+            throws Unsupported
+        {
+        MethodBuilder code = m_code;
+
+        if (expr instanceof RegisterAST reg)
+            {
+            Local local = lookup(reg);
+            load(local);
+            return local.f_kind;
+            }
+
+        if (expr instanceof ConstantExprAST exprConst)
+            {
+            Constant constant = exprConst.getValue();
+            if (constant instanceof IntConstant constInt && constInt.getFormat() == Format.Int64
+                    && !constInt.getValue().isBig())
+                {
+                code.pushLong(constInt.getValue().getLong());
+                return Kind.LONG;
+                }
+            if (constant instanceof LiteralConstant constLit && constLit.getFormat() == Format.IntLiteral
+                    && !constLit.getPackedInteger().isBig())
+                {
+                // the AST retains the literal; the context has already made sure it fits an Int64
+                code.pushLong(constLit.getPackedInteger().getLong());
+                return Kind.LONG;
+                }
+            if (constant.equals(f_pool.valTrue()) || constant.equals(f_pool.valFalse()))
+                {
+                code.pushInt(constant.equals(f_pool.valTrue()) ? 1 : 0);
+                return Kind.BOOL;
+                }
+            throw Unsupported.INSTANCE;
+            }
+
+        if (expr instanceof RelOpExprAST exprRel)
+            {
+            return compileBinary(exprRel);
+            }
+
+        if (expr instanceof CondOpExprAST exprCond)
+            {
+            return compileConditional(exprCond);
+            }
+
+        if (expr instanceof UnaryOpExprAST exprUnary)
+            {
+            UnaryOpExprAST.Operator op = exprUnary.getOp();
+            if (isIncDec(op))
+                {
+                return compileIncDec(exprUnary, true);
+                }
+
+            switch (op)
+                {
+                case Not:
+                    compileExpr(exprUnary.getExpr(), Kind.BOOL);
+                    code.pushInt(1);
+                    code.op(IXOR, -1);
+                    return Kind.BOOL;
+
+                case Minus:
+                    compileExpr(exprUnary.getExpr(), Kind.LONG);
+                    code.op(LNEG, 0);
+                    return Kind.LONG;
+
+                case Compl:
+                    compileExpr(exprUnary.getExpr(), Kind.LONG);
+                    code.pushLong(-1L);
+                    code.op(LXOR, -2);
+                    return Kind.LONG;
+
+                default:
+                    throw Unsupported.INSTANCE;
+                }
+            }
+
+        if (expr instanceof OrderedExprAST exprOrdered)
+            {
+            compileExpr(exprOrdered.getExpr(), Kind.ORDERED);
+            materialize(exprOrdered.getOp() == OrderedExprAST.Operator.Less ? IFLT : IFGT, -1);
+            return Kind.BOOL;
+            }
+
+        if (expr instanceof CallExprAST exprCall)
+            {
+            return compileCall(exprCall);
+            }
+
+        if (expr instanceof TernaryExprAST exprTernary)
+            {
+            Label labelElse = new Label();
+            Label labelEnd  = new Label();
+
+            compileExpr(exprTernary.getCond(), Kind.BOOL);
+            code.branch(IFEQ, labelElse, -1);
+            Kind kind = compileExpr(exprTernary.getThen());
+            code.branch(GOTO, labelEnd, 0);
+            code.bind(labelElse);
+            compileExpr(exprTernary.getElse(), kind);
+            code.bind(labelEnd);
+            return kind;
+            }
+
+        if (expr instanceof AssignAST exprAssign)
+            {
+            return compileAssign(exprAssign, true);
+            }
+
+        throw Unsupported.INSTANCE;
+        }
+
+    /**
+     * Compile an arithmetic, bitwise or shift operation.
+     */
+    private Kind compileBinary(RelOpExprAST expr)
+            throws Unsupported
+        {
+        MethodBuilder code  = m_code;
+        Kind          kind1 = compileExpr(expr.getExpr1());
+        switch (kind1)
+            {
+            case LONG:
+                {
+                BiExprAST.Operator op = expr.getOp();
+                switch (op)
+                    {
+                    case Shl, Shr, Ushr:
+                        compileExpr(expr.getExpr2(), Kind.LONG);
+                        code.op(L2I, -1);
+                        code.op(op == BiExprAST.Operator.Shl ? LSHL :
+                                op == BiExprAST.Operator.Shr ? LSHR : LUSHR, -1);
+                        return Kind.LONG;
+
+                    case Mod:
+                        // Ecstasy modulo has the sign of the divisor, just like floorMod()
+                        compileExpr(expr.getExpr2(), Kind.LONG);
+                        code.constOp(INVOKESTATIC,
+                            f_builder.methodRef("java/lang/Math", "floorMod", "(JJ)J"), -2);
+                        return Kind.LONG;
+
+                    default:
+                        int nOp = longOp(op);
+                        compileExpr(expr.getExpr2(), Kind.LONG);
+                        code.op(nOp, -2);
+                        return Kind.LONG;
+                    }
+                }
+
+            case BOOL:
+                {
+                int nOp = switch (expr.getOp())
+                    {
+                    case BitAnd -> IAND;
+                    case BitOr  -> IOR;
+                    case BitXor -> IXOR;
+                    default     -> throw Unsupported.INSTANCE;
+                    };
+                compileExpr(expr.getExpr2(), Kind.BOOL);
+                code.op(nOp, -1);
+                return Kind.BOOL;
+                }
+
+            default:
+                throw Unsupported.INSTANCE;
+            }
+        }
+
+    /**
+     * @return the JVM opcode for the specified binary operator on longs
+     */
+    private static int longOp(BiExprAST.Operator op)
+            throws Unsupported
+        {
+        return switch (op)
+            {
+            case Add    -> LADD;
+            case Sub    -> LSUB;
+            case Mul    -> LMUL;
+            case Div    -> LDIV; // a division by zero throws; the interpreter will report it
+            case BitAnd -> LAND;
+            case BitOr  -> LOR;
+            case BitXor -> LXOR;
+            default     -> throw Unsupported.INSTANCE;
+            };
+        }
+
+    /**
+     * Compile a short-circuiting logical operation or a (legacy form) comparison.
+     */
+    private Kind compileConditional(CondOpExprAST expr)
+            throws Unsupported
+        {
+        MethodBuilder code = m_code;
+        switch (expr.getOp())
+            {
+            case CondAnd:
+            case CondOr:
+                {
+                boolean fAnd      = expr.getOp() == BiExprAST.Operator.CondAnd;
+                Label   labelShort = new Label();
+                Label   labelEnd   = new Label();
+
+                compileExpr(expr.getExpr1(), Kind.BOOL);
+                code.branch(fAnd ? IFEQ : IFNE, labelShort, -1);
+                compileExpr(expr.getExpr2(), Kind.BOOL);
+                code.branch(GOTO, labelEnd, 0);
+                code.bind(labelShort);
+                code.pushInt(fAnd ? 0 : 1);
+                code.bind(labelEnd);
+                return Kind.BOOL;
+                }
+
+            case CondXor:
+                compileExpr(expr.getExpr1(), Kind.BOOL);
+                compileExpr(expr.getExpr2(), Kind.BOOL);
+                code.op(IXOR, -1);
+                return Kind.BOOL;
+
+            case CompEq, CompNeq, CompLt, CompGt, CompLtEq, CompGtEq:
+                {
+                Kind kind = compileExpr(expr.getExpr1());
+                if (kind == Kind.LONG)
+                    {
+                    compileExpr(expr.getExpr2(), Kind.LONG);
+                    code.op(LCMP, -3);
+                    }
+                else if (kind == Kind.BOOL && (expr.getOp() == BiExprAST.Operator.CompEq ||
+                                               expr.getOp() == BiExprAST.Operator.CompNeq))
+                    {
+                    compileExpr(expr.getExpr2(), Kind.BOOL);
+                    code.op(IXOR, -1);
+                    }
+                else
+                    {
+                    throw Unsupported.INSTANCE;
+                    }
+
+                int nOp = switch (expr.getOp())
+                    {
+                    case CompEq   -> IFEQ;
+                    case CompNeq  -> IFNE;
+                    case CompLt   -> IFLT;
+                    case CompGt   -> IFGT;
+                    case CompLtEq -> IFLE;
+                    default       -> IFGE;
+                    };
+                materialize(nOp, -1);
+                return Kind.BOOL;
+                }
+
+            default:
+                throw Unsupported.INSTANCE;
+            }
+        }
+
+    /**
+     * Compile a function call: either a self-recursive call or one of the Ecstasy "compare" and
+     * "equals" functions on the supported types.
+     */
+    private Kind compileCall(CallExprAST expr)
+            throws Unsupported
+        {
+        MethodBuilder code = m_code;
+        if (expr.isAsync() || !(expr.getFunction() instanceof ConstantExprAST exprFn) ||
+                !(exprFn.getValue() instanceof MethodConstant idFn))
+            {
+            throw Unsupported.INSTANCE;
+            }
+
+        ExprAST[] aArg = expr.getArgs();
+        if (idFn.equals(f_method.getIdentityConstant()))
+            {
+            Kind[] aKind   = f_aKind;
+            int    cParams = aKind.length - 1;
+            if (aArg.length != cParams)
+                {
+                throw Unsupported.INSTANCE;
+                }
+
+            code.local(ILOAD, 0, 1);
+            code.pushInt(1);
+            code.op(ISUB, -1);
+            for (int i = 0; i < cParams; i++)
+                {
+                compileExpr(aArg[i], aKind[i]);
+                }
+            Kind kindRet = aKind[cParams];
+            code.constOp(INVOKESTATIC, f_builder.methodRef(f_sName, BODY, f_sBodyDesc),
+                    (kindRet.isWide() ? 2 : 1) - 1 - argSlots());
+            return kindRet;
+            }
+
+        IdentityConstant idNamespace = idFn.getNamespace();
+        if (aArg.length != 2 || !idNamespace.getModuleConstant().isEcstasyModule())
+            {
+            throw Unsupported.INSTANCE;
+            }
+
+        switch (idFn.getName())
+            {
+            case "compare":
+                compileExpr(aArg[0], Kind.LONG);
+                compileExpr(aArg[1], Kind.LONG);
+                code.op(LCMP, -3);
+                return Kind.ORDERED;
+
+            case "equals":
+                {
+                Kind kind = compileExpr(aArg[0]);
+                if (kind == Kind.LONG)
+                    {
+                    compileExpr(aArg[1], Kind.LONG);
+                    code.op(LCMP, -3);
+                    }
+                else if (kind == Kind.BOOL)
+                    {
+                    compileExpr(aArg[1], Kind.BOOL);
+                    code.op(IXOR, -1);
+                    }
+                else
+                    {
+                    throw Unsupported.INSTANCE;
+                    }
+                materialize(IFEQ, -1);
+                return Kind.BOOL;
+                }
+
+            default:
+                throw Unsupported.INSTANCE;
+            }
+        }
+
+    /**
+     * Compile an assignment.
+     *
+     * @param fValue  true iff the assigned value is to be left on the operand stack
+     */
+    private Kind compileAssign(AssignAST expr, boolean fValue)
+            throws Unsupported
+        {
+        MethodBuilder code  = m_code;
+        ExprAST       exprL = expr.getLValue();
+        AssignAST.Operator op = expr.getOperator();
+
+        Local local = exprL instanceof RegAllocAST alloc ? declare(alloc)
+                    : exprL instanceof RegisterAST reg   ? lookup(reg)
+                    : null;
+        if (local == null)
+            {
+            throw Unsupported.INSTANCE;
+            }
+
+        Kind kind = local.f_kind;
+        if (op == AssignAST.Operator.Asn)
+            {
+            compileExpr(expr.getRValue(), kind);
+            }
+        else if (kind == Kind.LONG)
+            {
+            load(local);
+            switch (op)
+                {
+                case ShiftLAsn, ShiftRAsn, UShiftRAsn:
+                    compileExpr(expr.getRValue(), Kind.LONG);
+                    code.op(L2I, -1);
+                    code.op(op == AssignAST.Operator.ShiftLAsn ? LSHL :
+                            op == AssignAST.Operator.ShiftRAsn ? LSHR : LUSHR, -1);
+                    break;
+
+                case ModAsn:
+                    compileExpr(expr.getRValue(), Kind.LONG);
+                    code.constOp(INVOKESTATIC,
+                        f_builder.methodRef("java/lang/Math", "floorMod", "(JJ)J"), -2);
+                    break;
+
+                default:
+                    {
+                    int nOp = switch (op)
+                        {
+                        case AddAsn -> LADD;
+                        case SubAsn -> LSUB;
+                        case MulAsn -> LMUL;
+                        case DivAsn -> LDIV;
+                        case AndAsn -> LAND;
+                        case OrAsn  -> LOR;
+                        case XorAsn -> LXOR;
+                        default     -> throw Unsupported.INSTANCE;
+                        };
+                    compileExpr(expr.getRValue(), Kind.LONG);
+                    code.op(nOp, -2);
+                    break;
+                    }
+                }
+            }
+        else if (kind == Kind.BOOL)
+            {
+            int nOp = switch (op)
+                {
+                case AndAsn -> IAND;
+                case OrAsn  -> IOR;
+                case XorAsn -> IXOR;
+                default     -> throw Unsupported.INSTANCE;
+                };
+            load(local);
+            compileExpr(expr.getRValue(), Kind.BOOL);
+            code.op(nOp, -1);
+            }
+        else
+            {
+            throw Unsupported.INSTANCE;
+            }
+
+        if (fValue)
+            {
+            code.op(kind.isWide() ? DUP2 : DUP, kind.isWide() ? 2 : 1);
+            }
+        store(local);
+        return kind;
+        }
+
+    private static boolean isIncDec(UnaryOpExprAST.Operator op)
+        {
+        return switch (op)
+            {
+            case PreInc, PreDec, PostInc, PostDec -> true;
+            default                               -> false;
+            };
+        }
+
+    /**
+     * Compile a pre- or post- increment or decrement of a local variable.
+     *
+     * @param fValue  true iff the resulting value is to be left on the operand stack
+     */
+    private Kind compileIncDec(UnaryOpExprAST expr, boolean fValue)
+            throws Unsupported
+        {
+        if (!(expr.getExpr() instanceof RegisterAST reg))
+            {
+            throw Unsupported.INSTANCE;
+            }
+
+        Local local = lookup(reg);
+        if (local.f_kind != Kind.LONG)
+            {
+            throw Unsupported.INSTANCE;
+            }
+
+        MethodBuilder           code = m_code;
+        UnaryOpExprAST.Operator op   = expr.getOp();
+        boolean                 fPre = op.pre;
+
+        load(local);
+        if (fValue && !fPre)
+            {
+            code.op(DUP2, 2);
+            }
+        code.op(LCONST_1, 2);
+        code.op(op == UnaryOpExprAST.Operator.PreInc || op == UnaryOpExprAST.Operator.PostInc
+                ? LADD : LSUB, -2);
+        if (fValue && fPre)
+            {
+            code.op(DUP2, 2);
+            }
+        store(local);
+        return Kind.LONG;
+        }
+
+    /**
+     * Turn the int on top of the operand stack into a Boolean value (1 iff the specified branch is
+     * taken).
+     */
+    private void materialize(int nBranchOp, int nDelta)
+        {
+        MethodBuilder code      = m_code;
+        Label         labelTrue = new Label();
+        Label         labelEnd  = new Label();
+
+        code.branch(nBranchOp, labelTrue, nDelta);
+        code.pushInt(0);
+        code.branch(GOTO, labelEnd, 0);
+        code.bind(labelTrue);
+        code.pushInt(1);
+        code.bind(labelEnd);
+        }
+
+
+    // ----- locals --------------------------------------------------------------------------------
+
+    private Local declare(RegAllocAST alloc)
+            throws Unsupported
+        {
+        RegisterAST reg  = alloc.getRegister();
+        Kind        kind = kindOf(f_pool, reg.getType());
+        if (kind == null || reg.isAnnotated())
+            {
+            throw Unsupported.INSTANCE;
+            }
+
+        Local local = f_mapLocals.get(reg);
+        if (local == null)
+            {
+            local = new Local(m_code.allocateLocal(kind.isWide()), kind);
+            f_mapLocals.put(reg, local);
+            }
+        return local;
+        }
+
+    private Local lookup(RegisterAST reg)
+            throws Unsupported
+        {
+        Local local = f_mapLocals.get(reg);
+        if (local != null)
+            {
+            return local;
+            }
+
+        // the parameters are the first registers of the method
+        int nReg = reg.getRegId();
+        if (reg.isRegIdAssigned() && nReg >= 0 && nReg < m_anParamSlot.length)
+            {
+            local = new Local(m_anParamSlot[nReg], f_aKind[nReg]);
+            f_mapLocals.put(reg, local);
+            return local;
+            }
+
+        // "this", special registers, or a register declared in an unsupported way
+        throw Unsupported.INSTANCE;
+        }
+
+    private void load(Local local)
+        {
+        boolean fWide = local.f_kind.isWide();
+        m_code.local(fWide ? LLOAD : ILOAD, local.f_nSlot, fWide ? 2 : 1);
+        }
+
+    private void store(Local local)
+        {
+        boolean fWide = local.f_kind.isWide();
+        m_code.local(fWide ? LSTORE : ISTORE, local.f_nSlot, fWide ? -2 : -1);
+        }
+
+    private void pushZero(Kind kind)
+        {
+        if (kind.isWide())
+            {
+            m_code.pushLong(0L);
+            }
+        else
+            {
+            m_code.pushInt(0);
+            }
+        }
+
+
+    // ----- inner classes -------------------------------------------------------------------------
+
+    /**
+     * A JVM local variable that holds an Ecstasy register.
+     */
+    private static class Local
+        {
+        Local(int nSlot, Kind kind)
+            {
+            f_nSlot = nSlot;
+            f_kind  = kind;
+            }
+
+        final int  f_nSlot;
+        final Kind f_kind;
+        }
+
+    /**
+     * The branch targets of an enclosing loop.
+     */
+    private static class Loop
+        {
+        final Label f_labelBreak    = new Label();
+        final Label f_labelContinue = new Label();
+        }
+
+    /**
+     * Thrown when the AST contains a node that the compiler does not support.
+     */
+    private static class Unsupported
+            extends Exception
+        {
+        private Unsupported()
+            {
+            super(null, null, false, false);
+            }
+
+        static final Unsupported INSTANCE = new Unsupported();
+        }
+
+
+    // ----- constants -----------------------------------------------------------------------------
+
+    /**
+     * The package (in the internal form) of the generated classes; it must be the package of the
+     * {@link MethodHandles.Lookup} that defines them.
+     */
+    private static final String PACKAGE = "org/xvm/runtime/jit/";
+
+    /**
+     * The name of the static method that holds the translated AST.
+     */
+    private static final String BODY = "body";
+
+    /**
+     * The number of loop iterations a compiled invocation may execute before it deoptimizes (and
+     * likely gets abandoned by its {@link JitMethod}), returning the control to the interpreter,
+     * which periodically yields to other fibers.
+     */
+    private static final int LOOP_BUDGET = 1 << 24;
+
+
+    // ----- fields --------------------------------------------------------------------------------
+
+    private final MethodStructure f_method;
+    private final ConstantPool    f_pool;
+    private final Kind[]          f_aKind;
+    private final String          f_sName;
+    private final String          f_sBodyDesc;
+    private final ClassBuilder    f_builder;
+
+    private final Map<RegisterAST, Local> f_mapLocals  = new IdentityHashMap<>();
+    private final Deque<Loop>             f_stackLoops = new ArrayDeque<>();
+
+    private MethodBuilder m_code;
+    private int[]         m_anParamSlot;
+    private int           m_nBudgetSlot;
+    private Label         m_labelDeopt;
+    }
@@ -0,0 +1,219 @@
+package org.xvm.runtime.jit;
+
+
+import org.xvm.asm.MethodStructure;
+import org.xvm.asm.Op;
+
+import org.xvm.runtime.Frame;
+import org.xvm.runtime.ObjectHandle;
+import org.xvm.runtime.ObjectHandle.JavaLong;
+import org.xvm.runtime.Utils;
+
+import org.xvm.runtime.jit.JitCompiler.Kind;
+
+import org.xvm.runtime.template.xBoolean;
+import org.xvm.runtime.template.xBoolean.BooleanHandle;
+
+import org.xvm.runtime.template.numbers.xInt64;
+
+
+/**
+ * The second execution tier state of a single {@link MethodStructure}.
+ * <p>
+ * Every method starts in the interpreter. The JitMethod counts the invocations, and once the
+ * count reaches the {@link #THRESHOLD}, it attempts to compile the method's BinaryAST into a JVM
+ * class (see {@link JitCompiler}). From then on, the invocations are executed by the compiled code
+ * unless the arguments cannot be unboxed, or the compiled code deoptimizes, in which case the
+ * invocation falls back to the interpreter. A method that cannot be compiled, or deoptimizes too
+ * often, is left to the interpreter for good.
+ * <p>
+ * The state is shared by all services; the counters are intentionally not synchronized, since an
+ * occasional lost update only delays the compilation.
+ */
+public class JitMethod
+    {
+    /**
+     * Construct the JitMethod for the specified method.
+     */
+    public JitMethod(MethodStructure method)
+        {
+        f_method = method;
+        }
+
+    /**
+     * Attempt to execute an invocation of the method using the compiled code.
+     *
+     * @param frame    the caller's frame
+     * @param ahArg    the invocation arguments
+     * @param iReturn  the register to place the result into
+     * @param cDepth   the number of frames that could be added to the caller's frame before the
+     *                 call stack overflows
+     *
+     * @return one of the {@link Op#R_NEXT}, {@link Op#R_CALL}, {@link Op#R_EXCEPTION} values, or
+     *         {@link #R_INTERPRET} if the invocation needs to be executed by the interpreter
+     */
+    public int call(Frame frame, ObjectHandle[] ahArg, int iReturn, int cDepth)
+        {
+        JitCode code = m_code;
+        if (code == null)
+            {
+            if (m_fAbandoned || ++m_cInvocations < THRESHOLD || (code = compile(frame)) == null)
+                {
+                return R_INTERPRET;
+                }
+            }
+
+        if (cDepth <= 0 || frame.f_context.isDebuggerActive())
+            {
+            return R_INTERPRET;
+            }
+
+        Kind[] aKind   = m_aKind;
+        int    cParams = aKind.length - 1;
+        long[] alArg   = new long[cParams];
+        for (int i = 0; i < cParams; i++)
+            {
+            ObjectHandle hArg = ahArg[i];
+            if (hArg instanceof JavaLong hLong && aKind[i] == Kind.LONG)
+                {
+                alArg[i] = hLong.getValue();
+                }
+            else if (hArg instanceof BooleanHandle hBool && aKind[i] == Kind.BOOL)
+                {
+                alArg[i] = hBool.get() ? 1 : 0;
+                }
+            else
+                {
+                // a default argument, a deferred value, or something else unexpected
+                return R_INTERPRET;
+                }
+            }
+
+        long lResult;
+        try
+            {
+            lResult = code.execute(cDepth - 1, alArg);
+            }
+        catch (JitCode.Deoptimization | ArithmeticException e)
+            {
+            if (++m_cDeopts > MAX_DEOPTS)
+                {
+                m_fAbandoned = true;
+                m_code       = null;
+                }
+            return R_INTERPRET;
+            }
+
+        return frame.assignValue(iReturn, aKind[cParams] == Kind.LONG
+                ? xInt64.makeHandle(lResult)
+                : xBoolean.makeHandle(lResult != 0));
+        }
+
+    /**
+     * Compile the method.
+     *
+     * @param frame  the caller's frame (used for reporting)
+     *
+     * @return the compiled code or null if the method cannot be compiled
+     */
+    private synchronized JitCode compile(Frame frame)
+        {
+        JitCode code = m_code;
+        if (code != null || m_fAbandoned)
+            {
+            return code;
+            }
+
+        Kind[] aKind = JitCompiler.computeSignature(f_method);
+        if (aKind != null)
+            {
+            try
+                {
+                code = JitCompiler.compile(f_method, aKind);
+                }
+            catch (IllegalStateException e)
+                {
+                // never let a compiler bug affect the program; the method stays interpreted
+                Utils.log(frame, e.getMessage() + ": " + e.getCause());
+                }
+            }
+
+        if (code == null)
+            {
+            m_fAbandoned = true;
+            }
+        else
+            {
+            m_aKind = aKind;
+            m_code  = code;
+            }
+        return code;
+        }
+
+    @Override
+    public String toString()
+        {
+        return "JitMethod{" + f_method.getIdentityConstant().getPathString()
+                + (m_code != null ? ", compiled" : m_fAbandoned ? ", interpreted" : ", counting")
+                + ", invocations=" + m_cInvocations + ", deopts=" + m_cDeopts + '}';
+        }
+
+
+    // ----- constants -----------------------------------------------------------------------------
+
+    /**
+     * True iff the JIT tier is enabled; it's off unless the "xvm.jit" system property is "true".
+     */
+    public static final boolean ENABLED = Boolean.getBoolean("xvm.jit");
+
+    /**
+     * The number of invocations after which a method is compiled; controlled by the
+     * "xvm.jit.threshold" system property.
+     */
+    public static final int THRESHOLD =
+            Integer.parseInt(System.getProperty("xvm.jit.threshold", "1000"));
+
+    /**
+     * The number of deoptimizations after which the compiled code is discarded.
+     */
+    public static final int MAX_DEOPTS = 16;
+
+    /**
+     * A return value of the {@link #call} method indicating that the invocation has not been
+     * executed and needs to be interpreted.
+     */
+    public static final int R_INTERPRET = Integer.MIN_VALUE;
+
+
+    // ----- fields --------------------------------------------------------------------------------
+
+    /**
+     * The method.
+     */
+    private final MethodStructure f_method;
+
+    /**
+     * The number of invocations so far (until the method is compiled).
+     */
+    private int m_cInvocations;
+
+    /**
+     * The number of deoptimizations so far.
+     */
+    private int m_cDeopts;
+
+    /**
+     * True iff the method is left to the interpreter for good.
+     */
+    private volatile boolean m_fAbandoned;
+
+    /**
+     * The parameter kinds followed by the return kind; set before the {@link #m_code}.
+     */
+    private Kind[] m_aKind;
+
+    /**
+     * The compiled code.
+     */
+    private volatile JitCode m_code;
+    }
@@ -16,6 +16,7 @@ import org.xvm.runtime.template.collections.xArray.Mutability;
 import org.xvm.runtime.template.numbers.xBit;
 
 import org.xvm.runtime.template._native.collections.arrays.ByteBasedDelegate.ByteArrayHandle;
+import org.xvm.runtime.template._native.collections.arrays.xRTMappedDelegate.MappedHandle;
 import org.xvm.runtime.template._native.collections.arrays.xRTSlicingDelegate.SliceHandle;
 
 
@@ -35,6 +36,15 @@ public abstract class ByteBasedBitView
     public DelegateHandle createBitViewDelegate(DelegateHandle hSource, Mutability mutability)
         {
         ClassComposition clzView = getCanonicalClass();
+
+        if (hSource instanceof MappedHandle ||
+            hSource instanceof SliceHandle hSlice && hSlice.f_hSource instanceof MappedHandle)
+            {
+            // the mapped bytes are not held by a Java array; view a copy of the (sliced) content
+            ByteArrayHandle hBytes = xRTMappedDelegate.INSTANCE.copyBytes(hSource);
+            return new ViewHandle(clzView, hBytes, hBytes.getBitCount(), mutability);
+            }
+
         if (hSource instanceof SliceHandle hSlice)
             {
             // bytes.slice().asBitArray() -> bytes.asBitArray().slice()
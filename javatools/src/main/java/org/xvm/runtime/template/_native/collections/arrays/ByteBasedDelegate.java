@@ -324,6 +324,11 @@ public abstract class ByteBasedDelegate
     @Override
     public boolean compareIdentity(ObjectHandle hValue1, ObjectHandle hValue2)
         {
+        if (hValue2 instanceof xRTMappedDelegate.MappedHandle)
+            {
+            return xRTMappedDelegate.INSTANCE.compareIdentity(hValue2, hValue1);
+            }
+
         ByteArrayHandle h1 = (ByteArrayHandle) hValue1;
         ByteArrayHandle h2 = (ByteArrayHandle) hValue2;
 
@@ -405,6 +410,15 @@ public abstract class ByteBasedDelegate
             return super.makeImmutable();
             }
 
+        /**
+         * @return the array holding the bytes (only the first {@link #m_cSize} of which are used);
+         *         the caller must not modify it
+         */
+        public byte[] getByteArray()
+            {
+            return m_abValue;
+            }
+
         /**
          * @return the number of bits represented by this handle
          */
@@ -0,0 +1,272 @@
+package org.xvm.runtime.template._native.collections.arrays;
+
+
+import java.nio.ByteBuffer;
+
+import org.xvm.asm.ClassStructure;
+import org.xvm.asm.ConstantPool;
+import org.xvm.asm.Op;
+
+import org.xvm.asm.constants.TypeConstant;
+
+import org.xvm.runtime.ClassTemplate;
+import org.xvm.runtime.Container;
+import org.xvm.runtime.Frame;
+import org.xvm.runtime.ObjectHandle;
+import org.xvm.runtime.TypeComposition;
+
+import org.xvm.runtime.template.xBoolean;
+import org.xvm.runtime.template.xException;
+
+import org.xvm.runtime.template.collections.xArray.Mutability;
+
+import org.xvm.runtime.template.numbers.xUInt8;
+
+import org.xvm.runtime.template._native.collections.arrays.ByteBasedDelegate.ByteArrayHandle;
+import org.xvm.runtime.template._native.collections.arrays.xRTSlicingDelegate.SliceHandle;
+
+
+/**
+ * The native RTMappedDelegate<Byte> implementation: an immutable array of bytes backed by a
+ * read-only {@link ByteBuffer} (most commonly, a memory-mapped file region).
+ * <p>
+ * The bytes are never copied into the Java heap unless a copy is explicitly asked for (e.g. by
+ * {@link #getBytes} or "reify"); the slices are served by the {@link xRTSlicingDelegate}, and the
+ * elements are read directly from the buffer.
+ */
+public class xRTMappedDelegate
+        extends xRTDelegate
+        implements ByteView
+    {
+    public static xRTMappedDelegate INSTANCE;
+
+    public xRTMappedDelegate(Container container, ClassStructure structure, boolean fInstance)
+        {
+        super(container, structure, false);
+
+        if (fInstance)
+            {
+            INSTANCE = this;
+            }
+        }
+
+    @Override
+    public void initNative()
+        {
+        }
+
+    @Override
+    public TypeConstant getCanonicalType()
+        {
+        ConstantPool pool = pool();
+        return pool.ensureParameterizedTypeConstant(
+                getInceptionClassConstant().getType(),
+                pool.typeByte());
+        }
+
+    @Override
+    public ClassTemplate getTemplate(TypeConstant type)
+        {
+        return this;
+        }
+
+
+    // ----- RTDelegate API ------------------------------------------------------------------------
+
+    @Override
+    protected int getPropertyCapacity(Frame frame, ObjectHandle hTarget, int iReturn)
+        {
+        return getPropertySize(frame, hTarget, iReturn);
+        }
+
+    @Override
+    protected int setPropertyCapacity(Frame frame, ObjectHandle hTarget, long nCapacity)
+        {
+        MappedHandle hMapped = (MappedHandle) hTarget;
+
+        return nCapacity == hMapped.m_cSize
+            ? Op.R_NEXT
+            : frame.raiseException(xException.readOnly(frame, hMapped.getMutability()));
+        }
+
+    @Override
+    public DelegateHandle fill(DelegateHandle hTarget, int cSize, ObjectHandle hValue)
+        {
+        return null;
+        }
+
+    @Override
+    protected DelegateHandle createCopyImpl(DelegateHandle hTarget, Mutability mutability,
+                                            long ofStart, long cSize, boolean fReverse)
+        {
+        if (mutability == Mutability.Constant && ofStart == 0 && cSize == hTarget.m_cSize
+                && !fReverse)
+            {
+            // the content is already immutable
+            return hTarget;
+            }
+
+        byte[] ab = getBytes(hTarget, ofStart, cSize, fReverse);
+        return xRTUInt8Delegate.INSTANCE.makeHandle(ab, cSize, mutability);
+        }
+
+    @Override
+    protected int extractArrayValueImpl(Frame frame, DelegateHandle hTarget, long lIndex, int iReturn)
+        {
+        return frame.assignValue(iReturn,
+                xUInt8.INSTANCE.makeJavaLong(extractByte(hTarget, lIndex)));
+        }
+
+    @Override
+    protected int assignArrayValueImpl(Frame frame, DelegateHandle hTarget, long lIndex,
+                                       ObjectHandle hValue)
+        {
+        return frame.raiseException(xException.readOnly(frame, hTarget.getMutability()));
+        }
+
+    // the insert and delete operations are applied to a mutable copy made by createCopyImpl(),
+    // which is a byte array
+
+    @Override
+    protected void insertElementImpl(DelegateHandle hTarget, ObjectHandle hElement, long lIndex)
+        {
+        xRTUInt8Delegate.INSTANCE.insertElementImpl(hTarget, hElement, lIndex);
+        }
+
+    @Override
+    protected void deleteElementImpl(DelegateHandle hTarget, long lIndex)
+        {
+        xRTUInt8Delegate.INSTANCE.deleteElementImpl(hTarget, lIndex);
+        }
+
+    @Override
+    protected void deleteRangeImpl(DelegateHandle hTarget, long lIndex, long cDelete)
+        {
+        xRTUInt8Delegate.INSTANCE.deleteRangeImpl(hTarget, lIndex, cDelete);
+        }
+
+
+    // ----- ByteView implementation ---------------------------------------------------------------
+
+    @Override
+    public byte[] getBytes(DelegateHandle hDelegate, long ofStart, long cBytes, boolean fReverse)
+        {
+        MappedHandle hMapped = (MappedHandle) hDelegate;
+
+        byte[] ab = new byte[(int) cBytes];
+        hMapped.f_buffer.get((int) ofStart, ab);
+        return fReverse ? ByteBasedDelegate.reverseBytes(ab, (int) cBytes) : ab;
+        }
+
+    @Override
+    public byte extractByte(DelegateHandle hDelegate, long of)
+        {
+        return ((MappedHandle) hDelegate).f_buffer.get((int) of);
+        }
+
+    @Override
+    public void assignByte(DelegateHandle hDelegate, long of, byte bValue)
+        {
+        throw new UnsupportedOperationException("read-only");
+        }
+
+
+    /**
+     * Copy the bytes of the specified mapped delegate or of a slice of it into a Java array.
+     *
+     * @param hDelegate  a {@link MappedHandle} or a {@link SliceHandle} of one
+     *
+     * @return a new immutable byte array delegate
+     */
+    public ByteArrayHandle copyBytes(DelegateHandle hDelegate)
+        {
+        long    ofStart  = 0;
+        boolean fReverse = false;
+        long    cSize    = hDelegate.m_cSize;
+
+        if (hDelegate instanceof SliceHandle hSlice)
+            {
+            hDelegate = hSlice.f_hSource;
+            ofStart   = hSlice.f_ofStart;
+            fReverse  = hSlice.f_fReverse;
+            }
+
+        byte[] ab = getBytes(hDelegate, ofStart, cSize, fReverse);
+        return xRTUInt8Delegate.INSTANCE.makeHandle(ab, cSize, Mutability.Constant);
+        }
+
+
+    // ----- ClassTemplate API ---------------------------------------------------------------------
+
+    @Override
+    public int callEquals(Frame frame, TypeComposition clazz,
+                          ObjectHandle hValue1, ObjectHandle hValue2, int iReturn)
+        {
+        return frame.assignValue(iReturn,
+                xBoolean.makeHandle(equalBytes((DelegateHandle) hValue1, (DelegateHandle) hValue2)));
+        }
+
+    @Override
+    public boolean compareIdentity(ObjectHandle hValue1, ObjectHandle hValue2)
+        {
+        return hValue1 == hValue2 || equalBytes((DelegateHandle) hValue1, (DelegateHandle) hValue2);
+        }
+
+    /**
+     * @return true iff the specified delegates hold the same bytes; the second one could be any
+     *         {@link ByteView} based delegate
+     */
+    private boolean equalBytes(DelegateHandle h1, DelegateHandle h2)
+        {
+        long cSize = h1.m_cSize;
+        if (h2.m_cSize != cSize || !(h2.getTemplate() instanceof ByteView view2))
+            {
+            return false;
+            }
+
+        for (long i = 0; i < cSize; i++)
+            {
+            if (extractByte(h1, i) != view2.extractByte(h2, i))
+                {
+                return false;
+                }
+            }
+        return true;
+        }
+
+
+    // ----- handle --------------------------------------------------------------------------------
+
+    /**
+     * Make an immutable delegate handle for the specified buffer.
+     *
+     * @param buffer  the read-only buffer holding all the bytes (from 0 to its limit)
+     */
+    public MappedHandle makeHandle(ByteBuffer buffer)
+        {
+        return new MappedHandle(getCanonicalClass(), buffer);
+        }
+
+    /**
+     * Mapped array delegate.
+     */
+    public static class MappedHandle
+            extends DelegateHandle
+        {
+        protected final ByteBuffer f_buffer;
+
+        protected MappedHandle(TypeComposition clazz, ByteBuffer buffer)
+            {
+            super(clazz, Mutability.Constant);
+
+            f_buffer = buffer;
+            m_cSize  = buffer.limit();
+            }
+
+        @Override
+        public boolean isNativeEqual()
+            {
+            return false;
+            }
+        }
+    }
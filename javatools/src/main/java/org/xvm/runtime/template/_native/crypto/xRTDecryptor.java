@@ -18,9 +18,7 @@ import org.xvm.runtime.template.xService;
 import org.xvm.runtime.template.collections.xArray;
 import org.xvm.runtime.template.collections.xArray.ArrayHandle;
 import org.xvm.runtime.template.collections.xArray.Mutability;
-
-import org.xvm.runtime.template._native.collections.arrays.ByteBasedDelegate.ByteArrayHandle;
-import org.xvm.runtime.template._native.collections.arrays.xRTUInt8Delegate;
+import org.xvm.runtime.template.collections.xByteArray;
 
 import org.xvm.runtime.template._native.crypto.xRTAlgorithms.CipherHandle;
 import org.xvm.runtime.template._native.crypto.xRTAlgorithms.KeyForm;
@@ -61,11 +59,11 @@ public class xRTDecryptor
             {
             case "encrypt":
                 return invokeEncrypt(frame, (CipherHandle) ahArg[0], ahArg[1],
-                    (ByteArrayHandle) ((ArrayHandle) ahArg[2]).m_hDelegate, iReturn);
+                    (ArrayHandle) ahArg[2], iReturn);
 
             case "decrypt":
                 return invokeDecrypt(frame, (CipherHandle) ahArg[0], ahArg[1],
-                    (ByteArrayHandle) ((ArrayHandle) ahArg[2]).m_hDelegate, iReturn);
+                    (ArrayHandle) ahArg[2], iReturn);
             }
 
         return super.invokeNativeN(frame, method, hTarget, ahArg, iReturn);
@@ -76,10 +74,10 @@ public class xRTDecryptor
      *     "Byte[] encrypt(Object cipher, Object secret, Byte[] data)"
      */
     private int invokeEncrypt(Frame frame, CipherHandle hCipher, ObjectHandle hKey,
-                              ByteArrayHandle haData, int iReturn)
+                              ArrayHandle haData, int iReturn)
         {
         Cipher cipher = hCipher.f_cipher;
-        byte[] abData = xRTUInt8Delegate.getBytes(haData);
+        byte[] abData = xByteArray.getBytes(haData);
 
         try
             {
@@ -102,9 +100,9 @@ public class xRTDecryptor
      *     "Byte[] decrypt(Object cipher, Object secret, Byte[] bytes)"
      */
     private int invokeDecrypt(Frame frame, CipherHandle hCipher, ObjectHandle hKey,
-                              ByteArrayHandle haData, int iReturn)
+                              ArrayHandle haData, int iReturn)
         {
-        byte[] abData  = xRTUInt8Delegate.getBytes(haData);
+        byte[] abData  = xByteArray.getBytes(haData);
         Cipher cipher = hCipher.f_cipher;
 
         try
@@ -15,9 +15,7 @@ import org.xvm.runtime.template.xService;
 import org.xvm.runtime.template.collections.xArray;
 import org.xvm.runtime.template.collections.xArray.ArrayHandle;
 import org.xvm.runtime.template.collections.xArray.Mutability;
-
-import org.xvm.runtime.template._native.collections.arrays.ByteBasedDelegate.ByteArrayHandle;
-import org.xvm.runtime.template._native.collections.arrays.xRTUInt8Delegate;
+import org.xvm.runtime.template.collections.xByteArray;
 
 import org.xvm.runtime.template._native.crypto.xRTAlgorithms.DigestHandle;
 
@@ -56,7 +54,7 @@ public class xRTHasher
             {
             case "digest":
                 return invokeDigest(frame, (DigestHandle) ahArg[0],
-                    (ByteArrayHandle) ((ArrayHandle) ahArg[1]).m_hDelegate, iReturn);
+                    (ArrayHandle) ahArg[1], iReturn);
             }
 
         return super.invokeNativeN(frame, method, hTarget, ahArg, iReturn);
@@ -65,11 +63,11 @@ public class xRTHasher
     /**
      * Native implementation of "Byte[] digest(Object digest, Byte[] data)".
      */
-    private int invokeDigest(Frame frame, DigestHandle hDigest, ByteArrayHandle haData, int iReturn)
+    private int invokeDigest(Frame frame, DigestHandle hDigest, ArrayHandle haData, int iReturn)
         {
         MessageDigest digest = hDigest.f_digest;
 
-        byte[] abData = xRTUInt8Delegate.getBytes(haData);
+        byte[] abData = xByteArray.getBytes(haData);
         byte[] abSig = digest.digest(abData);
 
         return frame.assignValue(iReturn,
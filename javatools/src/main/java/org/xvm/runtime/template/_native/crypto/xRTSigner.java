@@ -19,9 +19,7 @@ import org.xvm.runtime.template.xService;
 import org.xvm.runtime.template.collections.xArray;
 import org.xvm.runtime.template.collections.xArray.ArrayHandle;
 import org.xvm.runtime.template.collections.xArray.Mutability;
-
-import org.xvm.runtime.template._native.collections.arrays.ByteBasedDelegate.ByteArrayHandle;
-import org.xvm.runtime.template._native.collections.arrays.xRTUInt8Delegate;
+import org.xvm.runtime.template.collections.xByteArray;
 
 import org.xvm.runtime.template._native.crypto.xRTAlgorithms.KeyForm;
 import org.xvm.runtime.template._native.crypto.xRTAlgorithms.SignatureHandle;
@@ -62,12 +60,11 @@ public class xRTSigner
             {
             case "sign":
                 return invokeSign(frame, (SignatureHandle) ahArg[0], ahArg[1],
-                    (ByteArrayHandle) ((ArrayHandle) ahArg[2]).m_hDelegate, iReturn);
+                    (ArrayHandle) ahArg[2], iReturn);
 
             case "verify":
                 return invokeVerify(frame, (SignatureHandle) ahArg[0], ahArg[1],
-                    (ByteArrayHandle) ((ArrayHandle) ahArg[2]).m_hDelegate,
-                    (ByteArrayHandle) ((ArrayHandle) ahArg[3]).m_hDelegate, iReturn);
+                    (ArrayHandle) ahArg[2], (ArrayHandle) ahArg[3], iReturn);
             }
 
         return super.invokeNativeN(frame, method, hTarget, ahArg, iReturn);
@@ -78,10 +75,10 @@ public class xRTSigner
      *     "Byte[] sign(Object cipher, Object secret, Byte[] data)".
      */
     private int invokeSign(Frame frame, SignatureHandle hSignature, ObjectHandle hKey,
-                           ByteArrayHandle haData, int iReturn)
+                           ArrayHandle haData, int iReturn)
         {
         Signature signature = hSignature.f_signature;
-        byte[]    abData     = xRTUInt8Delegate.getBytes(haData);
+        byte[]    abData     = xByteArray.getBytes(haData);
 
         try
             {
@@ -105,12 +102,12 @@ public class xRTSigner
      *     "Boolean verify(Object signer, Object secret, Byte[] signature, Byte[] data)".
      */
     private int invokeVerify(Frame frame, SignatureHandle hSignature, ObjectHandle hKey,
-                           ByteArrayHandle haSignature, ByteArrayHandle haData, int iReturn)
+                           ArrayHandle haSignature, ArrayHandle haData, int iReturn)
         {
         Signature signature = hSignature.f_signature;
 
-        byte[] abSig  = xRTUInt8Delegate.getBytes(haSignature);
-        byte[] abData = xRTUInt8Delegate.getBytes(haData);
+        byte[] abSig  = xByteArray.getBytes(haSignature);
+        byte[] abData = xByteArray.getBytes(haData);
 
         try
             {
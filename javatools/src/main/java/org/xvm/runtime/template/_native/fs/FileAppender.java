@@ -0,0 +1,369 @@
+package org.xvm.runtime.template._native.fs;
+
+
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+
+import java.nio.channels.FileChannel;
+
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import java.util.Map;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.xvm.util.concurrent.TimingWheel;
+
+
+/**
+ * The appends and truncates of the OS files. Rather than opening and closing a file for each
+ * operation, the {@link FileChannel} used to modify a file is kept open until the file has not been
+ * modified for {@link #IDLE_MILLIS}, which makes the typical "database log" pattern (a file that
+ * gets appended to, or truncated and then appended to, on every commit) much cheaper.
+ * <p>
+ * If the {@link #PROP_SYNC} system property is set to "true", every operation is forced to the
+ * storage device before it completes. The operations that are performed concurrently on the same
+ * file share a single {@link FileChannel#force} call ("group sync"): while a force is in progress,
+ * the subsequent writes proceed, and the next force covers all of them.
+ * <p>
+ * All the operations are blocking, and are expected to be called on the IO threads (see
+ * {@link org.xvm.runtime.Container#scheduleIO}).
+ */
+public class FileAppender
+    {
+    /**
+     * Construct the appender for the specified file.
+     */
+    private FileAppender(Path path)
+        {
+        f_path = path;
+        }
+
+
+    // ----- public API ----------------------------------------------------------------------------
+
+    /**
+     * Truncate the specified file and then append the specified bytes to it.
+     *
+     * @param path      the file path
+     * @param cNewSize  the size to truncate the file to, or -1 to leave the size as is
+     * @param ab        the bytes to append (could be empty)
+     *
+     * @return the size of the file before the operation; if the specified new size is greater than
+     *         that, the file is left unmodified
+     */
+    public static long write(Path path, long cNewSize, byte[] ab)
+            throws IOException
+        {
+        path = path.toAbsolutePath().normalize();
+
+        while (true)
+            {
+            FileAppender appender = ensureAppender(path);
+            if (appender == null)
+                {
+                // too many files are being modified; don't keep this one open
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE))
+                    {
+                    long cOld = write(channel, cNewSize, ab);
+                    if (SYNC)
+                        {
+                        channel.force(false);
+                        }
+                    return cOld;
+                    }
+                }
+
+            long cOld;
+            long nSeq;
+            synchronized (appender)
+                {
+                if (appender.m_fClosed)
+                    {
+                    // the appender has just been evicted; use a new one
+                    continue;
+                    }
+
+                cOld = write(appender.ensureChannel(), cNewSize, ab);
+                nSeq = ++appender.m_nWritten;
+
+                appender.m_ldtLastUse = System.currentTimeMillis();
+                }
+
+            if (SYNC)
+                {
+                appender.sync(nSeq);
+                }
+            return cOld;
+            }
+        }
+
+    /**
+     * Close the channel (if any) held for the specified file, or for any file under the specified
+     * directory. This must be done before a file is deleted or moved, so that the subsequent
+     * operations don't modify a file that is no longer there.
+     *
+     * @param path  the path of a file or a directory
+     */
+    public static void release(Path path)
+        {
+        if (s_mapAppenders.isEmpty())
+            {
+            return;
+            }
+
+        path = path.toAbsolutePath().normalize();
+        for (FileAppender appender : s_mapAppenders.values())
+            {
+            if (appender.f_path.startsWith(path))
+                {
+                appender.close();
+                }
+            }
+        }
+
+
+    // ----- internal ------------------------------------------------------------------------------
+
+    /**
+     * Obtain the appender for the specified file, creating it if necessary.
+     *
+     * @return the appender or null if too many files are currently held open
+     */
+    private static FileAppender ensureAppender(Path path)
+        {
+        FileAppender appender = s_mapAppenders.get(path);
+        if (appender == null)
+            {
+            if (s_mapAppenders.size() >= MAX_APPENDERS)
+                {
+                return null;
+                }
+
+            appender = s_mapAppenders.computeIfAbsent(path, FileAppender::new);
+            }
+        return appender;
+        }
+
+    /**
+     * Truncate and append using the specified channel.
+     *
+     * @return the size of the file before the operation
+     */
+    private static long write(FileChannel channel, long cNewSize, byte[] ab)
+            throws IOException
+        {
+        long cOld = channel.size();
+        if (cNewSize > cOld)
+            {
+            return cOld;
+            }
+
+        long cEnd = cOld;
+        if (cNewSize >= 0 && cNewSize < cOld)
+            {
+            channel.truncate(cNewSize);
+            cEnd = cNewSize;
+            }
+
+        ByteBuffer buf = ByteBuffer.wrap(ab);
+        while (buf.hasRemaining())
+            {
+            cEnd += channel.write(buf, cEnd);
+            }
+        return cOld;
+        }
+
+    /**
+     * @return the open channel; must be called while holding this appender's monitor
+     */
+    private FileChannel ensureChannel()
+            throws IOException
+        {
+        FileChannel channel = m_channel;
+        if (channel == null)
+            {
+            m_channel = channel = FileChannel.open(f_path, StandardOpenOption.WRITE);
+            scheduleEviction(IDLE_MILLIS);
+            }
+        return channel;
+        }
+
+    /**
+     * Ensure that the write with the specified sequence number has been forced to the storage
+     * device. If another thread is already forcing, wait for it; its force may already cover the
+     * write, and if it doesn't, the next force covers all the writes made in the meantime.
+     *
+     * @param nSeq  the sequence number of the write
+     */
+    private void sync(long nSeq)
+            throws IOException
+        {
+        synchronized (f_oSync)
+            {
+            if (m_nSynced >= nSeq)
+                {
+                return;
+                }
+
+            FileChannel channel;
+            long        nWritten;
+            synchronized (this)
+                {
+                channel  = m_channel;
+                nWritten = m_nWritten;
+                }
+
+            // a closed appender has already been synced (see close)
+            if (channel != null)
+                {
+                channel.force(false);
+                }
+            m_nSynced = nWritten;
+            }
+        }
+
+    /**
+     * Schedule a check for the appender having been idle.
+     */
+    private void scheduleEviction(long cDelay)
+        {
+        // the timer tasks must not block, and the close() could
+        TIMER.schedule(() -> ForkJoinPool.commonPool().execute(this::evictIfIdle),
+                cDelay, TimeUnit.MILLISECONDS);
+        }
+
+    /**
+     * Close the channel if it has not been used for {@link #IDLE_MILLIS}.
+     */
+    private void evictIfIdle()
+        {
+        long cIdle;
+        synchronized (this)
+            {
+            if (m_fClosed)
+                {
+                return;
+                }
+            cIdle = System.currentTimeMillis() - m_ldtLastUse;
+            }
+
+        if (cIdle < IDLE_MILLIS)
+            {
+            scheduleEviction(IDLE_MILLIS - cIdle);
+            }
+        else
+            {
+            close();
+            }
+        }
+
+    /**
+     * Close the channel and remove this appender from the cache. In the sync mode, make sure that
+     * all the writes have been forced before closing.
+     */
+    private void close()
+        {
+        synchronized (f_oSync)
+            {
+            synchronized (this)
+                {
+                if (m_fClosed)
+                    {
+                    return;
+                    }
+                m_fClosed = true;
+                s_mapAppenders.remove(f_path, this);
+
+                FileChannel channel = m_channel;
+                if (channel != null)
+                    {
+                    m_channel = null;
+                    try
+                        {
+                        if (SYNC && m_nSynced < m_nWritten)
+                            {
+                            channel.force(false);
+                            }
+                        channel.close();
+                        }
+                    catch (IOException ignore) {}
+                    }
+                m_nSynced = m_nWritten;
+                }
+            }
+        }
+
+
+    // ----- fields and constants ------------------------------------------------------------------
+
+    /**
+     * The name of the system property that turns on the sync mode.
+     */
+    public static final String PROP_SYNC = "xvm.syncAppends";
+
+    /**
+     * True iff every operation is forced to the storage device before it completes.
+     */
+    public static final boolean SYNC = Boolean.getBoolean(PROP_SYNC);
+
+    /**
+     * The time (in milliseconds) a file has to stay unmodified for its channel to get closed.
+     */
+    public static final long IDLE_MILLIS = 5000;
+
+    /**
+     * The maximum number of files held open.
+     */
+    private static final int MAX_APPENDERS = 256;
+
+    /**
+     * The appenders by their (absolute and normalized) paths.
+     */
+    private static final Map<Path, FileAppender> s_mapAppenders = new ConcurrentHashMap<>();
+
+    /**
+     * The timer for the eviction checks.
+     */
+    private static final TimingWheel TIMER =
+            new TimingWheel("ecstasy:FileAppender", TimeUnit.MILLISECONDS.toNanos(100));
+
+    /**
+     * The file path.
+     */
+    private final Path f_path;
+
+    /**
+     * The monitor held while forcing the channel.
+     */
+    private final Object f_oSync = new Object();
+
+    /**
+     * The open channel or null. Guarded by this appender's monitor.
+     */
+    private FileChannel m_channel;
+
+    /**
+     * True iff the appender has been evicted from the cache. Guarded by this appender's monitor.
+     */
+    private boolean m_fClosed;
+
+    /**
+     * The time of the last operation. Guarded by this appender's monitor.
+     */
+    private long m_ldtLastUse;
+
+    /**
+     * The number of writes performed. Guarded by this appender's monitor.
+     */
+    private long m_nWritten;
+
+    /**
+     * The number of writes known to be forced. Guarded by the {@link #f_oSync} monitor.
+     */
+    private long m_nSynced;
+    }
@@ -99,6 +99,7 @@ public class xOSDirectory
                     return frame.assignValue(iReturn, xBoolean.FALSE);
                     }
 
+                FileAppender.release(pathDir);
                 try
                     {
                     Files.walkFileTree(pathDir,
@@ -3,11 +3,11 @@ package org.xvm.runtime.template._native.fs;
 
 import com.sun.nio.file.ExtendedOpenOption;
 
-import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 
 import java.nio.channels.FileChannel;
 
@@ -73,7 +73,9 @@ public class xOSFile
         markNativeMethod("readImpl", null, BYTES);
         markNativeMethod("appendImpl", null, VOID);
         markNativeMethod("truncateImpl", null, VOID);
+        markNativeMethod("truncateAndAppendImpl", null, VOID);
         markNativeMethod("open", null, null);
+        markNativeMethod("mapContents", VOID, BYTES);
 
         invalidateTypeInfo();
 
@@ -169,6 +171,18 @@ public class xOSFile
                 {
                 return invokeOpen(frame, hFile, ahArg, iReturn);
                 }
+
+            case "mapContents":
+                return invokeMapContents(frame, hFile, iReturn);
+
+            case "truncateAndAppendImpl":
+                {
+                long cNew = ((JavaLong) ahArg[0]).getValue();
+                return cNew < 0
+                        ? frame.raiseException(xException.outOfBounds(frame, cNew, 0))
+                        : invokeTruncateAndAppend(frame, hFile, cNew,
+                                xByteArray.getBytes((ArrayHandle) ahArg[1]));
+                }
             }
 
         return super.invokeNativeN(frame, method, hTarget, ahArg, iReturn);
@@ -226,6 +240,47 @@ public class xOSFile
         return frame.waitForIO(cfRead, continuation);
         }
 
+    /**
+     * Implementation of "immutable Byte[] mapContents()".
+     * <p>
+     * Note: a MappedByteBuffer cannot guard against the file being truncated by another process;
+     * an access past the new end of the file kills the JVM with a SIGBUS (see File.mapContents).
+     */
+    private int invokeMapContents(Frame frame, NodeHandle hFile, int iReturn)
+        {
+        Path path = hFile.f_path;
+
+        Callable<MappedByteBuffer> task = () ->
+            {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+                {
+                long cSize = channel.size();
+                if (cSize > Integer.MAX_VALUE)
+                    {
+                    throw new IOException("File is too large to be mapped: " + cSize);
+                    }
+                // the mapping stays valid after the channel is closed
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, cSize);
+                }
+            };
+
+        CompletableFuture<MappedByteBuffer> cfMap = frame.f_context.f_container.scheduleIO(task);
+        Frame.Continuation continuation = frameCaller ->
+            {
+            try
+                {
+                return frameCaller.assignValue(iReturn,
+                    xArray.makeMappedByteArrayHandle(cfMap.get()));
+                }
+            catch (Throwable e)
+                {
+                return raisePathException(frameCaller, e, path);
+                }
+            };
+
+        return frame.waitForIO(cfMap, continuation);
+        }
+
     /**
      * Implementation of "void contents.set(Byte[] value)".
      */
@@ -316,46 +371,10 @@ public class xOSFile
      */
     private int invokeTruncateImpl(Frame frame, NodeHandle hFile, JavaLong hNewSize)
         {
-        Path path = hFile.f_path;
-        File file = path.toFile();
-        long cOld = file.length();
         long cNew = hNewSize.getValue();
-
-        if (cNew > cOld || cNew < 0)
-            {
-            return frame.raiseException(xException.outOfBounds(frame, cNew, cOld));
-            }
-
-        Callable<Void> task = () ->
-            {
-            try (FileChannel channel = cNew == 0
-                    ? FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)
-                    : FileChannel.open(path, StandardOpenOption.WRITE))
-                {
-                if (cNew > 0)
-                    {
-                    channel.truncate(cNew);
-                    }
-                return null;
-                }
-            };
-
-        CompletableFuture cfTruncate = frame.f_context.f_container.scheduleIO(task);
-
-        Frame.Continuation continuation = frameCaller ->
-            {
-            try
-                {
-                cfTruncate.get();
-                return Op.R_NEXT;
-                }
-            catch (Throwable e)
-                {
-                return raisePathException(frameCaller, e, path);
-                }
-            };
-
-        return frame.waitForIO(cfTruncate, continuation);
+        return cNew < 0
+                ? frame.raiseException(xException.outOfBounds(frame, cNew, 0))
+                : invokeTruncateAndAppend(frame, hFile, cNew, Handy.EMPTY_BYTE_ARRAY);
         }
 
     /**
@@ -363,26 +382,28 @@ public class xOSFile
      */
     private int invokeAppendImpl(Frame frame, NodeHandle hFile, ArrayHandle hContents)
         {
-        Path   path = hFile.f_path;
-        byte[] ab   = xByteArray.getBytes(hContents);
+        return invokeTruncateAndAppend(frame, hFile, -1, xByteArray.getBytes(hContents));
+        }
 
-        Callable<Void> task = () ->
-            {
-            try (FileOutputStream out = new FileOutputStream(path.toFile(), /*append*/ true))
-                {
-                out.write(ab);
-                return null;
-                }
-            };
+    /**
+     * Implementation for: "void truncateAndAppendImpl(Int newSize, Byte[] contents)", which also
+     * serves the truncate (an empty append) and the append (a new size of -1).
+     */
+    private int invokeTruncateAndAppend(Frame frame, NodeHandle hFile, long cNew, byte[] ab)
+        {
+        Path path = hFile.f_path;
 
-        CompletableFuture cfAppend = frame.f_context.f_container.scheduleIO(task);
+        CompletableFuture<Long> cfWrite = frame.f_context.f_container.scheduleIO(
+                () -> FileAppender.write(path, cNew, ab));
 
         Frame.Continuation continuation = frameCaller ->
             {
             try
                 {
-                cfAppend.get();
-                return Op.R_NEXT;
+                long cOld = cfWrite.get();
+                return cNew > cOld
+                        ? frameCaller.raiseException(xException.outOfBounds(frameCaller, cNew, cOld))
+                        : Op.R_NEXT;
                 }
             catch (Throwable e)
                 {
@@ -390,7 +411,7 @@ public class xOSFile
                 }
             };
 
-        return frame.waitForIO(cfAppend, continuation);
+        return frame.waitForIO(cfWrite, continuation);
         }
 
     /**
@@ -502,7 +523,7 @@ public class xOSFile
                             listOpt.add(StandardOpenOption.APPEND);
                             break;
                         case Exclusive:
-                            aOpenOpt[i] = ExtendedOpenOption.NOSHARE_WRITE;
+                            listOpt.add(ExtendedOpenOption.NOSHARE_WRITE);
                             break;
                         case SyncData:
                             listOpt.add(StandardOpenOption.DSYNC);
@@ -519,8 +540,10 @@ public class xOSFile
         Path path = hFile.f_path;
         try
             {
-            FileChannel channel = FileChannel.open(path, aOpenOpt);
-            return xOSFileChannel.INSTANCE.createHandle(frame, channel, path, iReturn);
+            FileChannel channel   = FileChannel.open(path, aOpenOpt);
+            boolean     fWritable = List.of(aOpenOpt).contains(StandardOpenOption.WRITE);
+            return xOSFileChannel.INSTANCE.createHandle(frame, channel, path,
+                    optRead != ReadOption.NoRead, fWritable, iReturn);
             }
         catch (IOException e)
             {
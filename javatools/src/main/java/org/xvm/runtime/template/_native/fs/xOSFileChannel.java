@@ -3,12 +3,18 @@ package org.xvm.runtime.template._native.fs;
 
 import java.io.IOException;
 
+import java.nio.ByteBuffer;
+
 import java.nio.channels.FileChannel;
-import java.nio.channels.ReadableByteChannel;
-import java.nio.channels.WritableByteChannel;
 
 import java.nio.file.Path;
 
+import java.util.Queue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
 import org.xvm.asm.ClassStructure;
 import org.xvm.asm.MethodStructure;
 import org.xvm.asm.Op;
@@ -17,17 +23,33 @@ import org.xvm.runtime.ClassTemplate;
 import org.xvm.runtime.Container;
 import org.xvm.runtime.Frame;
 import org.xvm.runtime.ObjectHandle;
+import org.xvm.runtime.ObjectHandle.JavaLong;
 import org.xvm.runtime.ServiceContext;
 import org.xvm.runtime.TypeComposition;
 
 import org.xvm.runtime.template.xBoolean;
+import org.xvm.runtime.template.xException;
 import org.xvm.runtime.template.xService;
 
+import org.xvm.runtime.template.collections.xArray.ArrayHandle;
+import org.xvm.runtime.template.collections.xByteArray;
+
 import org.xvm.runtime.template.numbers.xInt64;
 
+import org.xvm.runtime.template._native.collections.arrays.ByteBasedDelegate.ByteArrayHandle;
+import org.xvm.runtime.template._native.collections.arrays.xRTDelegate.DelegateHandle;
+import org.xvm.runtime.template._native.collections.arrays.xRTDelegate.GenericArrayDelegate;
+import org.xvm.runtime.template._native.collections.arrays.xRTSlicingDelegate.SliceHandle;
+
 
 /**
  * Native OSFileChannel implementation.
+ *
+ * All the operations on a channel are executed on the I/O threads (see
+ * {@link Container#scheduleIO}), one at a time and in the order they were requested. The bytes to
+ * write are copied straight from the arrays into a bounded number of pooled direct buffers, which
+ * are written out using gathering {@link FileChannel#write(ByteBuffer[], int, int)} calls and then
+ * refilled, thus avoiding the JDK's own copying of heap buffers into temporary direct ones.
  */
 public class xOSFileChannel
         extends xService
@@ -47,17 +69,14 @@ public class xOSFileChannel
     @Override
     public void initNative()
         {
-// TODO GG/MF
-//        markNativeProperty("size");
-//        markNativeProperty("position");
-//        markNativeProperty("readable");
-//        markNativeProperty("writable");
-//        markNativeMethod("flush", VOID, VOID);
-//        markNativeMethod("read", null, new String[] {"Boolean", "numbers.Int64"});
-//        markNativeMethod("read", null, new String[] {"Boolean", "numbers.Int64", "numbers.Int64"});
-//        markNativeMethod("write", null, INT);
-//        markNativeMethod("write", null, new String[] {"numbers.Int64", "numbers.Int64"});
-//        markNativeMethod("close", null, VOID);
+        markNativeProperty("size");
+        markNativeProperty("position");
+        markNativeProperty("readable");
+        markNativeProperty("writable");
+
+        markNativeMethod("flush",     VOID, VOID);
+        markNativeMethod("writeImpl", null, INT);
+        markNativeMethod("closeImpl", VOID, VOID);
 
         invalidateTypeInfo();
 
@@ -68,100 +87,282 @@ public class xOSFileChannel
     public int invokeNativeGet(Frame frame, String sPropName, ObjectHandle hTarget, int iReturn)
         {
         ChannelHandle hChannel = (ChannelHandle) hTarget;
+        FileChannel   channel  = hChannel.f_channel;
 
         switch (sPropName)
             {
             case "size":
-                {
-                try
-                    {
-                    return frame.assignValue(iReturn, xInt64.makeHandle(hChannel.f_channel.size()));
-                    }
-                catch (IOException e)
-                    {
-                    return xOSFileNode.raisePathException(frame, e, hChannel.f_path);
-                    }
-                }
+                return schedule(frame, hChannel, channel::size, iReturn);
 
             case "position":
-                {
-                try
-                    {
-                    return frame.assignValue(iReturn, xInt64.makeHandle(hChannel.f_channel.position()));
-                    }
-                catch (IOException e)
-                    {
-                    return xOSFileNode.raisePathException(frame, e, hChannel.f_path);
-                    }
-                }
+                return schedule(frame, hChannel, channel::position, iReturn);
 
             case "readable":
-                {
                 return frame.assignValue(iReturn,
-                    xBoolean.makeHandle(hChannel instanceof ReadableByteChannel));
-                }
+                    xBoolean.makeHandle(hChannel.f_fReadable && channel.isOpen()));
 
             case "writable":
-                {
                 return frame.assignValue(iReturn,
-                    xBoolean.makeHandle(hChannel instanceof WritableByteChannel));
-                }
+                    xBoolean.makeHandle(hChannel.f_fWritable && channel.isOpen()));
             }
 
         return super.invokeNativeGet(frame, sPropName, hTarget, iReturn);
         }
 
     @Override
-    public int invokeNativeN(Frame frame, MethodStructure method, ObjectHandle hTarget,
-                             ObjectHandle[] ahArg, int iReturn)
+    public int invokeNativeSet(Frame frame, ObjectHandle hTarget, String sPropName,
+                               ObjectHandle hValue)
+        {
+        ChannelHandle hChannel = (ChannelHandle) hTarget;
+        FileChannel   channel  = hChannel.f_channel;
+        long          lValue   = ((JavaLong) hValue).getValue();
+
+        if (lValue < 0)
+            {
+            return frame.raiseException(xException.outOfBounds(frame, lValue, 0));
+            }
+
+        switch (sPropName)
+            {
+            case "size":
+                return schedule(frame, hChannel, () ->
+                    {
+                    long lSize = channel.size();
+                    if (lValue < lSize)
+                        {
+                        channel.truncate(lValue);
+                        }
+                    else if (lValue > lSize)
+                        {
+                        // grow the file by writing its last byte; this doesn't move the position
+                        channel.write(ByteBuffer.allocate(1), lValue - 1);
+                        }
+                    return null;
+                    }, Op.A_IGNORE);
+
+            case "position":
+                return schedule(frame, hChannel, () -> channel.position(lValue), Op.A_IGNORE);
+            }
+
+        return super.invokeNativeSet(frame, hTarget, sPropName, hValue);
+        }
+
+    @Override
+    public int invokeNative1(Frame frame, MethodStructure method, ObjectHandle hTarget,
+                             ObjectHandle hArg, int iReturn)
         {
         ChannelHandle hChannel = (ChannelHandle) hTarget;
 
         switch (method.getName())
             {
-            case "write":
-                {
-                return invokeWrite1(frame, hChannel, ahArg, iReturn);
-                }
+            case "writeImpl":
+                return invokeWriteImpl(frame, hChannel, (ArrayHandle) hArg, iReturn);
             }
 
-        return super.invokeNativeN(frame, method, hTarget, ahArg, iReturn);
+        return super.invokeNative1(frame, method, hTarget, hArg, iReturn);
         }
 
     @Override
-    public int invokeNativeNN(Frame frame, MethodStructure method, ObjectHandle hTarget,
-                             ObjectHandle[] ahArg, int[] aiReturn)
+    public int invokeNativeN(Frame frame, MethodStructure method, ObjectHandle hTarget,
+                             ObjectHandle[] ahArg, int iReturn)
         {
         ChannelHandle hChannel = (ChannelHandle) hTarget;
+        FileChannel   channel  = hChannel.f_channel;
 
         switch (method.getName())
             {
-            case "write":
+            case "flush":
+                // the file size is part of what "force(false)" (fdatasync) persists; the remaining
+                // meta-data (e.g. the modification time) is not required to make the data durable
+                return schedule(frame, hChannel, () ->
+                    {
+                    channel.force(false);
+                    return null;
+                    }, Op.A_IGNORE);
+
+            case "closeImpl":
+                return schedule(frame, hChannel, () ->
+                    {
+                    channel.close();
+                    return null;
+                    }, Op.A_IGNORE);
+            }
+
+        return super.invokeNativeN(frame, method, hTarget, ahArg, iReturn);
+        }
+
+
+    // ----- method implementations ----------------------------------------------------------------
+
+    /**
+     * Implementation for: {@code Int writeImpl(Byte[][] chunks)}.
+     */
+    protected int invokeWriteImpl(Frame frame, ChannelHandle hChannel, ArrayHandle hChunks,
+                                  int iReturn)
+        {
+        GenericArrayDelegate haChunks = (GenericArrayDelegate) hChunks.m_hDelegate;
+
+        // the chunks are either immutable or have just been created by the calling (and now
+        // waiting) frame, so the I/O thread can read them straight from their delegates; only the
+        // delegates that don't hold a byte[] have to be copied here
+        int      cChunks = (int) haChunks.m_cSize;
+        byte[][] aab     = new byte[cChunks][];
+        int[]    aof     = new int[cChunks];
+        int[]    acb     = new int[cChunks];
+        long     cbTotal = 0;
+        for (int i = 0; i < cChunks; i++)
+            {
+            ArrayHandle    hArray    = (ArrayHandle) haChunks.get(i);
+            DelegateHandle hDelegate = hArray.m_hDelegate;
+            long           cb        = hDelegate.m_cSize;
+            long           of        = 0;
+            if (hDelegate instanceof SliceHandle hSlice && !hSlice.f_fReverse)
+                {
+                hDelegate = hSlice.f_hSource;
+                of        = hSlice.f_ofStart;
+                }
+
+            if (hDelegate instanceof ByteArrayHandle hBytes)
+                {
+                aab[i] = hBytes.getByteArray();
+                aof[i] = (int) of;
+                }
+            else
                 {
-                return invokeWriteN(frame, hChannel, ahArg, aiReturn);
+                aab[i] = xByteArray.getBytes(hArray);
                 }
+            acb[i]   = (int) cb;
+            cbTotal += cb;
             }
 
-        return super.invokeNativeNN(frame, method, hTarget, ahArg, aiReturn);
+        if (cbTotal == 0)
+            {
+            return frame.assignValue(iReturn, xInt64.makeHandle(0));
+            }
+
+        FileChannel channel = hChannel.f_channel;
+        int         cBufMax = (int) Math.min(MAX_GATHER, (cbTotal + BUFFER_SIZE - 1) / BUFFER_SIZE);
+        return schedule(frame, hChannel, () ->
+            {
+            // fill at most MAX_GATHER buffers at a time, write them out, and refill them
+            ByteBuffer[] abuf    = new ByteBuffer[cBufMax];
+            long         cbDone  = 0;
+            int          iChunk  = 0;
+            int          ofChunk = 0;
+            try
+                {
+                for (int i = 0; i < abuf.length; i++)
+                    {
+                    abuf[i] = allocateBuffer();
+                    }
+
+                while (iChunk < cChunks)
+                    {
+                    int cBufs = 0;
+                    while (cBufs < abuf.length && iChunk < cChunks)
+                        {
+                        ByteBuffer buf = abuf[cBufs].clear();
+                        while (buf.hasRemaining() && iChunk < cChunks)
+                            {
+                            int cbCopy = Math.min(buf.remaining(), acb[iChunk] - ofChunk);
+                            buf.put(aab[iChunk], aof[iChunk] + ofChunk, cbCopy);
+                            ofChunk += cbCopy;
+                            if (ofChunk == acb[iChunk])
+                                {
+                                ++iChunk;
+                                ofChunk = 0;
+                                }
+                            }
+                        buf.flip();
+                        ++cBufs;
+                        }
+
+                    int ix = 0;
+                    while (ix < cBufs)
+                        {
+                        cbDone += channel.write(abuf, ix, cBufs - ix);
+                        while (ix < cBufs && !abuf[ix].hasRemaining())
+                            {
+                            ++ix;
+                            }
+                        }
+                    }
+                return cbDone;
+                }
+            finally
+                {
+                for (ByteBuffer buf : abuf)
+                    {
+                    if (buf != null)
+                        {
+                        releaseBuffer(buf);
+                        }
+                    }
+                }
+            }, iReturn);
         }
 
+    /**
+     * Schedule the specified operation to run on an I/O thread after all the previously scheduled
+     * operations on the same channel have completed, and wait for it to complete.
+     *
+     * @param frame     the current frame
+     * @param hChannel  the channel handle
+     * @param task      the operation, which returns a Long value (to be assigned to the return
+     *                  register), or any value (if the return register is {@link Op#A_IGNORE})
+     * @param iReturn   the register id to place the result into
+     *
+     * @return one of the {@link Op#R_NEXT}, {@link Op#R_CALL} or {@link Op#R_EXCEPTION}
+     */
+    private int schedule(Frame frame, ChannelHandle hChannel, Callable<?> task, int iReturn)
+        {
+        Container               container = frame.f_context.f_container;
+        CompletableFuture<?>    cfPrev    = hChannel.m_cfTail;
+        CompletableFuture<?>    cfTask    = cfPrev == null || cfPrev.isDone()
+                ? container.scheduleIO(task)
+                : cfPrev.handle((r, e) -> null).thenCompose(v -> container.scheduleIO(task));
 
-    // ----- method implementations ----------------------------------------------------------------
+        hChannel.m_cfTail = cfTask;
+
+        Frame.Continuation continuation = frameCaller ->
+            {
+            try
+                {
+                Object oResult = cfTask.get();
+                return iReturn == Op.A_IGNORE
+                        ? Op.R_NEXT
+                        : frameCaller.assignValue(iReturn, xInt64.makeHandle((Long) oResult));
+                }
+            catch (Throwable e)
+                {
+                return xOSFileNode.raisePathException(frameCaller, e, hChannel.f_path);
+                }
+            };
+
+        return frame.waitForIO(cfTask, continuation);
+        }
 
     /**
-     * Implementation for: {@code Int write(Buffer<Byte> buffer)}.
+     * Obtain a direct buffer from the pool (or allocate a new one). Can be called on any thread.
      */
-    protected int invokeWrite1(Frame frame, ChannelHandle hFile, ObjectHandle[] ahArg, int iReturn)
+    private static ByteBuffer allocateBuffer()
         {
-        throw new UnsupportedOperationException("TODO");
+        ByteBuffer buf = s_poolBuffers.poll();
+        return buf == null
+                ? ByteBuffer.allocateDirect(BUFFER_SIZE)
+                : buf.clear();
         }
 
     /**
-     * Implementation for: {@code (Int, Int) write(Buffer<Byte>[] buffers)}.
+     * Return the specified buffer to the pool. Can be called on any thread.
      */
-    protected int invokeWriteN(Frame frame, ChannelHandle hFile, ObjectHandle[] ahArg, int[] iReturn)
+    private static void releaseBuffer(ByteBuffer buf)
         {
-        throw new UnsupportedOperationException("TODO");
+        // the pool size is only approximately bounded; it's not worth synchronizing for
+        if (s_poolBuffers.size() < MAX_POOLED_BUFFERS)
+            {
+            s_poolBuffers.add(buf);
+            }
         }
 
 
@@ -170,14 +371,17 @@ public class xOSFileChannel
     /**
      * Construct a new {@link ChannelHandle} representing the specified file.
      *
-     * @param frame    the current frame
-     * @param channel  the channel
-     * @param path     the channel's path
-     * @param iReturn  the register id to place the created handle into
+     * @param frame      the current frame
+     * @param channel    the channel
+     * @param path       the channel's path
+     * @param fReadable  true iff the channel was opened for reading
+     * @param fWritable  true iff the channel was opened for writing
+     * @param iReturn    the register id to place the created handle into
      *
      * @return one of the {@link Op#R_NEXT}, {@link Op#R_CALL} or {@link Op#R_EXCEPTION}
      */
-    public int createHandle(Frame frame, FileChannel channel, Path path, int iReturn)
+    public int createHandle(Frame frame, FileChannel channel, Path path,
+                            boolean fReadable, boolean fWritable, int iReturn)
         {
         if (iReturn == Op.A_IGNORE)
             {
@@ -188,8 +392,9 @@ public class xOSFileChannel
         ServiceContext context   = container.createServiceContext(path.toString());
         ChannelHandle  hChannel  = new ChannelHandle(
                 ensureClass(container, getCanonicalType(), FILE_CHANNEL_TEMPLATE.getCanonicalType()),
-                context, channel, path.toAbsolutePath());
+                context, channel, path.toAbsolutePath(), fReadable, fWritable);
 
+        context.setService(hChannel);
         return frame.assignValue(iReturn, hChannel);
         }
 
@@ -201,14 +406,24 @@ public class xOSFileChannel
         {
         public final FileChannel f_channel;
         public final Path        f_path;
+        public final boolean     f_fReadable;
+        public final boolean     f_fWritable;
+
+        /**
+         * The future of the most recently scheduled operation on this channel. Accessed only on
+         * the service thread.
+         */
+        protected CompletableFuture<?> m_cfTail;
 
         public ChannelHandle(TypeComposition clazz, ServiceContext context,
-                             FileChannel channel, Path path)
+                             FileChannel channel, Path path, boolean fReadable, boolean fWritable)
             {
             super(clazz, context);
 
-            f_channel = channel;
-            f_path    = path;
+            f_channel   = channel;
+            f_path      = path;
+            f_fReadable = fReadable;
+            f_fWritable = fWritable;
             }
 
         @Override
@@ -221,5 +436,26 @@ public class xOSFileChannel
 
     // ----- constants -----------------------------------------------------------------------------
 
+    /**
+     * The size of the pooled direct buffers.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The maximum number of the direct buffers kept in the pool.
+     */
+    private static final int MAX_POOLED_BUFFERS = 64;
+
+    /**
+     * The maximum number of buffers passed to a single gathering write, which is also the maximum
+     * number of buffers used by a write operation.
+     */
+    private static final int MAX_GATHER = 16;
+
+    /**
+     * The pool of direct buffers shared by all the file channels.
+     */
+    private static final Queue<ByteBuffer> s_poolBuffers = new ConcurrentLinkedQueue<>();
+
     private static ClassTemplate FILE_CHANNEL_TEMPLATE;
-    }
\ No newline at end of file
+    }
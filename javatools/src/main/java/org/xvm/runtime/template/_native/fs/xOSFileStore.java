@@ -137,6 +137,11 @@ public class xOSFileStore
                     return frame.raiseException(xException.fileAlreadyExistsException(frame, "Could not overwrite file or directory: " + sDest, hDest));
                     }
 
+                if (fMove)
+                    {
+                    FileAppender.release(pathSrc);
+                    }
+
                 Path pathResult;
                 try
                     {
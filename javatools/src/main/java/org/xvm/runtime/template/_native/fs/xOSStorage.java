@@ -13,6 +13,7 @@ import java.nio.file.WatchKey;
 import java.nio.file.WatchService;
 
 import java.util.Map;
+import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.xvm.asm.ClassStructure;
@@ -97,19 +98,20 @@ public class xOSStorage
         ObjectHandle  hStore   = hStorage.getField(frame, "fileStore");
 
         // the handles below are cached by the Container.initResources()
+        Properties props = frame.f_context.f_container.getHostProperties();
         switch (sPropName)
             {
             case "homeDir":
                 return xOSDirectory.INSTANCE.createHandle(frame, hStore,
-                    Paths.get(System.getProperty("user.home")), iReturn);
+                    Paths.get(props.getProperty("user.home")), iReturn);
 
             case "curDir":
                 return xOSDirectory.INSTANCE.createHandle(frame, hStore,
-                    Paths.get(System.getProperty("user.dir")), iReturn);
+                    Paths.get(props.getProperty("user.dir")), iReturn);
 
             case "tmpDir":
                 return xOSDirectory.INSTANCE.createHandle(frame, hStore,
-                    Paths.get(System.getProperty("java.io.tmpdir")), iReturn);
+                    Paths.get(props.getProperty("java.io.tmpdir")), iReturn);
             }
         return super.invokeNativeGet(frame, sPropName, hTarget, iReturn);
         }
@@ -186,6 +188,7 @@ public class xOSStorage
                     return frame.assignValue(iReturn, xBoolean.FALSE);
                     }
 
+                FileAppender.release(path);
                 return frame.assignValue(iReturn,
                     xBoolean.makeHandle(path.toFile().delete()));
                 }
@@ -0,0 +1,864 @@
+package org.xvm.runtime.template._native.io;
+
+
+import java.io.IOException;
+
+import java.net.SocketAddress;
+
+import java.nio.ByteBuffer;
+
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.xvm.runtime.EventLoop;
+
+
+/**
+ * The native state of a {@code RawChannel} over a non-blocking socket.
+ * <p/>
+ * The socket is only ever read from on its {@link EventLoop} thread. The data that has been read
+ * is queued up (as exactly sized byte arrays) until the owning service takes it; the data that is
+ * submitted for writing is copied into the event loop's pooled direct buffers, which are then
+ * written out using gathering writes (by the submitting thread if nothing else is queued, and by
+ * the event loop thread otherwise). Neither side ever blocks: the
+ * operations that cannot complete immediately return a {@link CompletableFuture} that the event
+ * loop completes, and that the caller's fiber waits on.
+ * <p/>
+ * When too much data is queued up in either direction, the back-pressure is applied: the event
+ * loop stops reading from the socket until the service catches up, and the buffer allocation for
+ * writing is delayed until the socket catches up.
+ */
+public class NioChannel
+        implements EventLoop.Handler
+    {
+    /**
+     * Construct a NioChannel for a connected socket. The caller is responsible for calling
+     * {@link #register()} on the event loop thread.
+     *
+     * @param loop     the event loop that the socket is assigned to
+     * @param channel  the connected (or connecting) non-blocking socket channel
+     */
+    protected NioChannel(EventLoop loop, SocketChannel channel)
+        {
+        f_loop    = loop;
+        f_channel = channel;
+        }
+
+    /**
+     * Wrap a connected (e.g. accepted) socket.
+     *
+     * @param loop     the event loop to assign the socket to
+     * @param channel  the connected non-blocking socket channel
+     *
+     * @return a new NioChannel
+     */
+    public static NioChannel open(EventLoop loop, SocketChannel channel)
+        {
+        NioChannel nio = new NioChannel(loop, channel);
+        loop.execute(nio::register);
+        return nio;
+        }
+
+    /**
+     * Initiate a connection of the specified socket.
+     *
+     * @param loop     the event loop to assign the socket to
+     * @param channel  the unconnected non-blocking socket channel
+     * @param addr     the remote address
+     *
+     * @return a future that is completed with a new NioChannel when the connection is established
+     */
+    public static CompletableFuture<NioChannel> connect(EventLoop loop, SocketChannel channel,
+                                                        SocketAddress addr)
+        {
+        CompletableFuture<NioChannel> cf  = new CompletableFuture<>();
+        NioChannel                    nio = new NioChannel(loop, channel);
+
+        loop.execute(() ->
+            {
+            try
+                {
+                if (channel.connect(addr))
+                    {
+                    nio.register();
+                    cf.complete(nio);
+                    }
+                else
+                    {
+                    nio.m_cfConnect = cf;
+                    nio.m_key       = loop.register(channel, SelectionKey.OP_CONNECT, nio);
+                    }
+                }
+            catch (IOException | RuntimeException e)
+                {
+                nio.release();
+                cf.completeExceptionally(e);
+                }
+            });
+        return cf;
+        }
+
+    /**
+     * @return the underlying socket channel
+     */
+    public SocketChannel getChannel()
+        {
+        return f_channel;
+        }
+
+
+    // ----- read operations -----------------------------------------------------------------------
+
+    /**
+     * Take the next chunk of data that has been read.
+     *
+     * @return a future that is (possibly already) completed with a {@code byte[]} or with an
+     *         {@code Integer} status code (see {@code RawChannel.take()})
+     */
+    public CompletableFuture<Object> take()
+        {
+        CompletableFuture<Object> cf;
+        boolean                   fResume = false;
+        synchronized (this)
+            {
+            byte[] ab = m_queueRead.poll();
+            if (ab != null)
+                {
+                int ofRead = m_ofRead;
+                if (ofRead > 0)
+                    {
+                    // the head has been partially consumed
+                    ab       = Arrays.copyOfRange(ab, ofRead, ab.length);
+                    m_ofRead = 0;
+                    }
+                m_cbRead -= ab.length;
+                if (m_fReadPaused && m_cbRead <= READ_RESUME)
+                    {
+                    m_fReadPaused = false;
+                    fResume       = true;
+                    }
+                cf = CompletableFuture.completedFuture(ab);
+                }
+            else if (m_nReadStatus != 0)
+                {
+                cf = CompletableFuture.completedFuture(m_nReadStatus);
+                }
+            else
+                {
+                cf = new CompletableFuture<>();
+                m_listTake.add(cf);
+                }
+            }
+
+        if (fResume)
+            {
+            f_loop.execute(this::updateInterest);
+            }
+        return cf;
+        }
+
+    /**
+     * Return the unconsumed part of a buffer obtained from {@link #take} back to the channel, so
+     * that it is the first to be taken next.
+     *
+     * @param ab  the buffer obtained from {@link #take}
+     * @param of  the offset of the first unconsumed byte
+     */
+    public synchronized void untake(byte[] ab, int of)
+        {
+        if (m_nReadStatus == STATUS_INPUT_SHUTDOWN || m_nReadStatus == STATUS_CLOSED)
+            {
+            // the data would have been discarded anyway
+            return;
+            }
+
+        // a buffer is only handed to a taker when nothing else is queued; any buffer that has been
+        // queued since then has not been consumed at all
+        assert m_ofRead == 0;
+        m_queueRead.addFirst(ab);
+        m_ofRead  = of;
+        m_cbRead += ab.length - of;
+        }
+
+    /**
+     * @return true iff there may be more data to read
+     */
+    public synchronized boolean isReadable()
+        {
+        return !m_queueRead.isEmpty() || m_nReadStatus == 0;
+        }
+
+    /**
+     * @return true iff the end of the stream has been reached, and all the data has been taken
+     */
+    public synchronized boolean isEof()
+        {
+        return m_queueRead.isEmpty() && m_nReadStatus == STATUS_EOF;
+        }
+
+    /**
+     * Shut down the input side of the socket; any data that has not been taken is discarded.
+     */
+    public void shutdownInput()
+        {
+        List<CompletableFuture<Object>> listTake;
+        synchronized (this)
+            {
+            if (m_nReadStatus != 0 && m_nReadStatus != STATUS_EOF)
+                {
+                return;
+                }
+            m_nReadStatus = STATUS_INPUT_SHUTDOWN;
+            m_queueRead.clear();
+            m_ofRead = 0;
+            m_cbRead = 0;
+            listTake = drainTakes();
+            }
+
+        complete(listTake, STATUS_INPUT_SHUTDOWN);
+        f_loop.execute(() ->
+            {
+            try
+                {
+                f_channel.shutdownInput();
+                }
+            catch (IOException ignore) {}
+            updateInterest();
+            });
+        }
+
+
+    // ----- write operations ----------------------------------------------------------------------
+
+    /**
+     * Allocate a buffer for writing. If too much data is waiting to be written, the allocation is
+     * delayed until the socket catches up.
+     *
+     * @return a future that is (possibly already) completed with a {@code byte[]} or with an
+     *         {@code Integer} status code (see {@code RawChannel.allocate()})
+     */
+    public synchronized CompletableFuture<Object> allocate()
+        {
+        if (m_fClosed || m_fOutputShutdown || m_fWriteFailed)
+            {
+            return CompletableFuture.completedFuture(STATUS_ALLOC_CLOSED);
+            }
+
+        if (m_cbWrite > WRITE_LIMIT)
+            {
+            CompletableFuture<Object> cf = new CompletableFuture<>();
+            m_listAllocate.add(cf);
+            return cf;
+            }
+
+        return CompletableFuture.completedFuture(new byte[BUFFER_SIZE]);
+        }
+
+    /**
+     * Submit the specified bytes for writing. The bytes are copied, so the caller is free to
+     * reuse the array as soon as this method returns.
+     *
+     * @param ab  the byte array
+     * @param of  the offset of the first byte to write
+     * @param cb  the number of bytes to write
+     *
+     * @return {@code 0} for success, {@code -1} if the channel is closed, or {@code -2} if the
+     *         socket can no longer be written to
+     */
+    public int submit(byte[] ab, int of, int cb)
+        {
+        boolean fFlush;
+        synchronized (this)
+            {
+            if (m_fClosed)
+                {
+                return STATUS_SUBMIT_CLOSED;
+                }
+            if (m_fOutputShutdown || m_fWriteFailed)
+                {
+                return STATUS_SUBMIT_SHUTDOWN;
+                }
+            if (cb == 0)
+                {
+                return 0;
+                }
+
+            ArrayDeque<ByteBuffer> queue = m_queueWrite;
+            fFlush   = queue.isEmpty();
+            m_cbWrite += cb;
+
+            // top off the last pending buffer first; note that the pending buffers are kept
+            // "flipped" (ready to be written out), so the data is appended beyond the limit
+            ByteBuffer bufTail = queue.peekLast();
+            if (bufTail != null)
+                {
+                int ofTail = bufTail.limit();
+                int cCopy  = Math.min(bufTail.capacity() - ofTail, cb);
+                if (cCopy > 0)
+                    {
+                    bufTail.limit(ofTail + cCopy);
+                    bufTail.put(ofTail, ab, of, cCopy);
+                    of += cCopy;
+                    cb -= cCopy;
+                    }
+                }
+
+            while (cb > 0)
+                {
+                ByteBuffer buf   = f_loop.allocateWriteBuffer();
+                int        cCopy = Math.min(buf.capacity(), cb);
+                buf.put(ab, of, cCopy).flip();
+                queue.add(buf);
+                of += cCopy;
+                cb -= cCopy;
+                }
+
+            if (fFlush && m_key != null)
+                {
+                // nothing else is being written; rather than handing the data over to the event
+                // loop (and waiting for its thread to get scheduled), try writing it right away
+                writeQueue();
+                fFlush = !queue.isEmpty();
+                }
+            }
+
+        if (fFlush)
+            {
+            f_loop.execute(this::flush);
+            }
+        return 0;
+        }
+
+    /**
+     * @return true iff the channel may still accept data to write
+     */
+    public synchronized boolean isWritable()
+        {
+        return !m_fClosed && !m_fOutputShutdown && !m_fWriteFailed;
+        }
+
+    /**
+     * Shut down the output side of the socket once all the pending data has been written.
+     */
+    public void shutdownOutput()
+        {
+        synchronized (this)
+            {
+            if (m_fClosed || m_fOutputShutdown)
+                {
+                return;
+                }
+            m_fOutputShutdown = true;
+            }
+        f_loop.execute(this::flush);
+        }
+
+    /**
+     * @return the number of the buffers holding the data that is waiting to be written
+     */
+    public synchronized int getPendingBuffers()
+        {
+        return m_queueWrite.size();
+        }
+
+    /**
+     * @return the number of the bytes that are waiting to be written
+     */
+    public synchronized long getPendingBytes()
+        {
+        return m_cbWrite;
+        }
+
+
+    // ----- lifecycle -----------------------------------------------------------------------------
+
+    /**
+     * Close the channel. Any pending reads and allocations are completed with the corresponding
+     * "closed" status; the data that has not been written yet is discarded.
+     */
+    public void close()
+        {
+        List<CompletableFuture<Object>> listTake;
+        List<CompletableFuture<Object>> listAlloc;
+        synchronized (this)
+            {
+            if (m_fClosed)
+                {
+                return;
+                }
+            m_fClosed     = true;
+            m_nReadStatus = STATUS_CLOSED;
+            m_queueRead.clear();
+            m_ofRead = 0;
+            listTake  = drainTakes();
+            listAlloc = drainAllocates();
+            }
+
+        complete(listTake,  STATUS_CLOSED);
+        complete(listAlloc, STATUS_ALLOC_CLOSED);
+        f_loop.execute(this::release);
+        }
+
+    /**
+     * @return true iff the channel has been closed
+     */
+    public synchronized boolean isClosed()
+        {
+        return m_fClosed;
+        }
+
+
+    // ----- EventLoop.Handler ---------------------------------------------------------------------
+
+    @Override
+    public void onSelect(SelectionKey key)
+            throws IOException
+        {
+        if (key.isConnectable())
+            {
+            if (f_channel.finishConnect())
+                {
+                CompletableFuture<NioChannel> cf = m_cfConnect;
+                m_cfConnect = null;
+                updateInterest();
+                cf.complete(this);
+                }
+            return;
+            }
+
+        if (key.isReadable())
+            {
+            read();
+            }
+
+        if (key.isValid() && key.isWritable())
+            {
+            flush();
+            }
+        }
+
+    @Override
+    public void onFailure(IOException e)
+        {
+        CompletableFuture<NioChannel>   cfConnect = m_cfConnect;
+        List<CompletableFuture<Object>> listTake;
+        List<CompletableFuture<Object>> listAlloc;
+        int                             nStatus;
+        synchronized (this)
+            {
+            if (m_nReadStatus == 0 || m_nReadStatus == STATUS_EOF)
+                {
+                m_nReadStatus = e == null ? STATUS_CLOSED : STATUS_IO_ERROR;
+                }
+            m_fWriteFailed = true;
+            nStatus   = m_nReadStatus;
+            listTake  = drainTakes();
+            listAlloc = drainAllocates();
+            }
+
+        release();
+        complete(listTake,  nStatus);
+        complete(listAlloc, STATUS_ALLOC_CLOSED);
+        if (cfConnect != null)
+            {
+            m_cfConnect = null;
+            cfConnect.completeExceptionally(e == null ? new IOException("Shutdown") : e);
+            }
+        }
+
+
+    // ----- internal ------------------------------------------------------------------------------
+
+    /**
+     * Register the channel with the event loop for reading. Called on the event loop thread.
+     */
+    protected void register()
+        {
+        try
+            {
+            m_key = f_loop.register(f_channel, 0, this);
+            flush();
+            }
+        catch (IOException e)
+            {
+            onFailure(e);
+            }
+        }
+
+    /**
+     * Bring the interest set in sync with the state of the channel. Called on the event loop
+     * thread.
+     */
+    protected void updateInterest()
+        {
+        SelectionKey key = m_key;
+        if (key == null || !key.isValid() || m_cfConnect != null)
+            {
+            return;
+            }
+
+        int nOps;
+        synchronized (this)
+            {
+            nOps = (m_nReadStatus == 0 && !m_fReadPaused ? SelectionKey.OP_READ  : 0)
+                 | (m_fWritePending                      ? SelectionKey.OP_WRITE : 0);
+            }
+
+        if (key.interestOps() != nOps)
+            {
+            key.interestOps(nOps);
+            }
+        }
+
+    /**
+     * Read the available data from the socket. Called on the event loop thread.
+     */
+    protected void read()
+            throws IOException
+        {
+        ByteBuffer buf = f_loop.getReadBuffer();
+        int        cb  = f_channel.read(buf);
+        if (cb == 0)
+            {
+            return;
+            }
+
+        List<CompletableFuture<Object>> listTake = null;
+        CompletableFuture<Object>       cfTake   = null;
+        Object                          oResult  = null;
+        synchronized (this)
+            {
+            if (cb < 0)
+                {
+                if (m_nReadStatus == 0)
+                    {
+                    m_nReadStatus = STATUS_EOF;
+                    listTake      = drainTakes();
+                    }
+                }
+            else if (m_nReadStatus == 0)
+                {
+                byte[] ab = new byte[cb];
+                buf.flip().get(ab);
+
+                if (m_listTake.isEmpty())
+                    {
+                    m_queueRead.add(ab);
+                    if ((m_cbRead += cb) > READ_LIMIT)
+                        {
+                        m_fReadPaused = true;
+                        }
+                    }
+                else
+                    {
+                    cfTake  = m_listTake.remove(0);
+                    oResult = ab;
+                    }
+                }
+            }
+
+        if (listTake != null)
+            {
+            complete(listTake, STATUS_EOF);
+            }
+        if (cfTake != null)
+            {
+            cfTake.complete(oResult);
+            }
+        updateInterest();
+        }
+
+    /**
+     * Write out as much of the pending data as the socket accepts. Called on the event loop
+     * thread.
+     */
+    protected void flush()
+        {
+        if (m_key == null)
+            {
+            // not registered yet; the registration will pick up the pending writes
+            return;
+            }
+
+        List<CompletableFuture<Object>> listAlloc = null;
+        synchronized (this)
+            {
+            ArrayDeque<ByteBuffer> queue = m_queueWrite;
+            writeQueue();
+
+            m_fWritePending = !queue.isEmpty();
+
+            if (!m_listAllocate.isEmpty() && (m_cbWrite <= WRITE_RESUME || m_fWriteFailed))
+                {
+                listAlloc = drainAllocates();
+                }
+            }
+
+        if (listAlloc != null)
+            {
+            for (CompletableFuture<Object> cf : listAlloc)
+                {
+                cf.complete(m_fWriteFailed ? (Object) STATUS_ALLOC_CLOSED : new byte[BUFFER_SIZE]);
+                }
+            }
+        updateInterest();
+        }
+
+    /**
+     * Write out as much of the queued data as the socket accepts without blocking. Must be called
+     * while holding this channel's monitor, but can be called on any thread.
+     */
+    private void writeQueue()
+        {
+        ArrayDeque<ByteBuffer> queue = m_queueWrite;
+        try
+            {
+            while (!queue.isEmpty())
+                {
+                ByteBuffer[] aBuf = queue.size() <= MAX_GATHER
+                        ? queue.toArray(BUFFERS_NONE)
+                        : queue.stream().limit(MAX_GATHER).toArray(ByteBuffer[]::new);
+
+                long cbWritten = f_channel.write(aBuf);
+                m_cbWrite -= cbWritten;
+
+                for (ByteBuffer buf : aBuf)
+                    {
+                    if (buf.hasRemaining())
+                        {
+                        break;
+                        }
+                    f_loop.releaseWriteBuffer(queue.poll());
+                    }
+
+                ByteBuffer bufHead = queue.peek();
+                if (bufHead != null && bufHead.hasRemaining() && bufHead == aBuf[0])
+                    {
+                    // the socket's send buffer is full
+                    break;
+                    }
+                }
+
+            if (queue.isEmpty() && m_fOutputShutdown && !m_fOutputDone && !m_fClosed)
+                {
+                m_fOutputDone = true;
+                f_channel.shutdownOutput();
+                }
+            }
+        catch (IOException e)
+            {
+            m_fWriteFailed = true;
+            for (ByteBuffer buf : queue)
+                {
+                f_loop.releaseWriteBuffer(buf);
+                }
+            queue.clear();
+            m_cbWrite = 0;
+            }
+        }
+
+    /**
+     * Close the socket and return the pending write buffers to the pool. Called on the event loop
+     * thread.
+     */
+    protected void release()
+        {
+        SelectionKey key = m_key;
+        if (key != null)
+            {
+            key.cancel();
+            }
+
+        try
+            {
+            f_channel.close();
+            }
+        catch (IOException ignore) {}
+
+        synchronized (this)
+            {
+            for (ByteBuffer buf : m_queueWrite)
+                {
+                f_loop.releaseWriteBuffer(buf);
+                }
+            m_queueWrite.clear();
+            m_cbWrite       = 0;
+            m_fWritePending = false;
+            }
+        }
+
+    /**
+     * @return the list of the pending "take" futures (the list is detached)
+     */
+    private List<CompletableFuture<Object>> drainTakes()
+        {
+        List<CompletableFuture<Object>> list = m_listTake;
+        m_listTake = new ArrayList<>(1);
+        return list;
+        }
+
+    /**
+     * @return the list of the pending "allocate" futures (the list is detached)
+     */
+    private List<CompletableFuture<Object>> drainAllocates()
+        {
+        List<CompletableFuture<Object>> list = m_listAllocate;
+        m_listAllocate = new ArrayList<>(1);
+        return list;
+        }
+
+    /**
+     * Complete all the specified futures with the specified status.
+     */
+    private static void complete(List<CompletableFuture<Object>> list, int nStatus)
+        {
+        for (CompletableFuture<Object> cf : list)
+            {
+            cf.complete(nStatus);
+            }
+        }
+
+
+    // ----- constants and fields ------------------------------------------------------------------
+
+    /**
+     * The size of the buffers handed out by {@link #allocate}.
+     */
+    public static final int BUFFER_SIZE = EventLoop.WRITE_BUFFER_SIZE;
+
+    /**
+     * The number of bytes waiting to be written that causes the allocations to be delayed.
+     */
+    public static final int WRITE_LIMIT = 1024 * 1024;
+
+    /**
+     * The number of bytes waiting to be written at which the delayed allocations resume.
+     */
+    private static final int WRITE_RESUME = WRITE_LIMIT / 2;
+
+    /**
+     * The number of bytes waiting to be taken that causes the reading to be suspended.
+     */
+    private static final int READ_LIMIT = 1024 * 1024;
+
+    /**
+     * The number of bytes waiting to be taken at which the reading resumes.
+     */
+    private static final int READ_RESUME = READ_LIMIT / 2;
+
+    /**
+     * The maximum number of buffers in a single gathering write.
+     */
+    private static final int MAX_GATHER = 64;
+
+    /**
+     * The status codes, as defined by the RawChannel API.
+     */
+    public static final int STATUS_EOF             = -1;
+    public static final int STATUS_INPUT_SHUTDOWN  = -2;
+    public static final int STATUS_CLOSED          = -3;
+    public static final int STATUS_IO_ERROR        = 1;
+    public static final int STATUS_SUBMIT_CLOSED   = -1;
+    public static final int STATUS_SUBMIT_SHUTDOWN = -2;
+    public static final int STATUS_ALLOC_CLOSED    = -2;
+
+    private static final ByteBuffer[] BUFFERS_NONE = new ByteBuffer[0];
+
+    /**
+     * The event loop that the socket is assigned to.
+     */
+    private final EventLoop f_loop;
+
+    /**
+     * The socket channel.
+     */
+    private final SocketChannel f_channel;
+
+    /**
+     * The selection key (assigned on the event loop thread).
+     */
+    private volatile SelectionKey m_key;
+
+    /**
+     * The pending connection future (used on the event loop thread only).
+     */
+    private CompletableFuture<NioChannel> m_cfConnect;
+
+    /**
+     * The data that has been read, but not taken yet.
+     */
+    private final ArrayDeque<byte[]> m_queueRead = new ArrayDeque<>();
+
+    /**
+     * The number of bytes at the head of {@link #m_queueRead} that have already been consumed.
+     */
+    private int m_ofRead;
+
+    /**
+     * The number of unconsumed bytes in {@link #m_queueRead}.
+     */
+    private long m_cbRead;
+
+    /**
+     * True iff the reading has been suspended, because too much data is waiting to be taken.
+     */
+    private boolean m_fReadPaused;
+
+    /**
+     * The read status: zero while the socket is readable; otherwise the status code to report
+     * after the queued data has been taken.
+     */
+    private int m_nReadStatus;
+
+    /**
+     * The "take" requests waiting for data.
+     */
+    private List<CompletableFuture<Object>> m_listTake = new ArrayList<>(1);
+
+    /**
+     * The (flipped) buffers holding the data waiting to be written.
+     */
+    private final ArrayDeque<ByteBuffer> m_queueWrite = new ArrayDeque<>();
+
+    /**
+     * The number of bytes in {@link #m_queueWrite}.
+     */
+    private long m_cbWrite;
+
+    /**
+     * True iff the socket could not accept all the data, and the OP_WRITE interest is needed.
+     */
+    private boolean m_fWritePending;
+
+    /**
+     * The "allocate" requests waiting for the pending writes to drain.
+     */
+    private List<CompletableFuture<Object>> m_listAllocate = new ArrayList<>(1);
+
+    /**
+     * True iff the output shutdown has been requested.
+     */
+    private boolean m_fOutputShutdown;
+
+    /**
+     * True iff the output has been actually shut down.
+     */
+    private boolean m_fOutputDone;
+
+    /**
+     * True iff a write has failed.
+     */
+    private boolean m_fWriteFailed;
+
+    /**
+     * True iff the channel has been closed.
+     */
+    private boolean m_fClosed;
+    }
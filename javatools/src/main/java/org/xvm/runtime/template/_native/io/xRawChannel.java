@@ -0,0 +1,453 @@
+package org.xvm.runtime.template._native.io;
+
+
+import java.util.concurrent.CompletableFuture;
+
+import org.xvm.asm.ClassStructure;
+import org.xvm.asm.MethodStructure;
+import org.xvm.asm.Op;
+
+import org.xvm.asm.constants.PropertyConstant;
+
+import org.xvm.runtime.CallChain;
+import org.xvm.runtime.Container;
+import org.xvm.runtime.Frame;
+import org.xvm.runtime.ObjectHandle;
+import org.xvm.runtime.ObjectHandle.JavaLong;
+import org.xvm.runtime.ServiceContext;
+import org.xvm.runtime.TypeComposition;
+
+import org.xvm.runtime.template.xBoolean;
+import org.xvm.runtime.template.xException;
+import org.xvm.runtime.template.xService;
+
+import org.xvm.runtime.template.collections.xArray;
+import org.xvm.runtime.template.collections.xArray.ArrayHandle;
+import org.xvm.runtime.template.collections.xArray.Mutability;
+import org.xvm.runtime.template.collections.xByteArray;
+
+import org.xvm.runtime.template.numbers.xInt64;
+
+
+/**
+ * Native implementation of the RawChannel service over a non-blocking socket (see
+ * {@link NioChannel}).
+ * <p/>
+ * Unlike other native services, the RawChannel methods are executed directly on the caller's
+ * fiber: none of them blocks (an operation that cannot complete immediately waits for the event
+ * loop to complete it), and executing them in place allows the (mutable) buffers to be exchanged
+ * with the caller without being copied or frozen.
+ */
+public class xRawChannel
+        extends xService
+    {
+    public static xRawChannel INSTANCE;
+
+    public xRawChannel(Container container, ClassStructure structure, boolean fInstance)
+        {
+        super(container, structure, false);
+
+        if (fInstance)
+            {
+            INSTANCE = this;
+            }
+        }
+
+    @Override
+    public void initNative()
+        {
+        markNativeProperty("readable");
+        markNativeProperty("eof");
+        markNativeProperty("writable");
+        markNativeProperty("capacityLimit");
+        markNativeProperty("fixedBufferSize");
+        markNativeProperty("totalBuffers");
+        markNativeProperty("totalBytes");
+        markNativeProperty("consumedBuffers");
+        markNativeProperty("consumedBytes");
+        markNativeProperty("closed");
+
+        markNativeMethod("take"          , null, null);
+        markNativeMethod("read"          , null, null);
+        markNativeMethod("readFully"     , null, null);
+        markNativeMethod("submit"        , null, null);
+        markNativeMethod("allocate"      , null, null);
+        markNativeMethod("incRefCount"   , null, null);
+        markNativeMethod("decRefCount"   , null, null);
+        markNativeMethod("shutdownInput" , null, null);
+        markNativeMethod("shutdownOutput", null, null);
+        markNativeMethod("close"         , null, null);
+        markNativeMethod("getConfig"     , null, null);
+        markNativeMethod("setConfig"     , null, null);
+
+        invalidateTypeInfo();
+        }
+
+    /**
+     * Create a RawChannel handle for the specified socket.
+     *
+     * @param container  the container that the channel will belong to
+     * @param channel    the native channel
+     *
+     * @return a new RawChannel handle
+     */
+    public RawChannelHandle makeHandle(Container container, NioChannel channel)
+        {
+        ServiceContext   context  = container.createServiceContext("RawChannel");
+        RawChannelHandle hChannel = new RawChannelHandle(getCanonicalClass(container), context, channel);
+
+        context.setService(hChannel);
+        return hChannel;
+        }
+
+
+    // ----- invocations ---------------------------------------------------------------------------
+
+    @Override
+    public int invoke1(Frame frame, CallChain chain, ObjectHandle hTarget, ObjectHandle[] ahVar, int iReturn)
+        {
+        return chain.isNative()
+                ? frame.invoke1(chain, 0, hTarget, ahVar, iReturn)
+                : super.invoke1(frame, chain, hTarget, ahVar, iReturn);
+        }
+
+    @Override
+    public int invokeN(Frame frame, CallChain chain, ObjectHandle hTarget, ObjectHandle[] ahVar, int[] aiReturn)
+        {
+        return chain.isNative()
+                ? frame.invokeN(chain, 0, hTarget, ahVar, aiReturn)
+                : super.invokeN(frame, chain, hTarget, ahVar, aiReturn);
+        }
+
+    @Override
+    public int invokeNativeGet(Frame frame, String sPropName, ObjectHandle hTarget, int iReturn)
+        {
+        NioChannel channel = ((RawChannelHandle) hTarget).f_channel;
+        switch (sPropName)
+            {
+            case "readable":
+                return frame.assignValue(iReturn, xBoolean.makeHandle(channel.isReadable()));
+
+            case "eof":
+                return frame.assignValue(iReturn, xBoolean.makeHandle(channel.isEof()));
+
+            case "writable":
+                return frame.assignValue(iReturn, xBoolean.makeHandle(channel.isWritable()));
+
+            case "capacityLimit":
+                return frame.assignValue(iReturn, xInt64.makeHandle(NioChannel.WRITE_LIMIT));
+
+            case "fixedBufferSize":
+                return frame.assignValue(iReturn, xInt64.makeHandle(NioChannel.BUFFER_SIZE));
+
+            case "totalBuffers":
+            case "consumedBuffers":
+                // the buffers handed out by "allocate" are not pooled; the only buffers that the
+                // channel holds on to are the ones with the data waiting to be written
+                return frame.assignValue(iReturn, xInt64.makeHandle(channel.getPendingBuffers()));
+
+            case "totalBytes":
+            case "consumedBytes":
+                return frame.assignValue(iReturn, xInt64.makeHandle(channel.getPendingBytes()));
+
+            case "closed":
+                return frame.assignValue(iReturn, xBoolean.makeHandle(channel.isClosed()));
+            }
+
+        return super.invokeNativeGet(frame, sPropName, hTarget, iReturn);
+        }
+
+    @Override
+    public int invokeNative1(Frame frame, MethodStructure method, ObjectHandle hTarget,
+                             ObjectHandle hArg, int iReturn)
+        {
+        NioChannel channel = ((RawChannelHandle) hTarget).f_channel;
+        switch (method.getName())
+            {
+            case "readFully": // Byte[]|Int readFully(Int count)
+                {
+                long cb = ((JavaLong) hArg).getValue();
+                if (cb < 0 || cb > Integer.MAX_VALUE)
+                    {
+                    return frame.raiseException(xException.illegalArgument(frame, "count=" + cb));
+                    }
+                return readFully(frame, channel, new byte[(int) cb], 0, iReturn);
+                }
+
+            case "allocate":  // Byte[]|Int allocate(Boolean internal)
+                return complete(frame, channel.allocate(), iReturn);
+
+            case "incRefCount":
+            case "decRefCount":
+                // the buffers are not pooled, so there is nothing to count
+                return Op.R_NEXT;
+
+            case "getConfig":
+                return frame.raiseException(xException.unsupportedOperation(frame, "getConfig"));
+            }
+
+        return super.invokeNative1(frame, method, hTarget, hArg, iReturn);
+        }
+
+    @Override
+    public int invokeNativeN(Frame frame, MethodStructure method, ObjectHandle hTarget,
+                             ObjectHandle[] ahArg, int iReturn)
+        {
+        NioChannel channel = ((RawChannelHandle) hTarget).f_channel;
+        switch (method.getName())
+            {
+            case "take":   // Byte[]|Int take()
+                return complete(frame, channel.take(), iReturn);
+
+            case "read":   // Int read(Byte[] buffer, Int start, Int end)
+                {
+                ArrayHandle hBuffer = (ArrayHandle) ahArg[0];
+                long        ofStart = ((JavaLong) ahArg[1]).getValue();
+                long        ofEnd   = ((JavaLong) ahArg[2]).getValue();
+                if (ofStart < 0 || ofStart > ofEnd || ofEnd > hBuffer.m_hDelegate.m_cSize)
+                    {
+                    return frame.raiseException(xException.outOfBounds(frame,
+                            "start=" + ofStart + ", end=" + ofEnd));
+                    }
+                if (hBuffer.getMutability().compareTo(Mutability.Fixed) < 0)
+                    {
+                    return frame.raiseException(xException.readOnly(frame, hBuffer.getMutability()));
+                    }
+                if (ofStart == ofEnd)
+                    {
+                    return frame.assignValue(iReturn, xInt64.makeHandle(0));
+                    }
+
+                CompletableFuture<Object> cf = channel.take();
+                Frame.Continuation continuation = frameCaller -> copyResult(frameCaller, channel,
+                        cf.join(), hBuffer, ofStart, (int) (ofEnd - ofStart), iReturn);
+                return cf.isDone()
+                        ? continuation.proceed(frame)
+                        : waitForIO(frame, cf, continuation);
+                }
+
+            case "submit": // Int submit(Byte[] buffer, Int start, Int end)
+                {
+                ArrayHandle hBuffer = (ArrayHandle) ahArg[0];
+                long        ofStart = ((JavaLong) ahArg[1]).getValue();
+                long        ofEnd   = ((JavaLong) ahArg[2]).getValue();
+                if (ofStart < 0 || ofStart > ofEnd || ofEnd > hBuffer.m_hDelegate.m_cSize)
+                    {
+                    return frame.raiseException(xException.outOfBounds(frame,
+                            "start=" + ofStart + ", end=" + ofEnd));
+                    }
+
+                int cb      = (int) (ofEnd - ofStart);
+                int nResult = channel.submit(xByteArray.getBytes(hBuffer, ofStart, cb), 0, cb);
+                return frame.assignValue(iReturn, xInt64.makeHandle(nResult));
+                }
+
+            case "shutdownInput":
+                channel.shutdownInput();
+                return Op.R_NEXT;
+
+            case "shutdownOutput":
+                channel.shutdownOutput();
+                return Op.R_NEXT;
+
+            case "close":
+                channel.close();
+                return Op.R_NEXT;
+
+            case "setConfig":
+                return frame.raiseException(xException.unsupportedOperation(frame, "setConfig"));
+            }
+
+        return super.invokeNativeN(frame, method, hTarget, ahArg, iReturn);
+        }
+
+
+    // ----- helpers -------------------------------------------------------------------------------
+
+    /**
+     * Assign the result of a "take" or an "allocate" operation, waiting for it if necessary.
+     *
+     * @param frame    the current frame
+     * @param cf       the future returned by the NioChannel
+     * @param iReturn  the register to assign the {@code Byte[]|Int} result to
+     *
+     * @return one of the {@link Op} values
+     */
+    private static int complete(Frame frame, CompletableFuture<Object> cf, int iReturn)
+        {
+        if (cf.isDone())
+            {
+            return frame.assignValue(iReturn, makeResult(cf.join()));
+            }
+
+        return waitForIO(frame, cf, frameCaller ->
+                frameCaller.assignValue(iReturn, makeResult(cf.join())));
+        }
+
+    /**
+     * @return the {@code Byte[]|Int} handle for the specified result of a NioChannel operation
+     */
+    private static ObjectHandle makeResult(Object oResult)
+        {
+        return oResult instanceof byte[] ab
+                ? xArray.makeByteArrayHandle(ab, Mutability.Fixed)
+                : xInt64.makeHandle((Integer) oResult);
+        }
+
+    /**
+     * Copy the result of a "take" operation into the specified buffer; the part of the data that
+     * does not fit is returned back to the channel.
+     *
+     * @param frame    the current frame
+     * @param channel  the native channel
+     * @param oResult  the result of the "take" operation
+     * @param hBuffer  the buffer to copy the data into
+     * @param ofStart  the index of the first byte to copy the data into
+     * @param cbMax    the maximum number of bytes to copy
+     * @param iReturn  the register to assign the {@code Int} result to
+     *
+     * @return one of the {@link Op} values
+     */
+    private static int copyResult(Frame frame, NioChannel channel, Object oResult,
+                                  ArrayHandle hBuffer, long ofStart, int cbMax, int iReturn)
+        {
+        if (oResult instanceof byte[] ab)
+            {
+            int cb = Math.min(ab.length, cbMax);
+            xByteArray.setBytes(hBuffer, ofStart, ab, 0, cb);
+            if (cb < ab.length)
+                {
+                channel.untake(ab, cb);
+                }
+            return frame.assignValue(iReturn, xInt64.makeHandle(cb));
+            }
+
+        return assignStatus(frame, (Integer) oResult, iReturn);
+        }
+
+    /**
+     * Fill the specified array with the data taken from the channel, waiting for the data to
+     * arrive as necessary, and assign the array as an immutable {@code Byte[]}. The part of the
+     * last taken data that does not fit is returned back to the channel.
+     *
+     * @param frame    the current frame
+     * @param channel  the native channel
+     * @param ab       the array to fill
+     * @param of       the number of bytes that have already been filled
+     * @param iReturn  the register to assign the {@code Byte[]|Int} result to
+     *
+     * @return one of the {@link Op} values
+     */
+    private static int readFully(Frame frame, NioChannel channel, byte[] ab, int of, int iReturn)
+        {
+        while (of < ab.length)
+            {
+            CompletableFuture<Object> cf = channel.take();
+            if (!cf.isDone())
+                {
+                int ofFilled = of;
+                return waitForIO(frame, cf, frameCaller ->
+                    cf.join() instanceof byte[] abData
+                        ? readFully(frameCaller, channel, ab, fill(channel, abData, ab, ofFilled), iReturn)
+                        : assignStatus(frameCaller, (Integer) cf.join(), iReturn));
+                }
+
+            if (cf.join() instanceof byte[] abData)
+                {
+                of = fill(channel, abData, ab, of);
+                }
+            else
+                {
+                return assignStatus(frame, (Integer) cf.join(), iReturn);
+                }
+            }
+
+        // the array has never been exposed, so it doesn't need to be copied to be made immutable
+        return frame.assignValue(iReturn, xArray.makeByteArrayHandle(ab, Mutability.Constant));
+        }
+
+    /**
+     * Copy as much of the taken data as fits into the specified array; the rest is returned back
+     * to the channel.
+     *
+     * @return the number of bytes in the array that have been filled
+     */
+    private static int fill(NioChannel channel, byte[] abData, byte[] ab, int of)
+        {
+        int cb = Math.min(abData.length, ab.length - of);
+        System.arraycopy(abData, 0, ab, of, cb);
+        if (cb < abData.length)
+            {
+            channel.untake(abData, cb);
+            }
+        return of + cb;
+        }
+
+    /**
+     * Assign the specified status of a read operation, or raise an IOException if the status
+     * indicates an error.
+     */
+    private static int assignStatus(Frame frame, int nStatus, int iReturn)
+        {
+        return nStatus < 0
+                ? frame.assignValue(iReturn, xInt64.makeHandle(nStatus))
+                : frame.raiseException(xException.ioException(frame, "I/O failure (" + nStatus + ")"));
+        }
+
+    /**
+     * Wait for the specified network operation to complete. While the operation is pending, the
+     * container is prevented from being terminated.
+     *
+     * @param frame         the current frame
+     * @param cf            the future for the operation
+     * @param continuation  the continuation that is responsible for assigning the result
+     *
+     * @return one of the {@link Op} values
+     */
+    public static int waitForIO(Frame frame, CompletableFuture cf, Frame.Continuation continuation)
+        {
+        ServiceContext contextMain = frame.f_context.f_container.getServiceContext();
+        contextMain.registerNotification();
+
+        return frame.waitForIO(cf, frameCaller ->
+            {
+            contextMain.unregisterNotification();
+            return continuation.proceed(frameCaller);
+            });
+        }
+
+
+    // ----- handle --------------------------------------------------------------------------------
+
+    /**
+     * A {@link ServiceHandle} for the RawChannel service.
+     */
+    public static class RawChannelHandle
+            extends ServiceHandle
+        {
+        protected RawChannelHandle(TypeComposition clazz, ServiceContext context, NioChannel channel)
+            {
+            super(clazz, context);
+
+            f_channel = channel;
+            }
+
+        @Override
+        public boolean isAtomic(PropertyConstant idProp)
+            {
+            // all the properties are native and thread-safe
+            return true;
+            }
+
+        @Override
+        public String toString()
+            {
+            return "RawChannel@" + f_channel.getChannel();
+            }
+
+        /**
+         * The underlying native channel.
+         */
+        public final NioChannel f_channel;
+        }
+    }
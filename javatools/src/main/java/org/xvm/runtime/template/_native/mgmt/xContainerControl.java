@@ -15,15 +15,22 @@ import org.xvm.runtime.Container;
 import org.xvm.runtime.Frame;
 import org.xvm.runtime.NestedContainer;
 import org.xvm.runtime.ObjectHandle;
+import org.xvm.runtime.ObjectHandle.JavaLong;
 import org.xvm.runtime.ServiceContext;
 import org.xvm.runtime.TypeComposition;
+import org.xvm.runtime.Utils;
+import org.xvm.runtime.WeakCallback;
 
+import org.xvm.runtime.template.xEnum;
+import org.xvm.runtime.template.xException;
 import org.xvm.runtime.template.xNullable;
 import org.xvm.runtime.template.xService.ServiceHandle;
 
 import org.xvm.runtime.template.collections.xTuple;
 import org.xvm.runtime.template.collections.xTuple.TupleHandle;
 
+import org.xvm.runtime.template.numbers.xInt64;
+
 import org.xvm.runtime.template.text.xString.StringHandle;
 
 import org.xvm.runtime.template._native.xRTServiceControl;
@@ -31,6 +38,8 @@ import org.xvm.runtime.template._native.xRTServiceControl;
 import org.xvm.runtime.template._native.reflect.xRTFunction;
 import org.xvm.runtime.template._native.reflect.xRTFunction.FunctionHandle;
 
+import org.xvm.runtime.template._native.temporal.xNanosTimer;
+
 
 /**
  * Native implementation of _native.mgmt.ContainerControl class.
@@ -58,11 +67,19 @@ public class xContainerControl
 
         m_clzControl = ensureClass(f_container, getCanonicalType(), typeMask);
 
+        CONTAINER_STATUS = (xEnum) f_container.getTemplate("mgmt.Container.Status");
+
+        markNativeProperty("status");
         markNativeProperty("mainService");
         markNativeProperty("innerTypeSystem");
 
-        markNativeMethod("invoke", null, null);
-        markNativeMethod("kill",   VOID, VOID);
+        markNativeMethod("invoke",       null, null);
+        markNativeMethod("kill",         VOID, VOID);
+        markNativeMethod("limitThreads", INT,  VOID);
+        markNativeMethod("limitCompute", null, VOID);
+        markNativeMethod("limitMemory",  null, VOID);
+        markNativeMethod("pause",        VOID, VOID);
+        markNativeMethod("resume",       VOID, VOID);
 
         invalidateTypeInfo();
         }
@@ -73,6 +90,17 @@ public class xContainerControl
         Container container = ((ControlHandle) hTarget).f_container;
         switch (sPropName)
             {
+            case "status":
+                {
+                ServiceContext ctx     = container.getServiceContext();
+                String         sStatus = ctx == null          ? "Initial"
+                                       : ctx.isTerminated()   ? "Dead"
+                                       : container.isPaused() ? "Paused"
+                                                              : "Running";
+                return Utils.assignInitializedEnum(frame,
+                        CONTAINER_STATUS.getEnumByName(sStatus), iReturn);
+                }
+
             case "mainService":
                 {
                 ServiceContext ctx = container.getServiceContext();
@@ -81,11 +109,32 @@ public class xContainerControl
 
             case "innerTypeSystem":
                 return getPropertyTypeSystem(frame, container, iReturn);
+
+            case "bytesReserved":
+                return frame.assignValue(iReturn,
+                        xInt64.makeHandle(container.getMemoryEstimate()));
+
+            case "bytesAllocated":
+                return frame.assignValue(iReturn,
+                        xInt64.makeHandle(container.getBytesAllocated()));
             }
 
         return super.invokeNativeGet(frame, sPropName, hTarget, iReturn);
         }
 
+    @Override
+    public int invokeNative1(Frame frame, MethodStructure method, ObjectHandle hTarget,
+                             ObjectHandle hArg, int iReturn)
+        {
+        switch (method.getName())
+            {
+            case "limitThreads":
+                return invokeLimitThreads(frame, (ControlHandle) hTarget, (JavaLong) hArg, iReturn);
+            }
+
+        return super.invokeNative1(frame, method, hTarget, hArg, iReturn);
+        }
+
     @Override
     public int invokeNativeN(Frame frame, MethodStructure method, ObjectHandle hTarget,
                              ObjectHandle[] ahArg, int iReturn)
@@ -98,6 +147,44 @@ public class xContainerControl
 
             case "kill":
                 return invokeKill(frame, (ControlHandle) hTarget, iReturn);
+
+            case "limitCompute":
+                {
+                Container container = ((ControlHandle) hTarget).f_container;
+                container.limitCompute(xNanosTimer.nanosFromDuration(ahArg[0]),
+                        makeCallback(frame, (FunctionHandle) ahArg[1]));
+                return frame.assignValue(iReturn, xTuple.H_VOID);
+                }
+
+            case "limitMemory":
+                {
+                Container container = ((ControlHandle) hTarget).f_container;
+                container.limitMemory(((JavaLong) ahArg[0]).getValue(),
+                        makeCallback(frame, (FunctionHandle) ahArg[1]));
+                return frame.assignValue(iReturn, xTuple.H_VOID);
+                }
+
+            case "pause":
+                try
+                    {
+                    ((ControlHandle) hTarget).f_container.pause();
+                    }
+                catch (IllegalStateException e)
+                    {
+                    return frame.raiseException(xException.illegalState(frame, e.getMessage()));
+                    }
+                return frame.assignValue(iReturn, xTuple.H_VOID);
+
+            case "resume":
+                try
+                    {
+                    ((ControlHandle) hTarget).f_container.resume();
+                    }
+                catch (IllegalStateException e)
+                    {
+                    return frame.raiseException(xException.illegalState(frame, e.getMessage()));
+                    }
+                return frame.assignValue(iReturn, xTuple.H_VOID);
             }
 
         return super.invokeNativeN(frame, method, hTarget, ahArg, iReturn);
@@ -165,6 +252,41 @@ public class xContainerControl
         return frame.assignValue(iReturn, xTuple.H_VOID);
         }
 
+    /**
+     * Native implementation: "void limitThreads(Int max)".
+     */
+    protected int invokeLimitThreads(Frame frame, ControlHandle hCtrl, JavaLong hMax, int iReturn)
+        {
+        long cMax = hMax.getValue();
+        if (cMax <= 0)
+            {
+            return frame.raiseException(xException.illegalArgument(frame,
+                    "Illegal thread limit: " + cMax));
+            }
+
+        hCtrl.f_container.limitThreads((int) Math.min(cMax, Integer.MAX_VALUE));
+
+        // Note: the caller is async; we must return the Tuple()
+        return frame.assignValue(iReturn, xTuple.H_VOID);
+        }
+
+    /**
+     * Create a resource limit overrun action that calls the specified function on the caller's
+     * service.
+     */
+    protected Runnable makeCallback(Frame frame, FunctionHandle hFunction)
+        {
+        WeakCallback refCallback = new WeakCallback(frame.f_context, hFunction);
+        return () ->
+            {
+            ServiceContext context = refCallback.get();
+            if (context != null)
+                {
+                context.callLater(refCallback.getFunction(), Utils.OBJECTS_NONE);
+                }
+            };
+        }
+
     /**
      * Native implementation of "innerTypeSystem.get()"
      */
@@ -217,5 +339,13 @@ public class xContainerControl
         protected final Container f_container;
         }
 
+
+    // ----- constants -----------------------------------------------------------------------------
+
+    /**
+     * Enum used by the native "status" property.
+     */
+    protected static xEnum CONTAINER_STATUS;
+
     private TypeComposition m_clzControl;
     }
\ No newline at end of file
@@ -0,0 +1,429 @@
+package org.xvm.runtime.template._native.net;
+
+
+import java.io.IOException;
+
+import java.net.InetSocketAddress;
+
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.xvm.asm.ClassStructure;
+import org.xvm.asm.MethodStructure;
+import org.xvm.asm.Op;
+
+import org.xvm.runtime.Container;
+import org.xvm.runtime.EventLoop;
+import org.xvm.runtime.Frame;
+import org.xvm.runtime.ObjectHandle;
+import org.xvm.runtime.ServiceContext;
+
+import org.xvm.runtime.template.xBoolean;
+import org.xvm.runtime.template.xException;
+import org.xvm.runtime.template.xObject;
+import org.xvm.runtime.template.xService;
+
+import org.xvm.runtime.template._native.io.NioChannel;
+import org.xvm.runtime.template._native.io.xRawChannel;
+
+import org.xvm.runtime.template.collections.xArray;
+import org.xvm.runtime.template.collections.xArray.Mutability;
+
+import org.xvm.runtime.template.numbers.xUInt16;
+
+
+/**
+ * Native implementation of the "RTServerSocket" service.
+ * <p/>
+ * The listening socket is registered with an {@link EventLoop}, which only selects it for the
+ * "accept" readiness while there are pending {@code accept()} calls; the connections that have
+ * not been asked for yet stay in the operating system's backlog. The accepted sockets are spread
+ * across all the event loops.
+ */
+public class xRTServerSocket
+        extends xService
+    {
+    public static xRTServerSocket INSTANCE;
+
+    public xRTServerSocket(Container container, ClassStructure structure, boolean fInstance)
+        {
+        super(container, structure, false);
+
+        if (fInstance)
+            {
+            INSTANCE = this;
+            }
+        }
+
+    @Override
+    public void initNative()
+        {
+        // the "native" constructor:
+        //      construct(Listener listener, Byte[] localAddressBytes, UInt16 localPort)
+        s_constructor = getStructure().findMethod("construct", 3);
+
+        markNativeMethod("nativeAccept", null, null);
+        markNativeMethod("nativeClose" , null, null);
+
+        invalidateTypeInfo();
+        }
+
+    @Override
+    public int invokeNative1(Frame frame, MethodStructure method, ObjectHandle hTarget,
+                             ObjectHandle hArg, int iReturn)
+        {
+        switch (method.getName())
+            {
+            case "nativeClose":     // void nativeClose(Listener listener)
+                ((ListenerHandle) hArg).close();
+                return Op.R_NEXT;
+            }
+
+        return super.invokeNative1(frame, method, hTarget, hArg, iReturn);
+        }
+
+    @Override
+    public int invokeNativeNN(Frame frame, MethodStructure method, ObjectHandle hTarget,
+                              ObjectHandle[] ahArg, int[] aiReturn)
+        {
+        switch (method.getName())
+            {
+            case "nativeAccept":    // conditional Socket nativeAccept(Listener listener)
+                {
+                ListenerHandle hListener = (ListenerHandle) ahArg[0];
+
+                CompletableFuture<SocketChannel> cfAccept = hListener.accept();
+                Frame.Continuation continuation = frameCaller ->
+                    {
+                    SocketChannel socket;
+                    try
+                        {
+                        socket = cfAccept.join();
+                        }
+                    catch (RuntimeException e)
+                        {
+                        return frameCaller.raiseException(xException.ioException(frameCaller,
+                                e.getCause() == null ? e.getMessage() : e.getCause().getMessage()));
+                        }
+
+                    if (socket == null)
+                        {
+                        // the listener has been closed
+                        return frameCaller.assignValue(aiReturn[0], xBoolean.FALSE);
+                        }
+
+                    NioChannel channel;
+                    try
+                        {
+                        xRTSocket.configure(socket);
+                        channel = NioChannel.open(
+                                frameCaller.f_context.f_container.f_runtime.getEventLoop(), socket);
+                        }
+                    catch (IOException e)
+                        {
+                        try
+                            {
+                            socket.close();
+                            }
+                        catch (IOException ignore) {}
+                        return frameCaller.raiseException(xException.ioException(frameCaller, e.getMessage()));
+                        }
+
+                    frameCaller.assignValue(aiReturn[0], xBoolean.TRUE);
+                    return xRTSocket.INSTANCE.constructSocket(frameCaller, channel, aiReturn[1]);
+                    };
+
+                return cfAccept.isDone()
+                        ? continuation.proceed(frame)
+                        : xRawChannel.waitForIO(frame, cfAccept, continuation);
+                }
+            }
+
+        return super.invokeNativeNN(frame, method, hTarget, ahArg, aiReturn);
+        }
+
+    /**
+     * Bind a listening socket to the specified address and construct an RTServerSocket service
+     * for it.
+     *
+     * @param frame       the current frame
+     * @param abLocalIP   the local IP address to bind to (empty for "any")
+     * @param nLocalPort  the local port to bind to (zero for an ephemeral port)
+     * @param aiReturn    the registers for the "conditional ServerSocket" result
+     *
+     * @return one of Op.R_NEXT, Op.R_CALL or Op.R_EXCEPTION values
+     */
+    public int listen(Frame frame, byte[] abLocalIP, int nLocalPort, int[] aiReturn)
+        {
+        Container           container = frame.f_context.f_container;
+        ServerSocketChannel channel   = null;
+        ListenerHandle      hListener;
+        InetSocketAddress   addrLocal;
+        try
+            {
+            channel = ServerSocketChannel.open();
+            channel.configureBlocking(false);
+            channel.bind(xRTSocket.makeAddress(abLocalIP, nLocalPort));
+
+            addrLocal = (InetSocketAddress) channel.getLocalAddress();
+            hListener = new ListenerHandle(container, container.f_runtime.getEventLoop(), channel);
+            }
+        catch (IOException e)
+            {
+            if (channel != null)
+                {
+                try
+                    {
+                    channel.close();
+                    }
+                catch (IOException ignore) {}
+                }
+
+            // the address could not be bound to (e.g. it is already in use)
+            return frame.assignValue(aiReturn[0], xBoolean.FALSE);
+            }
+
+        MethodStructure constructor = s_constructor;
+        ObjectHandle[]  ahParams    = new ObjectHandle[constructor.getMaxVars()];
+
+        ahParams[0] = hListener;
+        ahParams[1] = xArray.makeByteArrayHandle(addrLocal.getAddress().getAddress(), Mutability.Constant);
+        ahParams[2] = xUInt16.INSTANCE.makeJavaLong(addrLocal.getPort());
+
+        switch (construct(frame, constructor, getCanonicalClass(), null, ahParams, Op.A_STACK))
+            {
+            case Op.R_NEXT:
+                return frame.assignValues(aiReturn, xBoolean.TRUE, frame.popStack());
+
+            case Op.R_EXCEPTION:
+                hListener.close();
+                return Op.R_EXCEPTION;
+
+            case Op.R_CALL:
+                frame.m_frameNext.addContinuation(frameCaller ->
+                    frameCaller.assignValues(aiReturn, xBoolean.TRUE, frameCaller.popStack()));
+                return Op.R_CALL;
+
+            default:
+                throw new IllegalStateException();
+            }
+        }
+
+
+    // ----- handle --------------------------------------------------------------------------------
+
+    /**
+     * Native handle holding the listening socket. While the socket is open, the container is
+     * prevented from being terminated.
+     */
+    protected static class ListenerHandle
+            extends ObjectHandle
+            implements EventLoop.Handler
+        {
+        protected ListenerHandle(Container container, EventLoop loop, ServerSocketChannel channel)
+            {
+            super(xObject.INSTANCE.getCanonicalClass());
+
+            f_contextMain = container.getServiceContext();
+            f_loop        = loop;
+            f_channel     = channel;
+            m_fMutable    = false;
+
+            f_contextMain.registerNotification();
+            loop.execute(() ->
+                {
+                try
+                    {
+                    m_key = loop.register(channel, 0, this);
+                    updateInterest();
+                    }
+                catch (IOException e)
+                    {
+                    onFailure(e);
+                    }
+                });
+            }
+
+        /**
+         * Accept the next connection.
+         *
+         * @return a future that is (possibly already) completed with the accepted socket, or with
+         *         null if the listener has been closed
+         */
+        public CompletableFuture<SocketChannel> accept()
+            {
+            CompletableFuture<SocketChannel> cf = new CompletableFuture<>();
+            synchronized (this)
+                {
+                if (m_fClosed)
+                    {
+                    return CompletableFuture.completedFuture(null);
+                    }
+
+                if (m_listAccept.isEmpty())
+                    {
+                    // the non-blocking accept can be attempted on any thread
+                    try
+                        {
+                        SocketChannel socket = f_channel.accept();
+                        if (socket != null)
+                            {
+                            return CompletableFuture.completedFuture(socket);
+                            }
+                        }
+                    catch (IOException e)
+                        {
+                        return CompletableFuture.failedFuture(e);
+                        }
+                    }
+
+                m_listAccept.add(cf);
+                }
+
+            f_loop.execute(this::updateInterest);
+            return cf;
+            }
+
+        /**
+         * Close the listening socket; the pending accept calls are completed with null.
+         */
+        public void close()
+            {
+            synchronized (this)
+                {
+                if (m_fClosed)
+                    {
+                    return;
+                    }
+                m_fClosed = true;
+                }
+
+            f_contextMain.unregisterNotification();
+            f_loop.execute(() -> onFailure(null));
+            }
+
+        @Override
+        public void onSelect(SelectionKey key)
+                throws IOException
+            {
+            while (true)
+                {
+                CompletableFuture<SocketChannel> cf;
+                SocketChannel                    socket;
+                synchronized (this)
+                    {
+                    if (m_listAccept.isEmpty())
+                        {
+                        break;
+                        }
+
+                    socket = f_channel.accept();
+                    if (socket == null)
+                        {
+                        break;
+                        }
+                    cf = m_listAccept.remove(0);
+                    }
+                cf.complete(socket);
+                }
+            updateInterest();
+            }
+
+        @Override
+        public void onFailure(IOException e)
+            {
+            List<CompletableFuture<SocketChannel>> listAccept;
+            synchronized (this)
+                {
+                listAccept   = m_listAccept;
+                m_listAccept = new ArrayList<>();
+                if (!m_fClosed)
+                    {
+                    m_fClosed = true;
+                    f_contextMain.unregisterNotification();
+                    }
+                }
+
+            SelectionKey key = m_key;
+            if (key != null)
+                {
+                key.cancel();
+                }
+            try
+                {
+                f_channel.close();
+                }
+            catch (IOException ignore) {}
+
+            for (CompletableFuture<SocketChannel> cf : listAccept)
+                {
+                cf.complete(null);
+                }
+            }
+
+        /**
+         * Select the listening socket for "accept" iff there are pending accept calls. Called on
+         * the event loop thread.
+         */
+        private void updateInterest()
+            {
+            SelectionKey key = m_key;
+            if (key != null && key.isValid())
+                {
+                int nOps;
+                synchronized (this)
+                    {
+                    nOps = m_listAccept.isEmpty() ? 0 : SelectionKey.OP_ACCEPT;
+                    }
+                key.interestOps(nOps);
+                }
+            }
+
+        @Override
+        public String toString()
+            {
+            return "Listener@" + f_channel;
+            }
+
+        /**
+         * The main context of the container that the listener belongs to.
+         */
+        private final ServiceContext f_contextMain;
+
+        /**
+         * The event loop that the listening socket is registered with.
+         */
+        private final EventLoop f_loop;
+
+        /**
+         * The listening socket.
+         */
+        private final ServerSocketChannel f_channel;
+
+        /**
+         * The selection key (assigned on the event loop thread).
+         */
+        private volatile SelectionKey m_key;
+
+        /**
+         * The pending accept calls.
+         */
+        private List<CompletableFuture<SocketChannel>> m_listAccept = new ArrayList<>();
+
+        /**
+         * True iff the listener has been closed.
+         */
+        private boolean m_fClosed;
+        }
+
+
+    // ----- constants and fields ------------------------------------------------------------------
+
+    private static MethodStructure s_constructor;
+    }
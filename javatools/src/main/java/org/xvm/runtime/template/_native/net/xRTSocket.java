@@ -0,0 +1,212 @@
+package org.xvm.runtime.template._native.net;
+
+
+import java.io.IOException;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+
+import java.nio.channels.SocketChannel;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.xvm.asm.ClassStructure;
+import org.xvm.asm.MethodStructure;
+import org.xvm.asm.Op;
+
+import org.xvm.runtime.Container;
+import org.xvm.runtime.Frame;
+import org.xvm.runtime.ObjectHandle;
+import org.xvm.runtime.Runtime;
+
+import org.xvm.runtime.template.xBoolean;
+import org.xvm.runtime.template.xException;
+import org.xvm.runtime.template.xService;
+
+import org.xvm.runtime.template._native.io.NioChannel;
+import org.xvm.runtime.template._native.io.xRawChannel;
+
+import org.xvm.runtime.template.collections.xArray;
+import org.xvm.runtime.template.collections.xArray.Mutability;
+
+import org.xvm.runtime.template.numbers.xUInt16;
+
+
+/**
+ * Native support for the "RTSocket" service. The socket itself is implemented in Ecstasy, on top
+ * of a native RawChannel (see {@link xRawChannel}); this template only knows how to construct it.
+ */
+public class xRTSocket
+        extends xService
+    {
+    public static xRTSocket INSTANCE;
+
+    public xRTSocket(Container container, ClassStructure structure, boolean fInstance)
+        {
+        super(container, structure, false);
+
+        if (fInstance)
+            {
+            INSTANCE = this;
+            }
+        }
+
+    @Override
+    public void initNative()
+        {
+        // the "native" constructor:
+        //      construct(RawChannel rawChannel, Byte[] localAddressBytes, UInt16 localPort,
+        //                Byte[] remoteAddressBytes, UInt16 remotePort)
+        s_constructor = getStructure().findMethod("construct", 5);
+        }
+
+    /**
+     * Construct an RTSocket service for the specified connected socket.
+     *
+     * @param frame    the current frame
+     * @param channel  the native channel for the connected socket
+     * @param iReturn  the register to assign the new Socket to
+     *
+     * @return one of Op.R_NEXT, Op.R_CALL or Op.R_EXCEPTION values
+     */
+    public int constructSocket(Frame frame, NioChannel channel, int iReturn)
+        {
+        SocketChannel     socket = channel.getChannel();
+        InetSocketAddress addrLocal;
+        InetSocketAddress addrRemote;
+        try
+            {
+            addrLocal  = (InetSocketAddress) socket.getLocalAddress();
+            addrRemote = (InetSocketAddress) socket.getRemoteAddress();
+            }
+        catch (IOException e)
+            {
+            channel.close();
+            return frame.raiseException(xException.ioException(frame, e.getMessage()));
+            }
+
+        Container       container   = frame.f_context.f_container;
+        MethodStructure constructor = s_constructor;
+        ObjectHandle[]  ahParams    = new ObjectHandle[constructor.getMaxVars()];
+
+        ahParams[0] = xRawChannel.INSTANCE.makeHandle(container, channel);
+        ahParams[1] = xArray.makeByteArrayHandle(addrLocal.getAddress().getAddress(), Mutability.Constant);
+        ahParams[2] = xUInt16.INSTANCE.makeJavaLong(addrLocal.getPort());
+        ahParams[3] = xArray.makeByteArrayHandle(addrRemote.getAddress().getAddress(), Mutability.Constant);
+        ahParams[4] = xUInt16.INSTANCE.makeJavaLong(addrRemote.getPort());
+
+        switch (construct(frame, constructor, getCanonicalClass(), null, ahParams, Op.A_STACK))
+            {
+            case Op.R_NEXT:
+                return frame.assignValue(iReturn, frame.popStack());
+
+            case Op.R_EXCEPTION:
+                channel.close();
+                return Op.R_EXCEPTION;
+
+            case Op.R_CALL:
+                frame.m_frameNext.addContinuation(frameCaller ->
+                    frameCaller.assignValue(iReturn, frameCaller.popStack()));
+                return Op.R_CALL;
+
+            default:
+                throw new IllegalStateException();
+            }
+        }
+
+    /**
+     * Connect to the specified address and construct an RTSocket service for the connection.
+     *
+     * @param frame        the current frame
+     * @param abRemoteIP   the remote IP address
+     * @param nRemotePort  the remote port
+     * @param abLocalIP    the local IP address to bind to (empty for "any")
+     * @param nLocalPort   the local port to bind to (zero for "any")
+     * @param aiReturn     the registers for the "conditional Socket" result
+     *
+     * @return one of Op.R_NEXT, Op.R_CALL or Op.R_EXCEPTION values
+     */
+    public int connect(Frame frame, byte[] abRemoteIP, int nRemotePort,
+                       byte[] abLocalIP, int nLocalPort, int[] aiReturn)
+        {
+        Runtime                       runtime = frame.f_context.f_container.f_runtime;
+        SocketChannel                 socket  = null;
+        CompletableFuture<NioChannel> cfConnect;
+        try
+            {
+            InetSocketAddress addrRemote = makeAddress(abRemoteIP, nRemotePort);
+
+            socket = SocketChannel.open();
+            configure(socket);
+            if (abLocalIP.length > 0 || nLocalPort != 0)
+                {
+                socket.bind(makeAddress(abLocalIP, nLocalPort));
+                }
+
+            cfConnect = NioChannel.connect(runtime.getEventLoop(), socket, addrRemote);
+            }
+        catch (IOException e)
+            {
+            if (socket != null)
+                {
+                try
+                    {
+                    socket.close();
+                    }
+                catch (IOException ignore) {}
+                }
+            return frame.raiseException(xException.ioException(frame, e.getMessage()));
+            }
+
+        Frame.Continuation continuation = frameCaller ->
+            {
+            NioChannel channel;
+            try
+                {
+                channel = cfConnect.get();
+                }
+            catch (Exception e)
+                {
+                // the connection could not be established (e.g. it was refused)
+                return frameCaller.assignValue(aiReturn[0], xBoolean.FALSE);
+                }
+
+            frameCaller.assignValue(aiReturn[0], xBoolean.TRUE);
+            return constructSocket(frameCaller, channel, aiReturn[1]);
+            };
+
+        return xRawChannel.waitForIO(frame, cfConnect, continuation);
+        }
+
+    /**
+     * Create a socket address.
+     *
+     * @param abIP   the IP address bytes (empty for the wildcard address)
+     * @param nPort  the port (zero for an ephemeral port)
+     */
+    public static InetSocketAddress makeAddress(byte[] abIP, int nPort)
+            throws IOException
+        {
+        return abIP.length == 0
+                ? new InetSocketAddress(nPort)
+                : new InetSocketAddress(InetAddress.getByAddress(abIP), nPort);
+        }
+
+    /**
+     * Apply the default options to a new socket.
+     *
+     * @param socket  a connected or unconnected socket
+     */
+    public static void configure(SocketChannel socket)
+            throws IOException
+        {
+        socket.configureBlocking(false);
+        socket.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        }
+
+
+    // ----- constants and fields ------------------------------------------------------------------
+
+    private static MethodStructure s_constructor;
+    }
@@ -1,8 +1,7 @@
 package org.xvm.runtime.template._native.temporal;
 
 
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
 
 import org.xvm.asm.ClassStructure;
 import org.xvm.asm.ConstantPool;
@@ -34,6 +33,9 @@ import org.xvm.runtime.template.numbers.xInt128;
 import org.xvm.runtime.template._native.reflect.xRTFunction.FunctionHandle;
 import org.xvm.runtime.template._native.reflect.xRTFunction.NativeFunctionHandle;
 
+import org.xvm.util.concurrent.TimingWheel;
+import org.xvm.util.concurrent.TimingWheel.Timeout;
+
 
 /**
  * Native implementation of a simple wall clock using Java's millisecond-resolution "System" clock.
@@ -105,7 +107,7 @@ public class xLocalClock
                 Alarm alarm = new Alarm(new WeakCallback(frame.f_context, hAlarm));
                 try
                     {
-                    TIMER.schedule(alarm, cDelay);
+                    alarm.m_timeout = TIMER.schedule(alarm, cDelay, TimeUnit.MILLISECONDS);
                     }
                 catch (Exception e)
                     {
@@ -209,7 +211,7 @@ public class xLocalClock
         }
 
     protected static class Alarm
-            extends TimerTask
+            implements Runnable
         {
         /**
          * Construct an alarm.
@@ -234,25 +236,37 @@ public class xLocalClock
                 }
             }
 
-        @Override
-        public boolean cancel()
+        /**
+         * Cancel the alarm, unless it has already been triggered.
+         */
+        public void cancel()
             {
-            boolean        fCancelled = super.cancel();
-            ServiceContext context = f_refCallback.get();
-            if (context != null)
+            Timeout timeout = m_timeout;
+            if (timeout == null || timeout.cancel())
                 {
-                context.unregisterNotification();
+                ServiceContext context = f_refCallback.get();
+                if (context != null)
+                    {
+                    context.unregisterNotification();
+                    }
                 }
-            return fCancelled;
             }
 
         private final WeakCallback f_refCallback;
+
+        /**
+         * The timeout, once the alarm has been scheduled.
+         */
+        private volatile Timeout m_timeout;
         }
 
 
     // ----- constants and fields ------------------------------------------------------------------
 
-    public static Timer TIMER = new Timer("ecstasy:LocalClock", true);
+    /**
+     * The timer shared by all the clocks, timers and service wake-ups.
+     */
+    public static final TimingWheel TIMER = new TimingWheel("ecstasy:LocalClock");
 
     /**
      * Cached Time class.
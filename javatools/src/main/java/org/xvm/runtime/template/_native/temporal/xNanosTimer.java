@@ -1,7 +1,7 @@
 package org.xvm.runtime.template._native.temporal;
 
 
-import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
 
 import org.xvm.asm.ClassStructure;
 import org.xvm.asm.MethodStructure;
@@ -31,6 +31,8 @@ import org.xvm.runtime.template._native.reflect.xRTFunction.NativeFunctionHandle
 
 import org.xvm.util.ListSet;
 
+import org.xvm.util.concurrent.TimingWheel.Timeout;
+
 
 /**
  * Native implementation of a simple timer (stop-watch) using Java's nanosecond-resolution "System"
@@ -141,6 +143,38 @@ public class xNanosTimer
         return ((LongLongHandle) hPicos).getValue().div(PICOS_PER_MILLI_LL).getLowValue();
         }
 
+    /**
+     * Helper method to create a Duration handle.
+     *
+     * @param cNanos  the duration in nanoseconds
+     *
+     * @return an immutable Duration handle
+     */
+    public static GenericHandle makeDurationHandle(long cNanos)
+        {
+        GenericHandle hDuration = new GenericHandle(s_clzDuration);
+        LongLong      llPicos   = new LongLong(cNanos).mul(PICOS_PER_NANO_LL);
+
+        hDuration.setField(null, "picoseconds", xInt128.INSTANCE.makeHandle(llPicos));
+        hDuration.makeImmutable();
+
+        return hDuration;
+        }
+
+    /**
+     * Helper method to convert a Duration handle into nanoseconds.
+     *
+     * @param hDuration  the Duration handle
+     *
+     * @return the duration in nanoseconds
+     */
+    public static long nanosFromDuration(ObjectHandle hDuration)
+        {
+        ObjectHandle hPicos = ((GenericHandle) hDuration).getField(null, "picoseconds");
+
+        return ((LongLongHandle) hPicos).getValue().div(PICOS_PER_NANO_LL).getLowValue();
+        }
+
     /**
      * Injection support.
      */
@@ -305,13 +339,7 @@ public class xNanosTimer
          */
         public GenericHandle elapsedDuration()
             {
-            GenericHandle hDuration = new GenericHandle(s_clzDuration);
-            LongLong      llPicos   = new LongLong(elapsed()).mul(PICOS_PER_NANO_LL);
-
-            hDuration.setField(null, "picoseconds", xInt128.INSTANCE.makeHandle(llPicos));
-            hDuration.makeImmutable();
-
-            return hDuration;
+            return makeDurationHandle(elapsed());
             }
 
         public void addAlarm(Alarm alarm)
@@ -373,8 +401,8 @@ public class xNanosTimer
                 try
                     {
                     f_refCallback.get().registerNotification();
-                    xLocalClock.TIMER.schedule(
-                        m_trigger, Math.max(1, (f_cNanosDelay - m_cNanosBurnt) / NANOS_PER_MILLI));
+                    m_trigger.m_timeout = xLocalClock.TIMER.schedule(
+                        m_trigger, f_cNanosDelay - m_cNanosBurnt, TimeUnit.NANOSECONDS);
                     }
                 catch (Throwable e)
                     {
@@ -501,10 +529,10 @@ public class xNanosTimer
                 }
 
             /**
-             * A TimerTask that is scheduled on the Java timer and used to trigger the alarm.
+             * A task that is scheduled on the timing wheel and used to trigger the alarm.
              */
             protected static class Trigger
-                    extends TimerTask
+                    implements Runnable
                 {
                 protected Trigger(Alarm alarm)
                     {
@@ -519,20 +547,22 @@ public class xNanosTimer
                     alarm.run();
                     }
 
-                @Override
-                public boolean cancel()
+                public void cancel()
                     {
-                    boolean fCancelled = super.cancel();
-                    Alarm   alarm      = m_alarm;
-                    if (alarm != null)
+                    Timeout timeout = m_timeout;
+                    if (timeout == null || timeout.cancel())
                         {
-                        alarm.unregister();
-                        m_alarm = null;
+                        Alarm alarm = m_alarm;
+                        if (alarm != null)
+                            {
+                            alarm.unregister();
+                            m_alarm = null;
+                            }
                         }
-                    return fCancelled;
                     }
 
-                private Alarm m_alarm;
+                private volatile Alarm   m_alarm;
+                private volatile Timeout m_timeout;
                 }
 
             private final    WeakCallback f_refCallback;
@@ -0,0 +1,1356 @@
+package org.xvm.runtime.template._native.web;
+
+
+import java.io.IOException;
+
+import java.net.InetSocketAddress;
+
+import java.nio.ByteBuffer;
+
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+import java.nio.charset.StandardCharsets;
+
+import java.util.ArrayDeque;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+
+import org.xvm.runtime.EventLoop;
+
+import org.xvm.runtime.template._native.web.HttpRequest.BadRequestException;
+
+
+/**
+ * A connection accepted by the {@link HttpEngine}.
+ * <p/>
+ * The socket is only read from on its {@link EventLoop} thread. The bytes are accumulated in a
+ * heap buffer that the requests are parsed from in place; once a request has been taken from the
+ * buffer, the buffer is never compacted or overwritten (the subsequent data is appended after it,
+ * or goes to a new buffer), so the request can keep referring to it while it is being processed.
+ * <p/>
+ * The responses can be submitted on any thread; they are sent in the order of the requests. The
+ * response bytes are copied into the event loop's pooled direct buffers (or, for TLS, encrypted
+ * into the engine's pooled buffers) and written out using gathering writes: by the submitting
+ * thread if nothing else is queued, and by the event loop thread otherwise.
+ */
+public class HttpConnection
+        implements EventLoop.Handler
+    {
+    /**
+     * Construct a connection. The caller is responsible for calling {@link #open}.
+     *
+     * @param engine     the engine that accepted the connection
+     * @param loop       the event loop to assign the socket to
+     * @param channel    the connected non-blocking socket
+     * @param engineSSL  the SSL engine for a TLS connection, or null
+     */
+    HttpConnection(HttpEngine engine, EventLoop loop, SocketChannel channel, SSLEngine engineSSL)
+            throws IOException
+        {
+        f_engine     = engine;
+        f_loop       = loop;
+        f_channel    = channel;
+        f_sslEngine  = engineSSL;
+        f_addrRemote = (InetSocketAddress) channel.getRemoteAddress();
+        f_addrLocal  = (InetSocketAddress) channel.getLocalAddress();
+        m_ldtLastUse = System.currentTimeMillis();
+        }
+
+    /**
+     * Register the connection with its event loop.
+     */
+    void open()
+        {
+        f_loop.execute(this::register);
+        }
+
+    /**
+     * @return true iff this is a TLS connection
+     */
+    public boolean isTls()
+        {
+        return f_sslEngine != null;
+        }
+
+    /**
+     * @return the client address
+     */
+    public InetSocketAddress getRemoteAddress()
+        {
+        return f_addrRemote;
+        }
+
+    /**
+     * @return the server address
+     */
+    public InetSocketAddress getLocalAddress()
+        {
+        return f_addrLocal;
+        }
+
+    /**
+     * @return the size of the input buffer (for diagnostics)
+     */
+    int getInputCapacity()
+        {
+        return m_cbInCapacity;
+        }
+
+    /**
+     * Close the connection; the responses that have not been sent yet are discarded. Can be
+     * called on any thread.
+     */
+    public void close()
+        {
+        synchronized (this)
+            {
+            if (m_fClosed)
+                {
+                return;
+                }
+            m_fClosed = true;
+            }
+
+        f_engine.unregister(this);
+        if (f_loop.inEventLoop())
+            {
+            release();
+            }
+        else
+            {
+            f_loop.execute(this::release);
+            }
+        }
+
+
+    // ----- responding ----------------------------------------------------------------------------
+
+    /**
+     * Submit the response for the specified request; see {@link HttpRequest#respond}.
+     */
+    void submit(HttpRequest request, byte[] abHead, byte[] abBody, boolean fClose)
+        {
+        boolean fResume;
+        boolean fFlush;
+        synchronized (this)
+            {
+            if (m_fClosed)
+                {
+                return;
+                }
+
+            request.setResponse(abHead, abBody, fClose);
+
+            boolean fIdle = isOutputEmpty();
+            fResume = drainResponses();
+
+            if (fIdle && !isOutputEmpty() && m_key != null)
+                {
+                // nothing else is being written; rather than handing the data over to the event
+                // loop (and waiting for its thread to get scheduled), try writing it right away
+                writeOutput();
+                }
+            fFlush = !isOutputEmpty() || m_fCloseAfterWrite;
+            }
+
+        m_ldtLastUse = System.currentTimeMillis();
+        if (fResume)
+            {
+            f_loop.execute(this::resume);
+            }
+        else if (fFlush)
+            {
+            f_loop.execute(this::flush);
+            }
+        }
+
+    /**
+     * Move the responses that are ready to be sent (in the order of the requests) to the output.
+     * Must be called while holding this connection's monitor.
+     *
+     * @return true iff the reading has been paused, and can now be resumed
+     */
+    private boolean drainResponses()
+        {
+        ArrayDeque<HttpRequest> queue = m_queueRequests;
+
+        HttpRequest request;
+        while ((request = queue.peek()) != null && request.getResponseHead() != null)
+            {
+            queue.poll();
+            output(request.getResponseHead());
+            if (request.getResponseBody() != null)
+                {
+                output(request.getResponseBody());
+                }
+
+            if (request.isCloseAfterResponse())
+                {
+                // any requests pipelined after this one are discarded
+                m_fCloseAfterWrite = true;
+                m_abFinal          = null;
+                queue.clear();
+                break;
+                }
+            request.setResponse(null, null, false);
+            }
+
+        if (queue.isEmpty() && m_abFinal != null)
+            {
+            output(m_abFinal);
+            m_abFinal          = null;
+            m_fCloseAfterWrite = true;
+            }
+
+        if (m_fReadPaused && queue.size() < HttpEngine.MAX_PIPELINE && !m_fCloseAfterWrite)
+            {
+            m_fReadPaused = false;
+            return true;
+            }
+        return false;
+        }
+
+    /**
+     * Queue the specified bytes for writing. Must be called while holding this connection's
+     * monitor.
+     */
+    private void output(byte[] ab)
+        {
+        if (m_fWriteFailed)
+            {
+            return;
+            }
+
+        if (f_sslEngine != null)
+            {
+            // the bytes are copied as they are encrypted
+            m_queuePlain.add(ByteBuffer.wrap(ab));
+            return;
+            }
+
+        ArrayDeque<ByteBuffer> queue = m_queueWrite;
+        int                    of    = 0;
+        int                    cb    = ab.length;
+
+        // top off the last pending buffer first; note that the pending buffers are kept "flipped"
+        // (ready to be written out), so the data is appended beyond the limit
+        ByteBuffer bufTail = queue.peekLast();
+        if (bufTail != null)
+            {
+            int ofTail = bufTail.limit();
+            int cCopy  = Math.min(bufTail.capacity() - ofTail, cb);
+            if (cCopy > 0)
+                {
+                bufTail.limit(ofTail + cCopy);
+                bufTail.put(ofTail, ab, of, cCopy);
+                of += cCopy;
+                cb -= cCopy;
+                }
+            }
+
+        while (cb > 0)
+            {
+            ByteBuffer buf   = f_loop.allocateWriteBuffer();
+            int        cCopy = Math.min(buf.capacity(), cb);
+            buf.put(ab, of, cCopy).flip();
+            queue.add(buf);
+            of += cCopy;
+            cb -= cCopy;
+            }
+        }
+
+    /**
+     * @return true iff there is nothing waiting to be written; must be called while holding this
+     *         connection's monitor
+     */
+    private boolean isOutputEmpty()
+        {
+        return m_queueWrite.isEmpty() && m_queuePlain.isEmpty();
+        }
+
+    /**
+     * Encrypt (if necessary) and write out as much of the queued data as the socket accepts
+     * without blocking. Must be called while holding this connection's monitor, but can be called
+     * on any thread.
+     */
+    private void writeOutput()
+        {
+        if (f_sslEngine == null)
+            {
+            writeQueue();
+            }
+        else
+            {
+            do
+                {
+                encrypt();
+                writeQueue();
+                }
+            while (m_queueWrite.isEmpty() && !m_queuePlain.isEmpty() && !m_fWriteFailed);
+            }
+        m_fWritePending = !isOutputEmpty();
+        }
+
+    /**
+     * Encrypt the queued plain text, as long as there are not too many encrypted buffers waiting
+     * to be written. Must be called while holding this connection's monitor.
+     */
+    private void encrypt()
+        {
+        ArrayDeque<ByteBuffer> queue = m_queuePlain;
+        try
+            {
+            while (!queue.isEmpty() && m_queueWrite.size() < MAX_NET_PENDING)
+                {
+                SSLEngineResult.Status status = wrap(queue.toArray(BUFFERS_NONE));
+                while (!queue.isEmpty() && !queue.peek().hasRemaining())
+                    {
+                    queue.poll();
+                    }
+                if (status == SSLEngineResult.Status.CLOSED)
+                    {
+                    queue.clear();
+                    }
+                }
+            }
+        catch (SSLException e)
+            {
+            failWrite();
+            }
+        }
+
+    /**
+     * Produce a TLS record from the specified plain text (or a handshake message, if the plain text
+     * is empty), and queue it for writing. Must be called while holding this connection's monitor.
+     *
+     * @return the status of the operation
+     */
+    private SSLEngineResult.Status wrap(ByteBuffer[] aBuf)
+            throws SSLException
+        {
+        ByteBuffer      bufNet = f_engine.allocateNetBuffer(
+                                    f_sslEngine.getSession().getPacketBufferSize());
+        SSLEngineResult result = f_sslEngine.wrap(aBuf, bufNet);
+        if (bufNet.position() > 0)
+            {
+            m_queueWrite.add(bufNet.flip());
+            }
+        else
+            {
+            f_engine.releaseNetBuffer(bufNet);
+            }
+        return result.getStatus();
+        }
+
+    /**
+     * Write out as much of the queued buffers as the socket accepts without blocking. Must be
+     * called while holding this connection's monitor.
+     */
+    private void writeQueue()
+        {
+        ArrayDeque<ByteBuffer> queue = m_queueWrite;
+        try
+            {
+            while (!queue.isEmpty())
+                {
+                ByteBuffer[] aBuf = queue.size() <= MAX_GATHER
+                        ? queue.toArray(BUFFERS_NONE)
+                        : queue.stream().limit(MAX_GATHER).toArray(ByteBuffer[]::new);
+
+                f_channel.write(aBuf);
+
+                for (ByteBuffer buf : aBuf)
+                    {
+                    if (buf.hasRemaining())
+                        {
+                        break;
+                        }
+                    releaseBuffer(queue.poll());
+                    }
+
+                ByteBuffer bufHead = queue.peek();
+                if (bufHead != null && bufHead.hasRemaining() && bufHead == aBuf[0])
+                    {
+                    // the socket's send buffer is full
+                    break;
+                    }
+                }
+            }
+        catch (IOException e)
+            {
+            failWrite();
+            }
+        }
+
+    /**
+     * Discard all the output after a write failure; the connection will be closed. Must be called
+     * while holding this connection's monitor.
+     */
+    private void failWrite()
+        {
+        m_fWriteFailed     = true;
+        m_fCloseAfterWrite = true;
+        for (ByteBuffer buf : m_queueWrite)
+            {
+            releaseBuffer(buf);
+            }
+        m_queueWrite.clear();
+        m_queuePlain.clear();
+        m_queueRequests.clear();
+        }
+
+    /**
+     * Return the specified write buffer to its pool.
+     */
+    private void releaseBuffer(ByteBuffer buf)
+        {
+        if (f_sslEngine == null)
+            {
+            f_loop.releaseWriteBuffer(buf);
+            }
+        else
+            {
+            f_engine.releaseNetBuffer(buf);
+            }
+        }
+
+
+    // ----- EventLoop.Handler ---------------------------------------------------------------------
+
+    @Override
+    public void onSelect(SelectionKey key)
+            throws IOException
+        {
+        if (key.isReadable())
+            {
+            read();
+            }
+
+        if (key.isValid() && key.isWritable())
+            {
+            flush();
+            }
+        }
+
+    @Override
+    public void onFailure(IOException e)
+        {
+        close();
+        }
+
+
+    // ----- event loop operations -----------------------------------------------------------------
+
+    /**
+     * Register the socket with the event loop for reading. Called on the event loop thread.
+     */
+    private void register()
+        {
+        try
+            {
+            m_key = f_loop.register(f_channel, SelectionKey.OP_READ, this);
+            if (f_sslEngine != null)
+                {
+                f_sslEngine.beginHandshake();
+                }
+            scheduleIdleCheck(f_engine.getIdleMillis());
+            }
+        catch (IOException e)
+            {
+            close();
+            }
+        }
+
+    /**
+     * Read the available data from the socket and process the requests. Called on the event loop
+     * thread.
+     */
+    private void read()
+            throws IOException
+        {
+        int cb;
+        if (f_sslEngine == null)
+            {
+            ByteBuffer buf = f_loop.getReadBuffer();
+            cb = f_channel.read(buf);
+            if (cb > 0)
+                {
+                append(buf.flip());
+                }
+            }
+        else
+            {
+            ByteBuffer bufNet = m_bufNetIn;
+            if (bufNet == null)
+                {
+                m_bufNetIn = bufNet = ByteBuffer.allocate(
+                        f_sslEngine.getSession().getPacketBufferSize());
+                }
+            cb = f_channel.read(bufNet);
+            if (cb > 0 && !unwrap())
+                {
+                return;
+                }
+            }
+
+        if (cb < 0)
+            {
+            onEof();
+            return;
+            }
+
+        if (cb > 0)
+            {
+            m_ldtLastUse = System.currentTimeMillis();
+            process();
+            }
+        updateInterest();
+        }
+
+    /**
+     * Decrypt the data that has been read, proceeding with the handshake as necessary. Called on
+     * the event loop thread.
+     *
+     * @return false iff the connection is closing
+     */
+    private boolean unwrap()
+            throws IOException
+        {
+        SSLEngine  engine = f_sslEngine;
+        ByteBuffer bufNet = m_bufNetIn.flip();
+        try
+            {
+            while (true)
+                {
+                ByteBuffer      bufApp = f_loop.getReadBuffer();
+                SSLEngineResult result;
+                synchronized (this)
+                    {
+                    result = engine.unwrap(bufNet, bufApp);
+                    }
+
+                if (bufApp.position() > 0)
+                    {
+                    append(bufApp.flip());
+                    }
+
+                switch (result.getStatus())
+                    {
+                    case CLOSED:
+                        onEof();
+                        return false;
+
+                    case BUFFER_OVERFLOW:
+                        throw new SSLException("Record exceeds the application buffer");
+                    }
+
+                handshake();
+
+                if (result.getStatus() == SSLEngineResult.Status.BUFFER_UNDERFLOW
+                        || !bufNet.hasRemaining()
+                        || result.bytesConsumed() == 0 && result.bytesProduced() == 0
+                            && engine.getHandshakeStatus() !=
+                                    SSLEngineResult.HandshakeStatus.NEED_UNWRAP)
+                    {
+                    return true;
+                    }
+                }
+            }
+        finally
+            {
+            bufNet.compact();
+
+            int cbPacket = engine.getSession().getPacketBufferSize();
+            if (!bufNet.hasRemaining() && bufNet.capacity() < cbPacket)
+                {
+                m_bufNetIn = ByteBuffer.allocate(cbPacket).put(bufNet.flip());
+                }
+            }
+        }
+
+    /**
+     * Proceed with the TLS handshake as far as possible without reading. Called on the event loop
+     * thread.
+     */
+    private void handshake()
+            throws IOException
+        {
+        SSLEngine engine = f_sslEngine;
+        while (true)
+            {
+            switch (engine.getHandshakeStatus())
+                {
+                case NEED_TASK:
+                    {
+                    // the tasks are CPU bound (e.g. the key exchange computations)
+                    Runnable task;
+                    while ((task = engine.getDelegatedTask()) != null)
+                        {
+                        task.run();
+                        }
+                    break;
+                    }
+
+                case NEED_WRAP:
+                    {
+                    SSLEngineResult.Status status;
+                    synchronized (this)
+                        {
+                        status = wrap(BUFFERS_NONE);
+                        writeQueue();
+                        m_fWritePending = !isOutputEmpty();
+                        }
+                    if (status == SSLEngineResult.Status.CLOSED)
+                        {
+                        return;
+                        }
+                    break;
+                    }
+
+                default:
+                    return;
+                }
+            }
+        }
+
+    /**
+     * Append the specified data to the input buffer. Called on the event loop thread.
+     */
+    private void append(ByteBuffer buf)
+        {
+        int    cb = buf.remaining();
+        byte[] ab = m_abIn;
+        if (ab == null || m_cbIn + cb > ab.length)
+            {
+            int ofKeep = m_ofRequest;
+            int cbKeep = m_cbIn - ofKeep;
+            int cbNeed = cbKeep + cb;
+            if (ab != null && !m_fInShared && cbNeed <= ab.length)
+                {
+                System.arraycopy(ab, ofKeep, ab, 0, cbKeep);
+                }
+            else
+                {
+                // the buffer is either too small, or it holds the requests that have been taken
+                // from it; either way, the unprocessed data goes to a new buffer, which grows with
+                // the data actually received (the declared content length is only trusted as an
+                // upper bound, so that a client cannot make the server allocate it up front)
+                int cbNew = Math.max(Math.max(IN_BUFFER_SIZE, cbNeed), 2 * cbKeep);
+                if (m_cbExpected > 0)
+                    {
+                    cbNew = Math.min(cbNew, Math.max(cbNeed, m_cbExpected));
+                    }
+                byte[] abNew = new byte[cbNew];
+                if (cbKeep > 0)
+                    {
+                    System.arraycopy(ab, ofKeep, abNew, 0, cbKeep);
+                    }
+                m_abIn         = ab = abNew;
+                m_cbInCapacity = cbNew;
+                m_fInShared    = false;
+                }
+
+            m_ofRequest  = 0;
+            m_ofParse   -= ofKeep;
+            m_ofBody    -= ofKeep;
+            m_ofBodyEnd -= ofKeep;
+            m_cbIn       = cbKeep;
+            if (m_request != null)
+                {
+                m_request.relocate(ab, 0);
+                }
+            }
+
+        buf.get(ab, m_cbIn, cb);
+        m_cbIn += cb;
+        }
+
+    /**
+     * Parse and dispatch all the complete requests in the input buffer. Called on the event loop
+     * thread.
+     */
+    private void process()
+        {
+        while (true)
+            {
+            HttpRequest request = m_request;
+            byte[]      ab      = m_abIn;
+            if (request == null)
+                {
+                synchronized (this)
+                    {
+                    if (m_fClosed || m_fInputDone || m_fCloseAfterWrite || ab == null)
+                        {
+                        return;
+                        }
+                    if (m_queueRequests.size() >= HttpEngine.MAX_PIPELINE)
+                        {
+                        // stop reading until some responses have been sent
+                        m_fReadPaused = true;
+                        return;
+                        }
+                    }
+
+                // skip the empty lines that precede the request line
+                int cb = m_cbIn;
+                int of = m_ofRequest;
+                while (of < cb && (ab[of] == '\r' || ab[of] == '\n'))
+                    {
+                    ++of;
+                    }
+                m_ofRequest = of;
+                m_ofParse   = Math.max(m_ofParse, of);
+
+                int ofHeadEnd = findHeadEnd();
+                if (ofHeadEnd < 0)
+                    {
+                    if (cb - of > HttpEngine.MAX_HEAD_SIZE)
+                        {
+                        fail(431);
+                        }
+                    return;
+                    }
+                if (ofHeadEnd - of > HttpEngine.MAX_HEAD_SIZE)
+                    {
+                    fail(431);
+                    return;
+                    }
+
+                try
+                    {
+                    request = HttpRequest.parse(this, ab, of, ofHeadEnd);
+                    }
+                catch (BadRequestException e)
+                    {
+                    fail(e.f_nStatus);
+                    return;
+                    }
+
+                long cbContent = request.getContentLength();
+                if (cbContent > HttpEngine.MAX_CONTENT_SIZE)
+                    {
+                    fail(413);
+                    return;
+                    }
+
+                m_request     = request;
+                m_ofParse     = ofHeadEnd;
+                m_ofBody      = ofHeadEnd;
+                m_ofBodyEnd   = ofHeadEnd;
+                m_nChunkState = CHUNK_SIZE;
+                m_cbChunk     = 0;
+                m_cbExpected  = cbContent > 0 ? (int) (ofHeadEnd - of + cbContent) : 0;
+
+                if (request.isExpectContinue() && cbContent != 0 && m_cbIn == ofHeadEnd)
+                    {
+                    sendContinue();
+                    }
+                }
+
+            // the body
+            int ofEnd;
+            if (request.isChunked())
+                {
+                ofEnd = decodeChunks();
+                if (ofEnd == NEED_MORE)
+                    {
+                    return;
+                    }
+                if (ofEnd < 0)
+                    {
+                    fail(ofEnd == TOO_LARGE ? 413 : 400);
+                    return;
+                    }
+                request.setBody(m_ofBody, m_ofBodyEnd - m_ofBody);
+                }
+            else
+                {
+                int cbBody = (int) request.getContentLength();
+                if (m_cbIn - m_ofBody < cbBody)
+                    {
+                    return;
+                    }
+                request.setBody(m_ofBody, cbBody);
+                ofEnd = m_ofBody + cbBody;
+                }
+
+            // the request is complete; from now on, the buffer must not be overwritten
+            m_request    = null;
+            m_ofRequest  = ofEnd;
+            m_ofParse    = ofEnd;
+            m_cbExpected = 0;
+            m_fInShared  = true;
+
+            synchronized (this)
+                {
+                m_queueRequests.add(request);
+                if (!request.isKeepAlive())
+                    {
+                    m_fInputDone = true;
+                    }
+                }
+            f_engine.dispatch(request);
+            }
+        }
+
+    /**
+     * Find the end of the request head (an empty line), resuming the search where the previous
+     * one stopped.
+     *
+     * @return the offset right past the empty line, or -1 if the head is not complete yet
+     */
+    private int findHeadEnd()
+        {
+        byte[] ab      = m_abIn;
+        int    ofStart = m_ofRequest;
+        for (int of = m_ofParse, cb = m_cbIn; of < cb; of++)
+            {
+            if (ab[of] == '\n')
+                {
+                int ofPrev = of - 1;
+                if (ofPrev > ofStart && ab[ofPrev] == '\r')
+                    {
+                    --ofPrev;
+                    }
+                if (ofPrev >= ofStart && ab[ofPrev] == '\n')
+                    {
+                    return of + 1;
+                    }
+                }
+            }
+        m_ofParse = m_cbIn;
+        return -1;
+        }
+
+    /**
+     * Decode the chunked body in place, as far as the data has been received.
+     *
+     * @return the offset right past the chunked body, {@link #NEED_MORE} if it is not complete
+     *         yet, or {@link #MALFORMED} or {@link #TOO_LARGE}
+     */
+    private int decodeChunks()
+        {
+        byte[] ab = m_abIn;
+        int    cb = m_cbIn;
+        while (true)
+            {
+            int of = m_ofParse;
+            switch (m_nChunkState)
+                {
+                case CHUNK_SIZE:
+                    {
+                    int ofEol = HttpRequest.indexOf(ab, '\n', of, cb);
+                    if (ofEol < 0)
+                        {
+                        return cb - of > MAX_CHUNK_LINE ? MALFORMED : NEED_MORE;
+                        }
+
+                    long cbChunk = 0;
+                    int  cDigits = 0;
+                    for (; of < ofEol; of++, cDigits++)
+                        {
+                        int nDigit = Character.digit(ab[of], 16);
+                        if (nDigit < 0)
+                            {
+                            break;
+                            }
+                        cbChunk = cbChunk << 4 | nDigit;
+                        }
+                    if (cDigits == 0 || cDigits > 8)
+                        {
+                        return MALFORMED;
+                        }
+
+                    m_ofParse = ofEol + 1;
+                    if (cbChunk == 0)
+                        {
+                        m_nChunkState = CHUNK_TRAILER;
+                        }
+                    else if (m_ofBodyEnd - m_ofBody + cbChunk > HttpEngine.MAX_CONTENT_SIZE)
+                        {
+                        return TOO_LARGE;
+                        }
+                    else
+                        {
+                        m_cbChunk     = (int) cbChunk;
+                        m_nChunkState = CHUNK_DATA;
+                        }
+                    break;
+                    }
+
+                case CHUNK_DATA:
+                    {
+                    int cbCopy = Math.min(cb - of, m_cbChunk);
+                    if (cbCopy > 0)
+                        {
+                        if (of != m_ofBodyEnd)
+                            {
+                            System.arraycopy(ab, of, ab, m_ofBodyEnd, cbCopy);
+                            }
+                        m_ofParse   += cbCopy;
+                        m_ofBodyEnd += cbCopy;
+                        m_cbChunk   -= cbCopy;
+                        }
+                    if (m_cbChunk > 0)
+                        {
+                        return NEED_MORE;
+                        }
+                    m_nChunkState = CHUNK_DATA_END;
+                    break;
+                    }
+
+                case CHUNK_DATA_END:
+                    {
+                    int ofEol = HttpRequest.indexOf(ab, '\n', of, cb);
+                    if (ofEol < 0)
+                        {
+                        return cb - of > 1 ? MALFORMED : NEED_MORE;
+                        }
+                    if (ofEol - of > 1 || ofEol > of && ab[of] != '\r')
+                        {
+                        return MALFORMED;
+                        }
+                    m_ofParse     = ofEol + 1;
+                    m_nChunkState = CHUNK_SIZE;
+                    break;
+                    }
+
+                case CHUNK_TRAILER:
+                    {
+                    // the trailer fields are ignored
+                    int ofEol = HttpRequest.indexOf(ab, '\n', of, cb);
+                    if (ofEol < 0)
+                        {
+                        return cb - of > HttpEngine.MAX_HEAD_SIZE ? MALFORMED : NEED_MORE;
+                        }
+                    m_ofParse = ofEol + 1;
+                    if (ofEol == of || ofEol == of + 1 && ab[of] == '\r')
+                        {
+                        return m_ofParse;
+                        }
+                    break;
+                    }
+                }
+            }
+        }
+
+    /**
+     * Send the "100 Continue" interim response, unless it could be mixed up with the responses to
+     * the preceding requests (the client will then send the body after a timeout anyway). Called
+     * on the event loop thread.
+     */
+    private void sendContinue()
+        {
+        synchronized (this)
+            {
+            if (m_queueRequests.isEmpty() && !m_fClosed)
+                {
+                output(CONTINUE);
+                writeOutput();
+                }
+            }
+        }
+
+    /**
+     * Respond to an unprocessable request with the specified status (after the responses to all the
+     * preceding requests) and close the connection. Called on the event loop thread.
+     */
+    private void fail(int nStatus)
+        {
+        m_request = null;
+        synchronized (this)
+            {
+            m_fInputDone = true;
+            m_abFinal    = HttpRequest.makeEmptyResponse(nStatus, true);
+            drainResponses();
+            }
+        flush();
+        }
+
+    /**
+     * Process the end of the input: the connection is closed once all the pending responses have
+     * been sent. Called on the event loop thread.
+     */
+    private void onEof()
+        {
+        boolean fClose;
+        synchronized (this)
+            {
+            m_fInputDone = true;
+            fClose       = m_queueRequests.isEmpty() && isOutputEmpty();
+            if (!fClose)
+                {
+                m_fCloseAfterWrite = true;
+                }
+            }
+
+        if (fClose)
+            {
+            close();
+            }
+        else
+            {
+            updateInterest();
+            }
+        }
+
+    /**
+     * Write out the pending data, and close the connection if it's done. Called on the event loop
+     * thread.
+     */
+    private void flush()
+        {
+        if (m_key == null)
+            {
+            // not registered yet; the registration will pick up the pending writes
+            return;
+            }
+
+        boolean fClose;
+        synchronized (this)
+            {
+            if (m_fClosed)
+                {
+                return;
+                }
+            writeOutput();
+            fClose = m_fCloseAfterWrite && !m_fWritePending && m_queueRequests.isEmpty();
+            }
+
+        if (fClose)
+            {
+            close();
+            }
+        else
+            {
+            updateInterest();
+            }
+        }
+
+    /**
+     * Resume reading after the number of the pending requests has dropped. Called on the event
+     * loop thread.
+     */
+    private void resume()
+        {
+        flush();
+        process();
+        updateInterest();
+        }
+
+    /**
+     * Bring the interest set in sync with the state of the connection. Called on the event loop
+     * thread.
+     */
+    private void updateInterest()
+        {
+        SelectionKey key = m_key;
+        if (key == null || !key.isValid())
+            {
+            return;
+            }
+
+        int nOps;
+        synchronized (this)
+            {
+            nOps = (m_fInputDone || m_fReadPaused || m_fCloseAfterWrite ? 0 : SelectionKey.OP_READ)
+                 | (m_fWritePending ? SelectionKey.OP_WRITE : 0);
+            }
+
+        if (key.interestOps() != nOps)
+            {
+            key.interestOps(nOps);
+            }
+        }
+
+    /**
+     * Schedule a check for the connection having been idle.
+     */
+    private void scheduleIdleCheck(long cDelay)
+        {
+        HttpEngine.schedule(() -> f_loop.execute(this::checkIdle), cDelay);
+        }
+
+    /**
+     * Close the connection if it has not been used for {@link HttpEngine#getIdleMillis} and there are
+     * no requests being processed. Called on the event loop thread.
+     */
+    private void checkIdle()
+        {
+        long    cIdle;
+        boolean fBusy;
+        synchronized (this)
+            {
+            if (m_fClosed)
+                {
+                return;
+                }
+            cIdle = System.currentTimeMillis() - m_ldtLastUse;
+            fBusy = !m_queueRequests.isEmpty() || m_fWritePending;
+            }
+
+        long cIdleMax = f_engine.getIdleMillis();
+        if (cIdle >= cIdleMax && !fBusy)
+            {
+            close();
+            }
+        else
+            {
+            scheduleIdleCheck(fBusy
+                    ? cIdleMax
+                    : cIdleMax - cIdle);
+            }
+        }
+
+    /**
+     * Close the socket and release the buffers. Called on the event loop thread.
+     */
+    private void release()
+        {
+        SelectionKey key = m_key;
+        if (key != null)
+            {
+            key.cancel();
+            }
+
+        synchronized (this)
+            {
+            if (f_sslEngine != null && !m_fWriteFailed)
+                {
+                // a best effort to let the client know
+                try
+                    {
+                    f_sslEngine.closeOutbound();
+                    wrap(BUFFERS_NONE);
+                    writeQueue();
+                    }
+                catch (IOException | RuntimeException ignore) {}
+                }
+
+            for (ByteBuffer buf : m_queueWrite)
+                {
+                releaseBuffer(buf);
+                }
+            m_queueWrite.clear();
+            m_queuePlain.clear();
+            m_queueRequests.clear();
+            m_fWritePending = false;
+            }
+
+        try
+            {
+            f_channel.close();
+            }
+        catch (IOException ignore) {}
+
+        m_abIn     = null;
+        m_bufNetIn = null;
+        m_request  = null;
+        }
+
+
+    // ----- constants and fields ------------------------------------------------------------------
+
+    /**
+     * The initial size of the input buffers.
+     */
+    private static final int IN_BUFFER_SIZE = 4 * 1024;
+
+    /**
+     * The maximum number of encrypted buffers waiting to be written.
+     */
+    private static final int MAX_NET_PENDING = 4;
+
+    /**
+     * The maximum number of buffers in a single gathering write.
+     */
+    private static final int MAX_GATHER = 64;
+
+    /**
+     * The maximum length of a chunk size line (including the chunk extensions).
+     */
+    private static final int MAX_CHUNK_LINE = 1024;
+
+    /**
+     * The chunked body decoding states.
+     */
+    private static final int CHUNK_SIZE     = 0;
+    private static final int CHUNK_DATA     = 1;
+    private static final int CHUNK_DATA_END = 2;
+    private static final int CHUNK_TRAILER  = 3;
+
+    /**
+     * The {@link #decodeChunks} results other than the end offset.
+     */
+    private static final int NEED_MORE = -1;
+    private static final int MALFORMED = -2;
+    private static final int TOO_LARGE = -3;
+
+    private static final byte[] CONTINUE =
+            "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+
+    private static final ByteBuffer[] BUFFERS_NONE = new ByteBuffer[0];
+
+    /**
+     * The engine that accepted the connection.
+     */
+    private final HttpEngine f_engine;
+
+    /**
+     * The event loop the socket is assigned to.
+     */
+    private final EventLoop f_loop;
+
+    /**
+     * The socket.
+     */
+    private final SocketChannel f_channel;
+
+    /**
+     * The SSL engine, or null for a plain text connection.
+     */
+    private final SSLEngine f_sslEngine;
+
+    /**
+     * The client address.
+     */
+    private final InetSocketAddress f_addrRemote;
+
+    /**
+     * The server address.
+     */
+    private final InetSocketAddress f_addrLocal;
+
+    /**
+     * The selection key (assigned on the event loop thread).
+     */
+    private volatile SelectionKey m_key;
+
+    /**
+     * The time of the last read or response.
+     */
+    private volatile long m_ldtLastUse;
+
+    // the input state; used on the event loop thread only
+
+    /**
+     * The encrypted data that has been read, but not decrypted yet.
+     */
+    private ByteBuffer m_bufNetIn;
+
+    /**
+     * The input buffer, or null.
+     */
+    private byte[] m_abIn;
+
+    /**
+     * The size of the input buffer; readable on any thread.
+     */
+    private volatile int m_cbInCapacity;
+
+    /**
+     * The number of bytes in the input buffer.
+     */
+    private int m_cbIn;
+
+    /**
+     * True iff the input buffer holds any requests that have been dispatched.
+     */
+    private boolean m_fInShared;
+
+    /**
+     * The offset of the first byte of the request being received.
+     */
+    private int m_ofRequest;
+
+    /**
+     * The offset where the parsing resumes.
+     */
+    private int m_ofParse;
+
+    /**
+     * The request whose body is being received, or null.
+     */
+    private HttpRequest m_request;
+
+    /**
+     * The total size of the request being received, if known; the input buffer never grows beyond
+     * it, but is not allocated for it up front either.
+     */
+    private int m_cbExpected;
+
+    /**
+     * The offset of the body of the request being received.
+     */
+    private int m_ofBody;
+
+    /**
+     * The end of the decoded part of a chunked body.
+     */
+    private int m_ofBodyEnd;
+
+    /**
+     * The chunked body decoding state.
+     */
+    private int m_nChunkState;
+
+    /**
+     * The number of bytes remaining in the current chunk.
+     */
+    private int m_cbChunk;
+
+    // the shared state; guarded by this connection's monitor
+
+    /**
+     * The dispatched requests, in order, that have not been responded to yet.
+     */
+    private final ArrayDeque<HttpRequest> m_queueRequests = new ArrayDeque<>();
+
+    /**
+     * The (flipped) buffers holding the data waiting to be written.
+     */
+    private final ArrayDeque<ByteBuffer> m_queueWrite = new ArrayDeque<>();
+
+    /**
+     * The plain text waiting to be encrypted (TLS only).
+     */
+    private final ArrayDeque<ByteBuffer> m_queuePlain = new ArrayDeque<>();
+
+    /**
+     * The response to send after all the pending ones, before closing the connection.
+     */
+    private byte[] m_abFinal;
+
+    /**
+     * True iff no more requests are to be read.
+     */
+    private boolean m_fInputDone;
+
+    /**
+     * True iff the reading has been suspended, because too many requests are pending.
+     */
+    private boolean m_fReadPaused;
+
+    /**
+     * True iff the socket could not accept all the data, and the OP_WRITE interest is needed.
+     */
+    private boolean m_fWritePending;
+
+    /**
+     * True iff the connection is to be closed once the pending data has been written.
+     */
+    private boolean m_fCloseAfterWrite;
+
+    /**
+     * True iff a write has failed.
+     */
+    private boolean m_fWriteFailed;
+
+    /**
+     * True iff the connection has been closed.
+     */
+    private boolean m_fClosed;
+    }
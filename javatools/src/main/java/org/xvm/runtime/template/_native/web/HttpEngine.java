@@ -0,0 +1,466 @@
+package org.xvm.runtime.template._native.web;
+
+
+import java.io.IOException;
+
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+
+import java.nio.ByteBuffer;
+
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import java.util.Collections;
+import java.util.Queue;
+import java.util.Set;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+
+import org.xvm.runtime.EventLoop;
+import org.xvm.runtime.Runtime;
+
+import org.xvm.util.concurrent.TimingWheel;
+
+
+/**
+ * A non-blocking HTTP/1.1 server engine that runs on the runtime's {@link EventLoop}s.
+ * <p/>
+ * The engine listens on a plain text and a TLS port; every accepted connection is assigned to one
+ * of the event loops, which reads the requests, parses them in place (see {@link HttpRequest}) and
+ * hands them to the {@link Handler}. The persistent connections and the pipelined requests are
+ * supported; the responses are sent in the order of the requests, using the pooled direct buffers.
+ * The TLS is done by an {@link SSLEngine} per connection, so that no thread is ever blocked on a
+ * socket.
+ */
+public class HttpEngine
+    {
+    /**
+     * Construct the engine and bind the listening sockets. The connections are not accepted until
+     * the engine is {@link #start started}.
+     *
+     * @param runtime    the runtime that provides the event loops
+     * @param addrHttp   the address to listen on for the plain text requests
+     * @param addrHttps  the address to listen on for the TLS requests
+     * @param ctxSSL     the SSL context for the TLS connections
+     */
+    public HttpEngine(Runtime runtime, InetSocketAddress addrHttp, InetSocketAddress addrHttps,
+                      SSLContext ctxSSL)
+            throws IOException
+        {
+        f_runtime = runtime;
+        f_ctxSSL  = ctxSSL;
+
+        Listener listenerHttp = new Listener(addrHttp, false);
+        try
+            {
+            f_listenerHttps = new Listener(addrHttps, true);
+            }
+        catch (IOException e)
+            {
+            listenerHttp.close();
+            throw e;
+            }
+        f_listenerHttp = listenerHttp;
+        }
+
+    /**
+     * The receiver of the requests.
+     */
+    public interface Handler
+        {
+        /**
+         * Process the specified request. Called on an event loop thread, so it must not block;
+         * the response can be sent later, on any thread, using {@link HttpRequest#respond}.
+         *
+         * @param request  the request
+         */
+        void onRequest(HttpRequest request);
+        }
+
+
+    // ----- API -----------------------------------------------------------------------------------
+
+    /**
+     * Start accepting the connections (if not started yet), and route all the requests to the
+     * specified handler.
+     *
+     * @param handler  the request handler
+     */
+    public void start(Handler handler)
+            throws IOException
+        {
+        boolean fStart = m_handler == null;
+
+        m_handler = handler;
+        if (fStart)
+            {
+            f_listenerHttp .start();
+            f_listenerHttps.start();
+            }
+        }
+
+    /**
+     * @return true iff the engine has been started
+     */
+    public boolean isStarted()
+        {
+        return m_handler != null;
+        }
+
+    /**
+     * Stop accepting the connections, and close all the open ones.
+     */
+    public void close()
+        {
+        m_fClosed = true;
+        f_listenerHttp .close();
+        f_listenerHttps.close();
+
+        for (HttpConnection connection : f_setConnections)
+            {
+            connection.close();
+            }
+        }
+
+    /**
+     * @return the time (in milliseconds) after which an idle connection is closed
+     */
+    public long getIdleMillis()
+        {
+        return m_cIdleMillis;
+        }
+
+    /**
+     * Change the idle connection timeout; it is picked up by the subsequent idle checks.
+     *
+     * @param cMillis  the time (in milliseconds) after which an idle connection is closed
+     */
+    public void setIdleMillis(long cMillis)
+        {
+        if (cMillis <= 0)
+            {
+            throw new IllegalArgumentException("Invalid idle timeout: " + cMillis);
+            }
+        m_cIdleMillis = cMillis;
+        }
+
+    /**
+     * @return the address of the TLS listener
+     */
+    public InetSocketAddress getTlsAddress()
+        {
+        return f_listenerHttps.f_addr;
+        }
+
+    /**
+     * @return the address of the plain text listener
+     */
+    public InetSocketAddress getAddress()
+        {
+        return f_listenerHttp.f_addr;
+        }
+
+
+    // ----- connection support --------------------------------------------------------------------
+
+    /**
+     * Pass the specified request to the handler. Called on an event loop thread.
+     */
+    void dispatch(HttpRequest request)
+        {
+        m_handler.onRequest(request);
+        }
+
+    /**
+     * @return the open connections (for diagnostics)
+     */
+    Set<HttpConnection> getConnections()
+        {
+        return Collections.unmodifiableSet(f_setConnections);
+        }
+
+    /**
+     * Remove a closed connection from the set of open ones.
+     */
+    void unregister(HttpConnection connection)
+        {
+        f_setConnections.remove(connection);
+        }
+
+    /**
+     * Obtain a buffer for the encrypted data from the pool (or allocate a new one). Can be called
+     * on any thread.
+     *
+     * @param cbMin  the minimum buffer size, as required by the SSL session
+     *
+     * @return a cleared direct buffer
+     */
+    ByteBuffer allocateNetBuffer(int cbMin)
+        {
+        ByteBuffer buf = f_poolNet.poll();
+        return buf == null || buf.capacity() < cbMin
+                ? ByteBuffer.allocateDirect(Math.max(cbMin, NET_BUFFER_SIZE))
+                : buf.clear();
+        }
+
+    /**
+     * Return the specified buffer to the pool. Can be called on any thread.
+     *
+     * @param buf  a buffer previously obtained from {@link #allocateNetBuffer}
+     */
+    void releaseNetBuffer(ByteBuffer buf)
+        {
+        // the pool size is only approximately bounded; it's not worth synchronizing for
+        if (f_poolNet.size() < MAX_POOLED_BUFFERS)
+            {
+            f_poolNet.add(buf);
+            }
+        }
+
+    /**
+     * Schedule the specified task to run after the specified delay. The task must not block.
+     */
+    static void schedule(Runnable task, long cMillis)
+        {
+        TIMER.schedule(task, cMillis, TimeUnit.MILLISECONDS);
+        }
+
+    /**
+     * Accept all the pending connections on the specified listener. Called on the listener's event
+     * loop thread.
+     */
+    private void accept(Listener listener)
+            throws IOException
+        {
+        SocketChannel socket;
+        while ((socket = listener.f_channel.accept()) != null)
+            {
+            if (m_fClosed)
+                {
+                socket.close();
+                continue;
+                }
+
+            try
+                {
+                socket.configureBlocking(false);
+                socket.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+                SSLEngine engineSSL = null;
+                if (listener.f_fTls)
+                    {
+                    engineSSL = f_ctxSSL.createSSLEngine();
+                    engineSSL.setUseClientMode(false);
+                    }
+
+                HttpConnection connection = new HttpConnection(this, f_runtime.getEventLoop(),
+                        socket, engineSSL);
+                f_setConnections.add(connection);
+                connection.open();
+                }
+            catch (IOException | RuntimeException e)
+                {
+                socket.close();
+                }
+            }
+        }
+
+
+    // ----- Listener ------------------------------------------------------------------------------
+
+    /**
+     * A listening socket.
+     */
+    private class Listener
+            implements EventLoop.Handler
+        {
+        Listener(InetSocketAddress addr, boolean fTls)
+                throws IOException
+            {
+            ServerSocketChannel channel = ServerSocketChannel.open();
+            try
+                {
+                channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+                channel.bind(addr, BACKLOG);
+                channel.configureBlocking(false);
+                }
+            catch (IOException e)
+                {
+                channel.close();
+                throw e;
+                }
+
+            f_channel = channel;
+            f_addr    = (InetSocketAddress) channel.getLocalAddress();
+            f_fTls    = fTls;
+            }
+
+        /**
+         * Register the socket for accepting.
+         */
+        void start()
+                throws IOException
+            {
+            EventLoop loop = f_runtime.getEventLoop();
+            loop.execute(() ->
+                {
+                try
+                    {
+                    m_key = loop.register(f_channel, SelectionKey.OP_ACCEPT, this);
+                    }
+                catch (IOException e)
+                    {
+                    onFailure(e);
+                    }
+                });
+            }
+
+        /**
+         * Close the socket.
+         */
+        void close()
+            {
+            SelectionKey key = m_key;
+            if (key != null)
+                {
+                key.cancel();
+                }
+
+            try
+                {
+                f_channel.close();
+                }
+            catch (IOException ignore) {}
+            }
+
+        @Override
+        public void onSelect(SelectionKey key)
+                throws IOException
+            {
+            accept(this);
+            }
+
+        @Override
+        public void onFailure(IOException e)
+            {
+            close();
+            }
+
+        /**
+         * The listening socket.
+         */
+        final ServerSocketChannel f_channel;
+
+        /**
+         * The address the socket is bound to.
+         */
+        final InetSocketAddress f_addr;
+
+        /**
+         * True iff the accepted connections use TLS.
+         */
+        final boolean f_fTls;
+
+        /**
+         * The selection key (assigned on the event loop thread).
+         */
+        private volatile SelectionKey m_key;
+        }
+
+
+    // ----- constants and fields ------------------------------------------------------------------
+
+    /**
+     * The default time (in milliseconds) after which an idle connection is closed.
+     */
+    public static final long IDLE_MILLIS = 30_000;
+
+    /**
+     * The maximum size of the request line and the header fields.
+     */
+    public static final int MAX_HEAD_SIZE = 64 * 1024;
+
+    /**
+     * The maximum size of a request body.
+     */
+    public static final int MAX_CONTENT_SIZE = 256 * 1024 * 1024;
+
+    /**
+     * The maximum number of requests on a connection that are waiting for their responses; once
+     * reached, the connection is not read from until some responses are sent.
+     */
+    public static final int MAX_PIPELINE = 16;
+
+    /**
+     * The listen backlog.
+     */
+    private static final int BACKLOG = 1024;
+
+    /**
+     * The default size of the buffers for the encrypted data.
+     */
+    private static final int NET_BUFFER_SIZE = 17 * 1024;
+
+    /**
+     * The maximum number of the buffers for the encrypted data kept in the pool.
+     */
+    private static final int MAX_POOLED_BUFFERS = 256;
+
+    /**
+     * The timer for the idle connection checks.
+     */
+    private static final TimingWheel TIMER =
+            new TimingWheel("ecstasy:HttpEngine", TimeUnit.MILLISECONDS.toNanos(100));
+
+    /**
+     * The runtime.
+     */
+    private final Runtime f_runtime;
+
+    /**
+     * The SSL context.
+     */
+    private final SSLContext f_ctxSSL;
+
+    /**
+     * The plain text listener.
+     */
+    private final Listener f_listenerHttp;
+
+    /**
+     * The TLS listener.
+     */
+    private final Listener f_listenerHttps;
+
+    /**
+     * The open connections.
+     */
+    private final Set<HttpConnection> f_setConnections = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The pool of buffers for the encrypted data.
+     */
+    private final Queue<ByteBuffer> f_poolNet = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The request handler; null until the engine is started.
+     */
+    private volatile Handler m_handler;
+
+    /**
+     * The idle connection timeout.
+     */
+    private volatile long m_cIdleMillis = IDLE_MILLIS;
+
+    /**
+     * Set to true once the engine is closed.
+     */
+    private volatile boolean m_fClosed;
+    }
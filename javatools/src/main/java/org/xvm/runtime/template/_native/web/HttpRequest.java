@@ -0,0 +1,1061 @@
+package org.xvm.runtime.template._native.web;
+
+
+import java.net.InetSocketAddress;
+
+import java.nio.charset.StandardCharsets;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import java.time.format.DateTimeFormatter;
+
+import java.util.Arrays;
+
+
+/**
+ * An HTTP/1.x request received by the {@link HttpEngine}, and the means to respond to it.
+ * <p/>
+ * The request line and the header fields are not turned into Java objects as they are parsed;
+ * instead, the request holds on to the connection's input buffer (which is never overwritten once
+ * a request has been taken from it) and the offsets of the individual parts. The strings are only
+ * created if and when they are asked for.
+ */
+public class HttpRequest
+    {
+    /**
+     * Construct a request; see {@link #parse}.
+     */
+    private HttpRequest(HttpConnection connection, byte[] ab, int ofBase)
+        {
+        f_connection = connection;
+        m_ab         = ab;
+        m_ofBase     = ofBase;
+        }
+
+
+    // ----- parsing -------------------------------------------------------------------------------
+
+    /**
+     * An exception that indicates that a request cannot be processed; the connection responds with
+     * the specified status code and gets closed.
+     */
+    public static class BadRequestException
+            extends Exception
+        {
+        public BadRequestException(int nStatus)
+            {
+            super(null, null, false, false);
+            f_nStatus = nStatus;
+            }
+
+        /**
+         * The status code to respond with.
+         */
+        public final int f_nStatus;
+        }
+
+    /**
+     * Parse the request line and the header fields of a request.
+     *
+     * @param connection  the connection the request was received on
+     * @param ab          the buffer holding the request head
+     * @param of          the offset of the request line
+     * @param ofEnd       the offset right past the empty line that terminates the head
+     *
+     * @return a new request, with no body yet
+     *
+     * @throws BadRequestException if the head is malformed or cannot be supported
+     */
+    public static HttpRequest parse(HttpConnection connection, byte[] ab, int of, int ofEnd)
+            throws BadRequestException
+        {
+        HttpRequest request = new HttpRequest(connection, ab, of);
+
+        // request-line = method SP request-target SP HTTP-version CRLF
+        int ofEol     = indexOf(ab, '\n', of, ofEnd);
+        int ofLineEnd = trimCR(ab, of, ofEol);
+        int ofMethod  = indexOf(ab, ' ', of, ofLineEnd);
+        int ofUriEnd  = ofMethod < 0 ? -1 : indexOf(ab, ' ', ofMethod + 1, ofLineEnd);
+        if (ofMethod <= of || ofUriEnd <= ofMethod + 1
+                || !isToken(ab, of, ofMethod) || !isTarget(ab, ofMethod + 1, ofUriEnd))
+            {
+            throw new BadRequestException(400);
+            }
+
+        int ofProtocol = ofUriEnd + 1;
+        if (ofLineEnd - ofProtocol != 8 || !startsWith(ab, ofProtocol, HTTP_1))
+            {
+            throw new BadRequestException(
+                    startsWith(ab, ofProtocol, HTTP_1, 5) ? 505 : 400);
+            }
+
+        byte bMinor = ab[ofProtocol + 7];
+        if (bMinor != '0' && bMinor != '1')
+            {
+            throw new BadRequestException(bMinor >= '2' && bMinor <= '9' ? 505 : 400);
+            }
+
+        request.m_ofMethodEnd = ofMethod - of;
+        request.m_ofUriEnd    = ofUriEnd - of;
+        request.m_fHttp11     = bMinor == '1';
+
+        // header-field = field-name ":" OWS field-value OWS
+        int[]   aof          = new int[4 * 16];
+        int     cHeaders     = 0;
+        long    cbContent    = -1;
+        boolean fChunked     = false;
+        boolean fClose       = false;
+        boolean fKeepAlive   = false;
+        boolean fContinue    = false;
+        for (int ofLine = ofEol + 1; ofLine < ofEnd; ofLine = ofEol + 1)
+            {
+            ofEol     = indexOf(ab, '\n', ofLine, ofEnd);
+            ofLineEnd = trimCR(ab, ofLine, ofEol);
+            if (ofLineEnd == ofLine)
+                {
+                break;
+                }
+
+            // the obsolete line folding (a line that starts with a white space) is rejected, and
+            // so is a white space between the field name and the colon
+            int ofColon = indexOf(ab, ':', ofLine, ofLineEnd);
+            if (ofColon <= ofLine || !isToken(ab, ofLine, ofColon))
+                {
+                throw new BadRequestException(400);
+                }
+
+            int ofValue    = ofColon + 1;
+            int ofValueEnd = ofLineEnd;
+            while (ofValue < ofValueEnd && isWhitespace(ab[ofValue]))
+                {
+                ++ofValue;
+                }
+            while (ofValueEnd > ofValue && isWhitespace(ab[ofValueEnd - 1]))
+                {
+                --ofValueEnd;
+                }
+
+            if (cHeaders * 4 == aof.length)
+                {
+                aof = Arrays.copyOf(aof, aof.length * 2);
+                }
+            int i = cHeaders++ * 4;
+            aof[i    ] = ofLine     - of;
+            aof[i + 1] = ofColon    - of;
+            aof[i + 2] = ofValue    - of;
+            aof[i + 3] = ofValueEnd - of;
+
+            // the fields that define the framing of the request
+            switch (ofColon - ofLine)
+                {
+                case 6:
+                    if (equalsIgnoreCase(ab, ofLine, ofColon, "Expect"))
+                        {
+                        fContinue = equalsIgnoreCase(ab, ofValue, ofValueEnd, "100-continue");
+                        }
+                    break;
+
+                case 10:
+                    if (equalsIgnoreCase(ab, ofLine, ofColon, "Connection"))
+                        {
+                        for (int ofToken = ofValue; ofToken < ofValueEnd; )
+                            {
+                            int ofComma = indexOf(ab, ',', ofToken, ofValueEnd);
+                            int ofNext  = ofComma < 0 ? ofValueEnd : ofComma;
+                            int ofTrim  = ofNext;
+                            while (ofToken < ofTrim && isWhitespace(ab[ofToken]))
+                                {
+                                ++ofToken;
+                                }
+                            while (ofTrim > ofToken && isWhitespace(ab[ofTrim - 1]))
+                                {
+                                --ofTrim;
+                                }
+                            fClose     |= equalsIgnoreCase(ab, ofToken, ofTrim, "close");
+                            fKeepAlive |= equalsIgnoreCase(ab, ofToken, ofTrim, "keep-alive");
+                            ofToken     = ofNext + 1;
+                            }
+                        }
+                    break;
+
+                case 14:
+                    if (equalsIgnoreCase(ab, ofLine, ofColon, "Content-Length"))
+                        {
+                        long cb = parseLength(ab, ofValue, ofValueEnd);
+                        if (cb < 0 || cbContent >= 0 && cb != cbContent)
+                            {
+                            throw new BadRequestException(400);
+                            }
+                        cbContent = cb;
+                        }
+                    break;
+
+                case 17:
+                    if (equalsIgnoreCase(ab, ofLine, ofColon, "Transfer-Encoding"))
+                        {
+                        if (!equalsIgnoreCase(ab, ofValue, ofValueEnd, "chunked"))
+                            {
+                            throw new BadRequestException(501);
+                            }
+                        fChunked = true;
+                        }
+                    break;
+                }
+            }
+
+        if (fChunked && cbContent >= 0)
+            {
+            // a message with both is a known request smuggling vector
+            throw new BadRequestException(400);
+            }
+
+        request.m_aofHeader  = aof;
+        request.m_cHeaders   = cHeaders;
+        request.m_cbContent  = fChunked ? -1 : Math.max(cbContent, 0);
+        request.m_fChunked   = fChunked;
+        request.m_fContinue  = fContinue && request.m_fHttp11;
+        request.m_fKeepAlive = !fClose && (request.m_fHttp11 || fKeepAlive);
+        return request;
+        }
+
+    /**
+     * Move the request to a different buffer; this is only done by the connection while the body
+     * is being received.
+     *
+     * @param ab      the new buffer
+     * @param ofBase  the offset of the request line in the new buffer
+     */
+    void relocate(byte[] ab, int ofBase)
+        {
+        m_ab     = ab;
+        m_ofBase = ofBase;
+        }
+
+    /**
+     * Specify the location of the body in the buffer.
+     *
+     * @param ofBody  the offset of the body in the buffer
+     * @param cbBody  the body length
+     */
+    void setBody(int ofBody, int cbBody)
+        {
+        m_ofBody = ofBody - m_ofBase;
+        m_cbBody = cbBody;
+        }
+
+    /**
+     * @return the value of the "Content-Length" header (zero if not specified), or -1 if the body
+     *         is chunked
+     */
+    long getContentLength()
+        {
+        return m_cbContent;
+        }
+
+    /**
+     * @return true iff the body uses the "chunked" transfer coding
+     */
+    boolean isChunked()
+        {
+        return m_fChunked;
+        }
+
+    /**
+     * @return true iff the client waits for a "100 Continue" before sending the body
+     */
+    boolean isExpectContinue()
+        {
+        return m_fContinue;
+        }
+
+    /**
+     * @return true iff the connection is to be kept open after responding to this request
+     */
+    boolean isKeepAlive()
+        {
+        return m_fKeepAlive;
+        }
+
+
+    // ----- request attributes --------------------------------------------------------------------
+
+    /**
+     * @return the connection the request was received on
+     */
+    public HttpConnection getConnection()
+        {
+        return f_connection;
+        }
+
+    /**
+     * @return true iff the request was received over TLS
+     */
+    public boolean isTls()
+        {
+        return f_connection.isTls();
+        }
+
+    /**
+     * @return the client address
+     */
+    public InetSocketAddress getRemoteAddress()
+        {
+        return f_connection.getRemoteAddress();
+        }
+
+    /**
+     * @return the server address the request was received on
+     */
+    public InetSocketAddress getLocalAddress()
+        {
+        return f_connection.getLocalAddress();
+        }
+
+    /**
+     * @return the method name (e.g. "GET")
+     */
+    public String getMethod()
+        {
+        int cb = m_ofMethodEnd;
+        for (String sMethod : METHODS)
+            {
+            if (sMethod.length() == cb && startsWith(m_ab, m_ofBase, sMethod))
+                {
+                return sMethod;
+                }
+            }
+        return text(0, cb);
+        }
+
+    /**
+     * @return true iff this is a "HEAD" request
+     */
+    public boolean isHead()
+        {
+        return m_ofMethodEnd == 4 && startsWith(m_ab, m_ofBase, "HEAD");
+        }
+
+    /**
+     * @return the request target as an ASCII string; any bytes outside the ASCII range are
+     *         percent-encoded
+     */
+    public String getUri()
+        {
+        byte[] ab    = m_ab;
+        int    of    = m_ofBase + m_ofMethodEnd + 1;
+        int    ofEnd = m_ofBase + m_ofUriEnd;
+        for (int i = of; i < ofEnd; i++)
+            {
+            if (ab[i] < 0)
+                {
+                StringBuilder sb = new StringBuilder(2 * (ofEnd - of));
+                for (int j = of; j < ofEnd; j++)
+                    {
+                    int b = ab[j] & 0xFF;
+                    if (b < 0x80)
+                        {
+                        sb.append((char) b);
+                        }
+                    else
+                        {
+                        sb.append('%')
+                          .append(HEX[b >>> 4])
+                          .append(HEX[b & 0xF]);
+                        }
+                    }
+                return sb.toString();
+                }
+            }
+        return new String(ab, of, ofEnd - of, StandardCharsets.ISO_8859_1);
+        }
+
+    /**
+     * @return the protocol name, which is either "HTTP/1.1" or "HTTP/1.0"
+     */
+    public String getProtocol()
+        {
+        return m_fHttp11 ? "HTTP/1.1" : "HTTP/1.0";
+        }
+
+    /**
+     * @return the distinct header names, in the order of their first occurrence
+     */
+    public String[] getHeaderNames()
+        {
+        int[]    aof     = m_aofHeader;
+        int      cNames  = 0;
+        String[] asName  = new String[m_cHeaders];
+        NextHeader:
+        for (int i = 0, c = m_cHeaders; i < c; i++)
+            {
+            int of    = m_ofBase + aof[i * 4];
+            int ofEnd = m_ofBase + aof[i * 4 + 1];
+            for (int j = 0; j < i; j++)
+                {
+                if (equalsIgnoreCase(m_ab, of, ofEnd,
+                        m_ab, m_ofBase + aof[j * 4], m_ofBase + aof[j * 4 + 1]))
+                    {
+                    continue NextHeader;
+                    }
+                }
+            asName[cNames++] = text(aof[i * 4], aof[i * 4 + 1]);
+            }
+        return cNames == asName.length ? asName : Arrays.copyOf(asName, cNames);
+        }
+
+    /**
+     * Obtain all the values of the specified header.
+     *
+     * @param sName  the case-insensitive header name
+     *
+     * @return the values, or null if the request has no such header
+     */
+    public String[] getHeaderValues(String sName)
+        {
+        int[]    aof     = m_aofHeader;
+        String[] asValue = null;
+        int      cValues = 0;
+        for (int i = 0, c = m_cHeaders; i < c; i++)
+            {
+            int of = i * 4;
+            if (equalsIgnoreCase(m_ab, m_ofBase + aof[of], m_ofBase + aof[of + 1], sName))
+                {
+                if (asValue == null)
+                    {
+                    asValue = new String[1];
+                    }
+                else if (cValues == asValue.length)
+                    {
+                    asValue = Arrays.copyOf(asValue, cValues * 2);
+                    }
+                asValue[cValues++] = text(aof[of + 2], aof[of + 3]);
+                }
+            }
+        return asValue == null || cValues == asValue.length
+                ? asValue
+                : Arrays.copyOf(asValue, cValues);
+        }
+
+    /**
+     * Obtain the first value of the specified header.
+     *
+     * @param sName  the case-insensitive header name
+     *
+     * @return the value, or null if the request has no such header
+     */
+    public String getHeader(String sName)
+        {
+        int[] aof = m_aofHeader;
+        for (int i = 0, c = m_cHeaders; i < c; i++)
+            {
+            int of = i * 4;
+            if (equalsIgnoreCase(m_ab, m_ofBase + aof[of], m_ofBase + aof[of + 1], sName))
+                {
+                return text(aof[of + 2], aof[of + 3]);
+                }
+            }
+        return null;
+        }
+
+    /**
+     * @return the (de-chunked) request body, or null if the request has no body
+     */
+    public byte[] getBody()
+        {
+        int cb = m_cbBody;
+        if (cb == 0)
+            {
+            return null;
+            }
+
+        byte[] ab = m_abBody;
+        if (ab == null)
+            {
+            int of = m_ofBase + m_ofBody;
+            m_abBody = ab = Arrays.copyOfRange(m_ab, of, of + cb);
+            }
+        return ab;
+        }
+
+    /**
+     * Produce a string from the specified part of the request.
+     *
+     * @param of     the offset relative to the request line
+     * @param ofEnd  the end offset relative to the request line
+     */
+    private String text(int of, int ofEnd)
+        {
+        return new String(m_ab, m_ofBase + of, ofEnd - of, StandardCharsets.ISO_8859_1);
+        }
+
+
+    // ----- responding ----------------------------------------------------------------------------
+
+    /**
+     * Send the response to this request. The responses to the requests pipelined on the same
+     * connection are sent in the order of the requests, regardless of the order in which this
+     * method is called. The "Content-Length", "Transfer-Encoding" and "Connection" headers are
+     * managed by the engine, and the corresponding entries in the specified headers are ignored
+     * (except for "Connection: close", which is honored).
+     *
+     * @param nStatus   the status code
+     * @param asName    the header names
+     * @param asValue   the header values
+     * @param abBody    the body (could be empty); the array must not be modified afterwards
+     *
+     * @throws IllegalArgumentException if a header name or value cannot be sent
+     */
+    public void respond(int nStatus, String[] asName, String[] asValue, byte[] abBody)
+        {
+        boolean fClose = !m_fKeepAlive || nStatus == 503;
+        boolean fBody  = nStatus >= 200 && nStatus != 204 && nStatus != 304;
+
+        HeadBuilder head = new HeadBuilder();
+        head.appendStatus(nStatus);
+        for (int i = 0, c = asName.length; i < c; i++)
+            {
+            String sName = asName[i];
+            if (sName.equalsIgnoreCase("Content-Length") ||
+                sName.equalsIgnoreCase("Transfer-Encoding"))
+                {
+                continue;
+                }
+            if (sName.equalsIgnoreCase("Connection"))
+                {
+                fClose |= asValue[i].equalsIgnoreCase("close");
+                continue;
+                }
+            head.appendHeader(sName, asValue[i]);
+            }
+
+        if (fBody)
+            {
+            head.append("Content-Length: ").append(Integer.toString(abBody.length)).appendCRLF();
+            }
+        if (fClose)
+            {
+            head.append("Connection: close").appendCRLF();
+            }
+        else if (!m_fHttp11)
+            {
+            head.append("Connection: keep-alive").appendCRLF();
+            }
+        head.appendDate();
+        head.appendCRLF();
+
+        if (!fBody || abBody.length == 0 || isHead())
+            {
+            abBody = null;
+            }
+        f_connection.submit(this, head.toByteArray(), abBody, fClose);
+        }
+
+    /**
+     * Produce a complete response with no content for the specified status, which is used to
+     * respond to the requests that could not be parsed.
+     *
+     * @param nStatus  the status code
+     * @param fClose   true to indicate that the connection is closing
+     *
+     * @return the response bytes
+     */
+    static byte[] makeEmptyResponse(int nStatus, boolean fClose)
+        {
+        HeadBuilder head = new HeadBuilder();
+        head.appendStatus(nStatus);
+        if (nStatus >= 200)
+            {
+            head.append("Content-Length: 0").appendCRLF();
+            }
+        if (fClose)
+            {
+            head.append("Connection: close").appendCRLF();
+            }
+        if (nStatus >= 200)
+            {
+            head.appendDate();
+            }
+        return head.appendCRLF().toByteArray();
+        }
+
+    /**
+     * Store the response to this request until it can be sent; called by the connection while
+     * holding its monitor.
+     */
+    void setResponse(byte[] abHead, byte[] abBody, boolean fClose)
+        {
+        m_abResponseHead = abHead;
+        m_abResponseBody = abBody;
+        m_fCloseAfter    = fClose;
+        }
+
+    /**
+     * @return the response head, or null if the response has not been submitted yet
+     */
+    byte[] getResponseHead()
+        {
+        return m_abResponseHead;
+        }
+
+    /**
+     * @return the response body, or null if there is none
+     */
+    byte[] getResponseBody()
+        {
+        return m_abResponseBody;
+        }
+
+    /**
+     * @return true iff the connection is to be closed after sending the response
+     */
+    boolean isCloseAfterResponse()
+        {
+        return m_fCloseAfter;
+        }
+
+    /**
+     * A builder for the response head; all the characters are sent as ISO-8859-1.
+     */
+    private static class HeadBuilder
+        {
+        HeadBuilder append(String s)
+            {
+            int cch = s.length();
+            ensure(cch);
+
+            byte[] ab = m_ab;
+            int    cb = m_cb;
+            for (int i = 0; i < cch; i++)
+                {
+                char ch = s.charAt(i);
+                ab[cb++] = ch <= 0xFF ? (byte) ch : (byte) '?';
+                }
+            m_cb = cb;
+            return this;
+            }
+
+        HeadBuilder appendCRLF()
+            {
+            ensure(2);
+            m_ab[m_cb++] = '\r';
+            m_ab[m_cb++] = '\n';
+            return this;
+            }
+
+        void appendStatus(int nStatus)
+            {
+            append("HTTP/1.1 ").append(Integer.toString(nStatus));
+            String sReason = getReasonPhrase(nStatus);
+            if (sReason != null)
+                {
+                append(" ").append(sReason);
+                }
+            appendCRLF();
+            }
+
+        void appendHeader(String sName, String sValue)
+            {
+            for (int i = 0, c = sName.length(); i < c; i++)
+                {
+                char ch = sName.charAt(i);
+                if (ch >= 0x80 || !TOKEN[ch])
+                    {
+                    throw new IllegalArgumentException("Invalid header name: " + sName);
+                    }
+                }
+            for (int i = 0, c = sValue.length(); i < c; i++)
+                {
+                char ch = sValue.charAt(i);
+                if (ch == '\r' || ch == '\n')
+                    {
+                    throw new IllegalArgumentException("Invalid header value for " + sName);
+                    }
+                }
+            append(sName).append(": ").append(sValue).appendCRLF();
+            }
+
+        void appendDate()
+            {
+            byte[] abDate = ensureDate();
+            ensure(abDate.length);
+            System.arraycopy(abDate, 0, m_ab, m_cb, abDate.length);
+            m_cb += abDate.length;
+            }
+
+        byte[] toByteArray()
+            {
+            return Arrays.copyOf(m_ab, m_cb);
+            }
+
+        private void ensure(int cb)
+            {
+            if (m_cb + cb > m_ab.length)
+                {
+                m_ab = Arrays.copyOf(m_ab, Math.max(m_ab.length * 2, m_cb + cb));
+                }
+            }
+
+        private byte[] m_ab = new byte[256];
+        private int    m_cb;
+        }
+
+    /**
+     * @return the "Date" header line for the current second
+     */
+    private static byte[] ensureDate()
+        {
+        long       lSecond = System.currentTimeMillis() / 1000;
+        DateHeader date    = s_date;
+        if (date == null || date.f_lSecond != lSecond)
+            {
+            String sDate = "Date: " + DateTimeFormatter.RFC_1123_DATE_TIME.format(
+                    Instant.ofEpochSecond(lSecond).atOffset(ZoneOffset.UTC)) + "\r\n";
+            s_date = date = new DateHeader(lSecond, sDate.getBytes(StandardCharsets.ISO_8859_1));
+            }
+        return date.f_ab;
+        }
+
+    /**
+     * The cached "Date" header line.
+     */
+    private static class DateHeader
+        {
+        DateHeader(long lSecond, byte[] ab)
+            {
+            f_lSecond = lSecond;
+            f_ab      = ab;
+            }
+
+        final long   f_lSecond;
+        final byte[] f_ab;
+        }
+
+    /**
+     * @return the reason phrase for the specified status code, or null
+     */
+    private static String getReasonPhrase(int nStatus)
+        {
+        return switch (nStatus)
+            {
+            case 100 -> "Continue";
+            case 101 -> "Switching Protocols";
+            case 200 -> "OK";
+            case 201 -> "Created";
+            case 202 -> "Accepted";
+            case 204 -> "No Content";
+            case 206 -> "Partial Content";
+            case 301 -> "Moved Permanently";
+            case 302 -> "Found";
+            case 303 -> "See Other";
+            case 304 -> "Not Modified";
+            case 307 -> "Temporary Redirect";
+            case 308 -> "Permanent Redirect";
+            case 400 -> "Bad Request";
+            case 401 -> "Unauthorized";
+            case 403 -> "Forbidden";
+            case 404 -> "Not Found";
+            case 405 -> "Method Not Allowed";
+            case 406 -> "Not Acceptable";
+            case 408 -> "Request Timeout";
+            case 409 -> "Conflict";
+            case 410 -> "Gone";
+            case 411 -> "Length Required";
+            case 412 -> "Precondition Failed";
+            case 413 -> "Content Too Large";
+            case 415 -> "Unsupported Media Type";
+            case 429 -> "Too Many Requests";
+            case 431 -> "Request Header Fields Too Large";
+            case 500 -> "Internal Server Error";
+            case 501 -> "Not Implemented";
+            case 502 -> "Bad Gateway";
+            case 503 -> "Service Unavailable";
+            case 504 -> "Gateway Timeout";
+            case 505 -> "HTTP Version Not Supported";
+            default  -> null;
+            };
+        }
+
+
+    // ----- byte helpers --------------------------------------------------------------------------
+
+    /**
+     * @return the offset of the specified byte in the specified range, or -1
+     */
+    static int indexOf(byte[] ab, char ch, int of, int ofEnd)
+        {
+        for (int i = of; i < ofEnd; i++)
+            {
+            if (ab[i] == ch)
+                {
+                return i;
+                }
+            }
+        return -1;
+        }
+
+    /**
+     * @return the end of the line that ends with '\n' at the specified offset, not including the
+     *         preceding '\r', if any
+     */
+    private static int trimCR(byte[] ab, int of, int ofEol)
+        {
+        return ofEol > of && ab[ofEol - 1] == '\r' ? ofEol - 1 : ofEol;
+        }
+
+    private static boolean isWhitespace(byte b)
+        {
+        return b == ' ' || b == '\t';
+        }
+
+    /**
+     * @return true iff the specified range is a non-empty token
+     */
+    private static boolean isToken(byte[] ab, int of, int ofEnd)
+        {
+        for (int i = of; i < ofEnd; i++)
+            {
+            int b = ab[i];
+            if (b < 0 || !TOKEN[b])
+                {
+                return false;
+                }
+            }
+        return ofEnd > of;
+        }
+
+    /**
+     * @return true iff the specified range contains no white spaces or control characters
+     */
+    private static boolean isTarget(byte[] ab, int of, int ofEnd)
+        {
+        for (int i = of; i < ofEnd; i++)
+            {
+            int b = ab[i];
+            if (b >= 0 && b <= ' ' || b == 0x7F)
+                {
+                return false;
+                }
+            }
+        return true;
+        }
+
+    private static boolean startsWith(byte[] ab, int of, String sPrefix)
+        {
+        return startsWith(ab, of, sPrefix, sPrefix.length());
+        }
+
+    private static boolean startsWith(byte[] ab, int of, String sPrefix, int cch)
+        {
+        if (of + cch > ab.length)
+            {
+            return false;
+            }
+        for (int i = 0; i < cch; i++)
+            {
+            if (ab[of + i] != sPrefix.charAt(i))
+                {
+                return false;
+                }
+            }
+        return true;
+        }
+
+    /**
+     * @return true iff the specified range is equal to the specified ASCII string, ignoring case
+     */
+    private static boolean equalsIgnoreCase(byte[] ab, int of, int ofEnd, String s)
+        {
+        int cch = s.length();
+        if (ofEnd - of != cch)
+            {
+            return false;
+            }
+        for (int i = 0; i < cch; i++)
+            {
+            if (toLower(ab[of + i]) != toLower(s.charAt(i)))
+                {
+                return false;
+                }
+            }
+        return true;
+        }
+
+    /**
+     * @return true iff the specified ranges are equal, ignoring case
+     */
+    private static boolean equalsIgnoreCase(byte[] ab1, int of1, int ofEnd1,
+                                            byte[] ab2, int of2, int ofEnd2)
+        {
+        int cb = ofEnd1 - of1;
+        if (ofEnd2 - of2 != cb)
+            {
+            return false;
+            }
+        for (int i = 0; i < cb; i++)
+            {
+            if (toLower(ab1[of1 + i]) != toLower(ab2[of2 + i]))
+                {
+                return false;
+                }
+            }
+        return true;
+        }
+
+    private static int toLower(int ch)
+        {
+        return ch >= 'A' && ch <= 'Z' ? ch + ('a' - 'A') : ch;
+        }
+
+    /**
+     * @return the decimal value of the specified range, or -1 if it is not a valid length
+     */
+    private static long parseLength(byte[] ab, int of, int ofEnd)
+        {
+        if (of == ofEnd || ofEnd - of > 18)
+            {
+            return -1;
+            }
+
+        long cb = 0;
+        for (int i = of; i < ofEnd; i++)
+            {
+            int b = ab[i];
+            if (b < '0' || b > '9')
+                {
+                return -1;
+                }
+            cb = cb * 10 + (b - '0');
+            }
+        return cb;
+        }
+
+
+    // ----- constants and fields ------------------------------------------------------------------
+
+    /**
+     * The "tchar" characters (RFC 9110).
+     */
+    private static final boolean[] TOKEN = new boolean[128];
+    static
+        {
+        for (char ch = '0'; ch <= '9'; ch++)
+            {
+            TOKEN[ch] = true;
+            }
+        for (char ch = 'A'; ch <= 'Z'; ch++)
+            {
+            TOKEN[ch] = true;
+            TOKEN[ch + ('a' - 'A')] = true;
+            }
+        for (char ch : "!#$%&'*+-.^_`|~".toCharArray())
+            {
+            TOKEN[ch] = true;
+            }
+        }
+
+    private static final String HTTP_1 = "HTTP/1.";
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * The common method names, which are returned without creating new strings.
+     */
+    private static final String[] METHODS =
+            {"GET", "POST", "PUT", "DELETE", "HEAD", "OPTIONS", "PATCH"};
+
+    /**
+     * The most recently produced "Date" header.
+     */
+    private static volatile DateHeader s_date;
+
+    /**
+     * The connection the request was received on.
+     */
+    private final HttpConnection f_connection;
+
+    /**
+     * The buffer holding the request.
+     */
+    private byte[] m_ab;
+
+    /**
+     * The offset of the request line in the buffer; all other offsets are relative to it.
+     */
+    private int m_ofBase;
+
+    /**
+     * The end of the method name (the method starts at offset zero).
+     */
+    private int m_ofMethodEnd;
+
+    /**
+     * The end of the request target (the target starts right after the method).
+     */
+    private int m_ofUriEnd;
+
+    /**
+     * True for "HTTP/1.1"; false for "HTTP/1.0".
+     */
+    private boolean m_fHttp11;
+
+    /**
+     * The name start, name end, value start and value end offsets of every header field.
+     */
+    private int[] m_aofHeader;
+
+    /**
+     * The number of the header fields.
+     */
+    private int m_cHeaders;
+
+    /**
+     * The declared content length, or -1 for a chunked body.
+     */
+    private long m_cbContent;
+
+    /**
+     * True iff the body is chunked.
+     */
+    private boolean m_fChunked;
+
+    /**
+     * True iff the client expects a "100 Continue".
+     */
+    private boolean m_fContinue;
+
+    /**
+     * True iff the connection persists after this request.
+     */
+    private boolean m_fKeepAlive;
+
+    /**
+     * The offset of the body.
+     */
+    private int m_ofBody;
+
+    /**
+     * The body length.
+     */
+    private int m_cbBody;
+
+    /**
+     * The body bytes, copied out of the buffer when first asked for.
+     */
+    private byte[] m_abBody;
+
+    /**
+     * The response head, once the response has been submitted.
+     */
+    private byte[] m_abResponseHead;
+
+    /**
+     * The response body, or null.
+     */
+    private byte[] m_abResponseBody;
+
+    /**
+     * True iff the connection is to be closed after the response.
+     */
+    private boolean m_fCloseAfter;
+    }
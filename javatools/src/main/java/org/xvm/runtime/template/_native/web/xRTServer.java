@@ -1,16 +1,6 @@
 package org.xvm.runtime.template._native.web;
 
-import com.sun.net.httpserver.Headers;
-import com.sun.net.httpserver.HttpExchange;
-import com.sun.net.httpserver.HttpHandler;
-import com.sun.net.httpserver.HttpServer;
-import com.sun.net.httpserver.HttpsConfigurator;
-import com.sun.net.httpserver.HttpsExchange;
-import com.sun.net.httpserver.HttpsParameters;
-import com.sun.net.httpserver.HttpsServer;
-
 import java.io.IOException;
-import java.io.OutputStream;
 
 import java.net.InetSocketAddress;
 import java.net.Socket;
@@ -22,13 +12,6 @@ import java.security.PrivateKey;
 
 import java.security.cert.X509Certificate;
 
-import java.util.List;
-
-import java.util.concurrent.Executor;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
-
 import javax.net.ssl.KeyManager;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
@@ -49,7 +32,6 @@ import org.xvm.runtime.ObjectHandle;
 import org.xvm.runtime.ObjectHandle.JavaLong;
 import org.xvm.runtime.ServiceContext;
 import org.xvm.runtime.TypeComposition;
-import org.xvm.runtime.Utils;
 
 import org.xvm.runtime.template.xBoolean;
 import org.xvm.runtime.template.xBoolean.BooleanHandle;
@@ -77,7 +59,7 @@ import org.xvm.runtime.template._native.reflect.xRTFunction.FunctionHandle;
 
 
 /**
- * Native implementation of the RTServer.x service that uses native Java {@link HttpServer}.
+ * Native implementation of the RTServer.x service that uses the non-blocking {@link HttpEngine}.
  */
 public class xRTServer
         extends xService
@@ -245,7 +227,7 @@ public class xRTServer
      */
     private int invokeConfigure(Frame frame, HttpServerHandle hServer, ObjectHandle[] ahArg)
         {
-        if (hServer.getHttpServer() != null)
+        if (hServer.getEngine() != null)
             {
             return frame.raiseException(xException.illegalState(frame, "Server is already configured"));
             }
@@ -258,10 +240,11 @@ public class xRTServer
 
         try
             {
-            HttpServer  httpServer  = createHttpServer (new InetSocketAddress(sBindAddr, nHttpPort));
-            HttpsServer httpsServer = createHttpsServer(new InetSocketAddress(sBindAddr, nHttpsPort),
-                                                            hKeystore, sTlsKey);
-            hServer.configure(httpServer, httpsServer);
+            SSLContext ctxSSL = createSSLContext(hKeystore, sTlsKey);
+            HttpEngine engine = new HttpEngine(frame.f_context.getRuntime(),
+                    new InetSocketAddress(sBindAddr, nHttpPort),
+                    new InetSocketAddress(sBindAddr, nHttpsPort), ctxSSL);
+            hServer.configure(engine);
             return Op.R_NEXT;
             }
         catch (IOException | GeneralSecurityException e)
@@ -271,15 +254,8 @@ public class xRTServer
             }
         }
 
-    private HttpServer createHttpServer(InetSocketAddress addr)
-            throws IOException
-        {
-        return HttpServer.create(addr, 0);
-        }
-
-    private HttpsServer createHttpsServer(InetSocketAddress addr, KeyStoreHandle hKeystore,
-                                          String sTlsKey)
-            throws IOException, GeneralSecurityException
+    private SSLContext createSSLContext(KeyStoreHandle hKeystore, String sTlsKey)
+            throws GeneralSecurityException
         {
         KeyManager[] aKeyManagers;
         if (sTlsKey == null)
@@ -304,30 +280,7 @@ public class xRTServer
 
         SSLContext ctxSSL = SSLContext.getInstance("TLS");
         ctxSSL.init(aKeyManagers, aTrustManagers, null);
-
-        HttpsServer httpsServer = HttpsServer.create(addr, 0);
-        httpsServer.setHttpsConfigurator(new HttpsConfigurator(ctxSSL)
-            {
-            @Override
-            public void configure(HttpsParameters params)
-                {
-                try
-                    {
-                    SSLContext ctxSSL = getSSLContext();
-                    SSLEngine  engine = ctxSSL.createSSLEngine();
-
-                    params.setNeedClientAuth(true);
-                    params.setCipherSuites(engine.getEnabledCipherSuites());
-                    params.setProtocols(engine.getEnabledProtocols());
-                    params.setSSLParameters(ctxSSL.getSupportedSSLParameters());
-                    }
-                catch (Exception ex)
-                    {
-                    throw new RuntimeException("failed to initialize the SSL context", ex);
-                    }
-                }
-            });
-        return httpsServer;
+        return ctxSSL;
         }
 
     /**
@@ -335,57 +288,36 @@ public class xRTServer
      */
     private int invokeStart(Frame frame, HttpServerHandle hServer, ServiceHandle hHandler)
         {
-        HttpServer  httpServer  = hServer.getHttpServer();
-        HttpsServer httpsServer = hServer.getHttpsServer();
-
-        if (httpServer == null)
+        HttpEngine engine = hServer.getEngine();
+        if (engine == null)
             {
             return frame.raiseException(xException.illegalState(frame, "Server is not configured"));
             }
 
-        if (hServer.getRequestHandler() == null)
-            {
-            // this is a very first call; set up the thread pool
-            String        sName   = "HttpHandler";
-            ThreadGroup   group   = new ThreadGroup(sName);
-            ThreadFactory factory = r ->
-                {
-                Thread thread = new Thread(group, r);
-                thread.setDaemon(true);
-                thread.setName(sName + "@" + thread.hashCode());
-                return thread;
-                };
-
-            // We don't actually rely on any scaling here; all requests go to a single natural
-            // Handler service instance that needs to demultiplex it as quick as possible
-            // (see HttpHandler.x in xenia.xtclang.org module).
-            // If necessary, we can change the start() method to take an array of handlers and
-            // demultiplex it earlier by the native code
-            Executor executor = Executors.newCachedThreadPool(factory);
-
-            httpServer.setExecutor(executor);
-            httpServer.start();
-
-            httpsServer.setExecutor(executor);
-            httpsServer.start();
-
-            // prevent the container from being terminated
-            hServer.f_context.f_container.getServiceContext().registerNotification();
-            }
-        else
-            {
-            httpServer .removeContext("/");
-            httpsServer.removeContext("/");
-            }
-
         ClassStructure  clzHandler = hHandler.getTemplate().getStructure();
         MethodStructure method     = clzHandler.findMethodDeep("handle", m -> m.getParamCount() == 4);
         assert method != null;
         FunctionHandle  hFunction  = xRTFunction.makeInternalHandle(frame, method).bindTarget(frame, hHandler);
 
+        // We don't actually rely on any scaling here; all requests go to a single natural
+        // Handler service instance that needs to demultiplex it as quick as possible
+        // (see HttpHandler.x in xenia.xtclang.org module).
+        // If necessary, we can change the start() method to take an array of handlers and
+        // demultiplex it earlier by the native code
         RequestHandler handler = new RequestHandler(hHandler.f_context, hFunction);
-        httpServer .createContext("/", handler);
-        httpsServer.createContext("/", handler);
+        try
+            {
+            if (!engine.isStarted())
+                {
+                // prevent the container from being terminated
+                hServer.f_context.f_container.getServiceContext().registerNotification();
+                }
+            engine.start(handler);
+            }
+        catch (IOException e)
+            {
+            return frame.raiseException(xException.ioException(frame, e.getMessage()));
+            }
 
         hServer.setRequestHandler(handler);
         return Op.R_NEXT;
@@ -396,7 +328,7 @@ public class xRTServer
      */
     private int invokeGetClientHostName(Frame frame, HttpContextHandle hCtx, int iResult)
         {
-        String sHost = hCtx.f_exchange.getRequestHeaders().getFirst("Host");
+        String sHost = hCtx.f_request.getHeader("Host");
         if (sHost != null)
             {
             int ofPort = sHost.lastIndexOf(':');
@@ -416,7 +348,7 @@ public class xRTServer
      */
     private int invokeGetClientAddress(Frame frame, HttpContextHandle hCtx, int iResult)
         {
-        InetSocketAddress addr = hCtx.f_exchange.getRemoteAddress();
+        InetSocketAddress addr = hCtx.f_request.getRemoteAddress();
         byte[]            ab   = addr.getAddress().getAddress();
 
         return frame.assignValue(iResult, xByteArray.makeByteArrayHandle(ab, Mutability.Constant));
@@ -428,7 +360,7 @@ public class xRTServer
     private int invokeGetClientPort(Frame frame, HttpContextHandle hCtx, int iResult)
         {
         int    nPort = -1;
-        String sHost = hCtx.f_exchange.getRequestHeaders().getFirst("Host");
+        String sHost = hCtx.f_request.getHeader("Host");
         if (sHost != null)
             {
             int ofPort = sHost.lastIndexOf(':');
@@ -439,7 +371,7 @@ public class xRTServer
             }
         if (nPort == -1)
             {
-            nPort = hCtx.f_exchange.getRemoteAddress().getPort();
+            nPort = hCtx.f_request.getRemoteAddress().getPort();
             }
 
         return frame.assignValue(iResult, xUInt16.INSTANCE.makeJavaLong(nPort));
@@ -450,7 +382,7 @@ public class xRTServer
      */
     private int invokeGetServerAddress(Frame frame, HttpContextHandle hCtx, int iResult)
         {
-        InetSocketAddress addr = hCtx.f_exchange.getLocalAddress();
+        InetSocketAddress addr = hCtx.f_request.getLocalAddress();
         byte[]            ab   = addr.getAddress().getAddress();
 
         return frame.assignValue(iResult, xByteArray.makeByteArrayHandle(ab, Mutability.Constant));
@@ -461,7 +393,7 @@ public class xRTServer
      */
     private int invokeGetServerPort(Frame frame, HttpContextHandle hCtx, int iResult)
         {
-        InetSocketAddress addr = hCtx.f_exchange.getLocalAddress();
+        InetSocketAddress addr = hCtx.f_request.getLocalAddress();
 
         return frame.assignValue(iResult, xUInt16.INSTANCE.makeJavaLong(addr.getPort()));
         }
@@ -471,7 +403,7 @@ public class xRTServer
      */
     private int invokeGetMethod(Frame frame, HttpContextHandle hCtx, int iResult)
         {
-        String sMethod = hCtx.f_exchange.getRequestMethod();
+        String sMethod = hCtx.f_request.getMethod();
 
         return frame.assignValue(iResult, xString.makeHandle(sMethod));
         }
@@ -481,7 +413,7 @@ public class xRTServer
      */
     private int invokeGetUri(Frame frame, HttpContextHandle hCtx, int iResult)
         {
-        String sUri = hCtx.f_exchange.getRequestURI().toASCIIString();
+        String sUri = hCtx.f_request.getUri();
 
         return frame.assignValue(iResult, xString.makeHandle(sUri));
         }
@@ -491,7 +423,7 @@ public class xRTServer
      */
     private int invokeGetProtocol(Frame frame, HttpContextHandle hCtx, int iResult)
         {
-        String sProtocol = hCtx.f_exchange.getProtocol();
+        String sProtocol = hCtx.f_request.getProtocol();
 
         return frame.assignValue(iResult, xString.makeHandle(sProtocol));
         }
@@ -501,10 +433,8 @@ public class xRTServer
      */
     private int invokeGetHeaderNames(Frame frame, HttpContextHandle hCtx, int iResult)
         {
-        Headers headers = hCtx.f_exchange.getRequestHeaders();
-
         return frame.assignValue(iResult,
-                xString.makeArrayHandle(headers.keySet().toArray(Utils.NO_NAMES)));
+                xString.makeArrayHandle(hCtx.f_request.getHeaderNames()));
         }
 
     /**
@@ -513,17 +443,13 @@ public class xRTServer
     private int invokeGetHeaderValues(Frame frame, HttpContextHandle hCtx,
                                       StringHandle hName, int[] aiResult)
         {
-        Headers headers = hCtx.f_exchange.getRequestHeaders();
-        String  sName   = hName.getStringValue();
-
-        List<String> listValues = headers.get(sName);
-        if (listValues == null)
+        String[] asValue = hCtx.f_request.getHeaderValues(hName.getStringValue());
+        if (asValue == null)
             {
             return frame.assignValue(aiResult[0], xBoolean.FALSE);
             }
 
-        return frame.assignValues(aiResult, xBoolean.TRUE,
-                xString.makeArrayHandle(listValues.toArray(Utils.NO_NAMES)));
+        return frame.assignValues(aiResult, xBoolean.TRUE, xString.makeArrayHandle(asValue));
         }
 
     /**
@@ -531,19 +457,12 @@ public class xRTServer
      */
     private int invokeGetBody(Frame frame, HttpContextHandle hCtx, int[] aiResult)
         {
-        try
-            {
-            byte[] ab = hCtx.f_exchange.getRequestBody().readAllBytes();
+        byte[] ab = hCtx.f_request.getBody();
 
-            return ab.length == 0
-                ? frame.assignValue(aiResult[0], xBoolean.FALSE)
-                : frame.assignValues(aiResult, xBoolean.TRUE,
-                    xByteArray.makeByteArrayHandle(ab, Mutability.Constant));
-            }
-        catch (IOException e)
-            {
-            return frame.assignValue(aiResult[0], xBoolean.FALSE);
-            }
+        return ab == null
+            ? frame.assignValue(aiResult[0], xBoolean.FALSE)
+            : frame.assignValues(aiResult, xBoolean.TRUE,
+                xByteArray.makeByteArrayHandle(ab, Mutability.Constant));
         }
 
     /**
@@ -561,29 +480,15 @@ public class xRTServer
      */
     private int invokeClose(HttpServerHandle hServer)
         {
-        HttpServer httpServer  = hServer.getHttpServer();
-        HttpServer httpsServer = hServer.getHttpsServer();
-        if (httpServer != null)
+        HttpEngine engine = hServer.getEngine();
+        if (engine != null)
             {
-            if (httpServer.getExecutor() == null)
-                {
-                // we need to compensate for a bug in com.sun.net.httpserver.HttpServer that doesn't
-                // properly close the server socket that hasn't been established
-                httpServer.start();
-                httpServer.stop(0);
-                httpsServer.start();
-                httpsServer.stop(0);
-                }
-            else
+            engine.close();
+            if (hServer.getRequestHandler() != null)
                 {
-                httpServer.removeContext("/");
-                httpServer.stop(0);
-                httpsServer.removeContext("/");
-                httpsServer.stop(0);
-                ((ExecutorService) httpServer.getExecutor()).shutdown();
                 hServer.f_context.f_container.getServiceContext().unregisterNotification();
+                hServer.setRequestHandler(null);
                 }
-            hServer.setRequestHandler(null);
             }
 
         return Op.R_NEXT;
@@ -594,39 +499,28 @@ public class xRTServer
      */
     private int invokeSend(Frame frame, ObjectHandle[] ahArg)
         {
-        HttpExchange      exchange      = ((HttpContextHandle) ahArg[0]).f_exchange;
+        HttpRequest       request       = ((HttpContextHandle) ahArg[0]).f_request;
         long              nStatus       = ((JavaLong) ahArg[1]).getValue();
         StringArrayHandle hHeaderNames  = (StringArrayHandle) ((ArrayHandle) ahArg[2]).m_hDelegate;
         StringArrayHandle hHeaderValues = (StringArrayHandle) ((ArrayHandle) ahArg[3]).m_hDelegate;
         ArrayHandle       hBody         = (ArrayHandle) ahArg[4];
-        byte[]            abBody        = xByteArray.getBytes(hBody);
-        int               cbBody        = abBody.length;
+        int               cHeaders      = (int) hHeaderNames.m_cSize;
+        String[]          asName        = new String[cHeaders];
+        String[]          asValue       = new String[cHeaders];
 
-        try
+        for (int i = 0; i < cHeaders; i++)
             {
-            Headers headers = exchange.getResponseHeaders();
-            for (long i = 0, c = hHeaderNames.m_cSize; i < c; i++)
-                {
-                headers.add(hHeaderNames.get(i), hHeaderValues.get(i));
-                }
-
-            exchange.sendResponseHeaders((int) nStatus, cbBody > 0 ? cbBody : -1);
+            asName [i] = hHeaderNames.get(i);
+            asValue[i] = hHeaderValues.get(i);
             }
-        catch (IOException e)
+
+        try
             {
-            return frame.raiseException(xException.ioException(frame, e.getMessage()));
+            request.respond((int) nStatus, asName, asValue, xByteArray.getBytes(hBody));
             }
-
-        if (cbBody > 0)
+        catch (IllegalArgumentException e)
             {
-            try (OutputStream out = exchange.getResponseBody())
-                {
-                out.write(abBody);
-                }
-            catch (Throwable e)
-                {
-                return frame.raiseException(xException.ioException(frame, e.getMessage()));
-                }
+            return frame.raiseException(xException.illegalArgument(frame, e.getMessage()));
             }
         return Op.R_NEXT;
         }
@@ -635,11 +529,11 @@ public class xRTServer
     // ----- helper classes ------------------------------------------------------------------------
 
     /**
-     * The {@link HttpHandler} that handles all request from the Java {@link HttpServer} and calls
-     * the natural HttpServer.Handler "handle()" method.
+     * The {@link HttpEngine.Handler} that handles all requests from the {@link HttpEngine} and
+     * calls the natural HttpServer.Handler "handle()" method.
      */
     protected static class RequestHandler
-            implements HttpHandler
+            implements HttpEngine.Handler
         {
         public RequestHandler(ServiceContext context, FunctionHandle hFunction)
             {
@@ -648,52 +542,57 @@ public class xRTServer
             }
 
         @Override
-        public void handle(HttpExchange exchange)
+        public void onRequest(HttpRequest request)
             {
+            if (f_context.isRefusing())
+                {
+                // the handler service's mailbox policy is to push back rather than to queue
+                request.respond(503, RETRY_NAMES, RETRY_VALUES, NO_BYTES);
+                return;
+                }
+
             try (var ignore = ConstantPool.withPool(f_context.f_pool))
                 {
                 // call the Handler handle method
-                ObjectHandle[] hArgs = createArguments(exchange);
+                ObjectHandle[] hArgs = createArguments(request);
                 f_context.postRequest(null, f_hFunction, hArgs, 0).handle((response, err) ->
                     {
                     // process the response (or error) from calling the Handler handle method
                     // TODO: this should be sent to the natural "unhandledException" handler
                     if (err != null)
                         {
-                        sendError(exchange, err);
+                        sendError(request, err);
                         }
                     return null;
                     });
                 }
             catch (Throwable t)
                 {
-                sendError(exchange, t);
+                sendError(request, t);
                 }
             }
 
-        private ObjectHandle[] createArguments(HttpExchange exchange)
+        private ObjectHandle[] createArguments(HttpRequest request)
             {
-            HttpContextHandle hContext = new HttpContextHandle(exchange);
-            StringHandle      hURI     = xString.makeHandle(exchange.getRequestURI().toASCIIString());
-            StringHandle      hMethod  = xString.makeHandle(exchange.getRequestMethod());
-            BooleanHandle     hTls     = xBoolean.makeHandle(exchange instanceof HttpsExchange);
+            HttpContextHandle hContext = new HttpContextHandle(request);
+            StringHandle      hURI     = xString.makeHandle(request.getUri());
+            StringHandle      hMethod  = xString.makeHandle(request.getMethod());
+            BooleanHandle     hTls     = xBoolean.makeHandle(request.isTls());
 
             return new ObjectHandle[]{hContext, hURI, hMethod, hTls};
             }
 
-        private void sendError(HttpExchange exchange, Throwable t)
+        private void sendError(HttpRequest request, Throwable t)
             {
             t.printStackTrace();
-            try
-                {
-                exchange.sendResponseHeaders(500, -1);
-                }
-            catch (IOException e)
-                {
-                e.printStackTrace();
-                }
+            request.respond(500, NO_NAMES, NO_NAMES, NO_BYTES);
             }
 
+        private static final String[] NO_NAMES     = new String[0];
+        private static final String[] RETRY_NAMES  = {"Retry-After"};
+        private static final String[] RETRY_VALUES = {"1"};
+        private static final byte[]   NO_BYTES     = new byte[0];
+
         private final ServiceContext f_context;
         private final FunctionHandle f_hFunction;
         }
@@ -795,37 +694,28 @@ public class xRTServer
          * The underlying native state needs to be kept in an array, so cloning the handle would
          * not splinter the state.
          */
-        private final Object[] f_aoNative = new Object[3];
+        private final Object[] f_aoNative = new Object[2];
 
-        protected void configure(HttpServer httpServer, HttpsServer httpsServer)
+        protected void configure(HttpEngine engine)
             {
-            f_aoNative[0] = httpServer;
-            f_aoNative[1] = httpsServer;
+            f_aoNative[0] = engine;
             }
 
         @Override
         public String toString()
             {
             return "HttpServer" +
-                    (getHttpServer() == null
+                    (getEngine() == null
                         ? ""
-                        : "@" + getHttpServer().getAddress().getHostString());
-            }
-
-        /**
-         * @return underlying {@link HttpServer}.
-         */
-        protected HttpServer getHttpServer()
-            {
-            return (HttpServer) f_aoNative[0];
+                        : "@" + getEngine().getAddress().getHostString());
             }
 
         /**
-         * @return the underlying {@link HttpsServer}
+         * @return the underlying {@link HttpEngine}
          */
-        protected HttpsServer getHttpsServer()
+        protected HttpEngine getEngine()
             {
-            return (HttpsServer) f_aoNative[1];
+            return (HttpEngine) f_aoNative[0];
             }
 
         /**
@@ -833,7 +723,7 @@ public class xRTServer
          */
         protected RequestHandler getRequestHandler()
             {
-            return (RequestHandler) f_aoNative[2];
+            return (RequestHandler) f_aoNative[1];
             }
 
         /**
@@ -841,28 +731,28 @@ public class xRTServer
          */
         protected void setRequestHandler(RequestHandler handler)
             {
-            f_aoNative[2] = handler;
+            f_aoNative[1] = handler;
             }
         }
 
     /**
-     * Native handle holding the HttpExchange reference.
+     * Native handle holding the HttpRequest reference.
      */
     protected static class HttpContextHandle
                 extends ObjectHandle
         {
-        public HttpContextHandle(HttpExchange exchange)
+        public HttpContextHandle(HttpRequest request)
             {
             super(xObject.INSTANCE.getCanonicalClass());
 
-            f_exchange = exchange;
+            f_request  = request;
             m_fMutable = false;
             }
 
         /**
-         * The wrapped {@link HttpExchange}.
+         * The wrapped {@link HttpRequest}.
          */
-        public final HttpExchange f_exchange;
+        public final HttpRequest f_request;
         }
 
 
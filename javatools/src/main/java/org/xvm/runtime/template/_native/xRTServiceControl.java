@@ -20,8 +20,12 @@ import org.xvm.runtime.template.xEnum;
 
 import org.xvm.runtime.template.xService.ServiceHandle;
 
+import org.xvm.runtime.template.numbers.xInt64;
+
 import org.xvm.runtime.template._native.reflect.xRTFunction;
 
+import org.xvm.runtime.template._native.temporal.xNanosTimer;
+
 
 /**
  * Native implementation of _native.RTServiceControl class.
@@ -61,6 +65,9 @@ public class xRTServiceControl
         markNativeProperty("upTime");
         markNativeProperty("cpuTime");
         markNativeProperty("contended");
+        markNativeProperty("backlogDepth");
+        markNativeProperty("bytesReserved");
+        markNativeProperty("bytesAllocated");
 
         markNativeMethod("gc", VOID, VOID);
         markNativeMethod("shutdown", VOID, VOID);
@@ -101,18 +108,39 @@ public class xRTServiceControl
     @Override
     public int invokeNativeGet(Frame frame, String sPropName, ObjectHandle hTarget, int iReturn)
         {
-        ControlHandle hControl = (ControlHandle) hTarget;
+        ControlHandle  hControl = (ControlHandle) hTarget;
+        ServiceContext context  = hControl.getContext();
 
         switch (sPropName)
             {
+            case "upTime":
+                return frame.assignValue(iReturn,
+                        xNanosTimer.makeDurationHandle(context.getUpTimeNanos()));
+
+            case "cpuTime":
+                return frame.assignValue(iReturn,
+                        xNanosTimer.makeDurationHandle(context.getCpuTimeNanos()));
+
             case "contended":
                 return frame.assignValue(iReturn,
-                        xBoolean.makeHandle(hControl.getContext().isContended()));
+                        xBoolean.makeHandle(context.isContendedUnlocked()));
+
+            case "backlogDepth":
+                return frame.assignValue(iReturn,
+                        xInt64.makeHandle(context.getBacklogDepth()));
+
+            case "bytesReserved":
+                return frame.assignValue(iReturn,
+                        xInt64.makeHandle(context.getBytesReserved()));
+
+            case "bytesAllocated":
+                return frame.assignValue(iReturn,
+                        xInt64.makeHandle(context.getBytesAllocated()));
 
             case "statusIndicator":
                 {
                 xEnum.EnumHandle hStatus = SERVICE_STATUS.getEnumByName(
-                        hControl.getContext().getStatus().name());
+                        context.getStatus().name());
                 return Utils.assignInitializedEnum(frame, hStatus, iReturn);
                 }
             }
@@ -1,6 +1,8 @@
 package org.xvm.runtime.template.collections;
 
 
+import java.nio.ByteBuffer;
+
 import java.util.HashMap;
 import java.util.Map;
 
@@ -48,6 +50,7 @@ import org.xvm.runtime.template._native.collections.arrays.xRTUInt8Delegate;
 import org.xvm.runtime.template._native.collections.arrays.xRTCharDelegate;
 import org.xvm.runtime.template._native.collections.arrays.xRTDelegate;
 import org.xvm.runtime.template._native.collections.arrays.xRTDelegate.DelegateHandle;
+import org.xvm.runtime.template._native.collections.arrays.xRTMappedDelegate;
 import org.xvm.runtime.template._native.collections.arrays.xRTViewToBit;
 
 import org.xvm.runtime.template._native.reflect.xRTFunction.FunctionHandle;
@@ -708,6 +711,20 @@ public class xArray
         return new ArrayHandle(BYTE_ARRAY_CLZ, hDelegate, mutability);
         }
 
+    /**
+     * @return an immutable Byte array handle backed by the specified (read-only) buffer; the
+     *         buffer's content must not change while the array is in use
+     */
+    public static ArrayHandle makeMappedByteArrayHandle(ByteBuffer buffer)
+        {
+        if (buffer.limit() == 0)
+            {
+            return ensureEmptyByteArray();
+            }
+        DelegateHandle hDelegate = xRTMappedDelegate.INSTANCE.makeHandle(buffer);
+        return new ArrayHandle(BYTE_ARRAY_CLZ, hDelegate, Mutability.Constant);
+        }
+
     /**
      * @return the handle for an empty immutable array of Bytes.
      */
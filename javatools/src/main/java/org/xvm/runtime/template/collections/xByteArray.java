@@ -1,6 +1,8 @@
 package org.xvm.runtime.template.collections;
 
 
+import java.util.Arrays;
+
 import org.xvm.asm.ClassStructure;
 import org.xvm.asm.Constant;
 import org.xvm.asm.MethodStructure;
@@ -19,6 +21,7 @@ import org.xvm.runtime.template.xException;
 import org.xvm.runtime.template._native.collections.arrays.ByteBasedDelegate.ByteArrayHandle;
 import org.xvm.runtime.template._native.collections.arrays.ByteView;
 import org.xvm.runtime.template._native.collections.arrays.xRTDelegate.DelegateHandle;
+import org.xvm.runtime.template._native.collections.arrays.xRTMappedDelegate.MappedHandle;
 import org.xvm.runtime.template._native.collections.arrays.xRTSlicingDelegate.SliceHandle;
 import org.xvm.runtime.template._native.collections.arrays.xRTViewFromByteToInt8;
 import org.xvm.runtime.template._native.collections.arrays.xRTViewFromByteToInt16;
@@ -82,7 +85,8 @@ public class xByteArray
             case "asByteArray":
                 {
                 ArrayHandle hArray = (ArrayHandle) hTarget;
-                if (hArray.m_hDelegate instanceof ByteArrayHandle)
+                if (hArray.m_hDelegate instanceof ByteArrayHandle ||
+                    hArray.m_hDelegate instanceof MappedHandle)
                     {
                     return frame.assignValue(iReturn, hArray);
                     }
@@ -165,6 +169,72 @@ public class xByteArray
         throw new UnsupportedOperationException();
         }
 
+    /**
+     * Extract a range of bytes from the specified array.
+     *
+     * @param hArray   the array handle
+     * @param ofStart  the index of the first byte to extract
+     * @param cBytes   the number of bytes to extract
+     */
+    public static byte[] getBytes(ArrayHandle hArray, long ofStart, long cBytes)
+        {
+        DelegateHandle hDelegate = hArray.m_hDelegate;
+        long           ofSource  = ofStart;
+
+        if (hDelegate instanceof SliceHandle hSlice)
+            {
+            if (hSlice.f_fReverse)
+                {
+                return Arrays.copyOfRange(getBytes(hArray), (int) ofStart, (int) (ofStart + cBytes));
+                }
+            hDelegate = hSlice.f_hSource;
+            ofSource += hSlice.f_ofStart;
+            }
+
+        ClassTemplate tDelegate = hDelegate.getTemplate();
+        if (tDelegate instanceof ByteView hView)
+            {
+            return hView.getBytes(hDelegate, ofSource, cBytes, false);
+            }
+        throw new UnsupportedOperationException();
+        }
+
+    /**
+     * Copy bytes into a range of the specified (mutable) array.
+     *
+     * @param hArray   the array handle
+     * @param ofStart  the index of the first byte to assign
+     * @param ab       the bytes to copy
+     * @param of       the offset of the first byte to copy
+     * @param cBytes   the number of bytes to copy
+     */
+    public static void setBytes(ArrayHandle hArray, long ofStart, byte[] ab, int of, int cBytes)
+        {
+        DelegateHandle hDelegate = hArray.m_hDelegate;
+        long           ofTarget  = ofStart;
+        boolean        fReverse  = false;
+
+        if (hDelegate instanceof SliceHandle hSlice)
+            {
+            hDelegate = hSlice.f_hSource;
+            fReverse  = hSlice.f_fReverse;
+            ofTarget  = fReverse
+                    ? hSlice.f_ofStart + hSlice.m_cSize - 1 - ofStart
+                    : hSlice.f_ofStart + ofStart;
+            }
+
+        if (hDelegate.getTemplate() instanceof ByteView view)
+            {
+            int nStep = fReverse ? -1 : 1;
+            for (int i = 0; i < cBytes; i++, ofTarget += nStep)
+                {
+                view.assignByte(hDelegate, ofTarget, ab[of + i]);
+                }
+            return;
+            }
+        throw new UnsupportedOperationException();
+        }
+
     /**
      * Copy bytes from the specified array.
      */
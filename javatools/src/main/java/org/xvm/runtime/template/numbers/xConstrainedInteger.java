@@ -86,6 +86,39 @@ public abstract class xConstrainedInteger
         markNativeMethod("shiftAllRight", INT, THIS);
 
         invalidateTypeInfo();
+
+        // the cache is filled before it's published, so the handles are never seen partially
+        // constructed by other threads
+        long lLow  = getCacheLowValue();
+        long lHigh = getCacheHighValue();
+        if (lLow <= lHigh)
+            {
+            TypeComposition clazz   = getCanonicalClass();
+            JavaLong[]      ahCache = new JavaLong[(int) (lHigh - lLow + 1)];
+            for (int i = 0, c = ahCache.length; i < c; i++)
+                {
+                ahCache[i] = new JavaLong(clazz, lLow + i);
+                }
+            m_lCacheLow = lLow;
+            m_ahCache   = ahCache;
+            }
+        }
+
+    /**
+     * @return the lowest value that has a canonical handle
+     */
+    protected long getCacheLowValue()
+        {
+        return Math.max(CACHE_LOW, f_cMinValue);
+        }
+
+    /**
+     * @return the highest value that has a canonical handle
+     */
+    protected long getCacheHighValue()
+        {
+        // the max value of UInt64 is stored as -1
+        return f_cNumBits < 64 ? Math.min(CACHE_HIGH, f_cMaxValue) : CACHE_HIGH;
         }
 
     /**
@@ -104,7 +137,7 @@ public abstract class xConstrainedInteger
         {
         if (constant instanceof IntConstant constInt)
             {
-            return frame.pushStack(new JavaLong(getCanonicalClass(), constInt.getValue().getLong()));
+            return frame.pushStack(makeJavaLong(constInt.getValue().getLong()));
             }
 
         return super.createConstHandle(frame, constant);
@@ -695,7 +728,8 @@ public abstract class xConstrainedInteger
         }
 
     /**
-     * Create a JavaLong handle for the type represented by this template.
+     * Create a JavaLong handle for the type represented by this template. Small values are
+     * represented by canonical (cached) handles.
      *
      * @param lValue  the underlying long value
      *
@@ -711,6 +745,25 @@ public abstract class xConstrainedInteger
                 lValue -= (f_lValueMask + 1);
                 }
             }
+        return makeCanonicalHandle(lValue);
+        }
+
+    /**
+     * Obtain a JavaLong handle for the specified value that is known to be within the range of the
+     * type represented by this template, using the canonical handle cache whenever possible.
+     *
+     * @param lValue  the underlying long value
+     *
+     * @return the corresponding handle
+     */
+    protected JavaLong makeCanonicalHandle(long lValue)
+        {
+        JavaLong[] ahCache = m_ahCache;
+        long       lIndex  = lValue - m_lCacheLow; // cannot wrap into the cache range
+        if (ahCache != null && lIndex >= 0 && lIndex < ahCache.length)
+            {
+            return ahCache[(int) lIndex];
+            }
         return new JavaLong(getCanonicalClass(), lValue);
         }
 
@@ -877,6 +930,27 @@ public abstract class xConstrainedInteger
 
     // ----- fields --------------------------------------------------------------------------------
 
+    /**
+     * The maximum number of canonical handles per type.
+     */
+    public static final int MAX_CACHE_SIZE = 0x10000;
+
+    /**
+     * The default range of values that are represented by canonical handles; configurable via the
+     * "xvm.handleCache.low" and "xvm.handleCache.high" system properties.
+     */
+    public static final long CACHE_LOW  = Long.parseLong(System.getProperty("xvm.handleCache.low", "-128"));
+    public static final long CACHE_HIGH = Long.parseLong(System.getProperty("xvm.handleCache.high", "1023"));
+
+    static
+        {
+        if (CACHE_LOW > CACHE_HIGH || CACHE_HIGH - CACHE_LOW >= MAX_CACHE_SIZE)
+            {
+            throw new ExceptionInInitializerError("Invalid handle cache range [" + CACHE_LOW + ", "
+                    + CACHE_HIGH + "]; at most " + MAX_CACHE_SIZE + " values can be cached");
+            }
+        }
+
     protected final long f_cMinValue;
     protected final long f_cMaxValue;
     protected final int  f_cNumBits;
@@ -886,4 +960,11 @@ public abstract class xConstrainedInteger
 
     protected final boolean f_fChecked;
     protected final boolean f_fSigned;
+
+    /**
+     * The canonical handles for the values starting at {@link #m_lCacheLow}; null if there is no
+     * cache. The volatile write of the filled array publishes the handles and the low value.
+     */
+    private volatile JavaLong[] m_ahCache;
+    private long                m_lCacheLow;
     }
\ No newline at end of file
@@ -7,7 +7,6 @@ import org.xvm.asm.Constant;
 
 import org.xvm.asm.constants.ByteConstant;
 
-import org.xvm.runtime.ClassComposition;
 import org.xvm.runtime.Container;
 import org.xvm.runtime.Frame;
 import org.xvm.runtime.ObjectHandle.JavaLong;
@@ -31,21 +30,6 @@ public class xUInt8
             }
         }
 
-    @Override
-    public void initNative()
-        {
-        super.initNative();
-
-        if (this == INSTANCE)
-            {
-            ClassComposition clz = getCanonicalClass();
-            for (int i = 0; i < cache.length; ++i)
-                {
-                cache[i] = new JavaLong(clz, i);
-                }
-            }
-        }
-
     @Override
     protected xConstrainedInteger getComplimentaryTemplate()
         {
@@ -63,17 +47,28 @@ public class xUInt8
         return super.createConstHandle(frame, constant);
         }
 
+    @Override
+    protected long getCacheLowValue()
+        {
+        // all byte values are canonical
+        return 0;
+        }
+
+    @Override
+    protected long getCacheHighValue()
+        {
+        return 255;
+        }
+
     @Override
     public JavaLong makeJavaLong(long lValue)
         {
-        return makeHandle(lValue & 0xFFL);
+        return makeCanonicalHandle(lValue & 0xFFL);
         }
 
     public static JavaLong makeHandle(long lValue)
         {
         assert lValue >= 0 & lValue <= 255;
-        return INSTANCE.cache[(int) lValue];
+        return INSTANCE.makeCanonicalHandle(lValue);
         }
-
-    private final JavaLong[] cache = new JavaLong[256];
     }
\ No newline at end of file
@@ -11,8 +11,6 @@ import org.xvm.asm.MethodStructure;
 
 import org.xvm.asm.constants.CharConstant;
 
-import org.xvm.runtime.ClassComposition;
-
 import org.xvm.runtime.Container;
 import org.xvm.runtime.Frame;
 import org.xvm.runtime.ObjectHandle;
@@ -27,6 +25,7 @@ import org.xvm.runtime.template.xOrdered;
 import org.xvm.runtime.template.collections.xArray.ArrayHandle;
 import org.xvm.runtime.template.collections.xByteArray;
 
+import org.xvm.runtime.template.numbers.xConstrainedInteger;
 import org.xvm.runtime.template.numbers.xUInt32;
 
 import org.xvm.runtime.template.text.xString.StringHandle;
@@ -61,14 +60,15 @@ public class xChar
 
         invalidateTypeInfo();
 
-        if (this == INSTANCE)
+        // the cache is filled before it's published, so the handles are never seen partially
+        // constructed by other threads
+        TypeComposition clazz   = getCanonicalClass();
+        JavaLong[]      ahCache = new JavaLong[CACHE_SIZE];
+        for (int i = 0; i < CACHE_SIZE; i++)
             {
-            ClassComposition clz = getCanonicalClass();
-            for (int i = 0; i < cache.length; ++i)
-                {
-                cache[i] = new JavaLong(clz, i);
-                }
+            ahCache[i] = new JavaLong(clazz, i);
             }
+        m_ahCache = ahCache;
         }
 
     @Override
@@ -82,7 +82,7 @@ public class xChar
         {
         if (constant instanceof CharConstant constChar)
             {
-            return frame.pushStack(new JavaLong(getCanonicalClass(), constChar.getValue()));
+            return frame.pushStack(makeHandle(constChar.getValue()));
             }
 
         return super.createConstHandle(frame, constant);
@@ -206,12 +206,26 @@ public class xChar
     public static JavaLong makeHandle(long chValue)
         {
         assert chValue >= 0 & chValue <= 0x10FFFF;
-        if (chValue < 128)
+
+        xChar      template = INSTANCE;
+        JavaLong[] ahCache  = template.m_ahCache;
+        if (ahCache != null && chValue < CACHE_SIZE)
             {
-            return INSTANCE.cache[(int)chValue];
+            return ahCache[(int) chValue];
             }
-        return new JavaLong(INSTANCE.getCanonicalClass(), chValue);
+        return new JavaLong(template.getCanonicalClass(), chValue);
         }
 
-    private final JavaLong[] cache = new JavaLong[128];
+    /**
+     * The number of canonical handles: the ASCII characters and, by default, the rest of the
+     * Latin-1 supplement and some; see {@link xConstrainedInteger#CACHE_HIGH}.
+     */
+    private static final int CACHE_SIZE = (int) Math.max(128,
+            Math.min(xConstrainedInteger.CACHE_HIGH + 1, xConstrainedInteger.MAX_CACHE_SIZE));
+
+    /**
+     * The canonical handles for the first {@link #CACHE_SIZE} code points; null until the template
+     * is initialized.
+     */
+    private volatile JavaLong[] m_ahCache;
     }
\ No newline at end of file
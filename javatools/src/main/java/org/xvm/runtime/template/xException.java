@@ -124,6 +124,11 @@ public class xException
         return makeHandle(frame, "Service terminated: " + sService);
         }
 
+    public static ExceptionHandle serviceOverwhelmed(Frame frame, String sService)
+        {
+        return makeHandle(frame, "Service overwhelmed: " + sService);
+        }
+
     public static ExceptionHandle deadlock(Frame frame, String sMsg)
         {
         return makeHandle(frame, s_clzDeadlock, sMsg);
@@ -6,8 +6,20 @@ import java.io.IOException;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
 
 import org.xvm.asm.ClassStructure;
 import org.xvm.asm.ConstantPool;
@@ -19,6 +31,7 @@ import org.xvm.asm.ModuleStructure;
 import org.xvm.asm.Version;
 
 import org.xvm.asm.constants.TypeConstant;
+import org.xvm.asm.constants.TypeInfoCache;
 
 import org.xvm.compiler.Token;
 
@@ -95,6 +108,7 @@ import static org.xvm.util.Handy.resolveFile;
  * <li>{@code -strict} - convert warnings to errors</li>
  * <li>{@code -nowarn} - suppress warnings</li>
  * <li>{@code -verbose} - provide information about the work being done by the compilation process</li>
+ * <li>{@code -j <n>} - compile at most {@code n} independent modules concurrently</li>
  * </ul>
  */
 public class Compiler
@@ -225,16 +239,24 @@ public class Compiler
         boolean fRebuild = options().isForcedRebuild();
         log(Severity.INFO, "Output-path=" + outputLoc + ", force-rebuild=" + fRebuild);
 
-        Map<File, Node> mapTargets     = new ListMap<>(cTargets);
-        int             cSystemModules = 0;
+        Map<File, Node>                 mapTargets     = new ListMap<>(cTargets);
+        Map<ModuleInfo, SourceManifest> mapManifests   = new HashMap<>();
+        int                             cSystemModules = 0;
         for (ModuleInfo moduleInfo : aTarget)
             {
-            log(Severity.INFO, "Loading and parsing sources for module: " + moduleInfo);
-            Node node = moduleInfo.getSourceTree(this);
-
             // short-circuit the compilation of any up-to-date modules
             if (fRebuild || !moduleInfo.isUpToDate())
                 {
+                // the manifest records the sources as they are before they get parsed, so that
+                // a change made during the compilation is detected by the next build
+                SourceManifest manifest = moduleInfo.captureSources();
+                if (manifest != null)
+                    {
+                    mapManifests.put(moduleInfo, manifest);
+                    }
+
+                log(Severity.INFO, "Loading and parsing sources for module: " + moduleInfo);
+                Node node = moduleInfo.getSourceTree(this);
                 mapTargets.put(moduleInfo.getSourceFile(), node);
                 if (moduleInfo.isSystemModule())
                     {
@@ -278,6 +300,7 @@ public class Compiler
         org.xvm.compiler.Compiler[] compilers = mapCompilers.values().toArray(NO_COMPILERS);
         linkModules(compilers, repoLib);
         flushAndCheckErrors(allNodes);
+        bindTypeInfoCaches(compilers);
 
         resolveNames(compilers);
         flushAndCheckErrors(allNodes);
@@ -292,6 +315,7 @@ public class Compiler
         log(Severity.INFO, "Generating code");
         generateCode(compilers);
         flushAndCheckErrors(allNodes);
+        storeTypeInfoCaches(compilers);
 
         if (allNodes.length == 1)
             {
@@ -308,6 +332,7 @@ public class Compiler
             }
         emitModules(allNodes, repoOutput);
         flushAndCheckErrors(allNodes);
+        storeManifests(allNodes, mapManifests);
 
         log(Severity.INFO, "Finished; terminating compiler");
         }
@@ -411,40 +436,44 @@ public class Compiler
         }
 
     /**
-     * Resolve dependencies, including among multiple modules that are being compiled at the same
-     * time.
+     * Allow the modules being compiled to use the persistent TypeInfo caches of the library
+     * modules that they are linked to, if the caches are enabled. The caches are kept in a
+     * dedicated directory, so neither the library nor the output directories are ever modified.
      *
      * @param compilers  a module compiler for each module
      */
-    protected void resolveNames(org.xvm.compiler.Compiler[] compilers)
+    protected void bindTypeInfoCaches(org.xvm.compiler.Compiler[] compilers)
         {
-        int cTriesLeft = 0x3F;
-        do
+        for (var compiler : compilers)
             {
-            boolean fDone = true;
-            for (var compiler : compilers)
-                {
-                fDone &= compiler.resolveNames(cTriesLeft == 1);
-
-                if (compiler.isAbortDesired())
-                    {
-                    return;
-                    }
-                }
-            if (fDone)
-                {
-                return;
-                }
+            TypeInfoCache.bind(compiler.getFileStructure());
             }
-        while (--cTriesLeft > 0);
+        }
 
-        // something couldn't get resolved; must be a bug in the compiler
+    /**
+     * Persist the TypeInfos that have been built for the library types during the compilation.
+     *
+     * @param compilers  a module compiler for each module
+     */
+    protected void storeTypeInfoCaches(org.xvm.compiler.Compiler[] compilers)
+        {
         for (var compiler : compilers)
             {
-            compiler.logRemainingDeferredAsErrors();
+            TypeInfoCache.store(compiler.getFileStructure());
             }
         }
 
+    /**
+     * Resolve dependencies, including among multiple modules that are being compiled at the same
+     * time.
+     *
+     * @param compilers  a module compiler for each module
+     */
+    protected void resolveNames(org.xvm.compiler.Compiler[] compilers)
+        {
+        processStage(compilers, org.xvm.compiler.Compiler::resolveNames, null);
+        }
+
     /**
      * Validation phase, before code generation.
      *
@@ -452,76 +481,295 @@ public class Compiler
      */
     protected void validateExpressions(org.xvm.compiler.Compiler[] compilers)
         {
-        int cTriesLeft = 0x3F;
-        do
+        processStage(compilers, org.xvm.compiler.Compiler::validateExpressions, null);
+        }
+
+    /**
+     * After names/dependencies are resolved, generate the actual code.
+     *
+     * @param compilers  a module compiler for each module
+     */
+    protected void generateCode(org.xvm.compiler.Compiler[] compilers)
+        {
+        processStage(compilers, org.xvm.compiler.Compiler::generateCode, (compiler, e) ->
             {
-            boolean fDone = true;
-            for (var compiler : compilers)
+            System.err.println("Failed to generate code for " + compiler);
+            e.printStackTrace(System.err);
+
+            log(Severity.ERROR, "Failed to generate code for " + compiler
+                    + " due to exception: " + e);
+            });
+        }
+
+    /**
+     * Drive the module compilers through one of the compilation stages, giving each compiler
+     * another pass until all of them report that the stage is complete.
+     * <p/>
+     * Within each pass, the compilers are processed in the "waves" produced by
+     * {@link #planWaves}; the modules of a wave do not depend on each other, so they are
+     * processed concurrently, while the waves themselves are processed in order. Each module
+     * logs to its own error list, so neither the errors nor the compiled modules depend on the
+     * number of threads used.
+     *
+     * @param compilers  a module compiler for each module
+     * @param stage      the stage-specific pass, which is passed the compiler and a flag
+     *                   indicating the last attempt, and returns true iff the stage is complete
+     * @param handler    the optional handler for an exception thrown by a pass; if null, the
+     *                   exception is re-thrown
+     */
+    protected void processStage(org.xvm.compiler.Compiler[] compilers,
+                                BiPredicate<org.xvm.compiler.Compiler, Boolean> stage,
+                                BiConsumer<org.xvm.compiler.Compiler, RuntimeException> handler)
+        {
+        List<org.xvm.compiler.Compiler[]> listWaves = planWaves(compilers);
+        int                               cWidest   = 0;
+        for (var wave : listWaves)
+            {
+            cWidest = Math.max(cWidest, wave.length);
+            }
+
+        int             cThreads = Math.min(options().getThreadCount(), cWidest);
+        ExecutorService executor = cThreads > 1 ? createExecutor(cThreads) : null;
+        try
+            {
+            int cTriesLeft = 0x3F;
+            do
                 {
-                fDone &= compiler.validateExpressions(cTriesLeft == 1);
+                boolean fDone = true;
+                boolean fLast = cTriesLeft == 1;
+                for (var wave : listWaves)
+                    {
+                    if (executor == null || wave.length == 1)
+                        {
+                        for (var compiler : wave)
+                            {
+                            try
+                                {
+                                fDone &= stage.test(compiler, fLast);
+                                }
+                            catch (RuntimeException e)
+                                {
+                                if (handler == null)
+                                    {
+                                    throw e;
+                                    }
+                                handler.accept(compiler, e);
+                                }
+
+                            if (compiler.isAbortDesired())
+                                {
+                                return;
+                                }
+                            }
+                        }
+                    else
+                        {
+                        fDone &= processWave(executor, wave, stage, fLast, handler);
 
-                if (compiler.isAbortDesired())
+                        for (var compiler : wave)
+                            {
+                            if (compiler.isAbortDesired())
+                                {
+                                return;
+                                }
+                            }
+                        }
+                    }
+                if (fDone)
                     {
                     return;
                     }
                 }
-            if (fDone)
+            while (--cTriesLeft > 0);
+
+            // something couldn't get resolved; must be a bug in the compiler
+            for (var compiler : compilers)
                 {
-                return;
+                compiler.logRemainingDeferredAsErrors();
                 }
             }
-        while (--cTriesLeft > 0);
-
-        // something couldn't get resolved; must be a bug in the compiler
-        for (var compiler : compilers)
+        finally
             {
-            compiler.logRemainingDeferredAsErrors();
+            if (executor != null)
+                {
+                executor.shutdown();
+                }
             }
         }
 
     /**
-     * After names/dependencies are resolved, generate the actual code.
+     * Process one pass of a stage for each of the compilers of a wave concurrently, and wait for
+     * all of them to finish. Any exceptions are handled on the calling thread in the order of the
+     * compilers within the wave.
      *
-     * @param compilers  a module compiler for each module
+     * @return true iff the stage is complete for all of the compilers in the wave
      */
-    protected void generateCode(org.xvm.compiler.Compiler[] compilers)
+    private boolean processWave(ExecutorService executor, org.xvm.compiler.Compiler[] wave,
+                                BiPredicate<org.xvm.compiler.Compiler, Boolean> stage, boolean fLast,
+                                BiConsumer<org.xvm.compiler.Compiler, RuntimeException> handler)
         {
-        int cTriesLeft = 0x3F;
-        do
+        List<Future<Boolean>> listFutures = new ArrayList<>(wave.length);
+        for (var compiler : wave)
             {
-            boolean fDone = true;
-            for (var compiler : compilers)
+            listFutures.add(executor.submit(() -> stage.test(compiler, fLast)));
+            }
+
+        boolean          fDone        = true;
+        RuntimeException eUnhandled   = null;
+        boolean          fInterrupted = false;
+        for (int i = 0, c = wave.length; i < c; ++i)
+            {
+            Future<Boolean> future = listFutures.get(i);
+            while (true)
                 {
                 try
                     {
-                    fDone &= compiler.generateCode(cTriesLeft == 1);
+                    fDone &= future.get();
+                    break;
+                    }
+                catch (InterruptedException e)
+                    {
+                    // the compilation of the wave must finish regardless
+                    fInterrupted = true;
+                    }
+                catch (ExecutionException e)
+                    {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Error err)
+                        {
+                        throw err;
+                        }
 
-                    if (compiler.isAbortDesired())
+                    RuntimeException eRT = cause instanceof RuntimeException re
+                            ? re
+                            : new IllegalStateException(cause);
+                    if (handler == null)
                         {
-                        return;
+                        if (eUnhandled == null)
+                            {
+                            eUnhandled = eRT;
+                            }
+                        }
+                    else
+                        {
+                        handler.accept(wave[i], eRT);
                         }
+                    break;
                     }
-                catch (RuntimeException e)
+                }
+            }
+
+        if (fInterrupted)
+            {
+            Thread.currentThread().interrupt();
+            }
+        if (eUnhandled != null)
+            {
+            throw eUnhandled;
+            }
+        return fDone;
+        }
+
+    /**
+     * Divide the module compilers into "waves" of compilers that can be processed concurrently.
+     * A module that depends on another module being compiled is placed in a later wave than the
+     * module that it depends on, so each wave sees its dependencies already processed by the
+     * same pass. The order of the waves, and of the compilers within each wave, is deterministic.
+     * <p/>
+     * Modules that depend on each other circularly cannot be separated; each of those is placed
+     * in a wave of its own, in the original order.
+     *
+     * @param compilers  a module compiler for each module (already linked)
+     *
+     * @return the list of waves
+     */
+    protected List<org.xvm.compiler.Compiler[]> planWaves(org.xvm.compiler.Compiler[] compilers)
+        {
+        int c = compilers.length;
+        if (c <= 1)
+            {
+            return Collections.singletonList(compilers);
+            }
+
+        // the FileStructure of a linked module contains all of its (transitive) dependencies
+        String[] asName = new String[c];
+        for (int i = 0; i < c; ++i)
+            {
+            asName[i] = compilers[i].getFileStructure().getModuleName();
+            }
+
+        boolean[][] aafDepends = new boolean[c][c];
+        for (int i = 0; i < c; ++i)
+            {
+            Set<String> setDeps = compilers[i].getFileStructure().moduleNames();
+            for (int j = 0; j < c; ++j)
+                {
+                aafDepends[i][j] = i != j && setDeps.contains(asName[j]);
+                }
+            }
+
+        List<org.xvm.compiler.Compiler[]> listWaves = new ArrayList<>();
+        boolean[]                         afDone    = new boolean[c];
+        int                               cDone     = 0;
+        while (cDone < c)
+            {
+            List<Integer> listReady = new ArrayList<>();
+            NextModule: for (int i = 0; i < c; ++i)
+                {
+                if (!afDone[i])
                     {
-                    System.err.println("Failed to generate code for " + compiler);
-                    e.printStackTrace(System.err);
+                    for (int j = 0; j < c; ++j)
+                        {
+                        if (aafDepends[i][j] && !afDone[j])
+                            {
+                            continue NextModule;
+                            }
+                        }
+                    listReady.add(i);
+                    }
+                }
 
-                    log(Severity.ERROR, "Failed to generate code for " + compiler
-                            + " due to exception: " + e);
+            if (listReady.isEmpty())
+                {
+                // circular dependency; break it at the first remaining module
+                for (int i = 0; i < c; ++i)
+                    {
+                    if (!afDone[i])
+                        {
+                        listReady.add(i);
+                        break;
+                        }
                     }
                 }
-            if (fDone)
+
+            org.xvm.compiler.Compiler[] wave = new org.xvm.compiler.Compiler[listReady.size()];
+            for (int i = 0, cReady = wave.length; i < cReady; ++i)
                 {
-                return;
+                int iModule = listReady.get(i);
+                wave[i]         = compilers[iModule];
+                afDone[iModule] = true;
                 }
+            cDone += wave.length;
+            listWaves.add(wave);
             }
-        while (--cTriesLeft > 0);
 
-        // something couldn't get resolved; must be a bug in the compiler
-        for (var compiler : compilers)
+        return listWaves;
+        }
+
+    /**
+     * @param cThreads  the number of threads
+     *
+     * @return an executor to process the compilers of a wave with
+     */
+    private static ExecutorService createExecutor(int cThreads)
+        {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(cThreads, r ->
             {
-            compiler.logRemainingDeferredAsErrors();
-            }
+            Thread thread = new Thread(r, "Compiler-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+            });
         }
 
     /**
@@ -594,6 +842,29 @@ public class Compiler
         }
 
 
+    /**
+     * Store the manifests of the module sources for the compiled modules, which allows the next
+     * build to skip any module whose sources have the same contents.
+     *
+     * @param allNodes      the array of module sources that were compiled
+     * @param mapManifests  the manifests captured before the module sources were parsed
+     */
+    protected void storeManifests(Node[] allNodes, Map<ModuleInfo, SourceManifest> mapManifests)
+        {
+        for (Node node : allNodes)
+            {
+            ModuleInfo     info     = node.moduleInfo();
+            SourceManifest manifest = mapManifests.get(info);
+            File           fileBin  = info.getBinaryFile();
+            File           fileMan  = info.getManifestFile();
+            if (manifest != null && fileMan != null && fileBin.exists())
+                {
+                manifest.store(fileMan, fileBin);
+                }
+            }
+        }
+
+
     // ----- text output and error handling --------------------------------------------------------
 
     @Override
@@ -663,6 +934,28 @@ public class Compiler
                 : prevOutput;
         }
 
+    /**
+     * Specify a map, keyed by the location on the module path, of library repositories to use
+     * instead of creating new ones. This allows the library modules that were loaded and linked
+     * by one compilation to be used by the next one; it is the responsibility of the caller to
+     * discard the map when any of the library modules change.
+     *
+     * @param mapRepos  the map of reusable library repositories, or null to always create them
+     */
+    public void setLibraryRepos(Map<File, ModuleRepository> mapRepos)
+        {
+        libraryRepos = mapRepos;
+        }
+
+    @Override
+    protected ModuleRepository makeLibraryRepo(File file)
+        {
+        Map<File, ModuleRepository> mapRepos = libraryRepos;
+        return mapRepos == null
+                ? super.makeLibraryRepo(file)
+                : mapRepos.computeIfAbsent(file, super::makeLibraryRepo);
+        }
+
 
     // ----- options -------------------------------------------------------------------------------
 
@@ -700,6 +993,8 @@ public class Compiler
             addOption("o",       Form.File,   false, "File or directory to write output to");
             addOption("qualify", Form.Name,   false, "Use full module name for the output file name");
             addOption("version", Form.String, false, "Specify the version to stamp onto the compiled module(s)");
+            addOption("j",       Form.Int,    false, "Maximum number of modules to compile concurrently;"
+                                                 + " defaults to the number of processors");
             addOption(Trailing,  Form.File,   true , "Source file name(s) and/or module location(s) to"
                                                  + " compile");
             }
@@ -756,6 +1051,17 @@ public class Compiler
             return sVersion == null ? null : new Version(sVersion);
             }
 
+        /**
+         * @return the maximum number of modules to compile concurrently
+         */
+        public int getThreadCount()
+            {
+            Integer n = (Integer) values().get("j");
+            return n == null
+                    ? Runtime.getRuntime().availableProcessors()
+                    : Math.max(1, n);
+            }
+
         /**
          * @return true if "fully qualified module name in output file name" option is set
          */
@@ -848,4 +1154,6 @@ public class Compiler
     protected ModuleInfo[]     prevModules;
     protected ModuleRepository prevLibs;
     protected ModuleRepository prevOutput;
+
+    protected Map<File, ModuleRepository> libraryRepos;
     }
\ No newline at end of file
@@ -0,0 +1,1306 @@
+package org.xvm.tool;
+
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import java.lang.management.ManagementFactory;
+
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+
+import java.nio.ByteBuffer;
+
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import java.nio.charset.StandardCharsets;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+import java.util.concurrent.LinkedBlockingQueue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import java.util.function.Function;
+
+import java.util.zip.CRC32C;
+
+import org.xvm.asm.Constants;
+import org.xvm.asm.ModuleRepository;
+
+
+import static org.xvm.util.Handy.readMagnitude;
+import static org.xvm.util.Handy.readUtf8String;
+import static org.xvm.util.Handy.writePackedLong;
+import static org.xvm.util.Handy.writeUtf8String;
+
+
+/**
+ * The "daemon" command: a long-running JVM that executes the <code>xcc</code> and <code>xec</code>
+ * commands on behalf of the {@link Launcher}, so that the JIT-compiled tool chain and the library
+ * modules that the compiler has loaded and linked (including their TypeInfos) stay warm from one
+ * command to the next.
+ * <p/>
+ * The daemon mode is opt-in: it is enabled by setting the {@code XTC_DAEMON} environment variable
+ * (or the {@code xvm.daemon} system property) to {@code true}. When it is enabled, the Launcher
+ * forwards each command to the daemon; if the daemon is not running, the Launcher starts one in
+ * the background and executes the command itself. The daemon can also be controlled explicitly:
+ *
+ * <ul><li> <code>daemon start</code> - start the daemon in the background
+ * </li><li> <code>daemon stop</code> - stop the daemon
+ * </li><li> <code>daemon status</code> - report whether the daemon is running
+ * </li></ul>
+ *
+ * The daemon listens on a Unix domain socket in a directory that only the current user can
+ * access; the name of the socket is derived from the class path of the tool chain, so that
+ * different builds never share a daemon. Commands are executed one at a time; a command that
+ * arrives while another is executing is refused, and the Launcher executes it itself. A command
+ * executes in the working directory of the Launcher, and the resources that the runtime injects
+ * into the modules executed by the <code>xec</code> command (the current, home and temporary
+ * directories and the "xvm.*" properties) are based on the system properties of the Launcher
+ * rather than the daemon's; its output, its error output and its exit status are sent back to the
+ * Launcher, and the input of the Launcher is sent to the <code>xec</code> command. Since the
+ * compiler and the runtime are tuned by the "xvm.*" system properties of the JVM that executes
+ * them, a command is refused (and executed by the Launcher itself) unless those properties of the
+ * Launcher are the same as the daemon's.
+ * <p/>
+ * The library repositories of the <code>xcc</code> command are reused until any of the modules in
+ * them change; the <code>xec</code> command always loads its libraries anew, since the runtime
+ * modifies the modules that it loads. The daemon exits after it has been idle for the number of
+ * minutes specified by the {@code xvm.daemon.idle} system property (three hours by default).
+ */
+public class Daemon
+    {
+    /**
+     * Entry point from the OS.
+     *
+     * @param asArg  command line arguments
+     */
+    public static void main(String[] asArg)
+        {
+        String sCmd = asArg.length == 0 ? "start" : asArg[0];
+        Path   path = getSocketPath();
+        switch (sCmd)
+            {
+            case "start":
+                if (isRunning(path))
+                    {
+                    System.out.println("The daemon is already running");
+                    }
+                else if (launch())
+                    {
+                    System.out.println("Starting the daemon; log: " + getLogFile(path));
+                    }
+                else
+                    {
+                    System.err.println("Failed to start the daemon");
+                    System.exit(-1);
+                    }
+                break;
+
+            case "stop":
+            case "status":
+                if (isRunning(path))
+                    {
+                    int nStatus = request(path, sCmd, new String[0]);
+                    if (nStatus == STATUS_REFUSED)
+                        {
+                        System.err.println("The daemon is busy");
+                        nStatus = -1;
+                        }
+                    System.exit(nStatus);
+                    }
+                System.out.println("The daemon is not running");
+                break;
+
+            case "serve":
+                // this is how the daemon process is started by the "start" command
+                new Daemon(path).serve();
+                break;
+
+            default:
+                System.err.println("Daemon command \"" + sCmd + "\" is not supported; "
+                        + "use \"start\", \"stop\", or \"status\"");
+                System.exit(-1);
+                break;
+            }
+        }
+
+    /**
+     * Forward a Launcher command to the daemon, if the daemon mode is enabled. If the daemon is not
+     * running, it is started in the background, and the command is not forwarded.
+     *
+     * @param sCmd   the Launcher command, such as "xcc"
+     * @param asArg  the arguments of the command
+     *
+     * @return false if the command was not forwarded, in which case the caller must execute it;
+     *         otherwise, this method does not return, since the process exits with the status of
+     *         the forwarded command
+     */
+    public static boolean forward(String sCmd, String[] asArg)
+        {
+        if (!isEnabled())
+            {
+            return false;
+            }
+
+        Path path = getSocketPath();
+        if (!isRunning(path))
+            {
+            launch();
+            return false;
+            }
+
+        int nStatus = request(path, sCmd, asArg);
+        if (nStatus == STATUS_REFUSED)
+            {
+            return false;
+            }
+
+        System.out.flush();
+        System.err.flush();
+        System.exit(nStatus);
+        return true;
+        }
+
+    /**
+     * @return true iff the daemon mode has been enabled for the Launcher
+     */
+    public static boolean isEnabled()
+        {
+        String sEnabled = System.getProperty(PROP_ENABLED);
+        if (sEnabled == null)
+            {
+            sEnabled = System.getenv(ENV_ENABLED);
+            }
+        return sEnabled != null && (sEnabled.equalsIgnoreCase("true") || sEnabled.equals("1"));
+        }
+
+
+    // ----- client --------------------------------------------------------------------------------
+
+    /**
+     * Send a command to the daemon, and relay its output until it completes.
+     *
+     * @param path   the path of the daemon's socket
+     * @param sCmd   the command
+     * @param asArg  the arguments of the command
+     *
+     * @return the exit status of the command, or {@link #STATUS_REFUSED} if the daemon did not
+     *         execute it
+     */
+    private static int request(Path path, String sCmd, String[] asArg)
+        {
+        SocketChannel channel = connect(path);
+        if (channel == null)
+            {
+            return STATUS_REFUSED;
+            }
+
+        boolean fStarted = false;
+        try (channel)
+            {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputOf(channel)));
+            DataInputStream  in  = new DataInputStream(new BufferedInputStream(inputOf(channel)));
+
+            out.writeInt(MAGIC);
+            writeUtf8String(out, getIdentity());
+            writeUtf8String(out, sCmd);
+            writeUtf8String(out, new File("").getAbsolutePath());
+
+            Properties props = getHostProperties();
+            writePackedLong(out, props.size());
+            for (String sKey : props.stringPropertyNames())
+                {
+                writeUtf8String(out, sKey);
+                writeUtf8String(out, props.getProperty(sKey));
+                }
+
+            writePackedLong(out, asArg.length);
+            for (String sArg : asArg)
+                {
+                writeUtf8String(out, sArg);
+                }
+            out.flush();
+
+            if (in.readUnsignedByte() != REPLY_ACCEPTED)
+                {
+                return STATUS_REFUSED;
+                }
+            fStarted = true;
+
+            if (sCmd.equals("xec"))
+                {
+                Thread thread = new Thread(() -> sendInput(out), "xvm-daemon-input");
+                thread.setDaemon(true);
+                thread.start();
+                }
+
+            while (true)
+                {
+                switch (in.readUnsignedByte())
+                    {
+                    case FRAME_OUT:
+                        System.out.write(readFrame(in));
+                        System.out.flush();
+                        break;
+
+                    case FRAME_ERR:
+                        System.err.write(readFrame(in));
+                        System.err.flush();
+                        break;
+
+                    case FRAME_EXIT:
+                        return in.readInt();
+
+                    default:
+                        throw new IOException("Invalid frame");
+                    }
+                }
+            }
+        catch (IOException e)
+            {
+            if (fStarted)
+                {
+                System.err.println("The connection to the daemon failed: " + e);
+                return -1;
+                }
+            return STATUS_REFUSED;
+            }
+        }
+
+    /**
+     * Copy the input of this process to the daemon until the end of the input.
+     */
+    private static void sendInput(DataOutputStream out)
+        {
+        byte[] ab = new byte[8192];
+        try
+            {
+            int cb;
+            do
+                {
+                cb = System.in.read(ab);
+                writeFrame(out, FRAME_IN, ab, 0, Math.max(cb, 0));
+                }
+            while (cb > 0);
+            }
+        catch (IOException ignore) {}
+        }
+
+    /**
+     * @return true iff there is a daemon listening on the specified socket
+     */
+    private static boolean isRunning(Path path)
+        {
+        SocketChannel channel = connect(path);
+        if (channel == null)
+            {
+            return false;
+            }
+
+        try
+            {
+            channel.close();
+            }
+        catch (IOException ignore) {}
+        return true;
+        }
+
+    /**
+     * @return a channel connected to the daemon, or null if the daemon is not running
+     */
+    private static SocketChannel connect(Path path)
+        {
+        if (path == null || !Files.exists(path))
+            {
+            return null;
+            }
+
+        try
+            {
+            return SocketChannel.open(UnixDomainSocketAddress.of(path));
+            }
+        catch (IOException | RuntimeException e)
+            {
+            return null;
+            }
+        }
+
+    /**
+     * Start the daemon in a background process, using the same Java installation, class path, and
+     * memory and assertion settings as this process.
+     *
+     * @return true iff the process was started
+     */
+    private static boolean launch()
+        {
+        Path path = getSocketPath();
+        if (path == null)
+            {
+            return false;
+            }
+
+        List<String> listCmd = new ArrayList<>();
+        listCmd.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        for (String sArg : ManagementFactory.getRuntimeMXBean().getInputArguments())
+            {
+            if (sArg.startsWith("-X") || sArg.startsWith("-D") || sArg.startsWith("-ea")
+                    || sArg.startsWith("-enableassertions"))
+                {
+                listCmd.add(sArg);
+                }
+            }
+        listCmd.add("-cp");
+        listCmd.add(System.getProperty("java.class.path"));
+        listCmd.add(Launcher.class.getName());
+        listCmd.add("daemon");
+        listCmd.add("serve");
+
+        try
+            {
+            File fileLog = getLogFile(path);
+            new ProcessBuilder(listCmd)
+                    .redirectInput(ProcessBuilder.Redirect.from(new File(
+                            File.separatorChar == '\\' ? "NUL" : "/dev/null")))
+                    .redirectOutput(ProcessBuilder.Redirect.appendTo(fileLog))
+                    .redirectErrorStream(true)
+                    .start();
+            return true;
+            }
+        catch (IOException | RuntimeException e)
+            {
+            return false;
+            }
+        }
+
+
+    // ----- daemon --------------------------------------------------------------------------------
+
+    /**
+     * Construct the daemon.
+     *
+     * @param path  the path of the socket to listen on
+     */
+    protected Daemon(Path path)
+        {
+        f_path = path;
+        }
+
+    /**
+     * Listen for and execute commands until the daemon is stopped or idle for too long.
+     */
+    protected void serve()
+        {
+        Path path = f_path;
+        if (path == null)
+            {
+            System.err.println("The daemon directory is not accessible");
+            System.exit(-1);
+            }
+
+        if (isRunning(path))
+            {
+            System.out.println("The daemon is already running");
+            return;
+            }
+
+        try
+            {
+            Files.deleteIfExists(path);
+            m_server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            m_server.bind(UnixDomainSocketAddress.of(path));
+            }
+        catch (IOException e)
+            {
+            System.err.println("The daemon failed to listen on " + path + ": " + e);
+            System.exit(-1);
+            }
+
+        // the commands write to System.out and System.err, and the runtime holds on to the
+        // System.in and System.out streams, so those are redirected once, for the life of the JVM
+        System.setOut(new PrintStream(f_redirectOut, true));
+        System.setErr(new PrintStream(f_redirectErr, true));
+        System.setIn(f_redirectIn);
+
+        log("Listening on " + path + " (pid " + ProcessHandle.current().pid() + ")");
+        m_ldtLastActive = System.currentTimeMillis();
+
+        Thread threadIdle = new Thread(this::checkIdle, "xvm-daemon-idle");
+        threadIdle.setDaemon(true);
+        threadIdle.start();
+
+        try
+            {
+            while (true)
+                {
+                SocketChannel channel = m_server.accept();
+                Thread thread = new Thread(() -> handle(channel), "xvm-daemon-session");
+                thread.setDaemon(true);
+                thread.start();
+                }
+            }
+        catch (IOException e)
+            {
+            // the server socket was closed
+            }
+        finally
+            {
+            try
+                {
+                Files.deleteIfExists(path);
+                }
+            catch (IOException ignore) {}
+            }
+
+        log("Stopped");
+
+        // the programs executed by "xec" may have left threads behind
+        System.exit(0);
+        }
+
+    /**
+     * Stop the daemon once it has been idle for longer than the configured limit.
+     */
+    private void checkIdle()
+        {
+        long cIdleMillis = Long.getLong(PROP_IDLE, 180) * 60_000L;
+        while (true)
+            {
+            try
+                {
+                Thread.sleep(Math.min(cIdleMillis, 60_000L));
+                }
+            catch (InterruptedException e)
+                {
+                return;
+                }
+
+            if (!f_fBusy.get() && System.currentTimeMillis() - m_ldtLastActive > cIdleMillis)
+                {
+                log("Idle for " + (cIdleMillis / 60_000L) + " minutes");
+                stop();
+                return;
+                }
+            }
+        }
+
+    /**
+     * Stop listening for commands.
+     */
+    private void stop()
+        {
+        try
+            {
+            m_server.close();
+            }
+        catch (IOException ignore) {}
+        }
+
+    /**
+     * Handle one connection from a client.
+     *
+     * @param channel  the connection
+     */
+    private void handle(SocketChannel channel)
+        {
+        try (channel)
+            {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputOf(channel)));
+            DataInputStream  in  = new DataInputStream(new BufferedInputStream(inputOf(channel)));
+
+            if (in.readInt() != MAGIC || !readUtf8String(in).equals(getIdentity()))
+                {
+                out.writeByte(REPLY_REFUSED);
+                out.flush();
+                return;
+                }
+
+            String     sCmd  = readUtf8String(in);
+            File       dir   = new File(readUtf8String(in));
+            Properties props = new Properties();
+            for (int i = 0, c = readMagnitude(in); i < c; ++i)
+                {
+                props.setProperty(readUtf8String(in), readUtf8String(in));
+                }
+
+            String[] asArg = new String[readMagnitude(in)];
+            for (int i = 0, c = asArg.length; i < c; ++i)
+                {
+                asArg[i] = readUtf8String(in);
+                }
+
+            String sMismatch = sCmd.equals("xcc") || sCmd.equals("xec")
+                    ? findMismatch(props)
+                    : null;
+            if (sMismatch != null)
+                {
+                // the client runs the command itself, using its own settings
+                log("Refused " + sCmd + ": " + sMismatch + " differs from the daemon's setting");
+                out.writeByte(REPLY_REFUSED);
+                out.flush();
+                return;
+                }
+
+            if (!f_fBusy.compareAndSet(false, true))
+                {
+                out.writeByte(REPLY_REFUSED);
+                out.flush();
+                return;
+                }
+
+            try
+                {
+                out.writeByte(REPLY_ACCEPTED);
+                out.flush();
+
+                Input input = new Input();
+                if (sCmd.equals("xec"))
+                    {
+                    Thread thread = new Thread(() -> receiveInput(in, input), "xvm-daemon-input");
+                    thread.setDaemon(true);
+                    thread.start();
+                    }
+                else
+                    {
+                    input.add(new byte[0]);
+                    }
+
+                f_redirectOut.target = new FrameOutputStream(out, FRAME_OUT);
+                f_redirectErr.target = new FrameOutputStream(out, FRAME_ERR);
+                f_redirectIn .target = input;
+
+                long ldtStart = System.currentTimeMillis();
+                int  nStatus;
+                try
+                    {
+                    nStatus = execute(sCmd, dir, props, asArg);
+                    }
+                finally
+                    {
+                    System.out.flush();
+                    System.err.flush();
+                    f_redirectOut.target = f_outLog;
+                    f_redirectErr.target = f_outLog;
+                    f_redirectIn .target = InputStream.nullInputStream();
+                    }
+
+                log(sCmd + ' ' + String.join(" ", asArg) + " -> " + nStatus + " ("
+                        + (System.currentTimeMillis() - ldtStart) + "ms)");
+
+                synchronized (out)
+                    {
+                    out.writeByte(FRAME_EXIT);
+                    out.writeInt(nStatus);
+                    out.flush();
+                    }
+
+                checkMemory();
+                }
+            finally
+                {
+                m_ldtLastActive = System.currentTimeMillis();
+                f_fBusy.set(false);
+                }
+
+            if (sCmd.equals("stop"))
+                {
+                stop();
+                }
+            }
+        catch (IOException e)
+            {
+            // the client has gone away
+            }
+        }
+
+    /**
+     * Copy the input that the client sends to the specified Input until the end of the input.
+     */
+    private static void receiveInput(DataInputStream in, Input input)
+        {
+        try
+            {
+            byte[] ab;
+            do
+                {
+                if (in.readUnsignedByte() != FRAME_IN)
+                    {
+                    break;
+                    }
+                ab = readFrame(in);
+                input.add(ab);
+                }
+            while (ab.length > 0);
+            }
+        catch (IOException ignore) {}
+
+        input.add(new byte[0]);
+        }
+
+    /**
+     * Execute a command.
+     *
+     * @param sCmd   the command
+     * @param dir    the working directory of the client
+     * @param props  the host properties of the client
+     * @param asArg  the arguments of the command
+     *
+     * @return the exit status of the command
+     */
+    private int execute(String sCmd, File dir, Properties props, String[] asArg)
+        {
+        SessionConsole console = new SessionConsole();
+        try
+            {
+            switch (sCmd)
+                {
+                case "xcc":
+                    {
+                    ++m_cCommands;
+                    f_repos.validate();
+
+                    Compiler compiler = new Compiler(asArg, console);
+                    compiler.setWorkingDirectory(dir);
+                    compiler.setLibraryRepos(f_repos);
+                    compiler.run();
+                    break;
+                    }
+
+                case "xec":
+                    {
+                    ++m_cCommands;
+                    Runner runner = new Runner(asArg, console);
+                    runner.setWorkingDirectory(dir);
+                    runner.setHostProperties(props);
+                    runner.run();
+                    break;
+                    }
+
+                case "status":
+                    console.out("The daemon is running (pid " + ProcessHandle.current().pid()
+                            + "); " + m_cCommands + " commands executed, "
+                            + f_repos.size() + " library repositories cached");
+                    return 0;
+
+                case "stop":
+                    console.out("Stopping the daemon");
+                    return 0;
+
+                default:
+                    console.err("Command name \"" + sCmd + "\" is not supported");
+                    return -1;
+                }
+            }
+        catch (Abort e)
+            {
+            // the exit status has been recorded by the console
+            }
+        catch (Throwable e)
+            {
+            e.printStackTrace();
+            console.nStatus = 1;
+            }
+
+        return console.nStatus;
+        }
+
+    /**
+     * Discard the cached library modules if they take the memory that the commands need.
+     */
+    private void checkMemory()
+        {
+        java.lang.Runtime runtime = java.lang.Runtime.getRuntime();
+        long              cbLimit = runtime.maxMemory() / 4 * 3;
+        if (runtime.totalMemory() - runtime.freeMemory() > cbLimit)
+            {
+            System.gc();
+            if (runtime.totalMemory() - runtime.freeMemory() > cbLimit)
+                {
+                log("Discarding " + f_repos.size() + " library repositories to free memory");
+                f_repos.clear();
+                }
+            }
+        }
+
+    /**
+     * Log a message to the daemon's own output.
+     */
+    private void log(String sMsg)
+        {
+        synchronized (f_outLog)
+            {
+            f_outLog.println(java.time.LocalDateTime.now() + " " + sMsg);
+            }
+        }
+
+
+    // ----- helpers -------------------------------------------------------------------------------
+
+    /**
+     * @return the path of the socket of the daemon for this tool chain, or null if the daemon
+     *         directory is not accessible
+     */
+    private static Path getSocketPath()
+        {
+        String sDir = System.getProperty(PROP_DIR);
+        File   dir  = sDir == null
+                ? new File(System.getProperty("user.home"), ".xtclang" + File.separator + "daemon")
+                : new File(sDir);
+        try
+            {
+            Path pathDir = dir.toPath();
+            if (!dir.isDirectory())
+                {
+                Files.createDirectories(pathDir);
+                }
+            if (Files.getFileStore(pathDir).supportsFileAttributeView("posix"))
+                {
+                // only the owner may connect to the daemon
+                Files.setPosixFilePermissions(pathDir, PosixFilePermissions.fromString("rwx------"));
+                }
+
+            CRC32C crc = new CRC32C();
+            crc.update(getIdentity().getBytes(StandardCharsets.UTF_8));
+            return pathDir.resolve(String.format("xvm-%08x.sock", (int) crc.getValue()));
+            }
+        catch (IOException | RuntimeException e)
+            {
+            return null;
+            }
+        }
+
+    /**
+     * @return the file that a daemon started in the background logs to
+     */
+    private static File getLogFile(Path path)
+        {
+        String sName = path.getFileName().toString();
+        return path.resolveSibling(sName.substring(0, sName.lastIndexOf('.')) + ".log").toFile();
+        }
+
+    /**
+     * @return the properties of this process that the resources injected by the runtime are based
+     *         on, so that the daemon can run the <code>xec</code> command as if it were this process
+     */
+    private static Properties getHostProperties()
+        {
+        Properties props = new Properties();
+        for (String sKey : System.getProperties().stringPropertyNames())
+            {
+            if (sKey.startsWith("xvm.") || sKey.equals("user.dir") || sKey.equals("user.home")
+                    || sKey.equals("java.io.tmpdir"))
+                {
+                props.setProperty(sKey, System.getProperty(sKey));
+                }
+            }
+        return props;
+        }
+
+    /**
+     * Compare the "xvm.*" settings of a client to the ones that this daemon has been started with.
+     * The compiler and the runtime read those settings from the system properties, most of them
+     * only once, so a command can only be executed by the daemon if the client's settings are the
+     * same (the settings of the daemon mode itself are exempt).
+     *
+     * @param props  the host properties of the client
+     *
+     * @return the name of the first setting that differs, or null if all the settings match
+     */
+    private static String findMismatch(Properties props)
+        {
+        Set<String> setKeys = new TreeSet<>(props.stringPropertyNames());
+        setKeys.addAll(System.getProperties().stringPropertyNames());
+        for (String sKey : setKeys)
+            {
+            if (sKey.startsWith("xvm.") && !sKey.startsWith(PROP_ENABLED)
+                    && !Objects.equals(props.getProperty(sKey), System.getProperty(sKey)))
+                {
+                return sKey;
+                }
+            }
+        return null;
+        }
+
+    /**
+     * @return a String that identifies this build of the tool chain and the JVM running it
+     */
+    private static String getIdentity()
+        {
+        StringBuilder sb = new StringBuilder()
+                .append(Constants.VERSION_MAJOR_CUR).append('.').append(Constants.VERSION_MINOR_CUR)
+                .append(' ').append(System.getProperty("java.home"))
+                .append(' ').append(java.lang.Runtime.version());
+        for (String sPath : System.getProperty("java.class.path").split(File.pathSeparator))
+            {
+            File file = new File(sPath).getAbsoluteFile();
+            sb.append(' ').append(file).append(':').append(file.lastModified())
+              .append(':').append(file.length());
+            }
+        return sb.toString();
+        }
+
+    /**
+     * @return an InputStream that reads from the specified channel
+     */
+    private static InputStream inputOf(SocketChannel channel)
+        {
+        return new InputStream()
+            {
+            @Override
+            public int read()
+                    throws IOException
+                {
+                byte[] ab = new byte[1];
+                return read(ab, 0, 1) < 0 ? -1 : ab[0] & 0xFF;
+                }
+
+            @Override
+            public int read(byte[] ab, int of, int cb)
+                    throws IOException
+                {
+                return cb == 0 ? 0 : channel.read(ByteBuffer.wrap(ab, of, cb));
+                }
+            };
+        }
+
+    /**
+     * @return an OutputStream that writes to the specified channel
+     */
+    private static OutputStream outputOf(SocketChannel channel)
+        {
+        return new OutputStream()
+            {
+            @Override
+            public void write(int b)
+                    throws IOException
+                {
+                write(new byte[] {(byte) b}, 0, 1);
+                }
+
+            @Override
+            public void write(byte[] ab, int of, int cb)
+                    throws IOException
+                {
+                ByteBuffer buf = ByteBuffer.wrap(ab, of, cb);
+                while (buf.hasRemaining())
+                    {
+                    channel.write(buf);
+                    }
+                }
+            };
+        }
+
+    /**
+     * Write a frame of bytes.
+     */
+    private static void writeFrame(DataOutputStream out, int nType, byte[] ab, int of, int cb)
+            throws IOException
+        {
+        synchronized (out)
+            {
+            out.writeByte(nType);
+            writePackedLong(out, cb);
+            out.write(ab, of, cb);
+            out.flush();
+            }
+        }
+
+    /**
+     * Read the bytes of a frame, whose type has already been read.
+     */
+    private static byte[] readFrame(DataInputStream in)
+            throws IOException
+        {
+        byte[] ab = new byte[readMagnitude(in)];
+        in.readFully(ab);
+        return ab;
+        }
+
+
+    // ----- inner classes -------------------------------------------------------------------------
+
+    /**
+     * The Console used for the commands: instead of exiting the process, an abort records the exit
+     * status and unwinds the command, and any output after the abort is discarded, just as if the
+     * process had exited.
+     */
+    private static class SessionConsole
+            implements Launcher.Console
+        {
+        @Override
+        public void out(Object o)
+            {
+            if (!fAborted)
+                {
+                System.out.println(o);
+                }
+            }
+
+        @Override
+        public void err(Object o)
+            {
+            if (!fAborted)
+                {
+                System.err.println(o);
+                }
+            }
+
+        @Override
+        public void abort(boolean fError)
+            {
+            if (!fAborted)
+                {
+                fAborted = true;
+                nStatus  = fError ? -1 : 0;
+                }
+            throw new Abort();
+            }
+
+        boolean fAborted;
+        int     nStatus;
+        }
+
+    /**
+     * The exception used to unwind an aborted command.
+     */
+    private static class Abort
+            extends RuntimeException
+        {
+        Abort()
+            {
+            super(null, null, false, false);
+            }
+        }
+
+    /**
+     * An OutputStream that writes to a target stream that can be changed.
+     */
+    private static class Redirect
+            extends OutputStream
+        {
+        Redirect(OutputStream target)
+            {
+            this.target = target;
+            }
+
+        @Override
+        public void write(int b)
+                throws IOException
+            {
+            target.write(b);
+            }
+
+        @Override
+        public void write(byte[] ab, int of, int cb)
+                throws IOException
+            {
+            target.write(ab, of, cb);
+            }
+
+        @Override
+        public void flush()
+                throws IOException
+            {
+            target.flush();
+            }
+
+        volatile OutputStream target;
+        }
+
+    /**
+     * An InputStream that reads from a source stream that can be changed.
+     */
+    private static class RedirectInput
+            extends InputStream
+        {
+        @Override
+        public int read()
+                throws IOException
+            {
+            return target.read();
+            }
+
+        @Override
+        public int read(byte[] ab, int of, int cb)
+                throws IOException
+            {
+            return target.read(ab, of, cb);
+            }
+
+        @Override
+        public int available()
+                throws IOException
+            {
+            return target.available();
+            }
+
+        volatile InputStream target = InputStream.nullInputStream();
+        }
+
+    /**
+     * An OutputStream that sends everything written to it to the client as frames of one type.
+     */
+    private static class FrameOutputStream
+            extends OutputStream
+        {
+        FrameOutputStream(DataOutputStream out, int nType)
+            {
+            this.out   = out;
+            this.nType = nType;
+            }
+
+        @Override
+        public void write(int b)
+                throws IOException
+            {
+            write(new byte[] {(byte) b}, 0, 1);
+            }
+
+        @Override
+        public void write(byte[] ab, int of, int cb)
+                throws IOException
+            {
+            if (cb > 0)
+                {
+                writeFrame(out, nType, ab, of, cb);
+                }
+            }
+
+        private final DataOutputStream out;
+        private final int              nType;
+        }
+
+    /**
+     * An InputStream of the chunks of input that are received from the client; an empty chunk
+     * indicates the end of the input.
+     */
+    private static class Input
+            extends InputStream
+        {
+        void add(byte[] ab)
+            {
+            queue.add(ab);
+            }
+
+        @Override
+        public int read()
+                throws IOException
+            {
+            byte[] ab = new byte[1];
+            return read(ab, 0, 1) < 0 ? -1 : ab[0] & 0xFF;
+            }
+
+        @Override
+        public synchronized int read(byte[] ab, int of, int cb)
+                throws IOException
+            {
+            if (cb == 0)
+                {
+                return 0;
+                }
+
+            byte[] abChunk = chunk;
+            if (abChunk == null || offset == abChunk.length)
+                {
+                if (eof)
+                    {
+                    return -1;
+                    }
+
+                try
+                    {
+                    abChunk = queue.take();
+                    }
+                catch (InterruptedException e)
+                    {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                    }
+
+                if (abChunk.length == 0)
+                    {
+                    eof = true;
+                    return -1;
+                    }
+                chunk  = abChunk;
+                offset = 0;
+                }
+
+            int cbCopy = Math.min(cb, abChunk.length - offset);
+            System.arraycopy(abChunk, offset, ab, of, cbCopy);
+            offset += cbCopy;
+            return cbCopy;
+            }
+
+        @Override
+        public synchronized int available()
+            {
+            return chunk == null ? 0 : chunk.length - offset;
+            }
+
+        private final LinkedBlockingQueue<byte[]> queue = new LinkedBlockingQueue<>();
+        private byte[]  chunk;
+        private int     offset;
+        private boolean eof;
+        }
+
+    /**
+     * The library repositories of the compiler, keyed by their location on the module path. Each
+     * location is stamped when its repository is created, and all of the repositories are
+     * discarded as soon as any location changes, since the modules in the repositories are linked
+     * to each other.
+     */
+    private static class LibraryRepos
+            extends HashMap<File, ModuleRepository>
+        {
+        @Override
+        public ModuleRepository computeIfAbsent(File file,
+                Function<? super File, ? extends ModuleRepository> factory)
+            {
+            ModuleRepository repo = get(file);
+            if (repo == null)
+                {
+                stamps.put(file, stamp(file));
+                repo = factory.apply(file);
+                put(file, repo);
+                }
+            return repo;
+            }
+
+        /**
+         * Discard all of the repositories if any of the modules in them have changed.
+         */
+        void validate()
+            {
+            for (Map.Entry<File, Long> entry : stamps.entrySet())
+                {
+                if (stamp(entry.getKey()) != entry.getValue())
+                    {
+                    clear();
+                    return;
+                    }
+                }
+            }
+
+        @Override
+        public void clear()
+            {
+            super.clear();
+            stamps.clear();
+            }
+
+        /**
+         * @return a value that changes when a module file, or any of the module files in a
+         *         directory, is modified, added, or removed
+         */
+        private static long stamp(File file)
+            {
+            if (!file.isDirectory())
+                {
+                return file.length() * 31 + file.lastModified();
+                }
+
+            long     lStamp = 0;
+            String[] asName = file.list();
+            if (asName != null)
+                {
+                for (String sName : asName)
+                    {
+                    if (sName.endsWith(".xtc"))
+                        {
+                        File child = new File(file, sName);
+                        lStamp += (sName.hashCode() * 31L + child.length()) * 31L + child.lastModified();
+                        }
+                    }
+                }
+            return lStamp;
+            }
+
+        private final Map<File, Long> stamps = new HashMap<>();
+        }
+
+
+    // ----- constants -----------------------------------------------------------------------------
+
+    /**
+     * The environment variable that enables the daemon mode.
+     */
+    public static final String ENV_ENABLED = "XTC_DAEMON";
+
+    /**
+     * The system property that enables the daemon mode.
+     */
+    public static final String PROP_ENABLED = "xvm.daemon";
+
+    /**
+     * The system property that specifies the number of idle minutes after which the daemon exits.
+     */
+    public static final String PROP_IDLE = "xvm.daemon.idle";
+
+    /**
+     * The system property that specifies the directory of the daemon's socket.
+     */
+    public static final String PROP_DIR = "xvm.daemon.dir";
+
+    private static final int MAGIC          = 0xEC5DAE30;
+    private static final int STATUS_REFUSED = Integer.MIN_VALUE;
+
+    private static final int REPLY_ACCEPTED = 1;
+    private static final int REPLY_REFUSED  = 2;
+
+    private static final int FRAME_OUT  = 1;
+    private static final int FRAME_ERR  = 2;
+    private static final int FRAME_EXIT = 3;
+    private static final int FRAME_IN   = 4;
+
+
+    // ----- fields --------------------------------------------------------------------------------
+
+    /**
+     * The path of the socket.
+     */
+    private final Path f_path;
+
+    /**
+     * The daemon's own output, which is where the command output goes between commands.
+     */
+    private final PrintStream f_outLog = System.out;
+
+    private final Redirect      f_redirectOut = new Redirect(f_outLog);
+    private final Redirect      f_redirectErr = new Redirect(f_outLog);
+    private final RedirectInput f_redirectIn  = new RedirectInput();
+
+    /**
+     * True while a command is executing.
+     */
+    private final AtomicBoolean f_fBusy = new AtomicBoolean();
+
+    /**
+     * The library repositories that are reused by the compiler.
+     */
+    private final LibraryRepos f_repos = new LibraryRepos();
+
+    private ServerSocketChannel m_server;
+    private volatile long       m_ldtLastActive;
+    private int                 m_cCommands;
+    }
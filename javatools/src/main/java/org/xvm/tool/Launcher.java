@@ -50,7 +50,11 @@ import static org.xvm.util.Handy.toPathString;
  *
  * <ul><li> <code>xcc</code> <i>("ecstasy")</i> routes to {@link Compiler}
  * </li><li> <code>xec</code> <i>("exec")</i> routes to {@link Runner}
+ * </li><li> <code>daemon</code> routes to {@link Daemon}
  * </li></ul>
+ *
+ * When the daemon mode is enabled (see {@link Daemon}), the <code>xcc</code> and <code>xec</code>
+ * commands are forwarded to a running daemon, if there is one.
  */
 public abstract class Launcher
         implements ErrorListener
@@ -92,11 +96,21 @@ public abstract class Launcher
                 // TODO JK this spot is reserved for you to build a do-it-all "go"-style command
                 // fall through (until the new xtc command is in place)
             case "xcc":
-                Compiler.main(argv);
+                if (!Daemon.forward("xcc", argv))
+                    {
+                    Compiler.main(argv);
+                    }
                 break;
 
             case "xec":
-                Runner.main(argv);
+                if (!Daemon.forward("xec", argv))
+                    {
+                    Runner.main(argv);
+                    }
+                break;
+
+            case "daemon":
+                Daemon.main(argv);
                 break;
 
             default:
@@ -1210,14 +1224,25 @@ public abstract class Launcher
         repos[0] = makeBuildRepo();
         for (int i = 0, c = path.size(); i < c; ++i)
             {
-            File file = path.get(i);
-            repos[i + 1] = file.isDirectory()
-                ? new DirRepository(file, true)
-                : new FileRepository(file, true);
+            repos[i + 1] = makeLibraryRepo(path.get(i));
             }
         return new LinkedRepository(true, repos);
         }
 
+    /**
+     * Factory method for a repository of the library modules at one location of the module path.
+     *
+     * @param file  a module directory or a module file
+     *
+     * @return a new repository for the specified location
+     */
+    protected ModuleRepository makeLibraryRepo(File file)
+        {
+        return file.isDirectory()
+            ? new DirRepository(file, true)
+            : new FileRepository(file, true);
+        }
+
     /**
      * Factory method for a BuildRepository.
      *
@@ -1259,7 +1284,7 @@ public abstract class Launcher
      */
     protected ModuleRepository configureResultRepo(File fileDest)
         {
-        fileDest = resolveFile(fileDest);
+        fileDest = resolveFile(fileDest == null ? m_dirWorking : fileDest);
         return fileDest.isDirectory()
                 ? new DirRepository (fileDest, false)
                 : new FileRepository(fileDest, false);
@@ -1491,7 +1516,7 @@ public abstract class Launcher
      *
      * @throws IOException
      */
-    protected static List<File> resolvePath(String sPath)
+    protected List<File> resolvePath(String sPath)
             throws IOException
         {
         List<File> files = new ArrayList<>();
@@ -1505,19 +1530,56 @@ public abstract class Launcher
         if (sPath.indexOf('*') >= 0 || sPath.indexOf('?') >= 0)
             {
             // wildcard file names
-            try (DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get("."), sPath))
+            Path dir = m_dirWorking == null ? Paths.get(".") : m_dirWorking.toPath();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, sPath))
                 {
                 stream.forEach(path -> files.add(path.toFile()));
                 }
             }
         else
             {
-            files.add(new File(sPath));
+            files.add(toFile(sPath));
             }
 
         return files;
         }
 
+    /**
+     * Convert a file name from the command line to a File.
+     *
+     * @param sPath  a file or directory name, which is relative to the working directory unless
+     *               it is absolute
+     *
+     * @return the File
+     */
+    protected File toFile(String sPath)
+        {
+        File file = new File(sPath);
+        return m_dirWorking == null || file.isAbsolute()
+                ? file
+                : new File(m_dirWorking, sPath);
+        }
+
+    /**
+     * @return the directory that the file names on the command line are relative to, or null if
+     *         they are relative to the current directory of the process
+     */
+    public File getWorkingDirectory()
+        {
+        return m_dirWorking;
+        }
+
+    /**
+     * Specify the directory that the file names on the command line are relative to. This is used
+     * when the command is executed on behalf of another process, such as by the {@link Daemon}.
+     *
+     * @param dir  the working directory, or null to use the current directory of the process
+     */
+    public void setWorkingDirectory(File dir)
+        {
+        m_dirWorking = dir;
+        }
+
     /**
      * Select modules to target for source code processing.
      *
@@ -1836,5 +1898,11 @@ public abstract class Launcher
      */
     protected int m_cSuspended;
 
+    /**
+     * The directory that relative file names on the command line are relative to; null indicates
+     * the current directory of the process.
+     */
+    protected File m_dirWorking;
+
     protected Map<File, ModuleInfo> moduleCache;
     }
\ No newline at end of file
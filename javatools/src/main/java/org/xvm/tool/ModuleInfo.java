@@ -12,8 +12,10 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 
 import java.util.function.Consumer;
@@ -23,6 +25,8 @@ import org.xvm.asm.ErrorListener;
 import org.xvm.asm.FileStructure;
 import org.xvm.asm.Version;
 
+import org.xvm.asm.constants.TypeInfoCache;
+
 import org.xvm.compiler.CompilerException;
 import org.xvm.compiler.Constants;
 import org.xvm.compiler.Parser;
@@ -419,15 +423,61 @@ public class ModuleInfo
         }
 
     /**
-     * @return True if the module binary exists and is at least as up-to-date as all of the
-     *         existent source and resource files and directories
+     * @return True if the module binary exists and either the module source cannot be located,
+     *         or the binary is at least as up-to-date as all of the existent source and resource
+     *         files and directories; if the module binary has a {@link SourceManifest}, then it is
+     *         up-to-date iff the source and resource files are the same files with the same
+     *         contents as the ones that it was compiled from
      */
     public boolean isUpToDate()
         {
         long binTimestamp = getBinaryTimestamp();
-        return binTimestamp >  0L
-            && binTimestamp >= getSourceTimestamp()
-            && binTimestamp >= getResourceTimestamp();
+        if (binTimestamp <= 0L)
+            {
+            return false;
+            }
+
+        File dirRoot = getSourceRoot();
+        if (dirRoot == null)
+            {
+            // the binary cannot be rebuilt, so it cannot be out-of-date (note that the resource
+            // timestamp would then be taken from the binary's own directory)
+            return true;
+            }
+
+        SourceManifest manifest = SourceManifest.load(getManifestFile(), getBinaryFile());
+        if (manifest == null)
+            {
+            return binTimestamp >= getSourceTimestamp()
+                && binTimestamp >= getResourceTimestamp();
+            }
+
+        return manifest.matches(dirRoot, getInputFiles());
+        }
+
+    /**
+     * Record the current state of the module source and resource files, so that it can be stored
+     * with the compiled module once the compilation succeeds.
+     *
+     * @return the manifest of the module input files, or null if it cannot be created or the
+     *         manifests are disabled
+     */
+    public SourceManifest captureSources()
+        {
+        File dirRoot = getSourceRoot();
+        return dirRoot == null || getManifestFile() == null
+                ? null
+                : SourceManifest.capture(dirRoot, getInputFiles());
+        }
+
+    /**
+     * @return the file that holds the {@link SourceManifest} for the compiled module, or null if
+     *         the location of the compiled module cannot be determined or the manifests are
+     *         disabled
+     */
+    public File getManifestFile()
+        {
+        return SourceManifest.locate(getBinaryFile());
         }
 
     /**
@@ -570,6 +620,59 @@ public class ModuleInfo
         return sourceTimestamp;
         }
 
+    /**
+     * @return the directory that the module source file and the source tree are located in, or
+     *         null if the module source file does not exist
+     */
+    public File getSourceRoot()
+        {
+        File fileSrc = getSourceFile();
+        return fileSrc != null && fileSrc.exists()
+                ? fileSrc.getAbsoluteFile().getParentFile()
+                : null;
+        }
+
+    /**
+     * @return all of the files that the compiled module is built from: the module source file, the
+     *         source files in the module source tree, and the files in the resource directories,
+     *         each listed once and in a stable order, but excluding the compiled module and any
+     *         files generated by the tool chain; an empty list if the module source file does not
+     *         exist
+     */
+    public List<File> getInputFiles()
+        {
+        Set<File> setFiles = new LinkedHashSet<>();
+        File      fileSrc  = getSourceFile();
+        if (fileSrc != null && fileSrc.exists())
+            {
+            fileSrc = fileSrc.getAbsoluteFile();
+            setFiles.add(fileSrc);
+            if (sourceIsTree)
+                {
+                File subdir = new File(fileSrc.getParentFile(), removeExtension(fileSrc.getName()));
+                if (subdir.isDirectory())
+                    {
+                    visitTree(subdir, "x", setFiles::add);
+                    }
+                }
+
+            for (File fileRes : getResourceDir().getLocations())
+                {
+                collectFiles(fileRes.getAbsoluteFile(), setFiles);
+                }
+
+            // the compiled module can be located in a resource directory, and so can the files
+            // generated by the tool chain (for any module, e.g. by an earlier version of the tools)
+            File fileBin = getBinaryFile();
+            if (fileBin != null)
+                {
+                setFiles.remove(fileBin.getAbsoluteFile());
+                }
+            setFiles.removeIf(ModuleInfo::isGenerated);
+            }
+        return new ArrayList<>(setFiles);
+        }
+
 
     // ----- resources -----------------------------------------------------------------------------
 
@@ -780,6 +883,45 @@ public class ModuleInfo
         }
 
 
+    /**
+     * Add the specified file, or all the files in the specified directory and its subdirectories,
+     * to the set of files, in the order of their names.
+     */
+    private static void collectFiles(File fileOrDir, Set<File> setFiles)
+        {
+        if (fileOrDir.isDirectory())
+            {
+            File[] aFile = fileOrDir.listFiles();
+            if (aFile != null)
+                {
+                Arrays.sort(aFile);
+                for (File file : aFile)
+                    {
+                    collectFiles(file, setFiles);
+                    }
+                }
+            }
+        else if (fileOrDir.isFile())
+            {
+            setFiles.add(fileOrDir);
+            }
+        }
+
+    /**
+     * @return true iff the specified file has been generated by the tool chain alongside a compiled
+     *         module, such as a source manifest or a TypeInfo cache (or a temporary file for one)
+     */
+    private static boolean isGenerated(File file)
+        {
+        String sName = file.getName();
+        if (sName.endsWith(".tmp"))
+            {
+            sName = removeExtension(sName);
+            }
+        return sName.endsWith(SourceManifest.FILE_EXT) || sName.endsWith(TypeInfoCache.FILE_EXT);
+        }
+
+
     // ----- source tree ---------------------------------------------------------------------------
 
     /**
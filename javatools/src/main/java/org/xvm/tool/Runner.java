@@ -7,6 +7,7 @@ import java.io.IOException;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Properties;
 import java.util.Set;
 
 import org.xvm.api.Connector;
@@ -22,6 +23,7 @@ import org.xvm.asm.constants.MethodConstant;
 import org.xvm.asm.constants.TypeConstant;
 
 import org.xvm.runtime.ObjectHandle;
+import org.xvm.runtime.Runtime;
 import org.xvm.runtime.Utils;
 
 import org.xvm.runtime.template.text.xString;
@@ -190,7 +192,7 @@ public class Runner
                 {
                 try
                     {
-                    if (fileSpec.equals(new File(asCompilerArgs[cCompilerArgs-1])))
+                    if (fileSpec.equals(toFile(asCompilerArgs[cCompilerArgs-1])))
                         {
                         fTargetFound = true;
                         }
@@ -210,7 +212,9 @@ public class Runner
                 System.arraycopy(asRunnerArgs, 0, asCompilerArgs, 0, cCompilerArgs);
                 }
 
-            new Compiler(asCompilerArgs, m_console).run();
+            Compiler compiler = new Compiler(asCompilerArgs, m_console);
+            compiler.setWorkingDirectory(getWorkingDirectory());
+            compiler.run();
             info      = new ModuleInfo(fileSpec);
             fileBin   = info.getBinaryFile();
             binExists = fileBin != null && fileBin.exists();
@@ -257,9 +261,16 @@ public class Runner
             }
 
         log(Severity.INFO, "Executing " + info.getQualifiedModuleName() + " from " + info.getBinaryFile());
+        Connector connector = null;
         try
             {
-            Connector connector = new Connector(repo);
+            if (options().isVirtualThreads())
+                {
+                System.setProperty(Runtime.PROP_VIRTUAL_THREADS, "true");
+                }
+
+            connector = new Connector(repo);
+            connector.setHostProperties(m_propsHost);
             connector.loadModule(module.getName());
 
             connector.start();
@@ -355,6 +366,26 @@ public class Runner
             {
             log(Severity.FATAL, e.getMessage());
             }
+        finally
+            {
+            if (connector != null)
+                {
+                connector.shutdown();
+                }
+            }
+        }
+
+
+    /**
+     * Specify the properties of the process that the module is executed for, which the injected
+     * resources (such as "curDir" and "properties") are based on; by default, those are the
+     * system properties of this JVM.
+     *
+     * @param props  the host properties, or null to use the system properties
+     */
+    public void setHostProperties(Properties props)
+        {
+        m_propsHost = props;
         }
 
 
@@ -408,12 +439,15 @@ public class Runner
             {
             super();
 
-            addOption("version", Form.Name  , false, "Displays the Ecstasy runtime version");
-            addOption("L",       Form.Repo  , true , "Module path; a \"" + File.pathSeparator
-                                                  + "\"-delimited list of file and/or directory names");
-            addOption("M",       Form.String, false, "Method name; defaults to \"run\"");
-            addOption(Trailing,  Form.File  , false, "Module file name (.xtc) to execute");
-            addOption(ArgV,      Form.AsIs  , true , "Arguments to pass to the method");
+            addOption("version",  Form.Name  , false, "Displays the Ecstasy runtime version");
+            addOption("L",        Form.Repo  , true , "Module path; a \"" + File.pathSeparator
+                                                   + "\"-delimited list of file and/or directory names");
+            addOption("M",        Form.String, false, "Method name; defaults to \"run\"");
+            addOption("vthreads", Form.Name  , false, "Run blocking IO operations on virtual threads"
+                                                   + " (requires Java 21 or later); helps when many"
+                                                   + " operations block concurrently");
+            addOption(Trailing,   Form.File  , false, "Module file name (.xtc) to execute");
+            addOption(ArgV,       Form.AsIs  , true , "Arguments to pass to the method");
             }
 
         /**
@@ -432,6 +466,14 @@ public class Runner
             return (List<File>) values().getOrDefault("L", Collections.emptyList());
             }
 
+        /**
+         * @return true if the blocking operations should run on virtual threads
+         */
+        public boolean isVirtualThreads()
+            {
+            return specified("vthreads");
+            }
+
         /**
          * @return the method name
          */
@@ -478,4 +520,12 @@ public class Runner
                 }
             }
         }
+
+
+    // ----- fields --------------------------------------------------------------------------------
+
+    /**
+     * The properties of the host process, or null to use the system properties.
+     */
+    private Properties m_propsHost;
     }
\ No newline at end of file
@@ -0,0 +1,359 @@
+package org.xvm.tool;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import java.util.List;
+
+import java.util.zip.CRC32C;
+
+import org.xvm.util.ByteBufferDataInput;
+
+
+import static org.xvm.util.Handy.readMagnitude;
+import static org.xvm.util.Handy.readUtf8String;
+import static org.xvm.util.Handy.writePackedLong;
+import static org.xvm.util.Handy.writeUtf8String;
+
+
+/**
+ * A record of the source files that a compiled module was built from. The manifest records the
+ * length, the timestamp and a checksum of each source file, plus the length and the timestamp of
+ * the compiled module.
+ * <p/>
+ * The manifests are kept in the "~/.xtclang/sources" directory (or the directory specified by the
+ * {@code xvm.manifest.dir} system property; "false" disables the manifests), and never next to the
+ * compiled modules, so that they do not end up in a packaged library. The manifest of a module is
+ * named after the module file and its location, e.g. {@code ecstasy-1f2e3d4c.sources} for
+ * {@code .../lib/ecstasy.xtc}.
+ * <p/>
+ * A manifest allows the module to be considered up-to-date when the timestamps of its source
+ * files have changed, but their contents have not (for example, after a "touch", a checkout, or a
+ * switch back to the same branch), and it detects the removal or the addition of a source file,
+ * which a comparison of the timestamps does not.
+ */
+public class SourceManifest
+    {
+    /**
+     * Construct a manifest.
+     *
+     * @param entries  the entries for the source files
+     */
+    private SourceManifest(Entry[] entries)
+        {
+        this.entries = entries;
+        }
+
+    /**
+     * Determine the manifest file for the specified compiled module.
+     *
+     * @param fileBinary  the compiled module file
+     *
+     * @return the manifest file, or null if the manifests are disabled
+     */
+    public static File locate(File fileBinary)
+        {
+        File dirManifests = s_dirManifests;
+        if (dirManifests == null || fileBinary == null)
+            {
+            return null;
+            }
+
+        // the same module name may be compiled into different directories, each of which gets its
+        // own manifest
+        File   fileAbs = fileBinary.getAbsoluteFile();
+        String sName   = fileAbs.getName();
+        int    ofExt   = sName.lastIndexOf('.');
+        String sPath   = fileAbs.getParent();
+        return new File(dirManifests, (ofExt > 0 ? sName.substring(0, ofExt) : sName) + '-'
+                + String.format("%08x", sPath == null ? 0 : sPath.hashCode()) + FILE_EXT);
+        }
+
+    /**
+     * @return the directory that holds the manifests, or null if the manifests are disabled
+     */
+    public static File getDirectory()
+        {
+        return s_dirManifests;
+        }
+
+    /**
+     * Specify the directory to hold the manifests, overriding the {@code xvm.manifest.dir} system
+     * property.
+     *
+     * @param dirManifests  the manifest directory, or null to disable the manifests
+     */
+    public static void setDirectory(File dirManifests)
+        {
+        s_dirManifests = dirManifests;
+        }
+
+    /**
+     * Record the current state of the specified source files.
+     *
+     * @param dirRoot  the directory that the source files are relative to
+     * @param files    the source files
+     *
+     * @return the new manifest, or null if any of the source files could not be read
+     */
+    public static SourceManifest capture(File dirRoot, List<File> files)
+        {
+        Entry[] entries = new Entry[files.size()];
+        try
+            {
+            for (int i = 0, c = entries.length; i < c; ++i)
+                {
+                File file = files.get(i);
+                entries[i] = new Entry(relativePath(dirRoot, file), file.length(),
+                        file.lastModified(), checksum(file));
+                }
+            }
+        catch (IOException e)
+            {
+            return null;
+            }
+        return new SourceManifest(entries);
+        }
+
+    /**
+     * Load the manifest for the specified compiled module, if it has one.
+     *
+     * @param fileManifest  the manifest file
+     * @param fileBinary    the compiled module file that the manifest must belong to
+     *
+     * @return the manifest, or null if there is no valid manifest for the compiled module
+     */
+    public static SourceManifest load(File fileManifest, File fileBinary)
+        {
+        if (fileManifest == null || !fileManifest.isFile())
+            {
+            return null;
+            }
+
+        try
+            {
+            byte[] ab = Files.readAllBytes(fileManifest.toPath());
+            int    cb = ab.length - 4;
+            if (cb < 4)
+                {
+                return null;
+                }
+
+            CRC32C crc = new CRC32C();
+            crc.update(ab, 0, cb);
+            if ((int) crc.getValue() != ByteBuffer.wrap(ab, cb, 4).getInt())
+                {
+                return null;
+                }
+
+            ByteBufferDataInput in = new ByteBufferDataInput(ByteBuffer.wrap(ab, 0, cb));
+            if (in.readInt() != FILE_MAGIC
+                    || readMagnitude(in) != FILE_VERSION
+                    || in.readLong() != fileBinary.length()
+                    || in.readLong() != fileBinary.lastModified())
+                {
+                // the compiled module has been replaced since the manifest was written
+                return null;
+                }
+
+            Entry[] entries = new Entry[readMagnitude(in)];
+            for (int i = 0, c = entries.length; i < c; ++i)
+                {
+                entries[i] = new Entry(readUtf8String(in), in.readLong(), in.readLong(), in.readInt());
+                }
+            return new SourceManifest(entries);
+            }
+        catch (IOException | RuntimeException e)
+            {
+            return null;
+            }
+        }
+
+    /**
+     * Store this manifest for the specified compiled module. The file is replaced atomically;
+     * failures are ignored, since a missing manifest simply means that the timestamps are used to
+     * determine whether the module is up-to-date.
+     *
+     * @param fileManifest  the manifest file
+     * @param fileBinary    the compiled module file that the manifest belongs to
+     */
+    public void store(File fileManifest, File fileBinary)
+        {
+        File fileTemp = new File(fileManifest.getPath() + ".tmp");
+        try
+            {
+            Files.createDirectories(fileManifest.getAbsoluteFile().getParentFile().toPath());
+
+            ByteArrayOutputStream outRaw = new ByteArrayOutputStream();
+            DataOutputStream      out    = new DataOutputStream(outRaw);
+
+            out.writeInt(FILE_MAGIC);
+            writePackedLong(out, FILE_VERSION);
+            out.writeLong(fileBinary.length());
+            out.writeLong(fileBinary.lastModified());
+
+            writePackedLong(out, entries.length);
+            for (Entry entry : entries)
+                {
+                writeUtf8String(out, entry.path);
+                out.writeLong(entry.length);
+                out.writeLong(entry.timestamp);
+                out.writeInt(entry.checksum);
+                }
+
+            CRC32C crc = new CRC32C();
+            crc.update(outRaw.toByteArray());
+            out.writeInt((int) crc.getValue());
+
+            Files.write(fileTemp.toPath(), outRaw.toByteArray());
+            try
+                {
+                Files.move(fileTemp.toPath(), fileManifest.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+            catch (AtomicMoveNotSupportedException e)
+                {
+                Files.move(fileTemp.toPath(), fileManifest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        catch (IOException e)
+            {
+            try
+                {
+                Files.deleteIfExists(fileTemp.toPath());
+                }
+            catch (IOException ignore) {}
+            }
+        }
+
+    /**
+     * Determine if the specified source files are the same files, with the same contents, as the
+     * ones recorded by this manifest. A file whose length and timestamp both match the recorded
+     * ones is assumed to be unchanged; otherwise, its checksum is compared. The manifest itself is
+     * never modified; a new one is only stored once a compilation succeeds.
+     *
+     * @param dirRoot  the directory that the source files are relative to
+     * @param files    the current source files
+     *
+     * @return true iff the source files have not changed since the manifest was captured
+     */
+    public boolean matches(File dirRoot, List<File> files)
+        {
+        Entry[] entries = this.entries;
+        int     c       = entries.length;
+        if (files.size() != c)
+            {
+            return false;
+            }
+
+        try
+            {
+            for (int i = 0; i < c; ++i)
+                {
+                File  file  = files.get(i);
+                Entry entry = entries[i];
+                if (!entry.path.equals(relativePath(dirRoot, file)) || file.length() != entry.length)
+                    {
+                    return false;
+                    }
+
+                if (file.lastModified() != entry.timestamp)
+                    {
+                    if (checksum(file) != entry.checksum)
+                        {
+                        return false;
+                        }
+                    }
+                }
+            }
+        catch (IOException e)
+            {
+            return false;
+            }
+
+        return true;
+        }
+
+
+    // ----- internal ------------------------------------------------------------------------------
+
+    /**
+     * @return the manifest directory specified by the {@code xvm.manifest.dir} system property, or
+     *         null if the manifests are disabled
+     */
+    private static File loadDirectory()
+        {
+        String sDir = System.getProperty("xvm.manifest.dir");
+        if (sDir == null || sDir.isEmpty())
+            {
+            return new File(new File(System.getProperty("user.home"), ".xtclang"), "sources");
+            }
+
+        return sDir.equalsIgnoreCase("false") ? null : new File(sDir);
+        }
+
+    /**
+     * @return the path of the file relative to the root directory, using '/' as the separator
+     */
+    private static String relativePath(File dirRoot, File file)
+        {
+        return dirRoot.toPath().relativize(file.toPath()).toString().replace(File.separatorChar, '/');
+        }
+
+    /**
+     * @return the checksum of the contents of the specified file
+     */
+    private static int checksum(File file)
+            throws IOException
+        {
+        CRC32C crc = new CRC32C();
+        crc.update(Files.readAllBytes(file.toPath()));
+        return (int) crc.getValue();
+        }
+
+    /**
+     * The recorded state of one source file.
+     */
+    private static class Entry
+        {
+        Entry(String path, long length, long timestamp, int checksum)
+            {
+            this.path      = path;
+            this.length    = length;
+            this.timestamp = timestamp;
+            this.checksum  = checksum;
+            }
+
+        final String path;
+        final long   length;
+        final long   timestamp;
+        final int    checksum;
+        }
+
+
+    // ----- fields --------------------------------------------------------------------------------
+
+    /**
+     * The file extension of a manifest.
+     */
+    public static final String FILE_EXT = ".sources";
+
+    private static final int FILE_MAGIC   = 0xEC5715C5;
+    private static final int FILE_VERSION = 1;
+
+    /**
+     * The directory that holds the manifests, or null iff the manifests are disabled.
+     */
+    private static volatile File s_dirManifests = loadDirectory();
+
+    private final Entry[] entries; // one entry per source file, in the order of the source files
+    }
@@ -0,0 +1,114 @@
+package org.xvm.asm;
+
+
+import java.util.ArrayList;
+import java.util.List;
+
+import java.util.concurrent.CyclicBarrier;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import org.xvm.asm.constants.StringConstant;
+import org.xvm.asm.constants.TypeConstant;
+
+
+/**
+ * A multi-threaded throughput benchmark for ConstantPool registration.
+ * <p>
+ * Excluded from the default test run; use the "benchmark" task to run it. Every thread registers
+ * the same mix of constants: a quarter of them are shared by all threads (and so race for the
+ * same map entry) and the rest are unique to the thread. Type constants are included, since
+ * hashing and comparing them is what makes registration expensive.
+ */
+@Tag("benchmark")
+public class ConstantPoolBenchmark
+    {
+    @Test
+    public void benchmarkRegister()
+            throws Exception
+        {
+        for (int cThreads : new int[] {1, 2, 4, 8})
+            {
+            // the first round warms up the JIT
+            run(cThreads);
+
+            long cNanos = Long.MAX_VALUE;
+            for (int iRound = 0; iRound < 3; iRound++)
+                {
+                cNanos = Math.min(cNanos, run(cThreads));
+                }
+
+            long cOps = (long) cThreads * OPS_PER_THREAD;
+            System.out.printf("ConstantPool.register: %d thread(s), %,d ops in %,d ms (%,d ops/ms)%n",
+                    cThreads, cOps, cNanos / 1_000_000, cOps * 1_000_000 / Math.max(1, cNanos));
+            }
+        }
+
+    /**
+     * Register the constants on a fresh pool using the specified number of threads.
+     *
+     * @return the elapsed time in nanoseconds
+     */
+    private long run(int cThreads)
+            throws Exception
+        {
+        ConstantPool  pool     = new FileStructure("bench").getConstantPool();
+        CyclicBarrier barrier  = new CyclicBarrier(cThreads + 1);
+        List<Thread>  listThd  = new ArrayList<>();
+        Throwable[]   aFailure = new Throwable[1];
+
+        for (int iThread = 0; iThread < cThreads; iThread++)
+            {
+            int nThread = iThread;
+            Thread thread = new Thread(() ->
+                {
+                try
+                    {
+                    TypeConstant typeString = pool.typeString();
+                    barrier.await();
+                    for (int i = 0; i < OPS_PER_THREAD; i++)
+                        {
+                        String sValue = (i & 7) < 2
+                                ? "shared-" + i
+                                : "unique-" + nThread + '-' + i;
+
+                        Constant constant = (i & 1) == 0
+                                ? pool.register(new StringConstant(pool, sValue))
+                                : pool.ensureParameterizedTypeConstant(pool.typeList(),
+                                        pool.ensureTerminalTypeConstant(
+                                            pool.ensureClassConstant(pool.ensureModuleConstant("bench"),
+                                                sValue)),
+                                        typeString);
+                        if (constant.getPosition() < 0)
+                            {
+                            throw new IllegalStateException("unpositioned " + constant);
+                            }
+                        }
+                    }
+                catch (Throwable e)
+                    {
+                    aFailure[0] = e;
+                    }
+                });
+            listThd.add(thread);
+            thread.start();
+            }
+
+        barrier.await();
+        long ldtStart = System.nanoTime();
+        for (Thread thread : listThd)
+            {
+            thread.join();
+            }
+        long cNanos = System.nanoTime() - ldtStart;
+
+        if (aFailure[0] != null)
+            {
+            throw new AssertionError(aFailure[0]);
+            }
+        return cNanos;
+        }
+
+    private static final int OPS_PER_THREAD = 100_000;
+    }
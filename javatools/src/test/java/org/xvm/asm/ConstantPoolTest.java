@@ -0,0 +1,117 @@
+package org.xvm.asm;
+
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import java.util.concurrent.CyclicBarrier;
+
+import org.junit.jupiter.api.Test;
+
+import org.xvm.asm.constants.StringConstant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * Tests for the ConstantPool.
+ */
+public class ConstantPoolTest
+    {
+    @Test
+    public void testRegister()
+        {
+        ConstantPool   pool = new FileStructure("test").getConstantPool();
+        StringConstant s1   = pool.ensureStringConstant("hello");
+        StringConstant s2   = (StringConstant) pool.register(new StringConstant(pool, "hello"));
+
+        assertSame(s1, s2);
+        assertTrue(s1.getPosition() >= 0);
+        assertSame(s1, pool.getConstant(s1.getPosition()));
+        }
+
+    @Test
+    public void testConcurrentRegister()
+            throws Exception
+        {
+        ConstantPool pool     = new FileStructure("test").getConstantPool();
+        int          cThreads = 4;
+        int          cShared  = 2000;
+        int          cUnique  = 500;
+
+        StringConstant[][] aaShared = new StringConstant[cThreads][cShared];
+        StringConstant[][] aaUnique = new StringConstant[cThreads][cUnique];
+        CyclicBarrier      barrier  = new CyclicBarrier(cThreads);
+        List<Thread>       listThd  = new ArrayList<>();
+        Throwable[]        aFailure = new Throwable[1];
+
+        for (int iThread = 0; iThread < cThreads; iThread++)
+            {
+            int nThread = iThread;
+            Thread thread = new Thread(() ->
+                {
+                try
+                    {
+                    barrier.await();
+                    for (int i = 0; i < cShared; i++)
+                        {
+                        // the threads race to register the same values
+                        // the returned constant must already have its position, even if
+                        // another thread won the race and is still registering it
+                        StringConstant constant = (StringConstant)
+                                pool.register(new StringConstant(pool, "shared-" + i));
+                        assertTrue(constant.getPosition() >= 0);
+                        aaShared[nThread][i] = constant;
+                        if (i < cUnique)
+                            {
+                            aaUnique[nThread][i] =
+                                    pool.ensureStringConstant("unique-" + nThread + '-' + i);
+                            }
+                        }
+                    }
+                catch (Throwable e)
+                    {
+                    aFailure[0] = e;
+                    }
+                });
+            listThd.add(thread);
+            thread.start();
+            }
+
+        for (Thread thread : listThd)
+            {
+            thread.join();
+            }
+        if (aFailure[0] != null)
+            {
+            throw new AssertionError(aFailure[0]);
+            }
+
+        Set<Integer> setPos = new HashSet<>();
+        for (int i = 0; i < cShared; i++)
+            {
+            StringConstant constant = aaShared[0][i];
+            for (int iThread = 1; iThread < cThreads; iThread++)
+                {
+                assertSame(constant, aaShared[iThread][i]);
+                }
+            assertSame(constant, pool.getConstant(constant.getPosition()));
+            assertTrue(setPos.add(constant.getPosition()));
+            }
+
+        for (int iThread = 0; iThread < cThreads; iThread++)
+            {
+            for (int i = 0; i < cUnique; i++)
+                {
+                StringConstant constant = aaUnique[iThread][i];
+                assertEquals("unique-" + iThread + '-' + i, constant.getValue());
+                assertSame(constant, pool.getConstant(constant.getPosition()));
+                assertTrue(setPos.add(constant.getPosition()));
+                }
+            }
+        }
+    }
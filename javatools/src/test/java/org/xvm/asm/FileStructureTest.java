@@ -3,15 +3,20 @@ package org.xvm.asm;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
 
+import java.nio.file.Files;
+
 import java.util.Arrays;
 import java.util.List;
 
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
+import org.junit.jupiter.api.io.TempDir;
+
 import org.xvm.asm.ErrorListener.ErrorInfo;
 
 import org.xvm.asm.constants.ClassConstant;
@@ -27,7 +32,10 @@ import org.xvm.util.Severity;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 import static org.xvm.util.Handy.byteArrayToHexDump;
 
@@ -229,5 +237,76 @@ public class FileStructureTest
         testFileStructure(structfile);
         }
 
+    @Test
+    public void testReplaceMappedFile()
+            throws IOException, InterruptedException
+        {
+        File dirXdk  = new File(System.getProperty("xvm.xdk", "../xdk/build/xdk"));
+        File fileXdk = new File(dirXdk, "lib/json.xtc");
+        assumeTrue(fileXdk.isFile(), "the XDK has not been built");
+
+        File file = new File(dir, "json.xtc");
+        Files.copy(fileXdk.toPath(), file.toPath());
+
+        // the structure defers its children, reading them from a mapping of the file, which is
+        // then replaced
+        FileStructure structOld = new FileStructure(file, true, true);
+        new FileStructure("test").writeTo(file);
+        assertEquals("test", new FileStructure(file).getModuleName());
+
+        // nothing refers to the mapping of the replaced file anymore, so it gets released
+        File fileMaps = new File("/proc/self/maps");
+        if (fileMaps.isFile())
+            {
+            String sPath = file.getCanonicalPath() + " (deleted)";
+            for (int i = 0; i < 20 && Files.readString(fileMaps.toPath()).contains(sPath); i++)
+                {
+                System.gc();
+                Thread.sleep(50);
+                }
+            assertFalse(Files.readString(fileMaps.toPath()).contains(sPath));
+            }
+
+        // the deferred children are still the ones of the replaced file
+        assertEquals(describe(new FileStructure(fileXdk).getModule()),
+                     describe(structOld.getModule()));
+        }
+
+    @Test
+    public void testNotMappedByDefault()
+            throws IOException
+        {
+        File dirXdk   = new File(System.getProperty("xvm.xdk", "../xdk/build/xdk"));
+        File fileXdk  = new File(dirXdk, "lib/json.xtc");
+        File fileMaps = new File("/proc/self/maps");
+        assumeTrue(fileXdk.isFile(), "the XDK has not been built");
+        assumeTrue(fileMaps.isFile(), "the mappings cannot be inspected");
+        assumeFalse(Boolean.getBoolean("xvm.xtc.map"), "the mapping is turned on");
+
+        File file = new File(dir, "json.xtc");
+        Files.copy(fileXdk.toPath(), file.toPath());
+
+        // the file is read onto the heap, so another process may replace or truncate it
+        FileStructure struct = new FileStructure(file);
+        assertFalse(Files.readString(fileMaps.toPath()).contains(file.getCanonicalPath()));
+        assertEquals("json.xtclang.org", struct.getModuleName());
+        }
+
+    /**
+     * @return the names of the component and all of its nested components
+     */
+    private static String describe(Component component)
+        {
+        StringBuilder sb = new StringBuilder(component.getName());
+        for (Component child : component.children())
+            {
+            sb.append(" [").append(describe(child)).append(']');
+            }
+        return sb.toString();
+        }
+
+    @TempDir
+    File dir;
+
     static final boolean DEBUG = true;
     }
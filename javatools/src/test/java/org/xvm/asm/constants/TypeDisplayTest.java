@@ -0,0 +1,69 @@
+package org.xvm.asm.constants;
+
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+
+/**
+ * Tests for the TypeDisplay.
+ */
+public class TypeDisplayTest
+    {
+    @Test
+    public void testLookup()
+        {
+        TypeDisplay display = TypeDisplay.EMPTY;
+        assertEquals(TypeDisplay.UNKNOWN, display.lookup(1));
+
+        display = display.with(1, true).with(2, false);
+        assertEquals(TypeDisplay.IS_A,    display.lookup(1));
+        assertEquals(TypeDisplay.NOT_A,   display.lookup(2));
+        assertEquals(TypeDisplay.UNKNOWN, display.lookup(3));
+
+        // the original display is not affected
+        assertEquals(TypeDisplay.UNKNOWN, TypeDisplay.EMPTY.lookup(1));
+        }
+
+    @Test
+    public void testGrowth()
+        {
+        TypeDisplay display = TypeDisplay.EMPTY;
+        for (int nId = 1; nId <= 200; nId++)
+            {
+            display = display.with(nId, nId % 3 == 0);
+            }
+
+        for (int nId = 1; nId <= 200; nId++)
+            {
+            assertEquals(nId % 3 == 0 ? TypeDisplay.IS_A : TypeDisplay.NOT_A, display.lookup(nId));
+            }
+        assertEquals(TypeDisplay.UNKNOWN, display.lookup(201));
+        }
+
+    @Test
+    public void testFull()
+        {
+        TypeDisplay display = TypeDisplay.EMPTY;
+        for (int nId = 1; nId <= 256; nId++)
+            {
+            display = display.with(nId, true);
+            }
+
+        // a full display doesn't take any more answers
+        assertSame(display, display.with(1000, true));
+        assertEquals(TypeDisplay.UNKNOWN, display.lookup(1000));
+        }
+
+    @Test
+    public void testAllocateId()
+        {
+        int nId1 = TypeDisplay.allocateId();
+        int nId2 = TypeDisplay.allocateId();
+        assertNotEquals(0, nId1);
+        assertNotEquals(nId1, nId2);
+        }
+    }
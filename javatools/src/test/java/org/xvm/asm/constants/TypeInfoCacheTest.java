@@ -0,0 +1,126 @@
+package org.xvm.asm.constants;
+
+
+import java.io.File;
+import java.io.IOException;
+
+import java.nio.file.Files;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import org.junit.jupiter.api.io.TempDir;
+
+import org.xvm.tool.Compiler;
+import org.xvm.tool.Launcher;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+
+/**
+ * Tests of the {@link TypeInfoCache}, compiling a library module against the built XDK (the test
+ * is skipped if the XDK has not been built).
+ */
+public class TypeInfoCacheTest
+    {
+    @Test
+    public void testRoundTrip()
+            throws IOException
+        {
+        File dirXdk = new File(System.getProperty("xvm.xdk", "../xdk/build/xdk"));
+        File fileSrc = new File("../lib_collections/src/main/x/collections.x");
+        assumeTrue(new File(dirXdk, "lib/ecstasy.xtc").isFile() && fileSrc.isFile(),
+                "the XDK has not been built");
+
+        File dirLib   = new File(dir, "lib");
+        File dirOut   = new File(dir, "out");
+        File dirCache = new File(dir, "cache");
+        dirLib.mkdir();
+        dirOut.mkdir();
+        for (String sFile : new String[] {"lib/ecstasy.xtc", "javatools/javatools_turtle.xtc",
+                                          "javatools/javatools_bridge.xtc"})
+            {
+            File file = new File(dirXdk, sFile);
+            Files.copy(file.toPath(), new File(dirLib, file.getName()).toPath());
+            }
+
+        String[] asArg = {"-L", dirLib.getPath(), "-o", dirOut.getPath(), fileSrc.getPath()};
+
+        // the caches are off by default
+        File fileBin = new File(dirOut, "collections.xtc");
+        File dirPrev = TypeInfoCache.getCacheDirectory();
+        TypeInfoCache.setCacheDirectory(null);
+        try
+            {
+            new Compiler(asArg, CONSOLE).run();
+            }
+        finally
+            {
+            TypeInfoCache.setCacheDirectory(dirPrev);
+            }
+        assertTrue(fileBin.isFile());
+        assertFalse(dirCache.exists());
+        byte[] abPlain = Files.readAllBytes(fileBin.toPath());
+
+        // the first cached compilation creates the cache; the second one reads it back
+        TypeInfoCache.setCacheDirectory(dirCache);
+        try
+            {
+            fileBin.delete();
+            new Compiler(asArg, CONSOLE).run();
+            assertTrue(fileBin.isFile());
+            assertEquals(1, dirCache.list((d, s) -> s.startsWith("ecstasy-")
+                    && s.endsWith(TypeInfoCache.FILE_EXT)).length);
+            byte[] abFirst = Files.readAllBytes(fileBin.toPath());
+            assertEquals(abPlain.length, abFirst.length);
+
+            fileBin.delete();
+            new Compiler(asArg, CONSOLE).run();
+            assertTrue(fileBin.isFile());
+            byte[] abSecond = Files.readAllBytes(fileBin.toPath());
+            assertEquals(abFirst.length, abSecond.length);
+            }
+        finally
+            {
+            TypeInfoCache.setCacheDirectory(dirPrev);
+            }
+
+        // neither the library nor the output directory is ever given a cache file
+        assertArrayEquals(new String[] {"ecstasy.xtc", "javatools_bridge.xtc",
+                "javatools_turtle.xtc"}, Arrays.stream(dirLib.list()).sorted().toArray());
+        assertEquals(0, dirOut.list((d, s) -> s.endsWith(TypeInfoCache.FILE_EXT)).length);
+        }
+
+    /**
+     * A console that suppresses the output and turns an abort into a test failure.
+     */
+    private static final Launcher.Console CONSOLE = new Launcher.Console()
+        {
+        @Override
+        public void out(Object o)
+            {
+            }
+
+        @Override
+        public void err(Object o)
+            {
+            }
+
+        @Override
+        public void abort(boolean fError)
+            {
+            if (fError)
+                {
+                throw new IllegalStateException("the compilation has failed");
+                }
+            }
+        };
+
+    @TempDir
+    File dir;
+    }
@@ -0,0 +1,79 @@
+package org.xvm.runtime;
+
+
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+
+import java.nio.channels.Pipe;
+import java.nio.channels.SelectionKey;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * Tests of the EventLoop class.
+ */
+public class EventLoopTest
+    {
+    @Test
+    public void testHandlerException()
+            throws Exception
+        {
+        EventLoop loop = new EventLoop("EventLoopTest");
+        Pipe      pipe = Pipe.open();
+        try
+            {
+            pipe.source().configureBlocking(false);
+
+            CompletableFuture<IOException> futureFailure = new CompletableFuture<>();
+            loop.execute(() ->
+                {
+                try
+                    {
+                    loop.register(pipe.source(), SelectionKey.OP_READ, new EventLoop.Handler()
+                        {
+                        @Override
+                        public void onSelect(SelectionKey key)
+                            {
+                            key.cancel();
+                            throw new IllegalStateException("test");
+                            }
+
+                        @Override
+                        public void onFailure(IOException e)
+                            {
+                            futureFailure.complete(e);
+                            }
+                        });
+                    }
+                catch (IOException e)
+                    {
+                    futureFailure.completeExceptionally(e);
+                    }
+                });
+
+            pipe.sink().write(ByteBuffer.wrap(new byte[] {1}));
+
+            IOException e = futureFailure.get(10, TimeUnit.SECONDS);
+            assertTrue(e.getCause() instanceof IllegalStateException);
+
+            // the loop must have survived
+            CompletableFuture<String> futureTask = new CompletableFuture<>();
+            loop.execute(() -> futureTask.complete("alive"));
+            assertEquals("alive", futureTask.get(10, TimeUnit.SECONDS));
+            }
+        finally
+            {
+            loop.shutdown();
+            pipe.sink().close();
+            pipe.source().close();
+            }
+        }
+    }
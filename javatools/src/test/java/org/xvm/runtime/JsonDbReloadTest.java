@@ -0,0 +1,126 @@
+package org.xvm.runtime;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.nio.file.Files;
+
+import java.util.Properties;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import org.junit.jupiter.api.io.TempDir;
+
+import org.xvm.tool.Compiler;
+import org.xvm.tool.Launcher;
+import org.xvm.tool.Runner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+
+/**
+ * Tests of the jsondb storage against the built XDK (the test is skipped if the XDK has not been
+ * built): a database is reopened repeatedly, so that each open modifies (appends to, rewrites and
+ * deletes) the data files that it has just loaded.
+ * <p>
+ * The test takes more than a minute, so it is excluded from the "test" task; use the
+ * "integrationTest" task to run it.
+ */
+@Tag("integration")
+public class JsonDbReloadTest
+    {
+    @Test
+    public void testReload()
+            throws IOException
+        {
+        File dirXdk = new File(System.getProperty("xvm.xdk", "../xdk/build/xdk"));
+        assumeTrue(new File(dirXdk, "lib/jsondb.xtc").isFile(), "the XDK has not been built");
+
+        String sLib    = new File(dirXdk, "lib").getPath();
+        String sTurtle = new File(dirXdk, "javatools/javatools_turtle.xtc").getPath();
+        String sBridge = new File(dirXdk, "javatools/javatools_bridge.xtc").getPath();
+
+        File dirSrc = new File(dir, "src");
+        File dirOut = new File(dir, "out");
+        dirSrc.mkdir();
+        dirOut.mkdir();
+        for (String sModule : new String[] {"reloadDB", "reloadTest"})
+            {
+            try (InputStream in = getClass().getResourceAsStream(sModule + ".x"))
+                {
+                Files.copy(in, new File(dirSrc, sModule + ".x").toPath());
+                }
+            }
+
+        new Compiler(new String[] {"-L", sLib, "-L", sTurtle, "-L", sBridge, "-o", dirOut.getPath(),
+                new File(dirSrc, "reloadDB.x").getPath(),
+                new File(dirSrc, "reloadTest.x").getPath()}, new TestConsole()).run();
+
+        // the module runs in the temporary directory
+        Properties props = new Properties();
+        props.putAll(System.getProperties());
+        props.setProperty("user.dir", dir.getAbsolutePath());
+
+        TestConsole console = new TestConsole();
+        Runner      runner  = new Runner(new String[] {"-L", sLib, "-L", sTurtle, "-L", sBridge,
+                "-L", dirOut.getPath(), "reloadTest"}, console);
+        runner.setHostProperties(props);
+        runner.run();
+
+        File fileResult = new File(dir, "result");
+        assertTrue(fileResult.isFile(), console.sOut);
+        assertEquals("OK", Files.readString(fileResult.toPath()));
+
+        // the files that jsondb modifies must not be mapped
+        File fileMaps = new File("/proc/self/maps");
+        if (fileMaps.isFile())
+            {
+            String sDataDir = new File(dir, "data").getCanonicalPath();
+            assertFalse(Files.readString(fileMaps.toPath()).contains(sDataDir),
+                    "a data file is mapped");
+            }
+        }
+
+    /**
+     * A console that collects the output of the command and turns an abort into a failure.
+     */
+    private static class TestConsole
+            implements Launcher.Console
+        {
+        @Override
+        public void out(Object o)
+            {
+            String s = String.valueOf(o);
+            if (!s.startsWith("Warning:"))
+                {
+                sOut += s + '\n';
+                }
+            }
+
+        @Override
+        public void err(Object o)
+            {
+            sOut += o + "\n";
+            }
+
+        @Override
+        public void abort(boolean fError)
+            {
+            if (fError)
+                {
+                throw new IllegalStateException("the command has failed:\n" + sOut);
+                }
+            }
+
+        String sOut = "";
+        }
+
+    @TempDir
+    File dir;
+    }
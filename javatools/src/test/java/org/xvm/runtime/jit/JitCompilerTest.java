@@ -0,0 +1,163 @@
+package org.xvm.runtime.jit;
+
+
+import org.junit.jupiter.api.Test;
+
+import org.xvm.asm.ConstantPool;
+import org.xvm.asm.Constants.Access;
+import org.xvm.asm.FileStructure;
+import org.xvm.asm.MethodStructure;
+import org.xvm.asm.ModuleStructure;
+import org.xvm.asm.Parameter;
+
+import org.xvm.asm.ast.BiExprAST.Operator;
+import org.xvm.asm.ast.CallExprAST;
+import org.xvm.asm.ast.CondOpExprAST;
+import org.xvm.asm.ast.ConstantExprAST;
+import org.xvm.asm.ast.ExprAST;
+import org.xvm.asm.ast.RegisterAST;
+import org.xvm.asm.ast.RelOpExprAST;
+import org.xvm.asm.ast.ReturnStmtAST;
+import org.xvm.asm.ast.TernaryExprAST;
+
+import org.xvm.asm.constants.TypeConstant;
+
+import org.xvm.runtime.jit.JitCompiler.Kind;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+/**
+ * Tests of the {@link JitCompiler}, using hand-built ASTs.
+ */
+public class JitCompilerTest
+    {
+    @Test
+    public void testArithmetic()
+        {
+        // Int f(Int a, Int b) = a * b + 7 - a % b
+        MethodStructure method = createMethod("f", INT, INT, INT);
+        RegisterAST[]   aReg   = params(method);
+        ExprAST         expr   = binary(
+                binary(binary(aReg[0], Operator.Mul, aReg[1]), Operator.Add, constant(7)),
+                Operator.Sub, binary(aReg[0], Operator.Mod, aReg[1]));
+        method.setAst(new ReturnStmtAST(expr), aReg);
+
+        JitCode code = compile(method);
+        assertEquals(6 * 4 + 7 - 2, code.execute(10, new long[] {6, 4}));
+
+        // the modulo follows the sign of the divisor, as the interpreter's does
+        assertEquals(-7 * 2 + 7 - 1, code.execute(10, new long[] {-7, 2}));
+
+        // the interpreter is left to report the division by zero
+        assertThrows(ArithmeticException.class, () -> code.execute(10, new long[] {1, 0}));
+        }
+
+    @Test
+    public void testRecursion()
+        {
+        // Int fib(Int n) = n < 2 ? n : fib(n - 1) + fib(n - 2)
+        MethodStructure method = createMethod("fib", INT, INT);
+        RegisterAST[]   aReg   = params(method);
+        ExprAST         fn     = new ConstantExprAST(method.getIdentityConstant());
+        ExprAST         expr   = new TernaryExprAST(
+                new CondOpExprAST(aReg[0], Operator.CompLt, constant(2)),
+                aReg[0],
+                binary(
+                    new CallExprAST(fn, INT, new ExprAST[] {binary(aReg[0], Operator.Sub, constant(1))}),
+                    Operator.Add,
+                    new CallExprAST(fn, INT, new ExprAST[] {binary(aReg[0], Operator.Sub, constant(2))})));
+        method.setAst(new ReturnStmtAST(expr), aReg);
+
+        JitCode code = compile(method);
+        assertEquals(6765, code.execute(100, new long[] {20}));
+
+        // exceeding the allowed depth deoptimizes rather than overflowing the stack
+        assertThrows(JitCode.Deoptimization.class, () -> code.execute(5, new long[] {20}));
+        }
+
+    @Test
+    public void testUnsupported()
+        {
+        // a signature with a non-primitive type is never compiled
+        assertNull(JitCompiler.computeSignature(createMethod("s", POOL.typeString(), INT)));
+
+        // a method that falls off its end is compiled, but always defers to the interpreter
+        MethodStructure method = createMethod("g", POOL.typeBoolean(), INT);
+        RegisterAST[]   aReg   = params(method);
+        method.setAst(new CondOpExprAST(aReg[0], Operator.CompEq, constant(0)), aReg);
+
+        Kind[] aKind = JitCompiler.computeSignature(method);
+        assertArrayEquals(new Kind[] {Kind.LONG, Kind.BOOL}, aKind);
+        JitCode code = JitCompiler.compile(method, aKind);
+        assertNotNull(code);
+        assertThrows(JitCode.Deoptimization.class, () -> code.execute(10, new long[] {0}));
+
+        // a call the compiler doesn't support leaves the method to the interpreter
+        MethodStructure methodOther = createMethod("other", INT, INT);
+        method = createMethod("h", INT, INT);
+        aReg   = params(method);
+        method.setAst(new ReturnStmtAST(new CallExprAST(
+                new ConstantExprAST(methodOther.getIdentityConstant()), INT, new ExprAST[] {aReg[0]})),
+                aReg);
+        assertNull(JitCompiler.compile(method, JitCompiler.computeSignature(method)));
+        }
+
+
+    // ----- helpers -------------------------------------------------------------------------------
+
+    private static MethodStructure createMethod(String sName, TypeConstant typeRet,
+                                                TypeConstant... atypeParam)
+        {
+        Parameter[] aParam = new Parameter[atypeParam.length];
+        for (int i = 0; i < aParam.length; i++)
+            {
+            aParam[i] = new Parameter(POOL, atypeParam[i], "p" + i, null, false, i, false);
+            }
+        Parameter[] aReturn = {new Parameter(POOL, typeRet, null, null, true, 0, false)};
+
+        return MODULE.createMethod(true, Access.PUBLIC, null, aReturn, sName, aParam, true, false);
+        }
+
+    private static RegisterAST[] params(MethodStructure method)
+        {
+        int           cParams = method.getParamCount();
+        RegisterAST[] aReg    = new RegisterAST[cParams];
+        for (int i = 0; i < cParams; i++)
+            {
+            Parameter param = method.getParam(i);
+            aReg[i] = new RegisterAST(param.getType(), POOL.ensureStringConstant(param.getName()));
+            aReg[i].setRegId(i);
+            }
+        return aReg;
+        }
+
+    private static ExprAST binary(ExprAST expr1, Operator op, ExprAST expr2)
+        {
+        return new RelOpExprAST(expr1, op, expr2, INT);
+        }
+
+    private static ExprAST constant(long n)
+        {
+        return new ConstantExprAST(POOL.ensureIntConstant(n));
+        }
+
+    private static JitCode compile(MethodStructure method)
+        {
+        Kind[] aKind = JitCompiler.computeSignature(method);
+        assertNotNull(aKind);
+
+        JitCode code = JitCompiler.compile(method, aKind);
+        assertNotNull(code);
+        return code;
+        }
+
+    private static final FileStructure   FILE   = new FileStructure("test");
+    private static final ModuleStructure MODULE = FILE.getModule();
+    private static final ConstantPool    POOL   = FILE.getConstantPool();
+    private static final TypeConstant    INT    = POOL.typeInt64();
+    }
@@ -0,0 +1,590 @@
+package org.xvm.runtime.template._native.web;
+
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+
+import java.nio.charset.StandardCharsets;
+
+import java.security.KeyStore;
+
+import java.security.cert.X509Certificate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.junit.jupiter.api.io.TempDir;
+
+import org.xvm.runtime.Runtime;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * Tests of the HttpEngine and HttpConnection classes, driving a real engine over the loopback
+ * interface.
+ * <p/>
+ * The handler echoes the request body (or the request target, if there is no body) back; the
+ * requests whose target starts with "/async" are answered on another thread after a random delay,
+ * so that the responses are submitted out of order.
+ */
+public class HttpEngineTest
+    {
+    @BeforeEach
+    public void setUp()
+            throws Exception
+        {
+        m_engine = new HttpEngine(RUNTIME,
+                new InetSocketAddress("localhost", 0), new InetSocketAddress("localhost", 0),
+                createSSLContext());
+        m_engine.start(HttpEngineTest::handle);
+        }
+
+    @AfterEach
+    public void tearDown()
+        {
+        m_engine.close();
+        }
+
+    @Test
+    public void testKeepAlive()
+            throws IOException
+        {
+        try (Socket socket = connect())
+            {
+            OutputStream out = socket.getOutputStream();
+            InputStream  in  = new BufferedInputStream(socket.getInputStream());
+            for (int i = 0; i < 3; i++)
+                {
+                out.write(ascii("GET /hello/" + i + "?x=1 HTTP/1.1\r\nHost: localhost\r\n\r\n"));
+                Response response = Response.read(in);
+                assertEquals(200, response.nStatus);
+                assertEquals("/hello/" + i + "?x=1", response.text());
+                assertEquals("text/plain", response.header("Content-Type"));
+                }
+
+            out.write(ascii("HEAD / HTTP/1.1\r\n\r\nGET /last HTTP/1.1\r\n\r\n"));
+            Response response = Response.read(in, true);
+            assertEquals(200, response.nStatus);
+            assertEquals("1", response.header("Content-Length"));
+            assertEquals("/last", Response.read(in).text());
+            }
+        }
+
+    @Test
+    public void testPipelinedOrder()
+            throws IOException
+        {
+        // more than MAX_PIPELINE requests in a single write, so the reading has to pause
+        int           cRequests = 3 * HttpEngine.MAX_PIPELINE;
+        StringBuilder sb        = new StringBuilder();
+        for (int i = 0; i < cRequests; i++)
+            {
+            sb.append("GET /async/").append(i).append(" HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            }
+
+        try (Socket socket = connect())
+            {
+            socket.getOutputStream().write(ascii(sb.toString()));
+
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            for (int i = 0; i < cRequests; i++)
+                {
+                assertEquals("/async/" + i, Response.read(in).text());
+                }
+            }
+        }
+
+    @Test
+    public void testConnectionClose()
+            throws IOException
+        {
+        try (Socket socket = connect())
+            {
+            // the request after the one that closes the connection is never answered
+            socket.getOutputStream().write(ascii(
+                    "GET /1 HTTP/1.1\r\n\r\n" +
+                    "GET /2 HTTP/1.1\r\nConnection: close\r\n\r\n" +
+                    "GET /3 HTTP/1.1\r\n\r\n"));
+
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            assertEquals("/1", Response.read(in).text());
+
+            Response response = Response.read(in);
+            assertEquals("/2", response.text());
+            assertEquals("close", response.header("Connection"));
+            assertEquals(-1, in.read());
+            }
+
+        try (Socket socket = connect())
+            {
+            socket.getOutputStream().write(ascii("GET /old HTTP/1.0\r\n\r\n"));
+
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            assertEquals("/old", Response.read(in).text());
+            assertEquals(-1, in.read());
+            }
+        }
+
+    @Test
+    public void testContentLength()
+            throws IOException
+        {
+        byte[] abBody = randomBytes(300_000);
+        try (Socket socket = connect())
+            {
+            OutputStream out = socket.getOutputStream();
+            InputStream  in  = new BufferedInputStream(socket.getInputStream());
+
+            out.write(ascii("POST /echo HTTP/1.1\r\nContent-Length: " + abBody.length + "\r\n\r\n"));
+            out.write(abBody);
+            assertArrayEquals(abBody, Response.read(in).abBody);
+
+            // the same connection is still usable
+            out.write(ascii("GET /next HTTP/1.1\r\n\r\n"));
+            assertEquals("/next", Response.read(in).text());
+            }
+        }
+
+    @Test
+    public void testChunkedAcrossReads()
+            throws Exception
+        {
+        byte[] abBody = randomBytes(10_000);
+
+        ByteArrayOutputStream outRequest = new ByteArrayOutputStream();
+        outRequest.write(ascii("POST /chunked HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n"));
+        for (int of = 0, cb = 1; of < abBody.length; of += cb, cb = cb * 3 + 1)
+            {
+            cb = Math.min(cb, abBody.length - of);
+            outRequest.write(ascii(Integer.toHexString(cb) + ";ext=" + of + "\r\n"));
+            outRequest.write(abBody, of, cb);
+            outRequest.write(ascii("\r\n"));
+            }
+        outRequest.write(ascii("0\r\nX-Trailer: ignored\r\n\r\n"));
+        byte[] abRequest = outRequest.toByteArray();
+
+        try (Socket socket = connect())
+            {
+            // trickle the request in small pieces, splitting the chunk size lines, the chunk data
+            // and the CRLFs across the reads
+            OutputStream out = socket.getOutputStream();
+            for (int of = 0, cb; of < abRequest.length; of += cb)
+                {
+                cb = Math.min(1 + of % 7, abRequest.length - of);
+                out.write(abRequest, of, cb);
+                out.flush();
+                if (of % 50 == 0)
+                    {
+                    Thread.sleep(1);
+                    }
+                }
+
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            assertArrayEquals(abBody, Response.read(in).abBody);
+
+            // a pipelined request right after the chunked one in the same write
+            out.write(ascii("POST /c HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n" +
+                            "3\r\nabc\r\n0\r\n\r\nGET /after HTTP/1.1\r\n\r\n"));
+            assertEquals("abc", Response.read(in).text());
+            assertEquals("/after", Response.read(in).text());
+            }
+        }
+
+    @Test
+    public void testExpectContinue()
+            throws IOException
+        {
+        try (Socket socket = connect())
+            {
+            OutputStream out = socket.getOutputStream();
+            InputStream  in  = new BufferedInputStream(socket.getInputStream());
+
+            out.write(ascii("PUT /data HTTP/1.1\r\nContent-Length: 5\r\nExpect: 100-continue\r\n\r\n"));
+            Response interim = Response.read(in);
+            assertEquals(100, interim.nStatus);
+            assertEquals(0, interim.abBody.length);
+
+            out.write(ascii("hello"));
+            Response response = Response.read(in);
+            assertEquals(200, response.nStatus);
+            assertEquals("hello", response.text());
+            }
+        }
+
+    @Test
+    public void testRejectedRequests()
+            throws IOException
+        {
+        assertRejected(400, "NOT A REQUEST\r\n\r\n");
+        assertRejected(505, "GET / HTTP/2.0\r\n\r\n");
+        assertRejected(501, "POST / HTTP/1.1\r\nTransfer-Encoding: gzip\r\n\r\n");
+        assertRejected(400, "POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\nxyz\r\n");
+        assertRejected(413, "POST / HTTP/1.1\r\nContent-Length: " +
+                            (HttpEngine.MAX_CONTENT_SIZE + 1L) + "\r\n\r\n");
+        assertRejected(431, "GET / HTTP/1.1\r\nX-Large: " +
+                            "x".repeat(HttpEngine.MAX_HEAD_SIZE) + "\r\n\r\n");
+
+        // the responses to the preceding pipelined requests are sent first
+        try (Socket socket = connect())
+            {
+            socket.getOutputStream().write(ascii(
+                    "GET /async/ok HTTP/1.1\r\n\r\nGET / HTTP/1.1\r\nBad Header\r\n\r\n"));
+
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            assertEquals("/async/ok", Response.read(in).text());
+            assertEquals(400, Response.read(in).nStatus);
+            assertEquals(-1, in.read());
+            }
+        }
+
+    @Test
+    public void testLargeDeclaredBody()
+            throws IOException
+        {
+        // a client that declares a large body but sends only a part of it must not cause the
+        // whole declared size to be allocated; the connection still works as the data arrives
+        int    cbDeclared = 64 * 1024 * 1024;
+        byte[] abPart     = randomBytes(100_000);
+        try (Socket socket = connect())
+            {
+            OutputStream out = socket.getOutputStream();
+            out.write(ascii("POST /big HTTP/1.1\r\nContent-Length: " + cbDeclared + "\r\n\r\n"));
+            out.write(abPart);
+            out.flush();
+
+            long cbUsed = waitForInputBuffer();
+            assertTrue(cbUsed < 4 * abPart.length,
+                    "input buffer of " + cbUsed + " bytes for " + abPart.length + " received");
+            }
+        }
+
+    @Test
+    public void testIdleClose()
+            throws IOException
+        {
+        m_engine.setIdleMillis(300);
+        try (Socket socket = connect())
+            {
+            socket.setSoTimeout(10_000);
+
+            OutputStream out = socket.getOutputStream();
+            InputStream  in  = new BufferedInputStream(socket.getInputStream());
+            out.write(ascii("GET /once HTTP/1.1\r\n\r\n"));
+            assertEquals("/once", Response.read(in).text());
+
+            long ldtStart = System.currentTimeMillis();
+            assertEquals(-1, in.read());
+            assertTrue(System.currentTimeMillis() - ldtStart >= 200);
+            }
+        }
+
+    @Test
+    public void testTls()
+            throws Exception
+        {
+        SSLContext ctxClient = SSLContext.getInstance("TLS");
+        ctxClient.init(null, new TrustManager[] {new TrustingManager()}, null);
+
+        byte[] abBody = randomBytes(100_000);
+        try (SSLSocket socket = (SSLSocket) ctxClient.getSocketFactory().createSocket(
+                "localhost", m_engine.getTlsAddress().getPort()))
+            {
+            socket.setSoTimeout(10_000);
+            socket.startHandshake();
+
+            OutputStream out = socket.getOutputStream();
+            InputStream  in  = new BufferedInputStream(socket.getInputStream());
+
+            out.write(ascii("GET /secure HTTP/1.1\r\nHost: localhost\r\n\r\n"));
+            assertEquals("/secure", Response.read(in).text());
+
+            out.write(ascii("POST /secure HTTP/1.1\r\nContent-Length: " + abBody.length + "\r\n\r\n"));
+            out.write(abBody);
+            assertArrayEquals(abBody, Response.read(in).abBody);
+
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 20; i++)
+                {
+                sb.append("GET /async/tls").append(i).append(" HTTP/1.1\r\n\r\n");
+                }
+            out.write(ascii(sb.toString()));
+            for (int i = 0; i < 20; i++)
+                {
+                assertEquals("/async/tls" + i, Response.read(in).text());
+                }
+            }
+
+        // a plain text client on the TLS port gets disconnected
+        try (Socket socket = new Socket("localhost", m_engine.getTlsAddress().getPort()))
+            {
+            socket.setSoTimeout(10_000);
+            socket.getOutputStream().write(ascii("GET / HTTP/1.1\r\n\r\n"));
+
+            InputStream in = socket.getInputStream();
+            try
+                {
+                while (in.read() >= 0)
+                    {
+                    }
+                }
+            catch (SocketTimeoutException e)
+                {
+                throw new AssertionError("the connection has not been closed");
+                }
+            catch (IOException e)
+                {
+                // a reset is as good as an orderly close
+                }
+            }
+        }
+
+
+    // ----- helpers -------------------------------------------------------------------------------
+
+    private static void handle(HttpRequest request)
+        {
+        if (request.getUri().startsWith("/async"))
+            {
+            CompletableFuture.delayedExecutor(ThreadLocalRandom.current().nextInt(5),
+                    TimeUnit.MILLISECONDS).execute(() -> respond(request));
+            }
+        else
+            {
+            respond(request);
+            }
+        }
+
+    private static void respond(HttpRequest request)
+        {
+        byte[] abBody = request.getBody();
+        request.respond(200, new String[] {"Content-Type"}, new String[] {"text/plain"},
+                abBody == null ? ascii(request.getUri()) : abBody);
+        }
+
+    private Socket connect()
+            throws IOException
+        {
+        Socket socket = new Socket("localhost", m_engine.getAddress().getPort());
+        socket.setTcpNoDelay(true);
+        socket.setSoTimeout(10_000);
+        return socket;
+        }
+
+    private void assertRejected(int nStatus, String sRequest)
+            throws IOException
+        {
+        try (Socket socket = connect())
+            {
+            socket.getOutputStream().write(ascii(sRequest));
+
+            InputStream in       = new BufferedInputStream(socket.getInputStream());
+            Response    response = Response.read(in);
+            assertEquals(nStatus, response.nStatus);
+            assertEquals("close", response.header("Connection"));
+            assertEquals(-1, in.read());
+            }
+        }
+
+    /**
+     * Wait for the only open connection to receive some data, and report the size of its input
+     * buffer.
+     */
+    private long waitForInputBuffer()
+        {
+        long ldtEnd = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < ldtEnd)
+            {
+            List<HttpConnection> list = new ArrayList<>(m_engine.getConnections());
+            if (list.size() == 1)
+                {
+                long cb = list.get(0).getInputCapacity();
+                if (cb > 0)
+                    {
+                    return cb;
+                    }
+                }
+            Thread.onSpinWait();
+            }
+        throw new AssertionError("no data received");
+        }
+
+    private static byte[] ascii(String s)
+        {
+        return s.getBytes(StandardCharsets.ISO_8859_1);
+        }
+
+    private static byte[] randomBytes(int cb)
+        {
+        byte[] ab = new byte[cb];
+        ThreadLocalRandom.current().nextBytes(ab);
+        return ab;
+        }
+
+    /**
+     * Create a server SSL context with a freshly generated self-signed key.
+     */
+    private SSLContext createSSLContext()
+            throws Exception
+        {
+        File fileStore = new File(m_dirTemp, "test.p12");
+        Process process = new ProcessBuilder(
+                new File(System.getProperty("java.home"), "bin/keytool").getPath(),
+                "-genkeypair", "-alias", "test", "-keyalg", "RSA", "-keysize", "2048",
+                "-dname", "CN=localhost", "-validity", "2", "-storetype", "PKCS12",
+                "-keystore", fileStore.getPath(), "-storepass", "password",
+                "-keypass", "password")
+            .redirectErrorStream(true)
+            .start();
+        process.getInputStream().transferTo(OutputStream.nullOutputStream());
+        assertEquals(0, process.waitFor());
+
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream in = new FileInputStream(fileStore))
+            {
+            keyStore.load(in, PASSWORD);
+            }
+
+        KeyManagerFactory factory = KeyManagerFactory.getInstance(
+                KeyManagerFactory.getDefaultAlgorithm());
+        factory.init(keyStore, PASSWORD);
+
+        SSLContext ctxSSL = SSLContext.getInstance("TLS");
+        ctxSSL.init(factory.getKeyManagers(), null, null);
+        return ctxSSL;
+        }
+
+    /**
+     * A parsed response.
+     */
+    private static class Response
+        {
+        static Response read(InputStream in)
+                throws IOException
+            {
+            return read(in, false);
+            }
+
+        static Response read(InputStream in, boolean fHead)
+                throws IOException
+            {
+            String sStatus = readLine(in);
+            assertTrue(sStatus.startsWith("HTTP/1.1 "), sStatus);
+
+            Response response = new Response();
+            response.nStatus = Integer.parseInt(sStatus.substring(9, 12));
+
+            for (String sLine; !(sLine = readLine(in)).isEmpty(); )
+                {
+                int ofColon = sLine.indexOf(':');
+                response.mapHeaders.put(sLine.substring(0, ofColon).toLowerCase(Locale.ROOT),
+                                        sLine.substring(ofColon + 1).trim());
+                }
+
+            String sLength = response.header("Content-Length");
+            int    cb      = fHead || sLength == null ? 0 : Integer.parseInt(sLength);
+            response.abBody = in.readNBytes(cb);
+            if (response.abBody.length < cb)
+                {
+                throw new EOFException();
+                }
+            return response;
+            }
+
+        private static String readLine(InputStream in)
+                throws IOException
+            {
+            StringBuilder sb = new StringBuilder();
+            for (int b; (b = in.read()) != '\n'; )
+                {
+                if (b < 0)
+                    {
+                    throw new EOFException(sb.toString());
+                    }
+                if (b != '\r')
+                    {
+                    sb.append((char) b);
+                    }
+                }
+            return sb.toString();
+            }
+
+        String header(String sName)
+            {
+            return mapHeaders.get(sName.toLowerCase(Locale.ROOT));
+            }
+
+        String text()
+            {
+            return new String(abBody, StandardCharsets.ISO_8859_1);
+            }
+
+        int                 nStatus;
+        Map<String, String> mapHeaders = new TreeMap<>();
+        byte[]              abBody;
+        }
+
+    /**
+     * A client side trust manager that accepts the test server's self-signed certificate.
+     */
+    private static class TrustingManager
+            implements X509TrustManager
+        {
+        @Override
+        public void checkClientTrusted(X509Certificate[] aCert, String sAuthType)
+            {
+            }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] aCert, String sAuthType)
+            {
+            }
+
+        @Override
+        public X509Certificate[] getAcceptedIssuers()
+            {
+            return new X509Certificate[0];
+            }
+        }
+
+
+    // ----- constants and fields ------------------------------------------------------------------
+
+    private static final Runtime RUNTIME = new Runtime();
+
+    private static final char[] PASSWORD = "password".toCharArray();
+
+    @TempDir
+    File m_dirTemp;
+
+    private HttpEngine m_engine;
+    }
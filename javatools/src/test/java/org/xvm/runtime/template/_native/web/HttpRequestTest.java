@@ -0,0 +1,145 @@
+package org.xvm.runtime.template._native.web;
+
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import org.xvm.runtime.template._native.web.HttpRequest.BadRequestException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * Tests of the HttpRequest parsing.
+ */
+public class HttpRequestTest
+    {
+    @Test
+    public void testRequestLine()
+            throws BadRequestException
+        {
+        HttpRequest request = parse("xxGET /a/b?c=d HTTP/1.1\r\nHost: localhost\r\n\r\n", 2);
+        assertSame("GET", request.getMethod());
+        assertEquals("/a/b?c=d", request.getUri());
+        assertEquals("HTTP/1.1", request.getProtocol());
+        assertTrue(request.isKeepAlive());
+        assertEquals(0, request.getContentLength());
+
+        request = parse("PROPFIND * HTTP/1.0\n\n", 0);
+        assertEquals("PROPFIND", request.getMethod());
+        assertEquals("*", request.getUri());
+        assertEquals("HTTP/1.0", request.getProtocol());
+        assertFalse(request.isKeepAlive());
+
+        byte[] ab = "GET /\u00E9 HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+        assertEquals("/%E9", HttpRequest.parse(null, ab, 0, ab.length).getUri());
+        }
+
+    @Test
+    public void testHeaders()
+            throws BadRequestException
+        {
+        HttpRequest request = parse("POST / HTTP/1.1\r\n" +
+                "Accept: text/plain\r\n" +
+                "X-Empty:\r\n" +
+                "accept:  text/html \t\r\n" +
+                "Content-Length: 5\r\n" +
+                "Connection: Upgrade, Close\r\n" +
+                "\r\n", 0);
+
+        assertArrayEquals(new String[] {"Accept", "X-Empty", "Content-Length", "Connection"},
+                request.getHeaderNames());
+        assertArrayEquals(new String[] {"text/plain", "text/html"},
+                request.getHeaderValues("ACCEPT"));
+        assertEquals("", request.getHeader("x-empty"));
+        assertNull(request.getHeaderValues("Host"));
+        assertEquals(5, request.getContentLength());
+        assertFalse(request.isKeepAlive());
+        assertFalse(request.isChunked());
+        }
+
+    @Test
+    public void testFraming()
+            throws BadRequestException
+        {
+        HttpRequest request = parse("PUT / HTTP/1.1\r\n" +
+                "Transfer-Encoding: chunked\r\n" +
+                "Expect: 100-continue\r\n" +
+                "\r\n", 0);
+        assertTrue(request.isChunked());
+        assertTrue(request.isExpectContinue());
+        assertEquals(-1, request.getContentLength());
+
+        request = parse("GET / HTTP/1.0\r\nConnection: keep-alive\r\nExpect: 100-continue\r\n\r\n", 0);
+        assertTrue(request.isKeepAlive());
+        assertFalse(request.isExpectContinue());
+        }
+
+    @Test
+    public void testBody()
+            throws BadRequestException
+        {
+        String      sHead   = "POST / HTTP/1.1\r\nContent-Length: 5\r\n\r\n";
+        byte[]      ab      = ("##" + sHead + "hello").getBytes(StandardCharsets.ISO_8859_1);
+        HttpRequest request = HttpRequest.parse(null, ab, 2, 2 + sHead.length());
+        assertNull(request.getBody());
+
+        request.setBody(2 + sHead.length(), 5);
+        assertArrayEquals("hello".getBytes(StandardCharsets.ISO_8859_1), request.getBody());
+
+        // the offsets are relative to the request line
+        byte[] abMoved = ("GET / HTTP/1.1\r\n\r\n" + sHead + "hello").getBytes(StandardCharsets.ISO_8859_1);
+        request = HttpRequest.parse(null, ab, 2, 2 + sHead.length());
+        request.relocate(abMoved, 18);
+        request.setBody(18 + sHead.length(), 5);
+        assertArrayEquals("hello".getBytes(StandardCharsets.ISO_8859_1), request.getBody());
+        assertEquals("5", request.getHeader("Content-Length"));
+        }
+
+    @Test
+    public void testBadRequests()
+        {
+        assertStatus(400, "GET\r\n\r\n");
+        assertStatus(400, " GET / HTTP/1.1\r\n\r\n");
+        assertStatus(400, "GET /a b HTTP/1.1\r\n\r\n");
+        assertStatus(400, "G(T / HTTP/1.1\r\n\r\n");
+        assertStatus(400, "GET / FTP/1.1\r\n\r\n");
+        assertStatus(505, "GET / HTTP/2.0\r\n\r\n");
+        assertStatus(505, "GET / HTTP/1.2\r\n\r\n");
+        assertStatus(400, "GET / HTTP/1.1\r\nHost : x\r\n\r\n");
+        assertStatus(400, "GET / HTTP/1.1\r\nX: a\r\n folded\r\n\r\n");
+        assertStatus(400, "GET / HTTP/1.1\r\nNoColon\r\n\r\n");
+        assertStatus(400, "POST / HTTP/1.1\r\nContent-Length: -1\r\n\r\n");
+        assertStatus(400, "POST / HTTP/1.1\r\nContent-Length: 1\r\nContent-Length: 2\r\n\r\n");
+        assertStatus(400, "POST / HTTP/1.1\r\nContent-Length: 1\r\nTransfer-Encoding: chunked\r\n\r\n");
+        assertStatus(501, "POST / HTTP/1.1\r\nTransfer-Encoding: gzip, chunked\r\n\r\n");
+        }
+
+    @Test
+    public void testEmptyResponse()
+        {
+        String s = new String(HttpRequest.makeEmptyResponse(413, true), StandardCharsets.ISO_8859_1);
+        assertTrue(s.startsWith("HTTP/1.1 413 Content Too Large\r\nContent-Length: 0\r\n" +
+                                "Connection: close\r\nDate: "));
+        assertTrue(s.endsWith(" GMT\r\n\r\n"));
+        }
+
+    private static HttpRequest parse(String s, int of)
+            throws BadRequestException
+        {
+        byte[] ab = s.getBytes(StandardCharsets.ISO_8859_1);
+        return HttpRequest.parse(null, ab, of, ab.length);
+        }
+
+    private static void assertStatus(int nStatus, String s)
+        {
+        assertEquals(nStatus, assertThrows(BadRequestException.class, () -> parse(s, 0)).f_nStatus);
+        }
+    }
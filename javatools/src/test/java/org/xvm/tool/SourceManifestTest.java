@@ -0,0 +1,213 @@
+package org.xvm.tool;
+
+
+import java.io.File;
+import java.io.IOException;
+
+import java.nio.file.Files;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * Tests of the SourceManifest class.
+ */
+public class SourceManifestTest
+    {
+    @Test
+    public void testUnchanged()
+            throws IOException
+        {
+        List<File> files   = createSources();
+        File       fileBin = createBinary();
+
+        SourceManifest.capture(dir, files).store(fileManifest(), fileBin);
+
+        SourceManifest manifest = SourceManifest.load(fileManifest(), fileBin);
+        assertNotNull(manifest);
+        assertTrue(manifest.matches(dir, files));
+        }
+
+    @Test
+    public void testTouched()
+            throws IOException
+        {
+        List<File> files   = createSources();
+        File       fileBin = createBinary();
+
+        SourceManifest.capture(dir, files).store(fileManifest(), fileBin);
+        File fileTouched = files.get(1);
+        assertTrue(fileTouched.setLastModified(fileTouched.lastModified() + 5000));
+
+        // the same contents with a different timestamp still match
+        SourceManifest manifest = SourceManifest.load(fileManifest(), fileBin);
+        assertTrue(manifest.matches(dir, files));
+        }
+
+    @Test
+    public void testUpToDateCheckIsReadOnly()
+            throws IOException
+        {
+        List<File> files    = createSources();
+        File       fileBin  = createBinary();
+        File       dirPrev  = SourceManifest.getDirectory();
+        File       dirCache = new File(dir, "manifests");
+        SourceManifest.setDirectory(dirCache);
+        try
+            {
+            ModuleInfo info = new ModuleInfo(files.get(0), new File[0], fileBin);
+            File       fileManifest = info.getManifestFile();
+            assertEquals(dirCache, fileManifest.getParentFile());
+
+            info.captureSources().store(fileManifest, fileBin);
+            byte[] abBefore = Files.readAllBytes(fileManifest.toPath());
+            File   fileTouched = files.get(1);
+            assertTrue(fileTouched.setLastModified(fileTouched.lastModified() + 5000));
+
+            // checking whether the module is up-to-date never writes the manifest
+            assertTrue(new ModuleInfo(files.get(0), new File[0], fileBin).isUpToDate());
+            assertArrayEquals(abBefore, Files.readAllBytes(fileManifest.toPath()));
+            assertEquals(0, dir.list((d, s) -> s.endsWith(SourceManifest.FILE_EXT)).length);
+            }
+        finally
+            {
+            SourceManifest.setDirectory(dirPrev);
+            }
+        }
+
+    @Test
+    public void testGeneratedFilesAreNotInputs()
+            throws IOException
+        {
+        List<File> files   = createSources();
+        File       fileBin = createBinary();
+        File       dirRes  = new File(dir, "res");
+        assertTrue(dirRes.mkdir());
+        for (String sName : new String[] {"data.txt", "other.sources", "other.typeinfo",
+                                          "test.sources.tmp", "ecstasy.typeinfo.tmp"})
+            {
+            Files.writeString(new File(dirRes, sName).toPath(), sName);
+            }
+
+        List<File> listInputs = new ModuleInfo(files.get(0), new File[] {dirRes}, fileBin)
+                .getInputFiles();
+        assertTrue(listInputs.contains(new File(dirRes, "data.txt").getAbsoluteFile()));
+        for (File file : listInputs)
+            {
+            String sName = file.getName();
+            assertFalse(sName.contains(".sources") || sName.contains(".typeinfo"), sName);
+            }
+        }
+
+    @Test
+    public void testChanged()
+            throws IOException
+        {
+        List<File> files   = createSources();
+        File       fileBin = createBinary();
+
+        SourceManifest.capture(dir, files).store(fileManifest(), fileBin);
+        Files.writeString(files.get(1).toPath(), "class B {} ");
+
+        assertFalse(SourceManifest.load(fileManifest(), fileBin).matches(dir, files));
+        }
+
+    @Test
+    public void testRemoved()
+            throws IOException
+        {
+        List<File> files   = createSources();
+        File       fileBin = createBinary();
+
+        SourceManifest.capture(dir, files).store(fileManifest(), fileBin);
+
+        assertFalse(SourceManifest.load(fileManifest(), fileBin).matches(dir, files.subList(0, 1)));
+        }
+
+    @Test
+    public void testBinaryReplaced()
+            throws IOException
+        {
+        List<File> files   = createSources();
+        File       fileBin = createBinary();
+
+        SourceManifest.capture(dir, files).store(fileManifest(), fileBin);
+        Files.write(fileBin.toPath(), new byte[] {1, 2, 3, 4, 5});
+
+        assertNull(SourceManifest.load(fileManifest(), fileBin));
+        }
+
+    @Test
+    public void testCorrupt()
+            throws IOException
+        {
+        List<File> files   = createSources();
+        File       fileBin = createBinary();
+
+        SourceManifest.capture(dir, files).store(fileManifest(), fileBin);
+        byte[] ab = Files.readAllBytes(fileManifest().toPath());
+        ab[ab.length / 2] ^= 0x01;
+        Files.write(fileManifest().toPath(), ab);
+
+        assertNull(SourceManifest.load(fileManifest(), fileBin));
+        }
+
+    @Test
+    public void testBinaryWithoutSources()
+            throws IOException
+        {
+        List<File> files   = createSources();
+        File       fileBin = createBinary();
+
+        SourceManifest.capture(dir, files).store(fileManifest(), fileBin);
+        for (File file : files)
+            {
+            Files.delete(file.toPath());
+            }
+        Files.delete(files.get(1).getParentFile().toPath());
+        assertTrue(fileBin.setLastModified(dir.lastModified() - 5000));
+
+        // a binary with no sources to rebuild it from is never out-of-date
+        assertTrue(new ModuleInfo(fileBin).isUpToDate());
+        }
+
+    // ----- helpers -------------------------------------------------------------------------------
+
+    private List<File> createSources()
+            throws IOException
+        {
+        File fileModule = new File(dir, "test.x");
+        File fileClass  = new File(dir, "test/B.x");
+        assertTrue(fileClass.getParentFile().mkdirs());
+        Files.writeString(fileModule.toPath(), "module test {}");
+        Files.writeString(fileClass.toPath(), "class B {}");
+        return List.of(fileModule, fileClass);
+        }
+
+    private File createBinary()
+            throws IOException
+        {
+        File fileBin = new File(dir, "test.xtc");
+        Files.write(fileBin.toPath(), new byte[] {1, 2, 3, 4});
+        return fileBin;
+        }
+
+    private File fileManifest()
+        {
+        return new File(dir, "test" + SourceManifest.FILE_EXT);
+        }
+
+    @TempDir
+    File dir;
+    }
@@ -0,0 +1,20 @@
+/**
+ * The database used by the reloadTest module.
+ */
+@Database
+module reloadDB {
+    package oodb import oodb.xtclang.org;
+
+    import oodb.Database;
+    import oodb.DBLog;
+    import oodb.DBMap;
+    import oodb.DBValue;
+    import oodb.RootSchema;
+
+    interface ReloadSchema
+            extends RootSchema {
+        @RO DBMap<String, Int> counters;
+        @RO DBValue<Int> total;
+        @RO DBLog<String> events;
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * Reopens a jsondb database repeatedly, so that each open modifies (appends to, rewrites and
+ * deletes) the data files that it has just loaded.
+ */
+module reloadTest {
+    package oodb   import oodb.xtclang.org;
+    package jsondb import jsondb.xtclang.org;
+
+    package reloadDB import reloadDB;
+
+    import reloadDB.ReloadSchema;
+
+    typedef (oodb.Connection<ReloadSchema> + ReloadSchema) as Connection;
+
+    void run() {
+        @Inject Directory curDir;
+
+        Directory dataDir  = curDir.dirFor("data").ensure();
+        Directory buildDir = curDir.dirFor("build").ensure();
+
+        function Connection () open =
+                () -> jsondb.createConnection("reloadDB", dataDir, buildDir).as(Connection);
+
+        Connection connection = open();
+        for (Int i : 0 ..< 20) {
+            connection.counters.put($"k{i}", i);
+            connection.total.set(connection.total.get() + i);
+            connection.events.add($"put {i}");
+        }
+        connection.close();
+
+        // the keys are removed from the files that have just been loaded
+        connection = open();
+        assert connection.counters.size == 20 && connection.total.get() == 190;
+        for (Int i : 0 ..< 20) {
+            if (i % 5 != 0) {
+                connection.counters.remove($"k{i}");
+            }
+        }
+        connection.total.set(-1);
+        connection.events.add("removed");
+        connection.close();
+
+        // the storage of the removed keys is deleted and the rest is rewritten on the load
+        connection = open();
+        assert connection.counters.size == 4 && connection.total.get() == -1;
+        for (Int i : 0 ..< 4) {
+            connection.counters.put($"k{i * 5}", -i);
+        }
+        connection.close();
+
+        connection = open();
+        assert connection.counters.size == 4 && connection.counters.getOrNull("k15") == -3;
+        assert connection.total.get() == -1;
+        connection.close();
+
+        curDir.fileFor("result").contents = "OK".utf8();
+    }
+}
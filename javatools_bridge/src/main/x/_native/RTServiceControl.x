@@ -16,7 +16,10 @@ class RTServiceControl
     @Override @RO Int           bytesReserved  .get() {TODO("native");}
     @Override @RO Int           bytesAllocated .get() {TODO("native");}
 
-    @Override Service.ServiceStats snapshotStats() {TODO("Native");}
+    @Override Service.ServiceStats snapshotStats() {
+        return new Service.StatsSnapshot(statusIndicator, upTime, cpuTime, contended,
+                backlogDepth, bytesReserved, bytesAllocated);
+    }
 
 
     // ServiceControl
@@ -0,0 +1,5 @@
+/**
+ * The native MappedDelegate class: an immutable array of bytes backed by a memory-mapped file.
+ */
+class RTMappedDelegate<Element>
+        extends RTDelegate<Element> {}
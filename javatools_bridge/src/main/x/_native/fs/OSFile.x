@@ -20,6 +20,9 @@ const OSFile
         void             set(immutable Byte[] bytes) {TODO("native");}
     }
 
+    @Override
+    immutable Byte[] mapContents() {TODO("native");}
+
     @Override
     Byte[] read(Range<Int> range) {
         if (!exists) {
@@ -58,6 +61,21 @@ const OSFile
         return this;
     }
 
+    @Override
+    File truncateAndAppend(Int newSize, Byte[] contents) {
+        if (!exists) {
+            throw new FileNotFound(path);
+        }
+
+        if (!writable) {
+            throw new AccessDenied(path);
+        }
+
+        truncateAndAppendImpl(newSize, contents);
+
+        return this;
+    }
+
     @Override
     conditional FileStore openArchive() {
         return False; // TODO
@@ -78,7 +96,8 @@ const OSFile
 
     // ----- native --------------------------------------------------------------------------------
 
-    Byte[] readImpl(Range<Int> range) {TODO("native");}
-    void truncateImpl(Int newSize)    {TODO("native");}
-    void appendImpl(Byte[] contents)  {TODO("native");}
+    Byte[] readImpl(Range<Int> range)                         {TODO("native");}
+    void truncateImpl(Int newSize)                            {TODO("native");}
+    void appendImpl(Byte[] contents)                          {TODO("native");}
+    void truncateAndAppendImpl(Int newSize, Byte[] contents)  {TODO("native");}
 }
\ No newline at end of file
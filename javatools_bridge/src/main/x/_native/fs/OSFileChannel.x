@@ -1,27 +1,99 @@
 import ecstasy.fs.FileChannel;
 
-import io.RawChannel;
-import io.RTChannel;
+import ecstasy.io.BufferProvider;
+import ecstasy.io.ReadBuffer;
+import ecstasy.io.WriteBuffer;
 
 /**
  * Native OS FileChannel implementation.
+ *
+ * All the operations are performed by the native I/O threads, in the order they are requested; the
+ * bytes to write are gathered from the passed buffers and handed to the native side all at once.
  */
-service OSFileChannel(RawChannel rawChannel)
-        extends RTChannel(rawChannel)
+service OSFileChannel
         implements FileChannel {
     // ----- FileChannel API -----------------------------------------------------------------------
 
     @Override
-    Int size.get() {TODO("native");}
+    Int size {
+        Int  get()         {TODO("native");}
+        void set(Int size) {TODO("native");}
+    }
 
     @Override
-    Int position.get() {TODO("native");}
+    Int position {
+        Int  get()             {TODO("native");}
+        void set(Int position) {TODO("native");}
+    }
 
     @Override
     void flush() {TODO("native");}
 
+
+    // ----- Channel API ---------------------------------------------------------------------------
+
+    @Override
+    @RO BufferProvider buffers.get() {TODO("native");}
+
+    @Override
+    @RO Boolean readable.get() {TODO("native");}
+
+    @Override
+    @RO Boolean eof.get() {
+        return position >= size;
+    }
+
+    @Override
+    ReadBuffer? read() {TODO("native");}
+
+    @Override
+    (Int bytesRead, Int nextBuffer) read(WriteBuffer[] buffers, Int minBytes = MaxValue) {
+        TODO("native");
+    }
+
+    @Override
+    @RO Boolean writable.get() {TODO("native");}
+
+    @Override
+    Int write(ReadBuffer buffer) {
+        return write([buffer]);
+    }
+
+    @Override
+    Int write(ReadBuffer[] buffers, function void(ReadBuffer)? written = Null) {
+        Int count = buffers.size;
+        if (count == 0) {
+            return 0;
+        }
+
+        // consume the remaining contents of every buffer, and write them out with a single
+        // (gathering) native operation
+        Byte[][] chunks = new Byte[][](count);
+        for (ReadBuffer buffer : buffers) {
+            chunks += buffer.readBytes(buffer.remaining);
+        }
+
+        Int result = writeImpl(chunks);
+
+        if (written != Null) {
+            buffers.forEach(written);
+        }
+        return result;
+    }
+
+    @Override
+    void close(Exception? cause = Null) {
+        closeImpl();
+    }
+
     @Override
     String toString() {
         return "FileChannel";
     }
-}
\ No newline at end of file
+
+
+    // ----- native helpers ------------------------------------------------------------------------
+
+    Int  writeImpl(Byte[][] chunks) {TODO("native");}
+    void closeImpl()                {TODO("native");}
+}
@@ -62,6 +62,40 @@ service RawChannel {
      */
     Byte[]|Int take() {TODO("Native");}
 
+    /**
+     * Wait for the next data to read to become available, and copy as much of it as fits into the
+     * specified range of the buffer. Unlike [take], this allows the caller to consume the data in
+     * the amounts of its choosing, without copying the bytes one at a time.
+     *
+     * @param buffer  a mutable buffer to read the bytes into
+     * @param start   the index into the buffer of the first byte (inclusive) to read into
+     * @param end     the index into the buffer of the last byte (exclusive) to read into
+     *
+     * @return  the number of bytes read (which is positive unless the range is empty); otherwise a
+     *          status code, `-1` for EOF, `-2` for `inputShutdown`, and `-3` for `closed`
+     *
+     * @throws IOException  if the channel has failed
+     */
+    Int read(Byte[] buffer, Int start, Int end) {TODO("Native");}
+
+    /**
+     * Wait for the specified number of bytes to become available, and return them.
+     *
+     * @param count  the number of bytes to read
+     *
+     * @return  an immutable array of `count` bytes; otherwise a status code, `-1` for EOF, `-2`
+     *          for `inputShutdown`, and `-3` for `closed`
+     *
+     * @throws IOException  if the channel has failed
+     */
+    Byte[]|Int readFully(Int count) {TODO("Native");}
+
+    /**
+     * Stop reading from the channel. Any data that has not been taken yet is discarded, and any
+     * subsequent [take] returns the `inputShutdown` status.
+     */
+    void shutdownInput() {TODO("Native");}
+
 
     // ----- write operations ----------------------------------------------------------------------
 
@@ -86,6 +120,12 @@ service RawChannel {
      */
     Int submit(Byte[] buffer, Int start, Int end) {TODO("Native");}
 
+    /**
+     * Stop writing to the channel. The data that has already been submitted is still written out,
+     * but any subsequent [submit] fails.
+     */
+    void shutdownOutput() {TODO("Native");}
+
 
     // ----- buffer operations ---------------------------------------------------------------------
 
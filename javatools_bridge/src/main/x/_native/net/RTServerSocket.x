@@ -1,5 +1,4 @@
 import ecstasy.io.IOClosed;
-import ecstasy.io.Channel;
 
 import libnet.IPAddress;
 import libnet.Socket;
@@ -9,28 +8,56 @@ import libnet.ServerSocket;
 /**
  * Implements a native [ServerSocket].
  */
-service RTServerSocket(SocketAddress localAddress)
+@Concurrent
+service RTServerSocket(Listener listener, SocketAddress localAddress)
         implements ServerSocket {
     /**
      * Constructor from native land.
      *
-     * @param name            the name of this network interface
-     * @param addressesBytes  the byte array for each address of this network interface
+     * @param listener           the native listening socket
+     * @param localAddressBytes  the bytes of the IP address that the socket is bound to
+     * @param localPort          the port that the socket is bound to
      */
-    construct(Byte[] localAddressBytes, UInt16 localPort) {
-        construct RTServerSocket((new IPAddress(localAddressBytes), localPort));
+    construct(Listener listener, Byte[] localAddressBytes, UInt16 localPort) {
+        construct RTServerSocket(listener, (new IPAddress(localAddressBytes), localPort));
     }
 
-    // ----- Socket methods ------------------------------------------------------------------------
+    /**
+     * An opaque handle for the native listening socket.
+     */
+    typedef immutable Object as Listener;
+
+    /**
+     * The native listening socket.
+     */
+    private Listener listener;
+
+    /**
+     * Set to True when the server socket is closed.
+     */
+    private Boolean closed;
+
+
+    // ----- ServerSocket methods ------------------------------------------------------------------
 
     @Override
     public/private SocketAddress localAddress;
 
     @Override
-    Socket accept() {TODO("Native");}
+    Socket accept() {
+        if (!closed, Socket socket := nativeAccept(listener)) {
+            return socket;
+        }
+        throw new IOClosed();
+    }
 
     @Override
-    void close(Exception? cause = Null) {TODO("Native");}
+    void close(Exception? cause = Null) {
+        if (!closed) {
+            closed = True;
+            nativeClose(listener);
+        }
+    }
 
     @Override
     String toString() {
@@ -40,5 +67,16 @@ service RTServerSocket(SocketAddress localAddress)
 
     // ----- internal ------------------------------------------------------------------------------
 
-    // TODO
-}
\ No newline at end of file
+    /**
+     * Wait for the next incoming connection.
+     *
+     * @return `True` iff a connection was accepted; `False` if the listener has been closed
+     * @return (conditional) the socket for the accepted connection
+     */
+    conditional Socket nativeAccept(Listener listener) {TODO("Native");}
+
+    /**
+     * Close the listening socket.
+     */
+    void nativeClose(Listener listener) {TODO("Native");}
+}
@@ -1,5 +1,8 @@
+import ecstasy.io.EndOfFile;
 import ecstasy.io.IOClosed;
-import ecstasy.io.Channel;
+
+import io.RawChannel;
+import io.RTChannel;
 
 import libnet.IPAddress;
 import libnet.Socket;
@@ -9,16 +12,22 @@ import libnet.ServerSocket;
 /**
  * Implements a native [Socket].
  */
-service RTSocket(SocketAddress localAddress, SocketAddress remoteAddress)
+@Concurrent
+service RTSocket(RawChannel rawChannel, SocketAddress localAddress, SocketAddress remoteAddress)
         implements Socket {
     /**
      * Constructor from native land.
      *
-     * @param name            the name of this network interface
-     * @param addressesBytes  the byte array for each address of this network interface
+     * @param rawChannel          the native channel for the connected socket
+     * @param localAddressBytes   the bytes of the local IP address
+     * @param localPort           the local port
+     * @param remoteAddressBytes  the bytes of the remote IP address
+     * @param remotePort          the remote port
      */
-    construct(Byte[] localAddressBytes, UInt16 localPort, Byte[] remoteAddressBytes, UInt16 remotePort) {
-        construct RTSocket((new IPAddress(localAddressBytes), localPort),
+    construct(RawChannel rawChannel, Byte[] localAddressBytes, UInt16 localPort,
+              Byte[] remoteAddressBytes, UInt16 remotePort) {
+        construct RTSocket(rawChannel,
+                           (new IPAddress(localAddressBytes), localPort),
                            (new IPAddress(remoteAddressBytes), remotePort));
     }
 
@@ -36,12 +45,17 @@ service RTSocket(SocketAddress localAddress, SocketAddress remoteAddress)
      * The "IO mode" of the socket. Once the socket goes into sync or async mode, it's not supposed
      * switch to the other.
      */
-    private IO mode;
+    private IO mode = None;
 
     /**
-     * TODO
+     * The native channel that all the socket I/O goes through.
      */
-    protected/private Channel rawChannel;
+    protected/private RawChannel rawChannel;
+
+    /**
+     * The output stream, once it has been requested.
+     */
+    private SocketOutput? output;
 
 
     // ----- Socket methods ------------------------------------------------------------------------
@@ -58,7 +72,7 @@ service RTSocket(SocketAddress localAddress, SocketAddress remoteAddress)
         case None:
         case Async:
             mode = Async;
-            val channel = new SocketChannel(rawChannel);
+            val channel = new SocketChannel(new RTChannel(rawChannel));
             return &channel.maskAs(Socket.Channel);
 
         case Sync:
@@ -93,6 +107,7 @@ service RTSocket(SocketAddress localAddress, SocketAddress remoteAddress)
         case Sync:
             mode = Sync;
             val stream = new SocketOutput();
+            output = stream;
             return &stream.maskAs(BinaryOutput);
 
         case Async:
@@ -104,13 +119,27 @@ service RTSocket(SocketAddress localAddress, SocketAddress remoteAddress)
     }
 
     @Override
-    void shutdownInput() {TODO("Native");}
+    void shutdownInput() {
+        rawChannel.shutdownInput();
+    }
 
     @Override
-    void shutdownOutput() {TODO("Native");}
+    void shutdownOutput() {
+        output?.flush();
+        rawChannel.shutdownOutput();
+    }
 
     @Override
-    void close(Exception? cause = Null) {TODO("Native");}
+    void close(Exception? cause = Null) {
+        if (mode != Closed) {
+            try {
+                output?.flush();
+            } finally {
+                mode = Closed;
+                rawChannel.close();
+            }
+        }
+    }
 
     @Override
     String toString() {
@@ -121,36 +150,234 @@ service RTSocket(SocketAddress localAddress, SocketAddress remoteAddress)
     // ----- SocketChannel class -------------------------------------------------------------------
 
     /**
-     * TODO
+     * The asynchronous (channel based) view of the socket.
      */
-    class SocketChannel(Channel rawChannel)
-            delegates Channel(rawChannel) {
-        // TODO
+    class SocketChannel(ecstasy.io.Channel rtChannel)
+            delegates ecstasy.io.Channel(rtChannel)
+            implements Socket.Channel {
     }
 
+
     // ----- SocketInput class ---------------------------------------------------------------------
 
     /**
-     * TODO
+     * The synchronous input stream of the socket. The bytes read one at a time come from a small
+     * buffer; the arrays passed to `readBytes()` are filled directly by the native channel.
      */
+    @Concurrent
     class SocketInput
             implements BinaryInput {
-        // TODO
+        /**
+         * The buffer for the bytes read one at a time.
+         */
+        private Byte[] buffer = new Byte[1024](0);
+
+        /**
+         * The offset of the next byte to read from the buffer.
+         */
+        private Int offset;
+
+        /**
+         * The number of bytes in the buffer.
+         */
+        private Int size;
+
+        @Override
+        Byte readByte() {
+            if (offset >= size) {
+                size   = read(buffer, 0, buffer.size);
+                offset = 0;
+            }
+            return buffer[offset++];
+        }
+
+        @Override
+        void readBytes(Byte[] bytes) {
+            // the BinaryInput's default implementation is not concurrent-safe
+            readBytes(bytes, 0, bytes.size);
+        }
+
+        @Override
+        void readBytes(Byte[] bytes, Int offset, Int count) {
+            assert:bounds 0 <= offset <= bytes.size;
+            assert:bounds 0 <= count;
+            assert:bounds offset + count <= bytes.size;
+
+            // first, use up what's left in the buffer
+            Int buffered = count.notGreaterThan(size - this.offset);
+            if (buffered > 0) {
+                bytes.replaceAll(offset, buffer[this.offset ..< this.offset+buffered]);
+                this.offset += buffered;
+                offset      += buffered;
+                count       -= buffered;
+            }
+
+            while (count > 0) {
+                Int copied = read(bytes, offset, offset + count);
+                offset += copied;
+                count  -= copied;
+            }
+        }
+
+        @Override
+        Byte[] readBytes(Int count) {
+            assert:arg count >= 0;
+
+            if (offset >= size) {
+                // the native channel produces an immutable array, which can be returned across the
+                // service boundary without being frozen (i.e. without visiting each element)
+                Byte[]|Int result = rawChannel.readFully(count);
+                if (result.is(Int)) {
+                    check(result);
+                    assert as $"Unexpected status: {result}";
+                }
+                return result;
+            }
+
+            Byte[] bytes = new Byte[count](0);
+            readBytes(bytes, 0, count);
+            return bytes.freeze(inPlace=True);
+        }
+
+        @Override
+        void close(Exception? cause = Null) {
+            shutdownInput();
+        }
+
+        /**
+         * Wait for the data to arrive, and read as much of it as fits into the specified range.
+         *
+         * @return the number of bytes read
+         *
+         * @throws EndOfFile  if the socket has reached the end of the stream
+         * @throws IOClosed   if the socket input has been shut down or the socket has been closed
+         */
+        private Int read(Byte[] bytes, Int start, Int end) {
+            return check(rawChannel.read(bytes, start, end));
+        }
+
+        /**
+         * Translate a status returned by the native channel into an exception.
+         *
+         * @return the result, if it is not a status
+         */
+        private Int check(Int result) {
+            switch (result) {
+            case -1:
+                throw new EndOfFile();
+            case -2:
+                throw new IOClosed("Input has been shut down");
+            case -3:
+                throw new IOClosed();
+            default:
+                return result;
+            }
+        }
     }
 
 
-    // ----- SocketInput class ---------------------------------------------------------------------
+    // ----- SocketOutput class --------------------------------------------------------------------
 
     /**
-     * TODO
+     * The synchronous output stream of the socket. The arrays passed to `writeBytes()` are submitted
+     * to the native channel as is; the bytes written one at a time are collected in a buffer, which
+     * is submitted when it fills up, before the next `writeBytes()` call, or as soon as the socket
+     * service gets a chance to do so.
      */
+    @Concurrent
     class SocketOutput
             implements BinaryOutput {
-        // TODO
-    }
+        /**
+         * The buffer for the bytes written one at a time. Since the native channel copies the bytes
+         * as they are submitted, the buffer is reused.
+         */
+        private Byte[] buffer = [];
+
+        /**
+         * The number of bytes written to the buffer.
+         */
+        private Int size;
+
+        /**
+         * True iff a deferred [flush] has been scheduled.
+         */
+        private Boolean flushPending;
+
+        @Override
+        void writeByte(Byte value) {
+            while (size >= buffer.size) {
+                if (buffer.size == 0) {
+                    buffer = new Byte[rawChannel.fixedBufferSize](0);
+                } else {
+                    flush();
+                    awaitCapacity();
+                }
+            }
+            buffer[size++] = value;
+
+            if (!flushPending) {
+                flushPending = True;
+                callLater(flush);
+            }
+        }
 
+        @Override
+        void writeBytes(Byte[] bytes) {
+            // the BinaryOutput's default implementation is not concurrent-safe
+            writeBytes(bytes, 0, bytes.size);
+        }
 
-    // ----- internal ------------------------------------------------------------------------------
+        @Override
+        void writeBytes(Byte[] bytes, Int offset, Int count) {
+            assert:bounds 0 <= offset <= bytes.size;
+            assert:bounds 0 <= count;
+            assert:bounds offset + count <= bytes.size;
+
+            // the native channel copies the bytes as they are submitted (coalescing them with the
+            // previously submitted ones), so there is no reason to copy them into the buffer first
+            flush();
+            submit(bytes, offset, offset + count);
+            awaitCapacity();
+        }
 
-    // TODO
-}
\ No newline at end of file
+        /**
+         * Submit the bytes that have been written so far to the native channel.
+         */
+        void flush() {
+            flushPending = False;
+            if (size > 0) {
+                Int end = size;
+                size = 0;
+                submit(buffer, 0, end);
+            }
+        }
+
+        @Override
+        void close(Exception? cause = Null) {
+            shutdownOutput();
+        }
+
+        /**
+         * Submit the specified bytes to the native channel.
+         */
+        private void submit(Byte[] bytes, Int start, Int end) {
+            Int result = rawChannel.submit(bytes, start, end);
+            if (result != 0) {
+                throw new IOClosed($"The Socket output is closed ({result})");
+            }
+        }
+
+        /**
+         * If too much data is waiting to be written, wait for the socket to catch up.
+         */
+        private void awaitCapacity() {
+            if (rawChannel.totalBytes > rawChannel.capacityLimit) {
+                // the native channel delays the allocation until the socket catches up
+                Byte[]|Int result = rawChannel.allocate(internal=True);
+                if (result.is(Int)) {
+                    throw new IOClosed($"The Socket output is closed ({result})");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package org.xvm.util;
+
+
+import java.io.DataInput;
+import java.io.EOFException;
+import java.io.IOException;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+
+/**
+ * A {@link DataInput} that reads from a {@link ByteBuffer}, for example from a memory-mapped file.
+ * <p>
+ * Unlike a DataInputStream, this DataInput is not synchronized and is able to hand out a portion of
+ * the underlying buffer as a {@link #slice} without copying any bytes.
+ */
+public class ByteBufferDataInput
+        implements DataInput
+    {
+    /**
+     * Construct a DataInput that reads the remaining bytes of the specified buffer. The buffer's
+     * position is not affected.
+     *
+     * @param buffer  the buffer to read from
+     */
+    public ByteBufferDataInput(ByteBuffer buffer)
+        {
+        f_buffer = buffer.slice().order(ByteOrder.BIG_ENDIAN);
+        }
+
+    /**
+     * @return the number of bytes that have not been read yet
+     */
+    public int remaining()
+        {
+        return f_buffer.remaining();
+        }
+
+    /**
+     * Obtain the specified number of bytes as a buffer that shares the content with this input,
+     * and advance this input past those bytes.
+     *
+     * @param cb  the number of bytes
+     *
+     * @return a read-only buffer holding the next {@code cb} bytes
+     *
+     * @throws EOFException if there are fewer than {@code cb} bytes remaining
+     */
+    public ByteBuffer slice(int cb)
+            throws EOFException
+        {
+        ByteBuffer buffer = f_buffer;
+        int        of     = buffer.position();
+        ensureRemaining(cb);
+
+        ByteBuffer slice = buffer.slice(of, cb).asReadOnlyBuffer();
+        buffer.position(of + cb);
+        return slice;
+        }
+
+
+    // ----- DataInput interface -------------------------------------------------------------------
+
+    @Override
+    public void readFully(byte[] ab)
+            throws IOException
+        {
+        readFully(ab, 0, ab.length);
+        }
+
+    @Override
+    public void readFully(byte[] ab, int of, int cb)
+            throws IOException
+        {
+        ensureRemaining(cb);
+        f_buffer.get(ab, of, cb);
+        }
+
+    @Override
+    public int skipBytes(int n)
+        {
+        ByteBuffer buffer = f_buffer;
+        int        cb     = Math.max(0, Math.min(n, buffer.remaining()));
+        buffer.position(buffer.position() + cb);
+        return cb;
+        }
+
+    @Override
+    public boolean readBoolean()
+            throws IOException
+        {
+        return readByte() != 0;
+        }
+
+    @Override
+    public byte readByte()
+            throws IOException
+        {
+        try
+            {
+            return f_buffer.get();
+            }
+        catch (BufferUnderflowException e)
+            {
+            throw new EOFException();
+            }
+        }
+
+    @Override
+    public int readUnsignedByte()
+            throws IOException
+        {
+        return readByte() & 0xFF;
+        }
+
+    @Override
+    public short readShort()
+            throws IOException
+        {
+        ensureRemaining(2);
+        return f_buffer.getShort();
+        }
+
+    @Override
+    public int readUnsignedShort()
+            throws IOException
+        {
+        return readShort() & 0xFFFF;
+        }
+
+    @Override
+    public char readChar()
+            throws IOException
+        {
+        ensureRemaining(2);
+        return f_buffer.getChar();
+        }
+
+    @Override
+    public int readInt()
+            throws IOException
+        {
+        ensureRemaining(4);
+        return f_buffer.getInt();
+        }
+
+    @Override
+    public long readLong()
+            throws IOException
+        {
+        ensureRemaining(8);
+        return f_buffer.getLong();
+        }
+
+    @Override
+    public float readFloat()
+            throws IOException
+        {
+        return Float.intBitsToFloat(readInt());
+        }
+
+    @Override
+    public double readDouble()
+            throws IOException
+        {
+        return Double.longBitsToDouble(readLong());
+        }
+
+    @Override
+    public String readLine()
+        {
+        throw new UnsupportedOperationException();
+        }
+
+    @Override
+    public String readUTF()
+        {
+        // the XVM structures use Handy.readUtf8String() instead of the "modified UTF-8"
+        throw new UnsupportedOperationException();
+        }
+
+
+    // ----- internal ------------------------------------------------------------------------------
+
+    private void ensureRemaining(int cb)
+            throws EOFException
+        {
+        if (cb < 0 || f_buffer.remaining() < cb)
+            {
+            throw new EOFException("requested=" + cb + ", remaining=" + f_buffer.remaining());
+            }
+        }
+
+    @Override
+    public String toString()
+        {
+        return "ByteBufferDataInput{position=" + f_buffer.position()
+                + ", limit=" + f_buffer.limit() + '}';
+        }
+
+
+    // ----- fields --------------------------------------------------------------------------------
+
+    /**
+     * The underlying buffer; its position is the read position.
+     */
+    private final ByteBuffer f_buffer;
+    }
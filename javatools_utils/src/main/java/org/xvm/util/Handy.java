@@ -19,6 +19,7 @@ import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -1121,9 +1122,25 @@ public final class Handy
     public static String readUtf8String(DataInput in)
             throws IOException
         {
-        int           cb  = readMagnitude(in);
-        int           cch = cb - readMagnitude(in);
-        StringBuilder sb  = new StringBuilder(cch);
+        int cb  = readMagnitude(in);
+        int cch = cb - readMagnitude(in);
+        if (cch == cb)
+            {
+            // the vast majority of the strings (e.g. all the identifiers) are ASCII, in which case
+            // each character is encoded as a single byte
+            byte[] ab = new byte[cb];
+            in.readFully(ab);
+            for (byte b : ab)
+                {
+                if (b < 0)
+                    {
+                    throw new UTFDataFormatException("initial byte: " + byteToHexString(b));
+                    }
+                }
+            return new String(ab, StandardCharsets.ISO_8859_1);
+            }
+
+        StringBuilder sb = new StringBuilder(cch);
         for (int ofch = 0; ofch < cch; ++ofch)
             {
             int ch = readUtf8Char(in);
@@ -0,0 +1,28 @@
+package org.xvm.util.concurrent;
+
+
+import java.util.concurrent.Executor;
+
+
+/**
+ * An {@link Executor} that accepts a hint indicating which worker a task would prefer to be
+ * executed by.
+ */
+@FunctionalInterface
+public interface AffinityExecutor
+        extends Executor
+    {
+    /**
+     * Execute the specified task at some time in the future, preferably by the specified worker.
+     *
+     * @param task       the task to execute
+     * @param nAffinity  the index of the preferred worker, or -1 if there is no preference
+     */
+    void execute(Runnable task, int nAffinity);
+
+    @Override
+    default void execute(Runnable task)
+        {
+        execute(task, -1);
+        }
+    }
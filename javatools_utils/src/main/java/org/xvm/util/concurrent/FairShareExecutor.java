@@ -0,0 +1,244 @@
+package org.xvm.util.concurrent;
+
+
+import java.util.Queue;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * An {@link AffinityExecutor} that queues its tasks locally and pushes their processing to a parent
+ * executor one task at a time. Every time a task is processed, the executor re-submits itself to
+ * the tail of the parent's queue, so the siblings that share the same parent take turns rather than
+ * having one chatty child monopolize the parent. Since a parent can itself be a
+ * {@link FairShareExecutor}, an arbitrary deep hierarchy of fairness can be built.
+ * <p>
+ * The number of tasks that are concurrently submitted to the parent (the number of "tokens") never
+ * exceeds the number of queued tasks and the concurrency limit. A paused executor keeps queueing
+ * the tasks, but doesn't submit any to the parent until it's resumed.
+ */
+public class FairShareExecutor
+        implements AffinityExecutor, Runnable
+    {
+    /**
+     * Construct a {@link FairShareExecutor}.
+     *
+     * @param parent  the executor to push the processing to
+     * @param cLimit  the maximum number of tasks that could be executed concurrently
+     */
+    public FairShareExecutor(AffinityExecutor parent, int cLimit)
+        {
+        f_parent = parent;
+        setConcurrencyLimit(cLimit);
+        }
+
+
+    // ----- AffinityExecutor interface ------------------------------------------------------------
+
+    @Override
+    public void execute(Runnable task, int nAffinity)
+        {
+        f_queue.offer(task);
+        f_cPending.incrementAndGet();
+        tryDispatch(nAffinity);
+        }
+
+
+    // ----- Runnable interface --------------------------------------------------------------------
+
+    /**
+     * Process a single queued task on behalf of one of the tokens.
+     */
+    @Override
+    public void run()
+        {
+        try
+            {
+            Runnable task = f_queue.poll();
+            if (task != null)
+                {
+                f_cPending.decrementAndGet();
+                task.run();
+                }
+            }
+        finally
+            {
+            if (!m_fPaused && f_cPending.get() > 0 && f_cTokens.get() <= m_cLimit)
+                {
+                // keep the token, but go to the back of the parent's queue
+                f_parent.execute(this, -1);
+                }
+            else
+                {
+                f_cTokens.decrementAndGet();
+
+                // a concurrent "execute" could have seen our token before it was released
+                tryDispatch(-1);
+                }
+            }
+        }
+
+
+    // ----- public API ----------------------------------------------------------------------------
+
+    /**
+     * @return the maximum number of tasks that could be executed concurrently
+     */
+    public int getConcurrencyLimit()
+        {
+        return m_cLimit;
+        }
+
+    /**
+     * Change the maximum number of tasks that could be executed concurrently. Lowering the limit
+     * takes effect as the currently executing tasks complete.
+     *
+     * @param cLimit  the new limit (must be positive)
+     */
+    public void setConcurrencyLimit(int cLimit)
+        {
+        if (cLimit <= 0)
+            {
+            throw new IllegalArgumentException("Illegal concurrency limit: " + cLimit);
+            }
+
+        m_cLimit = cLimit;
+        tryDispatch(-1);
+        }
+
+    /**
+     * Stop submitting the queued tasks to the parent. The tasks that are already executing are
+     * allowed to complete.
+     *
+     * @throws IllegalStateException if the executor is already paused
+     */
+    public void pause()
+        {
+        if (!setPaused(true))
+            {
+            throw new IllegalStateException("The executor is already paused");
+            }
+        }
+
+    /**
+     * Resume submitting the queued tasks to the parent.
+     *
+     * @throws IllegalStateException if the executor is not paused
+     */
+    public void resume()
+        {
+        if (!setPaused(false))
+            {
+            throw new IllegalStateException("The executor is not paused");
+            }
+        }
+
+    /**
+     * Pause or resume the executor, unless it's already in the requested state.
+     *
+     * @param fPause  true to pause the executor; false to resume it
+     *
+     * @return true iff the state of the executor has changed
+     */
+    public boolean setPaused(boolean fPause)
+        {
+        synchronized (this)
+            {
+            if (m_fPaused == fPause)
+                {
+                return false;
+                }
+            m_fPaused = fPause;
+            }
+
+        if (!fPause)
+            {
+            tryDispatch(-1);
+            }
+        return true;
+        }
+
+    /**
+     * @return true iff the executor is paused
+     */
+    public boolean isPaused()
+        {
+        return m_fPaused;
+        }
+
+    /**
+     * @return the number of tasks waiting to be executed
+     */
+    public int getPendingCount()
+        {
+        return Math.max(0, f_cPending.get());
+        }
+
+    /**
+     * @return the number of tasks currently submitted to the parent
+     */
+    public int getActiveCount()
+        {
+        return f_cTokens.get();
+        }
+
+
+    // ----- internal ------------------------------------------------------------------------------
+
+    /**
+     * Submit new tokens to the parent as long as the number of pending tasks warrants it.
+     *
+     * @param nAffinity  the worker preference to pass to the parent
+     */
+    private void tryDispatch(int nAffinity)
+        {
+        while (true)
+            {
+            int cTokens = f_cTokens.get();
+            if (m_fPaused || cTokens >= m_cLimit || cTokens >= f_cPending.get())
+                {
+                return;
+                }
+
+            if (f_cTokens.compareAndSet(cTokens, cTokens + 1))
+                {
+                f_parent.execute(this, nAffinity);
+                }
+            }
+        }
+
+
+    // ----- fields --------------------------------------------------------------------------------
+
+    /**
+     * The parent executor.
+     */
+    private final AffinityExecutor f_parent;
+
+    /**
+     * The queued tasks.
+     */
+    private final Queue<Runnable> f_queue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The number of queued tasks (cheaper than {@link Queue#size()}).
+     */
+    private final AtomicInteger f_cPending = new AtomicInteger();
+
+    /**
+     * The number of tokens submitted to the parent.
+     */
+    private final AtomicInteger f_cTokens = new AtomicInteger();
+
+    /**
+     * The concurrency limit.
+     */
+    private volatile int m_cLimit;
+
+    /**
+     * True iff the executor is paused.
+     */
+    private volatile boolean m_fPaused;
+    }
@@ -0,0 +1,267 @@
+package org.xvm.util.concurrent;
+
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+
+/**
+ * A bounded, array-based, multi-producer/single-consumer queue.
+ * <p>
+ * Any number of threads may {@link #offer} concurrently, but only one thread at a time may
+ * {@link #poll}. The producer and consumer indexes are monotonically increasing counters that are
+ * padded to live on separate cache lines, which makes the {@link #size()} an O(1) operation.
+ * <p>
+ * A producer first claims a slot by advancing the producer index and then publishes the element
+ * into that slot; the consumer treats a claimed, but not yet published slot as "about to become
+ * available" and spins until the element shows up.
+ *
+ * @param <E>  the element type
+ */
+public class MpscArrayQueue<E>
+        extends MpscConsumerIndex
+    {
+    /**
+     * Construct the queue.
+     *
+     * @param cCapacity  the requested capacity; the actual capacity is the nearest power of two
+     *                   that is not less than the requested one
+     */
+    public MpscArrayQueue(int cCapacity)
+        {
+        if (cCapacity <= 0)
+            {
+            throw new IllegalArgumentException("capacity=" + cCapacity);
+            }
+
+        int cActual = Integer.highestOneBit(cCapacity);
+        if (cActual < cCapacity)
+            {
+            cActual <<= 1;
+            }
+
+        f_aElement = new Object[cActual];
+        f_nMask    = cActual - 1;
+        }
+
+    /**
+     * @return the capacity of the queue
+     */
+    public int capacity()
+        {
+        return f_nMask + 1;
+        }
+
+    /**
+     * Add the specified element to the tail of the queue, unless the queue is full.
+     * <p>
+     * Thread-safe: can be called by any thread.
+     *
+     * @param e  the element to add (not null)
+     *
+     * @return true if the element has been added; false if the queue is full
+     */
+    public boolean offer(E e)
+        {
+        if (e == null)
+            {
+            throw new NullPointerException();
+            }
+
+        int  cCapacity = f_nMask + 1;
+        long lLimit    = m_lConsumerLimit;
+        long lProducer;
+        do
+            {
+            lProducer = (long) PRODUCER_INDEX.getVolatile(this);
+            if (lProducer >= lLimit)
+                {
+                // the cached limit is stale or the queue is indeed full; re-read the consumer index
+                lLimit = (long) CONSUMER_INDEX.getVolatile(this) + cCapacity;
+                if (lProducer >= lLimit)
+                    {
+                    return false;
+                    }
+                m_lConsumerLimit = lLimit;
+                }
+            }
+        while (!PRODUCER_INDEX.compareAndSet(this, lProducer, lProducer + 1));
+
+        ELEMENT.setRelease(f_aElement, (int) lProducer & f_nMask, e);
+        return true;
+        }
+
+    /**
+     * Remove the element at the head of the queue.
+     * <p>
+     * Must only be called by the single consumer thread.
+     *
+     * @return the head element or null if the queue is empty
+     */
+    public E poll()
+        {
+        long     lConsumer = m_lConsumerIndex;
+        int      ix        = (int) lConsumer & f_nMask;
+        Object[] aElement  = f_aElement;
+
+        Object e = ELEMENT.getAcquire(aElement, ix);
+        if (e == null)
+            {
+            if (lConsumer == (long) PRODUCER_INDEX.getVolatile(this))
+                {
+                return null;
+                }
+
+            // the slot has been claimed by a producer, but the element is not there yet
+            do
+                {
+                Thread.onSpinWait();
+                e = ELEMENT.getAcquire(aElement, ix);
+                }
+            while (e == null);
+            }
+
+        aElement[ix] = null;
+        CONSUMER_INDEX.setRelease(this, lConsumer + 1);
+
+        @SuppressWarnings("unchecked")
+        E eResult = (E) e;
+        return eResult;
+        }
+
+    /**
+     * Note: this value is only approximate when called concurrently with the producers or the
+     * consumer.
+     *
+     * @return the number of elements in the queue
+     */
+    public int size()
+        {
+        // read the consumer index first, so the difference is never negative
+        long lConsumer = (long) CONSUMER_INDEX.getVolatile(this);
+        long lProducer = (long) PRODUCER_INDEX.getVolatile(this);
+        return (int) Math.min(lProducer - lConsumer, f_nMask + 1);
+        }
+
+    /**
+     * @return true iff the queue is empty
+     */
+    public boolean isEmpty()
+        {
+        return (long) CONSUMER_INDEX.getVolatile(this) == (long) PRODUCER_INDEX.getVolatile(this);
+        }
+
+    /**
+     * @return the total number of elements ever added to the queue (including the elements that
+     *         have been claimed, but not yet published)
+     */
+    public long getProducerIndex()
+        {
+        return (long) PRODUCER_INDEX.getVolatile(this);
+        }
+
+    /**
+     * @return the total number of elements ever removed from the queue
+     */
+    public long getConsumerIndex()
+        {
+        return (long) CONSUMER_INDEX.getVolatile(this);
+        }
+
+    @Override
+    public String toString()
+        {
+        return "MpscArrayQueue{size=" + size() + ", capacity=" + capacity() + '}';
+        }
+
+
+    // ----- fields --------------------------------------------------------------------------------
+
+    /**
+     * The element storage.
+     */
+    private final Object[] f_aElement;
+
+    /**
+     * The capacity minus one.
+     */
+    private final int f_nMask;
+
+    private static final VarHandle PRODUCER_INDEX;
+    private static final VarHandle CONSUMER_INDEX;
+    private static final VarHandle ELEMENT = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    static
+        {
+        try
+            {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            PRODUCER_INDEX = lookup.findVarHandle(MpscProducerIndex.class,
+                    "m_lProducerIndex", long.class);
+            CONSUMER_INDEX = lookup.findVarHandle(MpscConsumerIndex.class,
+                    "m_lConsumerIndex", long.class);
+            }
+        catch (ReflectiveOperationException e)
+            {
+            throw new ExceptionInInitializerError(e);
+            }
+        }
+    }
+
+
+// ----- padded index holders ----------------------------------------------------------------------
+
+/**
+ * The padding before the producer index; keeps the index off the cache line of the object
+ * header and of whatever has been allocated in front of this queue.
+ */
+abstract class MpscHeadPadding
+    {
+    long p00, p01, p02, p03, p04, p05, p06, p07;
+    long p10, p11, p12, p13, p14, p15, p16;
+    }
+
+/**
+ * The producer index and the producers' cached view of the consumer limit.
+ */
+abstract class MpscProducerIndex
+        extends MpscHeadPadding
+    {
+    /**
+     * The index of the next slot to be claimed by a producer. Accessed via
+     * {@link MpscArrayQueue#PRODUCER_INDEX}.
+     */
+    volatile long m_lProducerIndex;
+
+    /**
+     * A cached (possibly stale) value of consumer index plus the capacity; the producers
+     * only re-read the consumer index when the producer index reaches this value.
+     */
+    volatile long m_lConsumerLimit;
+    }
+
+/**
+ * The padding between the producer and consumer indexes.
+ */
+abstract class MpscMidPadding
+        extends MpscProducerIndex
+    {
+    long p20, p21, p22, p23, p24, p25, p26, p27;
+    long p30, p31, p32, p33, p34, p35, p36;
+    }
+
+/**
+ * The consumer index.
+ */
+abstract class MpscConsumerIndex
+        extends MpscMidPadding
+    {
+    /**
+     * The index of the next slot to be consumed. Only modified by the consumer; accessed by
+     * the producers via {@link MpscArrayQueue#CONSUMER_INDEX}.
+     */
+    volatile long m_lConsumerIndex;
+
+    long p40, p41, p42, p43, p44, p45, p46, p47;
+    long p50, p51, p52, p53, p54, p55, p56;
+    }
@@ -0,0 +1,546 @@
+package org.xvm.util.concurrent;
+
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import java.util.concurrent.locks.LockSupport;
+
+
+/**
+ * A hierarchical hashed timing wheel: a timer with O(1) schedule and cancel operations, intended
+ * for a very large number of timeouts that are mostly cancelled before they expire.
+ * <p>
+ * The wheel consists of {@link #LEVELS} levels of {@link #SLOTS} buckets each; a bucket on level
+ * {@code n} covers {@code SLOTS^n} ticks. A timeout is placed into the bucket of the lowest level
+ * that covers its deadline, and moved ("cascaded") to the lower levels as the time passes. The
+ * timeouts that are further away than the highest level covers are parked in the highest level
+ * and re-inserted when reached.
+ * <p>
+ * All the bookkeeping is done by a single daemon thread: the scheduled and cancelled timeouts are
+ * handed over to it via lock-free queues, so the callers never block. Once per tick, the thread
+ * runs the tasks of all the timeouts that have expired as a batch; the tasks are expected to be
+ * short and non-blocking (e.g. posting a message to a service). When there are no timeouts, the
+ * thread doesn't tick at all.
+ */
+public class TimingWheel
+    {
+    /**
+     * Construct a {@link TimingWheel} with a one millisecond tick.
+     *
+     * @param sName  the name of the timer thread
+     */
+    public TimingWheel(String sName)
+        {
+        this(sName, TimeUnit.MILLISECONDS.toNanos(1));
+        }
+
+    /**
+     * Construct a {@link TimingWheel}.
+     *
+     * @param sName       the name of the timer thread
+     * @param cNanosTick  the tick duration in nanoseconds
+     */
+    public TimingWheel(String sName, long cNanosTick)
+        {
+        if (cNanosTick <= 0)
+            {
+            throw new IllegalArgumentException("Illegal tick: " + cNanosTick);
+            }
+
+        f_cNanosTick = cNanosTick;
+        f_nanoStart  = System.nanoTime();
+
+        Bucket[][] aaBucket = new Bucket[LEVELS][SLOTS];
+        for (Bucket[] aBucket : aaBucket)
+            {
+            for (int i = 0; i < SLOTS; i++)
+                {
+                aBucket[i] = new Bucket();
+                }
+            }
+        f_aaBucket = aaBucket;
+
+        Thread thread = new Thread(this::runTicker, sName);
+        thread.setDaemon(true);
+        f_thread = thread;
+        thread.start();
+        }
+
+
+    // ----- public API ----------------------------------------------------------------------------
+
+    /**
+     * Schedule the specified task to run after the specified delay.
+     *
+     * @param task    the task
+     * @param cDelay  the delay (a non-positive value means "as soon as possible")
+     * @param unit    the delay unit
+     *
+     * @return the {@link Timeout} that can be used to cancel the task
+     *
+     * @throws IllegalStateException if the wheel has been shut down
+     */
+    public Timeout schedule(Runnable task, long cDelay, TimeUnit unit)
+        {
+        if (m_fShutdown)
+            {
+            throw new IllegalStateException("TimingWheel has been shut down");
+            }
+
+        long    cNanos  = Math.max(0, unit.toNanos(cDelay));
+        long    lTick   = (System.nanoTime() - f_nanoStart + cNanos + f_cNanosTick - 1) / f_cNanosTick;
+        Timeout timeout = new Timeout(this, task, lTick);
+
+        f_queueAdd.add(timeout);
+        if (m_fIdle)
+            {
+            LockSupport.unpark(f_thread);
+            }
+        return timeout;
+        }
+
+    /**
+     * @return the (approximate) number of timeouts that have been neither cancelled nor expired
+     */
+    public int getPendingCount()
+        {
+        return m_cTimeouts + f_queueAdd.size();
+        }
+
+    /**
+     * Stop the wheel; the pending timeouts will never expire.
+     */
+    public void shutdown()
+        {
+        m_fShutdown = true;
+        LockSupport.unpark(f_thread);
+        }
+
+
+    // ----- Timeout -------------------------------------------------------------------------------
+
+    /**
+     * A scheduled task.
+     */
+    public static class Timeout
+        {
+        private Timeout(TimingWheel wheel, Runnable task, long lTick)
+            {
+            f_wheel = wheel;
+            f_task  = task;
+            f_lTick = lTick;
+            }
+
+        /**
+         * Cancel the timeout.
+         *
+         * @return true iff the timeout has been cancelled by this call; false if it has already
+         *         expired or been cancelled
+         */
+        public boolean cancel()
+            {
+            if (STATE.compareAndSet(this, PENDING, CANCELLED))
+                {
+                f_wheel.f_queueCancel.add(this);
+                return true;
+                }
+            return false;
+            }
+
+        /**
+         * @return true iff the timeout has been cancelled
+         */
+        public boolean isCancelled()
+            {
+            return m_nState == CANCELLED;
+            }
+
+        /**
+         * @return true iff the timeout has expired (its task has run or is running)
+         */
+        public boolean isExpired()
+            {
+            return m_nState == EXPIRED;
+            }
+
+        @Override
+        public String toString()
+            {
+            return "Timeout{tick=" + f_lTick + ", state=" + m_nState + ", task=" + f_task + '}';
+            }
+
+        private static final int PENDING   = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED   = 2;
+
+        private static final VarHandle STATE;
+        static
+            {
+            try
+                {
+                STATE = MethodHandles.lookup().findVarHandle(Timeout.class, "m_nState", int.class);
+                }
+            catch (ReflectiveOperationException e)
+                {
+                throw new ExceptionInInitializerError(e);
+                }
+            }
+
+        /**
+         * The wheel.
+         */
+        private final TimingWheel f_wheel;
+
+        /**
+         * The task.
+         */
+        private final Runnable f_task;
+
+        /**
+         * The tick at which the timeout expires.
+         */
+        private final long f_lTick;
+
+        /**
+         * The state (one of PENDING, CANCELLED or EXPIRED); modified via {@link #STATE}.
+         */
+        private volatile int m_nState;
+
+        /**
+         * The bucket holding the timeout (only accessed by the timer thread).
+         */
+        private Bucket m_bucket;
+
+        /**
+         * The neighbors in the bucket (only accessed by the timer thread).
+         */
+        private Timeout m_prev;
+        private Timeout m_next;
+        }
+
+
+    // ----- internal ------------------------------------------------------------------------------
+
+    /**
+     * The timer thread's loop.
+     */
+    private void runTicker()
+        {
+        List<Timeout> listExpired = new ArrayList<>();
+
+        while (!m_fShutdown)
+            {
+            processCancelled();
+
+            long lTickNow = (System.nanoTime() - f_nanoStart) / f_cNanosTick;
+            if (m_cTimeouts == 0)
+                {
+                // the wheel is empty; there is no need to visit the skipped ticks one by one, but
+                // that must be done before the new timeouts are inserted relative to the current
+                // tick, or they would be placed (and then reached) as if no time had passed
+                m_lTick = Math.max(m_lTick, lTickNow);
+                }
+
+            processAdded(listExpired);
+
+            while (m_lTick < lTickNow)
+                {
+                advance(++m_lTick, listExpired);
+                }
+
+            if (!listExpired.isEmpty())
+                {
+                expire(listExpired);
+                listExpired.clear();
+                continue;
+                }
+
+            if (m_cTimeouts == 0)
+                {
+                // nothing to tick for; wait for a new timeout
+                m_fIdle = true;
+                if (f_queueAdd.isEmpty() && !m_fShutdown)
+                    {
+                    LockSupport.park(this);
+                    }
+                m_fIdle = false;
+                }
+            else
+                {
+                LockSupport.parkNanos(this,
+                        f_nanoStart + (m_lTick + 1) * f_cNanosTick - System.nanoTime());
+                }
+            }
+        }
+
+    /**
+     * Unlink the cancelled timeouts from their buckets.
+     */
+    private void processCancelled()
+        {
+        Timeout timeout;
+        while ((timeout = f_queueCancel.poll()) != null)
+            {
+            Bucket bucket = timeout.m_bucket;
+            if (bucket != null)
+                {
+                bucket.remove(timeout);
+                m_cTimeouts--;
+                }
+            }
+        }
+
+    /**
+     * Insert the newly scheduled timeouts.
+     */
+    private void processAdded(List<Timeout> listExpired)
+        {
+        Timeout timeout;
+        while ((timeout = f_queueAdd.poll()) != null)
+            {
+            if (timeout.m_nState == Timeout.PENDING)
+                {
+                insert(timeout, m_lTick, listExpired);
+                }
+            }
+        }
+
+    /**
+     * Process the specified tick: cascade the higher level buckets whose time has come and collect
+     * the expired timeouts.
+     *
+     * @param lTick        the tick to process
+     * @param listExpired  the list to add the expired timeouts to
+     */
+    private void advance(long lTick, List<Timeout> listExpired)
+        {
+        // the timeouts are cascaded from the highest level down, so a timeout moved from a higher
+        // level to a lower one is still processed during this tick if necessary
+        for (int iLevel = LEVELS - 1; iLevel > 0; iLevel--)
+            {
+            int cShift = BITS * iLevel;
+            if ((lTick & ((1L << cShift) - 1)) == 0)
+                {
+                redistribute(f_aaBucket[iLevel][(int) (lTick >>> cShift) & MASK], lTick, listExpired);
+                }
+            }
+
+        redistribute(f_aaBucket[0][(int) lTick & MASK], lTick, listExpired);
+        }
+
+    /**
+     * Empty the specified bucket, re-inserting its timeouts relative to the specified tick.
+     */
+    private void redistribute(Bucket bucket, long lTick, List<Timeout> listExpired)
+        {
+        for (Timeout timeout = bucket.clear(); timeout != null; )
+            {
+            Timeout next = timeout.m_next;
+            timeout.m_next = null;
+            m_cTimeouts--;
+            if (timeout.m_nState == Timeout.PENDING)
+                {
+                insert(timeout, lTick, listExpired);
+                }
+            timeout = next;
+            }
+        }
+
+    /**
+     * Insert the specified timeout into the wheel.
+     *
+     * @param timeout      the timeout
+     * @param lTickBase    the current tick
+     * @param listExpired  the list to add the timeout to if it has already expired
+     */
+    private void insert(Timeout timeout, long lTickBase, List<Timeout> listExpired)
+        {
+        long lTick  = timeout.f_lTick;
+        long cDelta = lTick - lTickBase;
+        if (cDelta <= 0)
+            {
+            listExpired.add(timeout);
+            return;
+            }
+
+        if (cDelta >= SPAN)
+            {
+            // beyond the wheel's reach; park it in the furthest bucket to be re-inserted later
+            lTick = lTickBase + SPAN - 1;
+            }
+
+        int iLevel = 0;
+        while (iLevel < LEVELS - 1 && cDelta >= 1L << (BITS * (iLevel + 1)))
+            {
+            iLevel++;
+            }
+
+        f_aaBucket[iLevel][(int) (lTick >>> (BITS * iLevel)) & MASK].add(timeout);
+        m_cTimeouts++;
+        }
+
+    /**
+     * Run the tasks of the expired timeouts.
+     */
+    private void expire(List<Timeout> listExpired)
+        {
+        for (Timeout timeout : listExpired)
+            {
+            if (Timeout.STATE.compareAndSet(timeout, Timeout.PENDING, Timeout.EXPIRED))
+                {
+                try
+                    {
+                    timeout.f_task.run();
+                    }
+                catch (Throwable e)
+                    {
+                    System.err.println("Exception in TimingWheel task " + timeout.f_task + ": " + e);
+                    }
+                }
+            }
+        }
+
+    /**
+     * A doubly linked list of timeouts; only accessed by the timer thread.
+     */
+    private static class Bucket
+        {
+        void add(Timeout timeout)
+            {
+            timeout.m_bucket = this;
+            timeout.m_prev   = null;
+            timeout.m_next   = m_head;
+            if (m_head != null)
+                {
+                m_head.m_prev = timeout;
+                }
+            m_head = timeout;
+            }
+
+        void remove(Timeout timeout)
+            {
+            Timeout prev = timeout.m_prev;
+            Timeout next = timeout.m_next;
+            if (prev == null)
+                {
+                m_head = next;
+                }
+            else
+                {
+                prev.m_next = next;
+                }
+            if (next != null)
+                {
+                next.m_prev = prev;
+                }
+            timeout.m_bucket = null;
+            timeout.m_prev   = null;
+            timeout.m_next   = null;
+            }
+
+        /**
+         * Detach all the timeouts from this bucket.
+         *
+         * @return the first of the detached timeouts, linked via {@link Timeout#m_next}
+         */
+        Timeout clear()
+            {
+            Timeout head = m_head;
+            m_head = null;
+            for (Timeout timeout = head; timeout != null; timeout = timeout.m_next)
+                {
+                timeout.m_bucket = null;
+                timeout.m_prev   = null;
+                }
+            return head;
+            }
+
+        private Timeout m_head;
+        }
+
+
+    // ----- constants and fields ------------------------------------------------------------------
+
+    /**
+     * The number of bits of a tick that index a level.
+     */
+    private static final int BITS = 6;
+
+    /**
+     * The number of buckets per level.
+     */
+    public static final int SLOTS = 1 << BITS;
+
+    /**
+     * The bucket index mask.
+     */
+    private static final int MASK = SLOTS - 1;
+
+    /**
+     * The number of levels; with one millisecond ticks, the wheel covers about 4.6 hours.
+     */
+    public static final int LEVELS = 4;
+
+    /**
+     * The number of ticks covered by the wheel.
+     */
+    private static final long SPAN = 1L << (BITS * LEVELS);
+
+    /**
+     * The tick duration in nanoseconds.
+     */
+    private final long f_cNanosTick;
+
+    /**
+     * The time (in nanos) of the tick zero.
+     */
+    private final long f_nanoStart;
+
+    /**
+     * The buckets, indexed by level and slot.
+     */
+    private final Bucket[][] f_aaBucket;
+
+    /**
+     * The timer thread.
+     */
+    private final Thread f_thread;
+
+    /**
+     * The scheduled timeouts that have not been inserted yet.
+     */
+    private final Queue<Timeout> f_queueAdd = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The cancelled timeouts that have not been unlinked yet.
+     */
+    private final Queue<Timeout> f_queueCancel = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The last processed tick (only accessed by the timer thread).
+     */
+    private long m_lTick;
+
+    /**
+     * The number of timeouts in the buckets (only modified by the timer thread).
+     */
+    private volatile int m_cTimeouts;
+
+    /**
+     * True iff the timer thread is (about to be) parked indefinitely.
+     */
+    private volatile boolean m_fIdle;
+
+    /**
+     * True iff the wheel has been shut down.
+     */
+    private volatile boolean m_fShutdown;
+    }
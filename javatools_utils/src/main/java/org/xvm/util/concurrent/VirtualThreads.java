@@ -0,0 +1,134 @@
+package org.xvm.util.concurrent;
+
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+
+/**
+ * Access to the virtual threads (Java 21 and later) for the code that is compiled against an older
+ * Java version.
+ * <p>
+ * The virtual thread API is resolved reflectively once; if it's not available, {@link
+ * #isSupported()} returns false and the callers are expected to fall back to the platform threads.
+ */
+public final class VirtualThreads
+    {
+    private VirtualThreads()
+        {
+        }
+
+    /**
+     * @return true iff the current JVM supports virtual threads
+     */
+    public static boolean isSupported()
+        {
+        return FACTORY_BUILDER != null;
+        }
+
+    /**
+     * Create a ThreadFactory that produces virtual threads named by the specified prefix followed
+     * by a sequential number.
+     *
+     * @param sPrefix  the thread name prefix
+     *
+     * @return the thread factory
+     *
+     * @throws UnsupportedOperationException if the virtual threads are not supported
+     */
+    public static ThreadFactory newThreadFactory(String sPrefix)
+        {
+        if (FACTORY_BUILDER == null)
+            {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or later");
+            }
+
+        try
+            {
+            return (ThreadFactory) FACTORY_BUILDER.invoke(sPrefix, 0L);
+            }
+        catch (Throwable e)
+            {
+            throw new IllegalStateException(e);
+            }
+        }
+
+    /**
+     * Create an ExecutorService that starts a new virtual thread for each task.
+     *
+     * @param sPrefix  the thread name prefix
+     *
+     * @return the executor service
+     *
+     * @throws UnsupportedOperationException if the virtual threads are not supported
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String sPrefix)
+        {
+        ThreadFactory factory = newThreadFactory(sPrefix);
+        try
+            {
+            return (ExecutorService) EXECUTOR_BUILDER.invoke(factory);
+            }
+        catch (Throwable e)
+            {
+            throw new IllegalStateException(e);
+            }
+        }
+
+
+    // ----- constants -----------------------------------------------------------------------------
+
+    /**
+     * {@code (String, long) -> Thread.ofVirtual().name(prefix, start).factory()}, or null if the
+     * virtual threads are not supported.
+     */
+    private static final MethodHandle FACTORY_BUILDER;
+
+    /**
+     * {@code (ThreadFactory) -> Executors.newThreadPerTaskExecutor(factory)}.
+     */
+    private static final MethodHandle EXECUTOR_BUILDER;
+
+    static
+        {
+        MethodHandle hFactory  = null;
+        MethodHandle hExecutor = null;
+        try
+            {
+            MethodHandles.Lookup lookup     = MethodHandles.publicLookup();
+            Class<?>             clzBuilder = Class.forName("java.lang.Thread$Builder");
+            Class<?>             clzVirtual = Class.forName("java.lang.Thread$Builder$OfVirtual");
+
+            MethodHandle hOfVirtual = lookup.findStatic(Thread.class, "ofVirtual",
+                    MethodType.methodType(clzVirtual));
+            MethodHandle hName      = lookup.findVirtual(clzBuilder, "name",
+                    MethodType.methodType(clzBuilder, String.class, long.class));
+            MethodHandle hBuild     = lookup.findVirtual(clzBuilder, "factory",
+                    MethodType.methodType(ThreadFactory.class));
+
+            // (String, long) -> Thread.ofVirtual().name(String, long).factory()
+            MethodHandle hNamed = MethodHandles.filterReturnValue(hName, hBuild);
+            hNamed = hNamed.asType(MethodType.methodType(ThreadFactory.class,
+                    clzVirtual, String.class, long.class));
+            hFactory = MethodHandles.foldArguments(
+                    hNamed, MethodHandles.dropArguments(hOfVirtual, 0, String.class, long.class));
+
+            hExecutor = lookup.findStatic(java.util.concurrent.Executors.class,
+                    "newThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class, ThreadFactory.class));
+            }
+        catch (ReflectiveOperationException | RuntimeException e)
+            {
+            // pre-21 JVM; the virtual threads are not available
+            hFactory  = null;
+            hExecutor = null;
+            }
+
+        FACTORY_BUILDER  = hFactory;
+        EXECUTOR_BUILDER = hExecutor;
+        }
+    }
@@ -0,0 +1,432 @@
+package org.xvm.util.concurrent;
+
+
+import java.util.Queue;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import java.util.concurrent.locks.LockSupport;
+
+
+/**
+ * A fixed size {@link AffinityExecutor} that maintains a task deque per worker thread. Tasks
+ * submitted by a worker (or with an explicit affinity) are placed into the corresponding worker's
+ * deque; all other tasks go into a shared queue. An idle worker takes tasks from its own deque
+ * first, then from the shared queue, and finally "steals" from the tail of other workers' deques.
+ * <p>
+ * Unlike a {@link java.util.concurrent.ThreadPoolExecutor} over a single queue, the workers only
+ * contend with each other when they run out of local work.
+ */
+public class WorkStealingExecutor
+        implements AffinityExecutor
+    {
+    /**
+     * Construct and start a {@link WorkStealingExecutor}.
+     *
+     * @param cWorkers  the number of worker threads
+     * @param factory   the factory to create worker threads with
+     */
+    public WorkStealingExecutor(int cWorkers, ThreadFactory factory)
+        {
+        if (cWorkers <= 0)
+            {
+            throw new IllegalArgumentException("Illegal worker count: " + cWorkers);
+            }
+
+        Worker[] aWorker = new Worker[cWorkers];
+        for (int i = 0; i < cWorkers; i++)
+            {
+            aWorker[i] = new Worker(i, factory);
+            }
+        f_aWorker = aWorker;
+
+        for (Worker worker : aWorker)
+            {
+            worker.f_thread.start();
+            }
+        }
+
+
+    // ----- AffinityExecutor interface ------------------------------------------------------------
+
+    @Override
+    public void execute(Runnable task, int nAffinity)
+        {
+        if (m_fShutdown)
+            {
+            throw new RejectedExecutionException("Executor has been shut down");
+            }
+
+        Worker[] aWorker = f_aWorker;
+        Worker   worker;
+        if (nAffinity >= 0 && nAffinity < aWorker.length)
+            {
+            worker = aWorker[nAffinity];
+            }
+        else
+            {
+            worker = s_tloWorker.get();
+            if (worker != null && worker.getExecutor() != this)
+                {
+                worker = null;
+                }
+            }
+
+        if (worker == null)
+            {
+            f_queueShared.offer(task);
+            signalWork(null);
+            }
+        else
+            {
+            boolean fBacklog = !worker.f_deque.isEmpty();
+
+            worker.f_deque.offerLast(task);
+
+            // a worker that submits to its own empty deque is going to get to that task as soon as
+            // the current task completes; waking up anyone else would only break the affinity
+            if (fBacklog || worker.f_thread != Thread.currentThread())
+                {
+                signalWork(worker);
+                }
+            }
+        }
+
+
+    // ----- public API ----------------------------------------------------------------------------
+
+    /**
+     * @return the number of worker threads
+     */
+    public int getWorkerCount()
+        {
+        return f_aWorker.length;
+        }
+
+    /**
+     * @return the approximate number of workers that are actively executing tasks
+     */
+    public int getActiveCount()
+        {
+        return f_cActive.get();
+        }
+
+    /**
+     * @return the number of entries in the idle worker queue
+     */
+    int getIdleQueueSize()
+        {
+        return f_queueIdle.size();
+        }
+
+    /**
+     * Initiate an orderly shutdown; the tasks that have already been submitted are executed, but
+     * no new tasks are accepted.
+     */
+    public void shutdown()
+        {
+        m_fShutdown = true;
+        for (Worker worker : f_aWorker)
+            {
+            LockSupport.unpark(worker.f_thread);
+            }
+        }
+
+    /**
+     * @return true iff this executor has been shut down
+     */
+    public boolean isShutdown()
+        {
+        return m_fShutdown;
+        }
+
+    /**
+     * @return the index of the worker that is executing the current thread or -1 if the current
+     *         thread is not a {@link WorkStealingExecutor} worker
+     */
+    public static int getCurrentWorkerIndex()
+        {
+        Worker worker = s_tloWorker.get();
+        return worker == null ? -1 : worker.f_nIndex;
+        }
+
+
+    // ----- internal ------------------------------------------------------------------------------
+
+    /**
+     * Wake up an idle worker (preferably the specified one) to process newly submitted work.
+     *
+     * @param workerPreferred  (optional) the worker that the work was submitted to
+     */
+    private void signalWork(Worker workerPreferred)
+        {
+        if (workerPreferred != null && workerPreferred.wake())
+            {
+            return;
+            }
+
+        Worker worker;
+        while ((worker = f_queueIdle.poll()) != null)
+            {
+            worker.f_fQueued.set(false);
+
+            // the queue may contain stale entries for workers that have been woken up directly
+            // or have woken up on their own
+            if (worker.wake())
+                {
+                return;
+                }
+            }
+        }
+
+    /**
+     * @return true iff any of the queues are known to contain tasks
+     */
+    private boolean hasWork()
+        {
+        if (!f_queueShared.isEmpty())
+            {
+            return true;
+            }
+
+        for (Worker worker : f_aWorker)
+            {
+            if (!worker.f_deque.isEmpty())
+                {
+                return true;
+                }
+            }
+        return false;
+        }
+
+    /**
+     * A worker thread with its own task deque.
+     */
+    protected class Worker
+            implements Runnable
+        {
+        protected Worker(int nIndex, ThreadFactory factory)
+            {
+            f_nIndex  = nIndex;
+            f_thread  = factory.newThread(this);
+            }
+
+        @Override
+        public void run()
+            {
+            s_tloWorker.set(this);
+
+            try
+                {
+                while (true)
+                    {
+                    Runnable task = findTask();
+                    if (task != null)
+                        {
+                        runTask(task);
+                        }
+                    else if (m_fShutdown)
+                        {
+                        break;
+                        }
+                    else
+                        {
+                        park();
+                        }
+                    }
+                }
+            finally
+                {
+                s_tloWorker.remove();
+                }
+            }
+
+        /**
+         * @return the executor this worker belongs to
+         */
+        protected WorkStealingExecutor getExecutor()
+            {
+            return WorkStealingExecutor.this;
+            }
+
+        /**
+         * @return the next task to execute or null if there is nothing to do
+         */
+        protected Runnable findTask()
+            {
+            Runnable task = f_deque.pollFirst();
+            if (task == null)
+                {
+                task = f_queueShared.poll();
+                if (task == null)
+                    {
+                    task = steal();
+                    }
+                }
+            return task;
+            }
+
+        /**
+         * Steal a task from the tail of some other worker's deque; the tail holds the tasks that
+         * have been waiting the longest to be executed by their owner.
+         *
+         * @return a stolen task or null if all other workers' deques are empty
+         */
+        protected Runnable steal()
+            {
+            Worker[] aWorker = f_aWorker;
+            int      cWorker = aWorker.length;
+            if (cWorker > 1)
+                {
+                int nStart = ThreadLocalRandom.current().nextInt(cWorker);
+                for (int i = 0; i < cWorker; i++)
+                    {
+                    Worker victim = aWorker[(nStart + i) % cWorker];
+                    if (victim != this)
+                        {
+                        Runnable task = victim.f_deque.pollLast();
+                        if (task != null)
+                            {
+                            return task;
+                            }
+                        }
+                    }
+                }
+            return null;
+            }
+
+        /**
+         * Execute the specified task.
+         */
+        protected void runTask(Runnable task)
+            {
+            f_cActive.incrementAndGet();
+            try
+                {
+                task.run();
+                }
+            catch (Throwable e)
+                {
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                }
+            finally
+                {
+                f_cActive.decrementAndGet();
+                }
+            }
+
+        /**
+         * Park this worker until more work becomes available.
+         */
+        protected void park()
+            {
+            f_fIdle.set(true);
+
+            // a worker that was woken up without being dequeued is still in the idle queue
+            if (f_fQueued.compareAndSet(false, true))
+                {
+                f_queueIdle.offer(this);
+                }
+
+            // re-check after advertising ourselves as idle to avoid a lost wake-up
+            if (hasWork() || m_fShutdown)
+                {
+                // if this fails, someone has already claimed and unparked us, which is harmless
+                f_fIdle.compareAndSet(true, false);
+                return;
+                }
+
+            LockSupport.park(this);
+
+            // in the case of a spurious wake-up the idle queue is left with a stale entry
+            f_fIdle.compareAndSet(true, false);
+            }
+
+        /**
+         * Wake up this worker if it's idle.
+         *
+         * @return true iff this worker was idle and has been woken up
+         */
+        protected boolean wake()
+            {
+            if (f_fIdle.compareAndSet(true, false))
+                {
+                LockSupport.unpark(f_thread);
+                return true;
+                }
+            return false;
+            }
+
+        @Override
+        public String toString()
+            {
+            return "Worker " + f_nIndex + " (" + f_thread.getName() + ')';
+            }
+
+        /**
+         * The worker index.
+         */
+        protected final int f_nIndex;
+
+        /**
+         * The worker thread.
+         */
+        protected final Thread f_thread;
+
+        /**
+         * The tasks submitted to this worker.
+         */
+        protected final ConcurrentLinkedDeque<Runnable> f_deque = new ConcurrentLinkedDeque<>();
+
+        /**
+         * Indicates that this worker is parked (or about to park).
+         */
+        protected final AtomicBoolean f_fIdle = new AtomicBoolean();
+
+        /**
+         * Indicates that this worker is in the idle queue.
+         */
+        protected final AtomicBoolean f_fQueued = new AtomicBoolean();
+        }
+
+
+    // ----- fields --------------------------------------------------------------------------------
+
+    /**
+     * The worker associated with the current thread.
+     */
+    private static final ThreadLocal<Worker> s_tloWorker = new ThreadLocal<>();
+
+    /**
+     * The workers.
+     */
+    private final Worker[] f_aWorker;
+
+    /**
+     * The queue for tasks submitted by non-worker threads without any affinity.
+     */
+    private final Queue<Runnable> f_queueShared = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The workers that are (or recently were) parked; each worker is in the queue at most once.
+     */
+    private final Queue<Worker> f_queueIdle = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The number of workers executing tasks.
+     */
+    private final AtomicInteger f_cActive = new AtomicInteger();
+
+    /**
+     * The "shutdown" flag.
+     */
+    private volatile boolean m_fShutdown;
+    }
@@ -0,0 +1,96 @@
+package org.xvm.util;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import static org.xvm.util.Handy.readMagnitude;
+import static org.xvm.util.Handy.readUtf8String;
+import static org.xvm.util.Handy.writePackedLong;
+import static org.xvm.util.Handy.writeUtf8String;
+
+
+/**
+ * Tests of the ByteBufferDataInput class.
+ */
+public class ByteBufferDataInputTest
+    {
+    @Test
+    public void testPrimitives()
+            throws IOException
+        {
+        ByteArrayOutputStream outRaw = new ByteArrayOutputStream();
+        DataOutputStream      out    = new DataOutputStream(outRaw);
+        out.writeInt(0xCAFEBABE);
+        out.writeShort(-2);
+        out.writeByte(0x80);
+        out.writeBoolean(true);
+        out.writeLong(Long.MIN_VALUE + 7);
+        out.writeDouble(3.14);
+        writePackedLong(out, 123456789L);
+
+        ByteBufferDataInput in = new ByteBufferDataInput(ByteBuffer.wrap(outRaw.toByteArray()));
+        assertEquals(0xCAFEBABE, in.readInt());
+        assertEquals(-2, in.readShort());
+        assertEquals(0x80, in.readUnsignedByte());
+        assertTrue(in.readBoolean());
+        assertEquals(Long.MIN_VALUE + 7, in.readLong());
+        assertEquals(3.14, in.readDouble());
+        assertEquals(123456789, readMagnitude(in));
+        assertEquals(0, in.remaining());
+        assertThrows(EOFException.class, in::readByte);
+        }
+
+    @Test
+    public void testSlice()
+            throws IOException
+        {
+        byte[]              ab = {1, 2, 3, 4, 5, 6};
+        ByteBufferDataInput in = new ByteBufferDataInput(ByteBuffer.wrap(ab));
+        assertEquals(1, in.readByte());
+
+        ByteBuffer slice = in.slice(3);
+        assertEquals(3, slice.remaining());
+        assertEquals(5, in.readByte());
+
+        // the slice shares the content and reads independently of the original input
+        ByteBufferDataInput inSlice = new ByteBufferDataInput(slice);
+        assertEquals(2, inSlice.readByte());
+        assertEquals(0x0304, inSlice.readShort());
+        assertEquals(0, inSlice.remaining());
+        assertEquals(3, slice.remaining());
+
+        assertThrows(EOFException.class, () -> in.slice(2));
+        }
+
+    @Test
+    public void testUtf8String()
+            throws IOException
+        {
+        String[] as = {"", "hello", "ecstasy.xtclang.org", "café", "€ 1", "😀!"};
+
+        ByteArrayOutputStream outRaw = new ByteArrayOutputStream();
+        DataOutputStream      out    = new DataOutputStream(outRaw);
+        for (String s : as)
+            {
+            writeUtf8String(out, s);
+            }
+
+        ByteBufferDataInput in = new ByteBufferDataInput(ByteBuffer.wrap(outRaw.toByteArray()));
+        for (String s : as)
+            {
+            assertEquals(s, readUtf8String(in));
+            }
+        assertEquals(0, in.remaining());
+        }
+    }
@@ -0,0 +1,196 @@
+package org.xvm.util.concurrent;
+
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * Tests of the {@link FairShareExecutor} and {@link WorkStealingExecutor}.
+ */
+public class FairShareExecutorTest
+    {
+    @Test
+    public void testRoundRobin()
+        {
+        Queue<Runnable>   queueRoot = new ArrayDeque<>();
+        FairShareExecutor root      = new FairShareExecutor((task, n) -> queueRoot.add(task), 1);
+        FairShareExecutor chatty    = new FairShareExecutor(root, 1);
+        FairShareExecutor quiet     = new FairShareExecutor(root, 1);
+        List<String>      listOrder = new ArrayList<>();
+
+        for (int i = 0; i < 100; i++)
+            {
+            chatty.execute(() -> listOrder.add("chatty"));
+            }
+        quiet.execute(() -> listOrder.add("quiet"));
+
+        Runnable task;
+        while ((task = queueRoot.poll()) != null)
+            {
+            task.run();
+            }
+
+        assertEquals(101, listOrder.size());
+        assertEquals("quiet", listOrder.get(1), "the quiet executor must not wait for the chatty one");
+        assertEquals(0, root.getActiveCount());
+        assertEquals(0, chatty.getActiveCount());
+        assertEquals(0, quiet.getActiveCount());
+        }
+
+    @Test
+    public void testTokenLimit()
+        {
+        Queue<Runnable>   queueParent = new ArrayDeque<>();
+        FairShareExecutor executor    = new FairShareExecutor((task, n) -> queueParent.add(task), 3);
+
+        for (int i = 0; i < 10; i++)
+            {
+            executor.execute(() -> {});
+            }
+        assertEquals(3, queueParent.size());
+        assertEquals(10, executor.getPendingCount());
+
+        executor.setConcurrencyLimit(5);
+        assertEquals(5, queueParent.size());
+
+        Runnable task;
+        while ((task = queueParent.poll()) != null)
+            {
+            task.run();
+            assertTrue(queueParent.size() <= 5);
+            }
+        assertEquals(0, executor.getPendingCount());
+        assertEquals(0, executor.getActiveCount());
+        }
+
+    @Test
+    public void testPause()
+        {
+        Queue<Runnable>   queueParent = new ArrayDeque<>();
+        FairShareExecutor executor    = new FairShareExecutor((task, n) -> queueParent.add(task), 2);
+        AtomicInteger     cExecuted   = new AtomicInteger();
+
+        executor.execute(cExecuted::incrementAndGet);
+        executor.execute(cExecuted::incrementAndGet);
+        executor.pause();
+        executor.execute(cExecuted::incrementAndGet);
+        assertEquals(2, queueParent.size());
+
+        // the already submitted tokens run one task each and are then released
+        Runnable task;
+        while ((task = queueParent.poll()) != null)
+            {
+            task.run();
+            }
+        assertEquals(2, cExecuted.get());
+        assertEquals(1, executor.getPendingCount());
+        assertEquals(0, executor.getActiveCount());
+
+        executor.resume();
+        while ((task = queueParent.poll()) != null)
+            {
+            task.run();
+            }
+        assertEquals(3, cExecuted.get());
+        assertEquals(0, executor.getPendingCount());
+        assertEquals(0, executor.getActiveCount());
+        }
+
+    @Test
+    public void testPauseTransitions()
+        {
+        FairShareExecutor executor = new FairShareExecutor((task, n) -> task.run(), 1);
+
+        assertThrows(IllegalStateException.class, executor::resume);
+        executor.pause();
+        assertThrows(IllegalStateException.class, executor::pause);
+        assertTrue(executor.isPaused());
+
+        executor.resume();
+        assertThrows(IllegalStateException.class, executor::resume);
+        assertFalse(executor.isPaused());
+
+        assertTrue(executor.setPaused(true));
+        assertFalse(executor.setPaused(true));
+        assertTrue(executor.setPaused(false));
+        assertFalse(executor.setPaused(false));
+        }
+
+    @Test
+    public void testConcurrency()
+            throws InterruptedException
+        {
+        WorkStealingExecutor executorWS = new WorkStealingExecutor(4, r ->
+            {
+            Thread thread = new Thread(r);
+            thread.setDaemon(true);
+            return thread;
+            });
+
+        FairShareExecutor executor = new FairShareExecutor(
+                new FairShareExecutor(executorWS, 4), 2);
+
+        int            cTasks   = 10_000;
+        CountDownLatch latch    = new CountDownLatch(cTasks);
+        AtomicInteger  cRunning = new AtomicInteger();
+        AtomicInteger  cMax     = new AtomicInteger();
+
+        for (int i = 0; i < cTasks; i++)
+            {
+            executor.execute(() ->
+                {
+                int c = cRunning.incrementAndGet();
+                cMax.accumulateAndGet(c, Math::max);
+                cRunning.decrementAndGet();
+                latch.countDown();
+                }, i % 4);
+            }
+
+        assertTrue(latch.await(30, TimeUnit.SECONDS), "not all tasks have been executed");
+        assertTrue(cMax.get() <= 2, "concurrency limit exceeded: " + cMax.get());
+
+        executorWS.shutdown();
+        }
+
+    @Test
+    public void testIdleQueue()
+            throws InterruptedException
+        {
+        WorkStealingExecutor executor = new WorkStealingExecutor(2, r ->
+            {
+            Thread thread = new Thread(r);
+            thread.setDaemon(true);
+            return thread;
+            });
+
+        // each affinity submission wakes up the worker directly (without taking it off the idle
+        // queue); the worker then parks again and must not be queued again
+        for (int i = 0; i < 1000; i++)
+            {
+            CountDownLatch latch = new CountDownLatch(1);
+            executor.execute(latch::countDown, i & 1);
+            assertTrue(latch.await(10, TimeUnit.SECONDS), "task has not been executed");
+            }
+
+        Thread.sleep(50);
+        assertTrue(executor.getIdleQueueSize() <= 2,
+                "idle queue size: " + executor.getIdleQueueSize());
+
+        executor.shutdown();
+        }
+    }
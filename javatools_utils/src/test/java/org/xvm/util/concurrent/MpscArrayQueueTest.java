@@ -0,0 +1,94 @@
+package org.xvm.util.concurrent;
+
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * Tests of the {@link MpscArrayQueue}.
+ */
+public class MpscArrayQueueTest
+    {
+    @Test
+    public void testCapacity()
+        {
+        MpscArrayQueue<Integer> queue = new MpscArrayQueue<>(5);
+        assertEquals(8, queue.capacity());
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+
+        for (int i = 0; i < 8; i++)
+            {
+            assertTrue(queue.offer(i));
+            }
+        assertFalse(queue.offer(8));
+        assertEquals(8, queue.size());
+
+        assertEquals(0, queue.poll());
+        assertTrue(queue.offer(8));
+        for (int i = 1; i <= 8; i++)
+            {
+            assertEquals(i, queue.poll());
+            }
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+        assertEquals(9, queue.getProducerIndex());
+        assertEquals(9, queue.getConsumerIndex());
+        }
+
+    @Test
+    public void testConcurrentProducers()
+            throws InterruptedException
+        {
+        int                    cProducers = 4;
+        int                    cItems     = 100_000;
+        MpscArrayQueue<long[]> queue      = new MpscArrayQueue<>(64);
+        CountDownLatch         latch      = new CountDownLatch(cProducers);
+
+        for (int iProducer = 0; iProducer < cProducers; iProducer++)
+            {
+            long nProducer = iProducer;
+            Thread thread = new Thread(() ->
+                {
+                for (long i = 0; i < cItems; i++)
+                    {
+                    long[] item = {nProducer, i};
+                    while (!queue.offer(item))
+                        {
+                        Thread.onSpinWait();
+                        }
+                    }
+                latch.countDown();
+                });
+            thread.setDaemon(true);
+            thread.start();
+            }
+
+        // each producer's items must arrive in order
+        long[] anNext = new long[cProducers];
+        long   cTotal = (long) cProducers * cItems;
+        for (long c = 0; c < cTotal; )
+            {
+            long[] item = queue.poll();
+            if (item == null)
+                {
+                Thread.onSpinWait();
+                continue;
+                }
+            int iProducer = (int) item[0];
+            assertEquals(anNext[iProducer]++, item[1]);
+            c++;
+            }
+
+        latch.await();
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.size());
+        }
+    }
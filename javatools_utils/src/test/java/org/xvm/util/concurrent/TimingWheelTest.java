@@ -0,0 +1,118 @@
+package org.xvm.util.concurrent;
+
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * Tests of the {@link TimingWheel}.
+ */
+public class TimingWheelTest
+    {
+    @Test
+    public void testExpiry()
+            throws InterruptedException
+        {
+        TimingWheel    wheel   = new TimingWheel("test");
+        CountDownLatch latch   = new CountDownLatch(3);
+        long           ldtNow  = System.nanoTime();
+        long[]         anDelay = {0, 5, 150};
+
+        for (long nDelay : anDelay)
+            {
+            wheel.schedule(latch::countDown, nDelay, TimeUnit.MILLISECONDS);
+            }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - ldtNow >= TimeUnit.MILLISECONDS.toNanos(150),
+                "a timeout must not expire early");
+        wheel.shutdown();
+        }
+
+    @Test
+    public void testCascade()
+            throws InterruptedException
+        {
+        // a tick of 10 micros makes the delays below span the three lower levels of the wheel
+        TimingWheel    wheel  = new TimingWheel("test", TimeUnit.MICROSECONDS.toNanos(10));
+        int            c      = 200;
+        CountDownLatch latch  = new CountDownLatch(c);
+        AtomicInteger  cEarly = new AtomicInteger();
+
+        for (int i = 0; i < c; i++)
+            {
+            long nDelay = (i * 7919L) % 300_000; // up to 300ms
+            long nDue   = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(nDelay);
+            wheel.schedule(() ->
+                {
+                if (System.nanoTime() < nDue)
+                    {
+                    cEarly.incrementAndGet();
+                    }
+                latch.countDown();
+                }, nDelay, TimeUnit.MICROSECONDS);
+            }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(0, cEarly.get());
+        assertEquals(0, wheel.getPendingCount());
+        wheel.shutdown();
+        }
+
+    @Test
+    public void testAfterIdle()
+            throws InterruptedException
+        {
+        // with a 100 nanos tick, one second of idleness is ten million ticks that the wheel must
+        // skip rather than visit when the next timeout comes in
+        TimingWheel    wheel = new TimingWheel("test", 100);
+        CountDownLatch latch = new CountDownLatch(1);
+
+        Thread.sleep(1000);
+
+        long ldtStart = System.nanoTime();
+        wheel.schedule(latch::countDown, 1, TimeUnit.MILLISECONDS);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        long cMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - ldtStart);
+        assertTrue(cMillis < 50, "a 1ms timeout expired after " + cMillis + "ms");
+        wheel.shutdown();
+        }
+
+    @Test
+    public void testCancel()
+            throws InterruptedException
+        {
+        TimingWheel    wheel  = new TimingWheel("test");
+        AtomicInteger  cFired = new AtomicInteger();
+        CountDownLatch latch  = new CountDownLatch(1);
+
+        TimingWheel.Timeout[] aTimeout = new TimingWheel.Timeout[1000];
+        for (int i = 0; i < aTimeout.length; i++)
+            {
+            aTimeout[i] = wheel.schedule(cFired::incrementAndGet, 20 + i % 50, TimeUnit.MILLISECONDS);
+            }
+        for (TimingWheel.Timeout timeout : aTimeout)
+            {
+            assertTrue(timeout.cancel());
+            assertFalse(timeout.cancel());
+            assertTrue(timeout.isCancelled());
+            }
+
+        TimingWheel.Timeout timeout = wheel.schedule(latch::countDown, 100, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(timeout.isExpired());
+        assertFalse(timeout.cancel());
+        assertEquals(0, cFired.get());
+        wheel.shutdown();
+        }
+    }
@@ -0,0 +1,48 @@
+package org.xvm.util.concurrent;
+
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * Tests of the {@link VirtualThreads}.
+ */
+public class VirtualThreadsTest
+    {
+    @Test
+    public void testSupport()
+        {
+        assertEquals(java.lang.Runtime.version().feature() >= 21, VirtualThreads.isSupported());
+        }
+
+    @Test
+    public void testExecutor()
+            throws Exception
+        {
+        if (VirtualThreads.isSupported())
+            {
+            ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("test@");
+            try
+                {
+                Future<String> future = executor.submit(() -> Thread.currentThread().getName());
+                assertTrue(future.get().startsWith("test@"));
+                }
+            finally
+                {
+                executor.shutdown();
+                }
+            }
+        else
+            {
+            assertThrows(UnsupportedOperationException.class,
+                    () -> VirtualThreads.newThreadPerTaskExecutor("test@"));
+            }
+        }
+    }
@@ -159,11 +159,20 @@ interface Service {
         /**
          * This is the memory footprint of the service, including memory that might not be being fully
          * utilized at the moment.
+         *
+         * A runtime is not required to track the footprint precisely, so this value is a best-effort
+         * estimate (for example, based on the service's allocations and the portion of the memory
+         * that survives garbage collection), or zero if the runtime is not able to estimate it.
          */
         @RO Int bytesReserved;
 
         /**
-         * This is the amount of memory that the service currently has allocated for stuff.
+         * This is the total amount of memory that the service has allocated since it was created. It
+         * is a running total, and not a measure of the memory that the service holds at the moment
+         * (see [bytesReserved]).
+         *
+         * A runtime may only sample the allocations, in which case this value is an estimate, or it
+         * may not be able to track them at all, in which case this value is zero.
          */
         @RO Int bytesAllocated;
 
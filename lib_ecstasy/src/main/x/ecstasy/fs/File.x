@@ -18,6 +18,35 @@ interface File
      */
     Byte[] contents;
 
+    /**
+     * Obtain the contents of the file as an immutable Array of Byte without necessarily reading
+     * the entire file into memory. An implementation may map the file into the address space of
+     * the process, in which case the bytes are brought in on demand, and neither slicing the
+     * resulting array nor decoding it (for example, using [ByteArray.unpackUtf8]) copies them.
+     *
+     * Unlike the [contents] property, the array returned by this method may not be a snapshot: if
+     * the file is modified, truncated or deleted while the array is still reachable, the behavior
+     * is undefined, and some operating systems refuse to delete or truncate a mapped file.
+     *
+     * **Warning:** the file is not locked, so any process can change it. If the file is truncated
+     * (by this process or by any other one) while the array is still reachable, then accessing the
+     * bytes past the new end of the file does not raise an exception: on a runtime that maps the
+     * file, it crashes the entire process (for example, the JVM is killed by a `SIGBUS` signal).
+     * This method must therefore only be used for files that no process will truncate or rewrite
+     * while the array is in use, such as published archives that are only ever replaced by a new
+     * file; any other file, and any file that the caller may later change, must be read using the
+     * [contents] property instead.
+     *
+     * @return the contents of the file
+     *
+     * @throws FileNotFound  if the file does not exist
+     * @throws AccessDenied  if the necessary file permissions to read the content have not
+     *                       been granted
+     */
+    immutable Byte[] mapContents() {
+        return contents.freeze();
+    }
+
     /**
      * Read a portion of the file contents as an Array of Byte.
      *
@@ -54,6 +83,24 @@ interface File
      */
     File append(Byte[] contents);
 
+    /**
+     * Modify the contents of the file so that it has the specified size, and then append the
+     * specified bytes to the end of the file. This is equivalent to
+     * `truncate(newSize).append(contents)`, but an implementation may perform it as a single
+     * operation.
+     *
+     * @param newSize   the size to truncate the file to
+     * @param contents  the bytes to append
+     *
+     * @return this File
+     *
+     * @throws FileNotFound  if the file does not exist
+     * @throws AccessDenied  if permission to modify the file has not been granted
+     */
+    File truncateAndAppend(Int newSize, Byte[] contents) {
+        return truncate(newSize).append(contents);
+    }
+
     /**
      * Determine if this file is an _archive_, which is a directory structure encoded into a file,
      * and which may contain any number of directories and files nested within it. If the file is
@@ -547,14 +547,15 @@ service Container
 
         /**
          * The memory footprint of the entire container, including all of its contained services and
-         * any nested containers.
+         * any nested containers. Like [ServiceStats.bytesReserved], this is a best-effort estimate.
          */
         @Override
         @RO Int bytesReserved;
 
         /**
-         * The amount of memory currently allocated within the entire container, including within
-         * all of its contained services and any nested containers.
+         * The total amount of memory allocated within the entire container since it was created,
+         * including within all of its contained services and any nested containers. Like
+         * [ServiceStats.bytesAllocated], this is a running total, which may be sampled.
          */
         @Override
         @RO Int bytesAllocated;
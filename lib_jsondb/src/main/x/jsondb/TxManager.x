@@ -2877,8 +2877,7 @@ service TxManager<Schema extends RootSchema>(Catalog<Schema> catalog)
         Int  length = file.size;
         assert length >= 20;        // log file is never empty!
 
-        file.truncate(length-2)
-            .append(s.utf8());
+        file.truncateAndAppend(length-2, s.utf8());
 
         logUpdated(safepoint);
     }
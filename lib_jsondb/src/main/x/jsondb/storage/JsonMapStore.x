@@ -679,8 +679,7 @@ service JsonMapStore<Key extends immutable Const, Value extends immutable Const>
                     assert length >= 6;
 
                     Byte[] bytes = buf.toString().utf8();
-                    file.truncate(length-2)
-                        .append(bytes);
+                    file.truncateAndAppend(length-2, bytes);
                     bytesUsed += bytes.size;
                 } else {
                     // replace the opening "," with an array begin "["
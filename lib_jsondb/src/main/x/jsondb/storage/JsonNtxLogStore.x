@@ -44,8 +44,7 @@ service JsonNtxLogStore<Element extends immutable Const>
         File file   = dataFile;
         Int  length = file.exists ? file.size : 0;
         if (length > 2) {
-            file.truncate(length-2)
-                .append(buf.toString().utf8());
+            file.truncateAndAppend(length-2, buf.toString().utf8());
         } else {
             // replace the opening "," with an array begin "["
             buf[0]         = '[';
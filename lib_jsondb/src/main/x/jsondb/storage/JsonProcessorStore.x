@@ -544,8 +544,7 @@ service JsonProcessorStore<Message extends immutable Const>
 
                     assert length >= 6;
 
-                    file.truncate(length-2)
-                        .append(buf.toString().utf8());
+                    file.truncateAndAppend(length-2, buf.toString().utf8());
                 } else {
                     // replace the opening "," with an array begin "["
                     buf[0]         = '[';
@@ -314,8 +314,7 @@ service JsonValueStore<Value extends immutable Const>
                 //      update timestamp" and rebuild file if someone else changed it
                 assert length >= 6;
 
-                file.truncate(length-2)
-                    .append(buf.toString().utf8());
+                file.truncateAndAppend(length-2, buf.toString().utf8());
             } else {
                 // replace the opening "," with an array begin "["
                 buf[0]         = '[';
@@ -0,0 +1,86 @@
+/**
+ * A micro-benchmark for the service scheduler with a large number of suspended fibers. Run with:
+ *
+ *      gradle manualTests:runOne -PtestName=fibers
+ */
+module TestFibers {
+    @Inject Console console;
+    @Inject Timer   timer;
+
+    static Int Suspended  = 10_000;
+    static Int Iterations = 10_000;
+
+    void run() {
+        Gate   gate   = new Gate();
+        Waiter waiter = new Waiter();
+
+        // suspend a large number of fibers on the "waiter" service; each of them waits for the gate
+        FutureVar<Boolean>[] parked = new FutureVar<Boolean>[];
+        for (Int i = 0; i < Suspended; ++i) {
+            @Future Boolean result = waiter.park(gate);
+            parked += &result;
+        }
+        assert waiter.ping(0) == 1;
+        console.print($"suspended fibers: {Suspended}");
+
+        // every call to the waiter makes its scheduler look for a ready fiber
+        measure("call with suspended fibers", () -> {
+            Int c = 0;
+            for (Int i = 0; i < Iterations; ++i) {
+                c += waiter.ping(i);
+            }
+            return c;
+        });
+
+        // release all the suspended fibers
+        timer.reset();
+        gate.open();
+        for (FutureVar<Boolean> result : parked) {
+            assert result.get();
+        }
+        console.print($"resumed {Suspended} fibers in {timer.elapsed.milliseconds} ms");
+
+        measure("call without suspended fibers", () -> {
+            Int c = 0;
+            for (Int i = 0; i < Iterations; ++i) {
+                c += waiter.ping(i);
+            }
+            return c;
+        });
+    }
+
+    void measure(String name, function Int () test) {
+        timer.reset();
+        Int      result = test();
+        Duration time   = timer.elapsed;
+        console.print($"{name}: {(time / Iterations).microseconds} us/call (result={result})");
+    }
+
+    service Gate {
+        FutureVar<Boolean>[] pending = new FutureVar<Boolean>[];
+
+        Boolean pass() {
+            @Future Boolean result;
+            pending += &result;
+            return result;
+        }
+
+        void open() {
+            for (FutureVar<Boolean> result : pending) {
+                result.complete(True);
+            }
+            pending.clear();
+        }
+    }
+
+    @Concurrent
+    service Waiter {
+        Boolean park(Gate gate) {
+            return gate.pass();
+        }
+
+        Int ping(Int n) {
+            return n + 1;
+        }
+    }
+}
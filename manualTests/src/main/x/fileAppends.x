@@ -0,0 +1,81 @@
+/**
+ * A micro-benchmark for the "database log" file updates: the commits per second of a single
+ * committer that replaces the closing bracket of a JSON array with a new entry (the way jsondb
+ * does), and of a number of concurrent committers appending to the same file. Run with:
+ *
+ *      gradle manualTests:runOne -PtestName=fileAppends
+ *
+ * To measure the durable commits, add "-Dxvm.syncAppends=true" to the JVM arguments.
+ */
+module TestFileAppends {
+    @Inject Console   console;
+    @Inject Directory tmpDir;
+    @Inject Timer     timer;
+
+    @Inject Map<String, String> properties;
+
+    static Int Passes     = 3;
+    static Int Commits    = 2000;
+    static Int Committers = 8;
+
+    void run() {
+        Boolean sync   = properties.getOrDefault("syncAppends", "false") == "true";
+        Byte[]  record = $",\n\{\"tx\":12345, \"data\":\"{"x" * 100}\"}\n]".utf8();
+        File    file   = tmpDir.fileFor("fileAppends.json");
+        console.print($"sync={sync}");
+
+        // single committer: the truncate and the append as one operation
+        for (Int pass : 0 ..< Passes) {
+            file.contents = "[\n]".utf8();
+            timer.reset();
+            for (Int i : 0 ..< Commits) {
+                file.truncateAndAppend(file.size - 2, record);
+            }
+            report("truncateAndAppend", Commits, timer.elapsed);
+        }
+
+        // single committer: the truncate and the append as separate operations
+        for (Int pass : 0 ..< Passes) {
+            file.contents = "[\n]".utf8();
+            timer.reset();
+            for (Int i : 0 ..< Commits) {
+                file.truncate(file.size - 2).append(record);
+            }
+            report("truncate, append ", Commits, timer.elapsed);
+        }
+
+        // concurrent committers appending to the same file
+        for (Int pass : 0 ..< Passes) {
+            file.contents = [];
+            Int count = Commits / Committers;
+            timer.reset();
+            FutureVar<Int>[] pending = new FutureVar<Int>[];
+            for (Int i : 0 ..< Committers) {
+                @Future Int result = new Committer(file, record).run(count);
+                pending += &result;
+            }
+            for (FutureVar<Int> result : pending) {
+                assert result.get() == count;
+            }
+            report($"{Committers} appenders     ", Commits, timer.elapsed);
+            assert file.size == record.size * count * Committers;
+        }
+
+        file.delete();
+    }
+
+    void report(String name, Int commits, Duration time) {
+        console.print($|{name}: {commits} commits in {time.milliseconds} ms \
+                       |({commits * 1000 / time.milliseconds.notLessThan(1)} commits/s)
+                     );
+    }
+
+    service Committer(File file, Byte[] record) {
+        Int run(Int count) {
+            for (Int i : 0 ..< count) {
+                file.append(record);
+            }
+            return count;
+        }
+    }
+}
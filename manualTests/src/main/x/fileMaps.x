@@ -0,0 +1,60 @@
+/**
+ * A micro-benchmark for reading large files: the time to obtain the contents of a file as a Byte[]
+ * and to decode a slice of it, using the `contents` property (which reads the entire file into
+ * memory) compared to the memory-mapped `mapContents()`. Run with:
+ *
+ *      gradle manualTests:runOne -PtestName=fileMaps
+ */
+module TestFileMaps {
+    @Inject Console   console;
+    @Inject Directory tmpDir;
+    @Inject Timer     timer;
+
+    static Int Passes    = 3;
+    static Int ChunkSize = 1M;
+    static Int Chunks    = 256;
+    static Int SliceSize = 64K;
+
+    void run() {
+        File file = tmpDir.fileFor("fileMaps.json");
+
+        Byte[] chunk = new Byte[ChunkSize](textByte).freeze(inPlace=True);
+        file.contents = [];
+        for (Int i : 0 ..< Chunks) {
+            file.append(chunk);
+        }
+        Int total = ChunkSize * Chunks;
+        assert file.size == total;
+
+        for (Int pass : 0 ..< Passes) {
+            timer.reset();
+            Byte[] bytes = file.contents;
+            Duration load = timer.elapsed;
+            String   text = bytes[total / 2 ..< total / 2 + SliceSize].unpackUtf8();
+            report("contents     ", load, timer.elapsed, text.size);
+        }
+
+        for (Int pass : 0 ..< Passes) {
+            timer.reset();
+            Byte[] bytes = file.mapContents();
+            Duration load = timer.elapsed;
+            String   text = bytes[total / 2 ..< total / 2 + SliceSize].unpackUtf8();
+            report("mapContents()", load, timer.elapsed, text.size);
+        }
+
+        file.delete();
+    }
+
+    /**
+     * @return the byte at the specified offset of the text: lines of 63 letters each
+     */
+    static Byte textByte(Int offset) {
+        return offset % 64 == 63 ? '\n'.toByte() : 'a'.toByte() + (offset % 26).toByte();
+    }
+
+    void report(String name, Duration load, Duration total, Int chars) {
+        console.print($|{name}: {ChunkSize * Chunks / 1M} MB loaded in {load.milliseconds} ms, \
+                       |{chars} chars decoded after {total.milliseconds} ms
+                     );
+    }
+}
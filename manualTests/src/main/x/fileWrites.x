@@ -0,0 +1,104 @@
+/**
+ * A micro-benchmark for the large file writes: the throughput of the gathering FileChannel writes,
+ * compared to appending the same data to a File one chunk at a time. Run with:
+ *
+ *      gradle manualTests:runOne -PtestName=fileWrites
+ */
+module TestFileWrites {
+    import ecstasy.fs.FileChannel;
+    import ecstasy.io.ReadBuffer;
+
+    @Inject Console   console;
+    @Inject Directory tmpDir;
+    @Inject Timer     timer;
+
+    static Int Passes    = 3;
+    static Int ChunkSize = 512K;
+    static Int Gather    = 8;
+    static Int Writes    = 16;
+
+    void run() {
+        Byte[] chunk = new Byte[ChunkSize](i -> i.toByte()).freeze(inPlace=True);
+        Int    total = ChunkSize * Gather * Writes;
+        File   file  = tmpDir.fileFor("fileWrites.dat");
+
+        // channel: each write gathers a number of buffers into a single native operation
+        for (Int pass : 0 ..< Passes) {
+            file.contents = [];
+            FileChannel channel = file.open(write=[Write]);
+
+            ReadBuffer[] buffers = new ReadBuffer[Gather](_ -> new ArrayBuffer(chunk))
+                                    .freeze(inPlace=True);
+
+            timer.reset();
+            for (Int i : 0 ..< Writes) {
+                buffers.forEach(b -> b.rewind());
+                assert channel.write(buffers) == ChunkSize * Gather;
+            }
+            report("channel", total, timer.elapsed);
+            channel.flush();
+
+            assert channel.position == total && channel.size == total;
+            channel.size = total / 2;
+            assert channel.size == total / 2;
+            channel.close();
+        }
+
+        // append: each chunk is written by a separate File operation
+        for (Int pass : 0 ..< Passes) {
+            file.contents = [];
+
+            timer.reset();
+            for (Int i : 0 ..< Gather * Writes) {
+                file.append(chunk);
+            }
+            report("append ", total, timer.elapsed);
+
+            assert file.size == total;
+        }
+
+        file.delete();
+    }
+
+    void report(String name, Int total, Duration time) {
+        console.print($|{name}: {total / 1M} MB written in {time.milliseconds} ms \
+                       |({total * 1000 / 1M / time.milliseconds.notLessThan(1)} MB/s)
+                     );
+    }
+
+    /**
+     * A ReadBuffer over an immutable array. It's a service, so that it can be passed to the
+     * channel.
+     */
+    service ArrayBuffer(Byte[] bytes)
+            implements ReadBuffer {
+        @Override
+        Int offset = 0;
+
+        @Override
+        @RO Int size.get() {
+            return bytes.size;
+        }
+
+        @Override
+        Byte getByte(Int index) {
+            return bytes[index];
+        }
+
+        @Override
+        Byte readByte() {
+            return bytes[offset++];
+        }
+
+        @Override
+        Byte[] readBytes(Int count) {
+            assert:bounds 0 <= count <= size - offset;
+            Byte[] slice = bytes[offset ..< offset + count];
+            offset += count;
+            return slice;
+        }
+
+        @Override
+        void close(Exception? cause = Null) {}
+    }
+}
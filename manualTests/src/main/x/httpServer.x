@@ -0,0 +1,62 @@
+/**
+ * A server for the load tests of the native HttpServer: it answers every request with a small
+ * plain text response (or echoes the request body back), touching the request headers the way
+ * the xenia Dispatcher does, so that the measurements reflect the native engine rather than the
+ * web framework. Run with:
+ *
+ *      gradle manualTests:runOne -PtestName=httpServer
+ *
+ * and point any HTTP/1.1 load generator at http://localhost:8080/ (or https://localhost:8090/).
+ * The server is shut down after the number of seconds specified by the first argument (defaults
+ * to 60).
+ */
+module TestHttpServer {
+    package crypto import crypto.xtclang.org;
+    package xenia  import xenia.xtclang.org;
+
+    import crypto.KeyStore;
+
+    import xenia.HttpServer;
+    import xenia.HttpServer.RequestContext;
+
+    @Inject Console console;
+    @Inject Timer   timer;
+
+    static UInt16 HttpPort  = 8080;
+    static UInt16 HttpsPort = 8090;
+
+    void run(String[] args = []) {
+        File store = ./webTests/resources/hello/https.p12;
+        @Inject(opts=new KeyStore.Info(store.contents, "password")) KeyStore keystore;
+
+        @Inject HttpServer server;
+        server.configure("localhost", "localhost", HttpPort, HttpsPort, keystore);
+        server.start(new Responder(server));
+
+        Int seconds = args.empty ? 60 : new Int(args[0]);
+        console.print($|Listening on http://localhost:{HttpPort}/ and https://localhost:{HttpsPort}/ \
+                       |for {seconds} seconds
+                     );
+        timer.schedule(Duration.ofSeconds(seconds), () -> server.close());
+    }
+
+    service Responder(HttpServer server)
+            implements HttpServer.Handler {
+        static Byte[] Hello = "Hello, World!".utf8();
+
+        @Override
+        void handle(RequestContext context, String uri, String method, Boolean tls) {
+            // the way xenia's Http1Request would look at the request
+            String[] names = server.getHeaderNames(context);
+            for (String name : names) {
+                assert server.getHeaderValuesForName(context, name);
+            }
+
+            Byte[] body = Hello;
+            if (Byte[] bytes := server.getBodyBytes(context)) {
+                body = bytes;
+            }
+            server.send(context, 200, ["Content-Type"], ["text/plain"], body);
+        }
+    }
+}
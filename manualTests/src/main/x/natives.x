@@ -0,0 +1,68 @@
+/**
+ * A micro-benchmark for the most commonly used native methods. Run with:
+ *
+ *      gradle manualTests:runOne -PtestName=natives
+ */
+module TestNatives {
+    @Inject Console console;
+    @Inject Timer   timer;
+
+    static Int Iterations = 200_000;
+
+    void run() {
+        measure("String.substring", () -> {
+            String s = "hello, world";
+            Int    c = 0;
+            for (Int i = 0; i < Iterations; ++i) {
+                c += s.substring(i & 7).size;
+            }
+            return c;
+        });
+
+        measure("String.indexOf", () -> {
+            String s = "hello, world";
+            Int    c = 0;
+            for (Int i = 0; i < Iterations; ++i) {
+                if (Int of := s.indexOf('w', i & 3)) {
+                    c += of;
+                }
+            }
+            return c;
+        });
+
+        measure("Array.getElement", () -> {
+            List<Int> list = new Array<Int>(16, i -> i);
+            Int       c    = 0;
+            for (Int i = 0; i < Iterations; ++i) {
+                c += list.getElement(i & 15);
+            }
+            return c;
+        });
+
+        measure("Array.setElement", () -> {
+            Int[] array = new Int[16](0);
+            for (Int i = 0; i < Iterations; ++i) {
+                array.setElement(i & 15, i);
+            }
+            return array[0];
+        });
+
+        measure("Array.elementAt", () -> {
+            Int[] array = new Int[16](i -> i);
+            Int   c     = 0;
+            for (Int i = 0; i < Iterations; ++i) {
+                c += array.elementAt(i & 15).get();
+            }
+            return c;
+        });
+    }
+
+    void measure(String name, function Int () test) {
+        test(); // warm up
+
+        timer.reset();
+        Int      result = test();
+        Duration time   = timer.elapsed;
+        console.print($"{name}: {(time / Iterations).nanoseconds} ns/call (result={result})");
+    }
+}
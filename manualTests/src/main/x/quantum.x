@@ -0,0 +1,41 @@
+/**
+ * A micro-benchmark for the service scheduler with a large number of small requests. Run with:
+ *
+ *      gradle manualTests:runOne -PtestName=quantum
+ */
+module TestQuantum {
+    @Inject Console console;
+    @Inject Timer   timer;
+
+    static Int Count = 200_000;
+
+    void run() {
+        Counter counter = new Counter();
+
+        // warm-up
+        send(counter, 10_000);
+
+        timer.reset();
+        send(counter, Count);
+        Duration time = timer.elapsed;
+        console.print($|{Count} async calls in {time.milliseconds} ms;\
+                       | {Count * 1000 / time.milliseconds} calls/sec
+                      );
+    }
+
+    void send(Counter counter, Int count) {
+        @Future Int last;
+        for (Int i = 0; i < count; ++i) {
+            last = counter.inc^();
+        }
+        assert last > 0;
+    }
+
+    service Counter {
+        Int value;
+
+        Int inc() {
+            return ++value;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * A micro-benchmark for the loopback socket I/O: the latency of small request/reply round trips,
+ * and the throughput of a bulk echo. Run with:
+ *
+ *      gradle manualTests:runOne -PtestName=sockets
+ */
+module TestSockets {
+    package net import net.xtclang.org;
+
+    import net.IPAddress;
+    import net.Network;
+    import net.ServerSocket;
+    import net.Socket;
+
+    @Inject Console console;
+    @Inject Network network;
+    @Inject Timer   timer;
+
+    static Int Passes     = 3;
+    static Int RoundTrips = 1000;
+    static Int PingSize   = 64;
+    static Int ChunkSize  = 16K;
+    static Int Chunks     = 640;
+
+    void run() {
+        assert ServerSocket server := network.listen((new IPAddress("127.0.0.1"), 0));
+        Echo echo = new Echo(server);
+
+        // latency: each round trip writes a small message and waits for its echo
+        echo.serve^(PingSize);
+        assert Socket socket := network.connect(server.localAddress);
+        BinaryOutput out  = socket.out;
+        BinaryInput  in   = socket.in;
+        Byte[]       ping = new Byte[PingSize](i -> i.toByte()).freeze(inPlace=True);
+        out.writeBytes(ping);
+        assert in.readBytes(PingSize) == ping;
+
+        for (Int pass : 0 ..< Passes) {
+            timer.reset();
+            for (Int i : 0 ..< RoundTrips) {
+                out.writeBytes(ping);
+                in.readBytes(PingSize);
+            }
+            console.print($"latency: {(timer.elapsed / RoundTrips).microseconds} us/round trip");
+        }
+        socket.close();
+
+        // throughput: a separate service keeps writing while this one reads the echo
+        echo.serve^(ChunkSize);
+        assert socket := network.connect(server.localAddress);
+        Byte[] chunk = new Byte[ChunkSize](0x33).freeze(inPlace=True);
+        for (Int pass : 0 ..< Passes) {
+            timer.reset();
+            new Writer(socket.out, chunk, Chunks).run^();
+            Int total = 0;
+            while (total < ChunkSize * Chunks) {
+                total += socket.in.readBytes(ChunkSize).size;
+            }
+            Duration time = timer.elapsed;
+            console.print($|throughput: {total / 1M} MB echoed in {time.milliseconds} ms \
+                           |({total * 1000 / 1M / time.milliseconds.notLessThan(1)} MB/s)
+                         );
+        }
+        socket.close();
+        server.close();
+    }
+
+    service Writer(BinaryOutput out, Byte[] chunk, Int count) {
+        void run() {
+            for (Int i : 0 ..< count) {
+                out.writeBytes(chunk);
+            }
+        }
+    }
+
+    service Echo(ServerSocket server) {
+        void serve(Int size) {
+            Socket socket = server.accept();
+            try {
+                BinaryInput  in  = socket.in;
+                BinaryOutput out = socket.out;
+                while (True) {
+                    out.writeBytes(in.readBytes(size));
+                }
+            } catch (Exception e) {
+                socket.close();
+            }
+        }
+    }
+}